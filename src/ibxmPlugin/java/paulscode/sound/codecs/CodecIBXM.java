@@ -43,11 +43,11 @@ import java.io.InputStream;
 import java.io.IOException;
 import java.net.URL;
 import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
-import java.nio.ShortBuffer;
 import javax.sound.sampled.AudioFormat;
 
-import paulscode.sound.ICodec;
+import paulscode.sound.ByteArrayAccumulator;
+import paulscode.sound.IByteBufferCodec;
+import paulscode.sound.PCMConverter;
 import paulscode.sound.SoundBuffer;
 import paulscode.sound.SoundSystemConfig;
 import paulscode.sound.SoundSystemLogger;
@@ -63,7 +63,7 @@ import ibxm.ScreamTracker3;
  * files via the IBXM library.
  */
 @SuppressWarnings("unused")
-public class CodecIBXM implements ICodec {
+public class CodecIBXM implements IByteBufferCodec {
 	/**
 	 * True if there is no more data to read in.
 	 */
@@ -85,6 +85,11 @@ public class CodecIBXM implements ICodec {
 	 */
 	private boolean reverseBytes = false;
 
+	/**
+	 * Reused by read(ByteBuffer) to hold data from the module player.
+	 */
+	private byte[] readBuffer = null;
+
 	/**
 	 * IBXM decoder.
 	 */
@@ -236,7 +241,7 @@ public class CodecIBXM implements ICodec {
 			endOfStream(SET, true);
 			return null;
 		}
-		byte[] outputBuffer = new byte[frames * 4];
+		byte[] outputBuffer = SoundSystemConfig.getStreamBufferPool().borrow(frames * 4);
 
 		ibxm.get_audio(outputBuffer, frames);
 
@@ -252,6 +257,53 @@ public class CodecIBXM implements ICodec {
 		return new SoundBuffer(outputBuffer, myAudioFormat);
 	}
 
+	/**
+	 * Reads in up to one stream buffer worth of audio data, straight into the
+	 * specified buffer.  See {@link SoundSystemConfig SoundSystemConfig} for
+	 * more information about accessing and changing default settings.
+	 *
+	 * @param target Buffer to fill, starting at its position.
+	 * @return Number of bytes read, or -1 if nothing could be read.
+	 */
+	public int read(ByteBuffer target) {
+		if (endOfStream(GET, XXX)) return -1;
+
+		if (module == null) {
+			errorMessage("Module null in method 'read'");
+			return -1;
+		}
+
+		// Check to make sure there is an audio format:
+		if (myAudioFormat == null) {
+			errorMessage("Audio Format null in method 'read'");
+			return -1;
+		}
+
+		int bufferFrameSize = Math.min(target.remaining(), SoundSystemConfig.getStreamingBufferSize()) / 4;
+
+		int frames = songDuration - playPosition;
+		if (frames > bufferFrameSize) frames = bufferFrameSize;
+
+		if (frames <= 0) {
+			if (playPosition >= songDuration) endOfStream(SET, true);
+			return -1;
+		}
+		if (readBuffer == null || readBuffer.length < frames * 4) readBuffer = new byte[frames * 4];
+
+		ibxm.get_audio(readBuffer, frames);
+
+		playPosition += frames;
+		if (playPosition >= songDuration) {
+			endOfStream(SET, true);
+		}
+
+		// Reverse the byte order if necessary:
+		if (reverseBytes) reverseBytes(readBuffer, 0, frames * 4);
+
+		target.put(readBuffer, 0, frames * 4);
+		return frames * 4;
+	}
+
 	/**
 	 * Reads in all the audio data from the stream (up to the default "maximum file size").
 	 * See {@link SoundSystemConfig} for more information about accessing and changing default settings.
@@ -274,8 +326,9 @@ public class CodecIBXM implements ICodec {
 
 		byte[] outputBuffer = new byte[bufferFrameSize * 4];
 
-		// Buffer to contain the audio data:
-		byte[] fullBuffer = null;
+		// Collects the audio data.  The song's length is known, so this is
+		// sized to fit it exactly:
+		ByteArrayAccumulator fullBuffer = new ByteArrayAccumulator((int) Math.min((long) (songDuration - playPosition) * 4, SoundSystemConfig.getMaxFileSize()));
 		// frames of audio data:
 		int frames;
 		// bytes of audio data:
@@ -287,7 +340,7 @@ public class CodecIBXM implements ICodec {
 			ibxm.get_audio(outputBuffer, frames);
 			totalBytes += (frames * 4);
 
-			fullBuffer = appendByteArrays(fullBuffer, outputBuffer, frames * 4);
+			fullBuffer.append(outputBuffer, 0, frames * 4);
 
 			playPosition += frames;
 			if (playPosition >= songDuration) {
@@ -295,11 +348,13 @@ public class CodecIBXM implements ICodec {
 			}
 		}
 
+		byte[] data = fullBuffer.toByteArray();
+
 		// Reverse the byte order if necessary:
-		if (reverseBytes) reverseBytes(fullBuffer, 0, totalBytes);
+		if (reverseBytes && data != null) reverseBytes(data, 0, totalBytes);
 
 		// Wrap the data into a SoundBuffer:
-		return new SoundBuffer(fullBuffer, myAudioFormat);
+		return new SoundBuffer(data, myAudioFormat);
 	}
 
 	/**
@@ -423,84 +478,7 @@ public class CodecIBXM implements ICodec {
 	 * @param size   number of bytes to reverse-order.
 	 */
 	public static void reverseBytes(byte[] buffer, int offset, int size) {
-
-		byte b;
-		for (int i = offset; i < (offset + size); i += 2) {
-			b = buffer[i];
-			buffer[i] = buffer[i + 1];
-			buffer[i + 1] = b;
-		}
-	}
-
-	/**
-	 * Converts sound bytes to little-endian format.
-	 *
-	 * @param audio_bytes    The original wave data
-	 * @param two_bytes_data For stereo sounds.
-	 * @return byte array containing the converted data.
-	 */
-	private static byte[] convertAudioBytes(byte[] audio_bytes, boolean two_bytes_data) {
-		ByteBuffer dest = ByteBuffer.allocateDirect(audio_bytes.length);
-		dest.order(ByteOrder.nativeOrder());
-		ByteBuffer src = ByteBuffer.wrap(audio_bytes);
-		src.order(ByteOrder.LITTLE_ENDIAN);
-		if (two_bytes_data) {
-			ShortBuffer dest_short = dest.asShortBuffer();
-			ShortBuffer src_short = src.asShortBuffer();
-			while (src_short.hasRemaining()) {
-				dest_short.put(src_short.get());
-			}
-		} else {
-			while (src.hasRemaining()) {
-				dest.put(src.get());
-			}
-		}
-		dest.rewind();
-
-		if (!dest.hasArray()) {
-			byte[] arrayBackedBuffer = new byte[dest.capacity()];
-			dest.get(arrayBackedBuffer);
-			dest.clear();
-
-			return arrayBackedBuffer;
-		}
-
-		return dest.array();
-	}
-
-	/**
-	 * Creates a new array with the second array appended to the end of the first
-	 * array.
-	 *
-	 * @param arrayOne The first array.
-	 * @param arrayTwo The second array.
-	 * @param length   How many bytes to append from the second array.
-	 * @return Byte array containing information from both arrays.
-	 */
-	private static byte[] appendByteArrays(byte[] arrayOne, byte[] arrayTwo, int length) {
-		byte[] newArray;
-		if (arrayOne == null && arrayTwo == null) {
-			// no data, just return
-			return null;
-		} else if (arrayOne == null) {
-			// create the new array, same length as arrayTwo:
-			newArray = new byte[length];
-			// fill the new array with the contents of arrayTwo:
-			System.arraycopy(arrayTwo, 0, newArray, 0, length);
-		} else if (arrayTwo == null) {
-			// create the new array, same length as arrayOne:
-			newArray = new byte[arrayOne.length];
-			// fill the new array with the contents of arrayOne:
-			System.arraycopy(arrayOne, 0, newArray, 0, arrayOne.length);
-		} else {
-			// create the new array large enough to hold both arrays:
-			newArray = new byte[arrayOne.length + length];
-			System.arraycopy(arrayOne, 0, newArray, 0, arrayOne.length);
-			// fill the new array with the contents of both arrays:
-			System.arraycopy(arrayTwo, 0, newArray, arrayOne.length, length);
-		}
-
-		return newArray;
+		PCMConverter.swapBytes16(buffer, offset, size);
 	}
 
 	/**
@@ -200,6 +200,9 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
 import java.net.URLConnection;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
 import javax.sound.sampled.AudioFormat;
 
 // From the JOrbis library, https://www.jcraft.com/jorbis/
@@ -212,7 +215,11 @@ import com.jcraft.jorbis.Block;
 import com.jcraft.jorbis.Comment;
 import com.jcraft.jorbis.Info;
 
-import paulscode.sound.ICodec;
+import paulscode.sound.ByteArrayAccumulator;
+import paulscode.sound.IByteBufferCodec;
+import paulscode.sound.ISeekableCodec;
+import paulscode.sound.OggPageSeeker;
+import paulscode.sound.PCMConverter;
 import paulscode.sound.SoundBuffer;
 import paulscode.sound.SoundSystemConfig;
 import paulscode.sound.SoundSystemLogger;
@@ -220,9 +227,13 @@ import paulscode.sound.SoundSystemLogger;
 /**
  * This class provides an ICodec interface
  * for reading from OGG files via the JOrbis library.
+ * It can also decode straight into a caller-supplied ByteBuffer (see
+ * {@link IByteBufferCodec}), and seek (see {@link ISeekableCodec}).  Local
+ * files are seeked by bisecting the file on page granule positions; other
+ * URLs are read again from the beginning.
  */
 @SuppressWarnings("FieldMayBeFinal")
-public class CodecJOrbis implements ICodec {
+public class CodecJOrbis implements IByteBufferCodec, ISeekableCodec {
 	/**
 	 * URL to the audio file to stream from.
 	 */
@@ -283,6 +294,54 @@ public class CodecJOrbis implements ICodec {
 	 */
 	private byte[] convertedBuffer = null;
 
+	/**
+	 * Whether decoded data is 32-bit float rather than 16-bit integer PCM.
+	 */
+	private boolean floatOutput = false;
+
+	/**
+	 * Decoded data which did not fit in the last buffer passed to
+	 * read(ByteBuffer), or null if none.
+	 */
+	private byte[] leftoverBytes = null;
+
+	/**
+	 * Index of the first byte in leftoverBytes which has not been read yet.
+	 */
+	private int leftoverIndex = 0;
+
+	/**
+	 * Sample frame the next read will start at.
+	 */
+	private long framePosition = 0;
+
+	/**
+	 * Length of the stream in sample frames, or -1 if not known yet.
+	 */
+	private long frameLength = -1;
+
+	/**
+	 * Granule position of the last page decoded by readBytes(), or -1 if
+	 * none.
+	 */
+	private long pageGranule = -1;
+
+	/**
+	 * Local file opened for seeking, or null.
+	 */
+	private FileChannel seekChannel = null;
+
+	/**
+	 * Finds pages in seekChannel.
+	 */
+	private OggPageSeeker pageSeeker = null;
+
+	/**
+	 * True if the input stream reads from seekChannel (closing one closes the
+	 * other).
+	 */
+	private boolean readingSeekChannel = false;
+
 	/**
 	 * Nonlinear pcm data.
 	 */
@@ -362,6 +421,9 @@ public class CodecJOrbis implements ICodec {
 	 */
 	public boolean initialize(URL url) {
 		initialized(SET, false);
+		leftoverBytes = null;
+		framePosition = 0;
+		frameLength = -1;
 
 		if (joggStreamState != null) joggStreamState.clear();
 		if (jorbisBlock != null) jorbisBlock.clear();
@@ -375,6 +437,7 @@ public class CodecJOrbis implements ICodec {
 			} catch (IOException ignored) {
 			}
 		}
+		closeSeekChannel();
 
 		this.url = url;
 		//this.bufferSize = SoundSystemConfig.getStreamingBufferSize() / 2;
@@ -425,7 +488,8 @@ public class CodecJOrbis implements ICodec {
 			return false;
 		}
 
-		convertedBufferSize = bufferSize * 2;
+		floatOutput = SoundSystemConfig.useFloatOutput();
+		convertedBufferSize = bufferSize * (floatOutput ? 4 : 2);
 
 		jorbisDspState.synthesis_init(jorbisInfo);
 		jorbisBlock.init(jorbisDspState);
@@ -433,7 +497,10 @@ public class CodecJOrbis implements ICodec {
 		int channels = jorbisInfo.channels;
 		int rate = jorbisInfo.rate;
 
-		audioFormat = new AudioFormat((float) rate, 16, channels, true, false);
+		if (floatOutput)
+			audioFormat = new AudioFormat(AudioFormat.Encoding.PCM_FLOAT, (float) rate, 32, channels, 4 * channels, (float) rate, false);
+		else
+			audioFormat = new AudioFormat((float) rate, 16, channels, true, false);
 		pcmInfo = new float[1][][];
 		pcmIndex = new int[jorbisInfo.channels];
 
@@ -466,18 +533,247 @@ public class CodecJOrbis implements ICodec {
 	 * @return The audio data wrapped into a SoundBuffer context.
 	 */
 	public SoundBuffer read() {
-		byte[] returnBuffer = null;
+		ByteArrayAccumulator accumulator = new ByteArrayAccumulator();
+		accumulator.append(takeLeftoverBytes());
 
-		while (!endOfStream(GET, XXX) && (returnBuffer == null || returnBuffer.length < SoundSystemConfig.getStreamingBufferSize())) {
-			if (returnBuffer == null) returnBuffer = readBytes();
-			else returnBuffer = appendByteArrays(returnBuffer, readBytes());
+		while (!endOfStream(GET, XXX) && accumulator.size() < SoundSystemConfig.getStreamingBufferSize()) {
+			accumulator.append(readBytes());
 		}
 
+		byte[] returnBuffer = accumulator.toByteArray();
 		if (returnBuffer == null) return null;
 
+		framePosition += returnBuffer.length / frameSize();
 		return new SoundBuffer(returnBuffer, audioFormat);
 	}
 
+	/**
+	 * Reads in up to one stream buffer worth of audio data, straight into the
+	 * specified buffer.  Decoded data which doesn't fit is kept for the next
+	 * read.  See {@link SoundSystemConfig SoundSystemConfig} for more
+	 * information about accessing and changing default settings.
+	 *
+	 * @param target Buffer to fill, starting at its position.
+	 * @return Number of bytes read, or -1 if nothing could be read.
+	 */
+	public int read(ByteBuffer target) {
+		int start = target.position();
+		int limit = start + Math.min(target.remaining(), SoundSystemConfig.getStreamingBufferSize());
+		byte[] bytes;
+		int length;
+
+		while (target.position() < limit) {
+			if (leftoverBytes == null) {
+				if (endOfStream(GET, XXX) || !initialized(GET, XXX)) break;
+				bytes = readBytes();
+				if (bytes == null) continue;
+				leftoverBytes = bytes;
+				leftoverIndex = 0;
+			}
+			length = Math.min(leftoverBytes.length - leftoverIndex, limit - target.position());
+			target.put(leftoverBytes, leftoverIndex, length);
+			leftoverIndex += length;
+			if (leftoverIndex >= leftoverBytes.length) leftoverBytes = null;
+		}
+
+		if (target.position() == start) return -1;
+		framePosition += (target.position() - start) / frameSize();
+		return target.position() - start;
+	}
+
+	/**
+	 * Moves the stream to the specified sample frame.  Local files are searched
+	 * for the nearest page before the frame, which is then decoded up to the
+	 * exact frame.  Other URLs are decoded from the beginning (or from the
+	 * current position, if it is before the frame).
+	 *
+	 * @param frame Sample frame to move to, counting from 0.
+	 * @return False if the stream is not initialized or could not be moved.
+	 */
+	public boolean seek(long frame) {
+		if (!initialized(GET, XXX) || joggSyncState == null || jorbisInfo == null) return false;
+		if (frame < 0) frame = 0;
+
+		try {
+			if (openSeekChannel()) {
+				long offset = pageSeeker.findOffset(frame);
+				if (offset < 0) return false;
+
+				// Read the stream from the page found:
+				if (inputStream != null && !readingSeekChannel) inputStream.close();
+				seekChannel.position(offset);
+				inputStream = Channels.newInputStream(seekChannel);
+				readingSeekChannel = true;
+				joggSyncState.reset();
+				joggStreamState.reset();
+
+				// Forget what was decoded before:
+				jorbisBlock.clear();
+				jorbisDspState.clear();
+				jorbisDspState = new DspState();
+				jorbisDspState.synthesis_init(jorbisInfo);
+				jorbisBlock = new Block(jorbisDspState);
+				jorbisBlock.init(jorbisDspState);
+				leftoverBytes = null;
+				endOfStream(SET, false);
+
+				decodeTo(frame);
+				return true;
+			}
+		} catch (IOException e) {
+			errorMessage("Unable to seek in method 'seek'");
+			printStackTrace(e);
+			return false;
+		}
+
+		// Not a local file, so decode up to the frame:
+		if (frame < framePosition && !initialize(url)) return false;
+		skipTo(frame);
+		return true;
+	}
+
+	/**
+	 * Returns the sample frame the next read will start at.
+	 *
+	 * @return Sample frame.
+	 */
+	public long position() {
+		return framePosition;
+	}
+
+	/**
+	 * Returns the length of the stream, found from the granule position of the
+	 * last page.  Only known for local files.
+	 *
+	 * @return Number of sample frames, or -1 if unknown.
+	 */
+	public long length() {
+		if (frameLength < 0 && initialized(GET, XXX)) {
+			try {
+				if (openSeekChannel()) frameLength = pageSeeker.lastGranule();
+			} catch (IOException e) {
+				frameLength = -1;
+			}
+		}
+		return frameLength;
+	}
+
+	/**
+	 * Decodes pages after a seek until the one containing the specified frame,
+	 * and keeps the data from that frame on for the next read.  The position of
+	 * the decoded data is worked out from the granule position of each page.
+	 *
+	 * @param frame Sample frame to stop at.
+	 */
+	private void decodeTo(long frame) {
+		byte[] pending = null;
+		byte[] bytes;
+		long start;
+		int skip;
+
+		framePosition = frame;
+		while (!endOfStream(GET, XXX)) {
+			pageGranule = -1;
+			bytes = readBytes();
+			if (bytes != null) pending = appendByteArrays(pending, bytes);
+			if (pageGranule <= 0) continue;
+
+			// Everything decoded so far ends at the page's granule position:
+			start = pageGranule - (pending == null ? 0 : pending.length / frameSize());
+			if (pageGranule > frame) {
+				skip = (int) Math.max(0, frame - start) * frameSize();
+				if (pending != null && skip < pending.length) {
+					leftoverBytes = pending;
+					leftoverIndex = skip;
+				}
+				framePosition = Math.max(frame, start);
+				return;
+			}
+			pending = null;
+		}
+	}
+
+	/**
+	 * Decodes from the current position up to the specified frame, and keeps
+	 * the data from that frame on for the next read.
+	 *
+	 * @param frame Sample frame to stop at.
+	 */
+	private void skipTo(long frame) {
+		byte[] bytes;
+		long frames;
+
+		while (framePosition < frame) {
+			bytes = takeLeftoverBytes();
+			if (bytes == null) {
+				if (endOfStream(GET, XXX)) return;
+				bytes = readBytes();
+				if (bytes == null) continue;
+			}
+			frames = bytes.length / frameSize();
+			if (framePosition + frames > frame) {
+				leftoverBytes = bytes;
+				leftoverIndex = (int) (frame - framePosition) * frameSize();
+				framePosition = frame;
+				return;
+			}
+			framePosition += frames;
+		}
+	}
+
+	/**
+	 * Returns the number of bytes in one sample frame of decoded data.
+	 *
+	 * @return Two bytes for each channel, or four if decoding to float.
+	 */
+	private int frameSize() {
+		return audioFormat == null ? 2 : audioFormat.getFrameSize();
+	}
+
+	/**
+	 * Opens the stream's URL for seeking, if it is a local file.
+	 *
+	 * @return True if the file is open for seeking.
+	 */
+	private boolean openSeekChannel() {
+		if (seekChannel != null && seekChannel.isOpen()) return true;
+		seekChannel = OggPageSeeker.openChannel(url);
+		pageSeeker = seekChannel == null ? null : new OggPageSeeker(seekChannel);
+		return seekChannel != null;
+	}
+
+	/**
+	 * Closes the file opened for seeking, if any.
+	 */
+	private void closeSeekChannel() {
+		if (seekChannel != null) {
+			try {
+				seekChannel.close();
+			} catch (IOException ignored) {
+			}
+		}
+		seekChannel = null;
+		pageSeeker = null;
+		readingSeekChannel = false;
+	}
+
+	/**
+	 * Returns any data left over from the last call to read(ByteBuffer), and
+	 * forgets about it.
+	 *
+	 * @return The left over data, or null if none.
+	 */
+	private byte[] takeLeftoverBytes() {
+		if (leftoverBytes == null) return null;
+		byte[] bytes = leftoverBytes;
+		if (leftoverIndex > 0) {
+			bytes = new byte[leftoverBytes.length - leftoverIndex];
+			System.arraycopy(leftoverBytes, leftoverIndex, bytes, 0, bytes.length);
+		}
+		leftoverBytes = null;
+		return bytes;
+	}
+
 	/**
 	 * Reads in all the audio data from the stream (up to the default "maximum file size").
 	 * See {@link SoundSystemConfig} for more information about accessing and changing default settings.
@@ -485,13 +781,14 @@ public class CodecJOrbis implements ICodec {
 	 * @return the audio data wrapped into a SoundBuffer context.
 	 */
 	public SoundBuffer readAll() {
-		byte[] returnBuffer = null;
+		// Collects the decoded pages, to be copied into one array at the end:
+		ByteArrayAccumulator accumulator = new ByteArrayAccumulator();
 
 		while (!endOfStream(GET, XXX)) {
-			if (returnBuffer == null) returnBuffer = readBytes();
-			else returnBuffer = appendByteArrays(returnBuffer, readBytes());
+			accumulator.append(readBytes());
 		}
 
+		byte[] returnBuffer = accumulator.toByteArray();
 		if (returnBuffer == null) return null;
 
 		return new SoundBuffer(returnBuffer, audioFormat);
@@ -503,13 +800,14 @@ public class CodecJOrbis implements ICodec {
 	 * @return True if end of stream was reached.
 	 */
 	public boolean endOfStream() {
-		return endOfStream(GET, XXX);
+		return endOfStream(GET, XXX) && leftoverBytes == null;
 	}
 
 	/**
 	 * Closes the input stream and remove references to all instantiated objects.
 	 */
 	public void cleanup() {
+		initialized(SET, false);
 		joggStreamState.clear();
 		jorbisBlock.clear();
 		jorbisDspState.clear();
@@ -522,6 +820,7 @@ public class CodecJOrbis implements ICodec {
 			} catch (IOException ignored) {
 			}
 		}
+		closeSeekChannel();
 
 		joggStreamState = null;
 		jorbisBlock = null;
@@ -529,6 +828,7 @@ public class CodecJOrbis implements ICodec {
 		jorbisInfo = null;
 		joggSyncState = null;
 		inputStream = null;
+		leftoverBytes = null;
 	}
 
 	/**
@@ -636,7 +936,8 @@ public class CodecJOrbis implements ICodec {
 		byte[] returnBuffer = null;
 
 		float[][] pcmf;
-		int samples, bout, ptr, mono, val, i, j;
+		int samples, bout, i;
+		int frameBytes = frameSize();
 
 		switch (joggSyncState.pageout(joggPage)) {
 			case (0):
@@ -644,6 +945,7 @@ public class CodecJOrbis implements ICodec {
 				break;
 			default: {
 				joggStreamState.pagein(joggPage);
+				pageGranule = joggPage.granulepos();
 				if (joggPage.granulepos() == 0) {
 					endOfStream(SET, true);
 					return null;
@@ -661,23 +963,18 @@ public class CodecJOrbis implements ICodec {
 
 							while ((samples = jorbisDspState.synthesis_pcmout(pcmInfo, pcmIndex)) > 0) {
 								pcmf = pcmInfo[0];
-								bout = (Math.min(samples, convertedBufferSize));
-								for (i = 0; i < jorbisInfo.channels; i++) {
-									ptr = i * 2;
-									mono = pcmIndex[i];
-									for (j = 0; j < bout; j++) {
-										val = (int) (pcmf[i][mono + j] * 32767);
-										if (val > 32767) val = 32767;
-										if (val < -32768) val = -32768;
-										if (val < 0) val = val | 0x8000;
-										convertedBuffer[ptr] = (byte) (val);
-										convertedBuffer[ptr + 1] = (byte) (val >>> 8);
-										ptr += 2 * (jorbisInfo.channels);
-									}
+								bout = (Math.min(samples, convertedBufferSize / frameBytes));
+								if (floatOutput) {
+									// Keep Vorbis's own float samples:
+									for (i = 0; i < jorbisInfo.channels; i++)
+										PCMConverter.floatToFloat32(pcmf[i], pcmIndex[i], convertedBuffer, i * 4, bout, frameBytes);
+								} else {
+									for (i = 0; i < jorbisInfo.channels; i++)
+										PCMConverter.floatToSigned16(pcmf[i], pcmIndex[i], convertedBuffer, i * 2, bout, frameBytes);
 								}
 								jorbisDspState.synthesis_read(bout);
 
-								returnBuffer = appendByteArrays(returnBuffer, convertedBuffer, 2 * jorbisInfo.channels * bout);
+								returnBuffer = appendByteArrays(returnBuffer, convertedBuffer, frameBytes * bout);
 							}
 						}
 					}
@@ -66,6 +66,7 @@ import java.io.IOException;
 import java.net.URL;
 import javax.sound.sampled.AudioFormat;
 
+import paulscode.sound.ByteArrayAccumulator;
 import paulscode.sound.ICodec;
 import paulscode.sound.SoundBuffer;
 import paulscode.sound.SoundSystemConfig;
@@ -278,7 +279,8 @@ public class CodecJSpeex implements ICodec {
 			return null;
 		}
 
-		byte[] fullBuffer = null;
+		// Collects the decoded frames, to be copied into one array at the end:
+		ByteArrayAccumulator fullBuffer = new ByteArrayAccumulator();
 		int totalBytes = 0;
 		try {
 			if (getSourceFormat() == CONTAINER_FORMAT_OGG) {
@@ -296,7 +298,7 @@ public class CodecJSpeex implements ICodec {
 							speexDecoder.processData(false);
 						}
 						if ((decsize = speexDecoder.getProcessedData(decdat, 0)) > 0) {
-							fullBuffer = appendByteArrays(fullBuffer, decdat, decsize);
+							fullBuffer.append(decdat, 0, decsize);
 							totalBytes += decsize;
 						}
 					}
@@ -337,7 +339,7 @@ public class CodecJSpeex implements ICodec {
 							speexDecoder.processData(false);
 						}
 						if ((decsize = speexDecoder.getProcessedData(decdat, 0)) > 0) {
-							fullBuffer = appendByteArrays(fullBuffer, decdat, decsize);
+							fullBuffer.append(decdat, 0, decsize);
 							totalBytes += decsize;
 						}
 						packetNo++;
@@ -351,7 +353,7 @@ public class CodecJSpeex implements ICodec {
 						speexDecoder.processData(false);
 					}
 					if ((decsize = speexDecoder.getProcessedData(decdat, 0)) > 0) {
-						fullBuffer = appendByteArrays(fullBuffer, decdat, decsize);
+						fullBuffer.append(decdat, 0, decsize);
 						totalBytes += decsize;
 					}
 					packetNo++;
@@ -365,7 +367,7 @@ public class CodecJSpeex implements ICodec {
 		}
 
 		// Wrap the data into a SoundBuffer:
-		return new SoundBuffer(fullBuffer, myAudioFormat);
+		return new SoundBuffer(fullBuffer.toByteArray(), myAudioFormat);
 	}
 
 	/**
@@ -644,41 +646,6 @@ public class CodecJSpeex implements ICodec {
 		return endOfStream;
 	}
 
-	/**
-	 * Creates a new array with the second array appended to the end of the first
-	 * array.
-	 *
-	 * @param arrayOne The first array.
-	 * @param arrayTwo The second array.
-	 * @param length   How many bytes to append from the second array.
-	 * @return Byte array containing information from both arrays.
-	 */
-	private static byte[] appendByteArrays(byte[] arrayOne, byte[] arrayTwo, int length) {
-		byte[] newArray;
-		if (arrayOne == null && arrayTwo == null) {
-			// no data, just return
-			return null;
-		} else if (arrayOne == null) {
-			// create the new array, same length as arrayTwo:
-			newArray = new byte[length];
-			// fill the new array with the contents of arrayTwo:
-			System.arraycopy(arrayTwo, 0, newArray, 0, length);
-		} else if (arrayTwo == null) {
-			// create the new array, same length as arrayOne:
-			newArray = new byte[arrayOne.length];
-			// fill the new array with the contents of arrayOne:
-			System.arraycopy(arrayOne, 0, newArray, 0, arrayOne.length);
-		} else {
-			// create the new array large enough to hold both arrays:
-			newArray = new byte[arrayOne.length + length];
-			System.arraycopy(arrayOne, 0, newArray, 0, arrayOne.length);
-			// fill the new array with the contents of both arrays:
-			System.arraycopy(arrayTwo, 0, newArray, arrayOne.length, length);
-		}
-
-		return newArray;
-	}
-
 	/**
 	 * Prints an error message.
 	 *
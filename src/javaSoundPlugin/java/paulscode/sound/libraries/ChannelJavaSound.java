@@ -28,6 +28,7 @@
 
 package paulscode.sound.libraries;
 
+import java.nio.ByteBuffer;
 import java.util.LinkedList;
 import java.util.List;
 
@@ -564,6 +565,39 @@ public class ChannelJavaSound extends Channel {
 		return true;
 	}
 
+	/**
+	 * Queues up the data between the position and limit of a buffer to be
+	 * streamed.  The data is copied into an array borrowed from the
+	 * {@link SoundSystemConfig#getStreamBufferPool() stream buffer pool}, which
+	 * is given back once the SourceDataLine has it.
+	 *
+	 * @param buffer The next buffer to be played for a streaming source.
+	 * @return False if an error occurred or if the channel is shutting down.
+	 */
+	@Override
+	public boolean queueBuffer(ByteBuffer buffer) {
+		// Stream buffers can only be queued for streaming sources:
+		if (errorCheck(channelType != SoundSystemConfig.TYPE_STREAMING, "Buffers may only be queued for streaming sources."))
+			return false;
+
+		// Make sure we have a SourceDataLine:
+		if (errorCheck(sourceDataLine == null, "SourceDataLine null in method 'queueBuffer'.")) return false;
+
+		// make sure a format was specified:
+		if (errorCheck(myFormat == null, "AudioFormat null in method 'queueBuffer'")) return false;
+
+		// Queue a new buffer:
+		byte[] data = SoundSystemConfig.getStreamBufferPool().borrow(buffer.remaining());
+		buffer.get(data);
+		streamBuffers.add(new PooledSoundBuffer(data, myFormat));
+
+		// Dequeue a buffer and process it:
+		processBuffer();
+
+		processed = 0;
+		return true;
+	}
+
 	/**
 	 * Plays the next queued byte[] buffer.
 	 * This method is run from the separate {@link StreamThread StreamThread}.
@@ -586,6 +620,8 @@ public class ChannelJavaSound extends Channel {
 
 		sourceDataLine.write(nextBuffer.audioData, 0, nextBuffer.audioData.length);
 		if (!sourceDataLine.isActive()) sourceDataLine.start();
+		// The SourceDataLine has copied the data, so the array can be reused:
+		if (nextBuffer instanceof PooledSoundBuffer) SoundSystemConfig.getStreamBufferPool().recycle(nextBuffer.audioData);
 		nextBuffer.cleanup();
 
 		return true;
@@ -638,6 +674,19 @@ public class ChannelJavaSound extends Channel {
 		return processed;
 	}
 
+	/**
+	 * Checks if the SourceDataLine has played everything written to it while no
+	 * more buffers are waiting to be written.
+	 *
+	 * @return True if the channel ran out of data.
+	 */
+	@Override
+	public boolean starved() {
+		if (channelType != SoundSystemConfig.TYPE_STREAMING || sourceDataLine == null) return false;
+		if (streamBuffers != null && !streamBuffers.isEmpty()) return false;
+		return sourceDataLine.available() >= sourceDataLine.getBufferSize();
+	}
+
 	/**
 	 * Dequeues all previously queued data.
 	 */
@@ -814,4 +863,20 @@ public class ChannelJavaSound extends Channel {
 				return false;
 		}
 	}
+
+	/**
+	 * A stream buffer whose array was borrowed from the stream buffer pool, and
+	 * should be given back once it has been played.
+	 */
+	private static class PooledSoundBuffer extends SoundBuffer {
+		/**
+		 * Constructor:
+		 *
+		 * @param audioData   Borrowed array holding the audio data.
+		 * @param audioFormat The audio format in which the data is stored.
+		 */
+		PooledSoundBuffer(byte[] audioData, AudioFormat audioFormat) {
+			super(audioData, audioFormat);
+		}
+	}
 }
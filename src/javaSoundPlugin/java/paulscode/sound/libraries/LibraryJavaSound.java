@@ -48,6 +48,7 @@ import paulscode.sound.ICodec;
 import paulscode.sound.Library;
 import paulscode.sound.Source;
 import paulscode.sound.SoundBuffer;
+import paulscode.sound.SoundBufferMap;
 import paulscode.sound.SoundSystem;
 import paulscode.sound.SoundSystemConfig;
 import paulscode.sound.SoundSystemException;
@@ -244,7 +245,7 @@ public class LibraryJavaSound extends Library {
 	public boolean loadSound(FilenameURL filenameURL) {
 		// Make sure the buffer map exists:
 		if (bufferMap == null) {
-			bufferMap = new HashMap<>();
+			bufferMap = new SoundBufferMap();
 			importantMessage("Buffer Map was null in method 'loadSound'");
 		}
 
@@ -254,7 +255,7 @@ public class LibraryJavaSound extends Library {
 		// check if it is already loaded:
 		if (bufferMap.get(filenameURL.getFilename()) != null) return true;
 
-		ICodec codec = SoundSystemConfig.getCodec(filenameURL.getFilename());
+		ICodec codec = SoundSystemConfig.getCodec(filenameURL);
 		if (errorCheck(codec == null, "No codec found for file '" + filenameURL.getFilename() + "' in method 'loadSound'"))
 			return false;
 		URL url = filenameURL.getURL();
@@ -262,9 +263,8 @@ public class LibraryJavaSound extends Library {
 		if (errorCheck(url == null, "Unable to open file '" + filenameURL.getFilename() + "' in method 'loadSound'"))
 			return false;
 
-		codec.initialize(url);
-		SoundBuffer buffer = codec.readAll();
-		codec.cleanup();
+		SoundBuffer buffer = SoundSystemConfig.getPCMDiskCache().readAll(codec, url, false);
+		SoundSystemConfig.releaseCodec(codec);
 		codec = null;
 		if (buffer != null) bufferMap.put(filenameURL.getFilename(), buffer);
 		else errorMessage("Sound buffer null in method 'loadSound'");
@@ -285,7 +285,7 @@ public class LibraryJavaSound extends Library {
 	public boolean loadSound(SoundBuffer buffer, String identifier) {
 		// Make sure the buffer map exists:
 		if (bufferMap == null) {
-			bufferMap = new HashMap<>();
+			bufferMap = new SoundBufferMap();
 			importantMessage("Buffer Map was null in method 'loadSound'");
 		}
 
@@ -302,6 +302,17 @@ public class LibraryJavaSound extends Library {
 		return true;
 	}
 
+	/**
+	 * Sounds are decoded by codecs alone, so they can be loaded in the
+	 * background.
+	 *
+	 * @return True.
+	 */
+	@Override
+	public boolean supportsAsyncLoading() {
+		return true;
+	}
+
 	/**
 	 * Sets the overall volume to the specified value, affecting all sources.
 	 *
@@ -442,7 +453,7 @@ public class LibraryJavaSound extends Library {
 
 		// Make sure the buffer map exists:
 		if (bufferMap == null) {
-			bufferMap = new HashMap<>();
+			bufferMap = new SoundBufferMap();
 			importantMessage("Buffer Map was null in method 'copySources'");
 		}
 
@@ -286,7 +286,13 @@ public class SourceJavaSound extends Source {
 		// See if we are already playing:
 		if (wasStopped || !playing()) {
 			if (toStream && !wasPaused) {
-				preLoad = true;
+				// Keep the decode threads away while the stream starts over:
+				decodeLock.lock();
+				try {
+					preLoad = true;
+				} finally {
+					decodeLock.unlock();
+				}
 			}
 			channel.play();
 		}
@@ -319,9 +325,9 @@ public class SourceJavaSound extends Source {
 				}
 			}
 		} else {
-			codec.initialize(filenameURL.getURL());
+			restartStream();
 
-			for (int i = 0; i < SoundSystemConfig.getNumberStreamingBuffers(); i++) {
+			for (int i = 0; i < getNumberStreamingBuffers(); i++) {
 				soundBuffer = codec.read();
 
 				if (soundBuffer == null || soundBuffer.audioData == null) break;
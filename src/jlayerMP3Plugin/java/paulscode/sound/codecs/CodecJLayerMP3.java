@@ -18,16 +18,19 @@ package paulscode.sound.codecs;
 
 import java.io.BufferedInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URL;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 import javax.sound.sampled.AudioFormat;
 import javax.sound.sampled.AudioInputStream;
 
-import javazoom.jl.decoder.Bitstream;
-import javazoom.jl.decoder.Decoder;
-import javazoom.jl.decoder.Header;
 import javazoom.jl.decoder.Obuffer;
 import javazoom.spi.mpeg.sampled.convert.DecodedMpegAudioInputStream;
-import paulscode.sound.ICodec;
+import paulscode.sound.ByteArrayAccumulator;
+import paulscode.sound.IByteBufferCodec;
+import paulscode.sound.ISeekableCodec;
+import paulscode.sound.PCMConverter;
 import paulscode.sound.SoundBuffer;
 import paulscode.sound.SoundSystemConfig;
 import paulscode.sound.SoundSystemLogger;
@@ -41,9 +44,20 @@ import paulscode.sound.SoundSystemLogger;
  *
  * JLayer, MP3SPI and Tritonus library are released under the conditions of
  * GNU Library General Public License version 2 or (at your option) any later version of the License.
+ *
+ * <p>The file is opened once: the first frame header (and any Xing or VBRI
+ * header in it) is read before handing the same stream to the decoder.  A
+ * frame index built by scanning frame headers, without decoding, gives the
+ * exact length and lets the codec seek (see {@link ISeekableCodec}).</p>
  */
 @SuppressWarnings("unused")
-public class CodecJLayerMP3 implements ICodec {
+public class CodecJLayerMP3 implements IByteBufferCodec, ISeekableCodec {
+	/**
+	 * Number of frames decoded and thrown away before the target frame when
+	 * seeking, so the decoder's bit reservoir is filled.
+	 */
+	private static final int PREROLL_FRAMES = 2;
+
 	/**
 	 * True if there is no more data to read in.
 	 */
@@ -59,11 +73,36 @@ public class CodecJLayerMP3 implements ICodec {
 	 */
 	private AudioFormat myAudioFormat = null;
 
+	/**
+	 * Format handed to the decoder along with the mp3 data.
+	 */
+	private AudioFormat mpegAudioFormat = null;
+
 	/**
 	 * Input stream to use for reading in pcm data.
 	 */
 	private DecodedMpegAudioInputStream myAudioInputStream = null;
 
+	/**
+	 * URL to the file being streamed from.
+	 */
+	private URL url = null;
+
+	/**
+	 * Frame headers and offsets for the file.
+	 */
+	private FrameIndex frameIndex = null;
+
+	/**
+	 * Sample frame the next read will start at.
+	 */
+	private long framePosition = 0;
+
+	/**
+	 * Reused by read(ByteBuffer) to hold data from the audio input stream.
+	 */
+	private byte[] readBuffer = null;
+
 	/**
 	 * Processes status messages, warnings, and error messages.
 	 */
@@ -87,30 +126,23 @@ public class CodecJLayerMP3 implements ICodec {
 			return false;
 		}
 
+		this.url = url;
+		framePosition = 0;
 		try {
-			Bitstream bitstream = new Bitstream(new BufferedInputStream(url.openStream()));
-			Decoder decoder = new Decoder();
-
-			Header mainHeader = bitstream.readFrame();
-
-			DMAISObuffer buffer = new DMAISObuffer(2);
-			decoder.setOutputBuffer(buffer);
-
-			int channels;
-			if (mainHeader.mode() < 3) {
-				channels = 2;
-			} else {
-				channels = 1;
+			// Read the first frame header, then hand the same stream to the decoder:
+			InputStream inputStream = new BufferedInputStream(url.openStream());
+			frameIndex = FrameIndex.read(inputStream);
+			if (frameIndex == null) {
+				errorMessage("No MPEG audio frame found in method 'initialize'");
+				cleanup();
+				return false;
 			}
 
-			bitstream.closeFrame();
-			bitstream.close();
-
-			myAudioFormat = new AudioFormat(AudioFormat.Encoding.PCM_SIGNED, mainHeader.frequency(), 16, channels, channels * 2, mainHeader.frequency(), false);
-
-			AudioFormat mpegAudioFormat = new AudioFormat(AudioFormat.Encoding.PCM_SIGNED, -1.0f, 16, channels, channels * 2, -1.0f, false);
+			int channels = frameIndex.channels;
+			myAudioFormat = new AudioFormat(AudioFormat.Encoding.PCM_SIGNED, frameIndex.sampleRate, 16, channels, channels * 2, frameIndex.sampleRate, false);
+			mpegAudioFormat = new AudioFormat(AudioFormat.Encoding.PCM_SIGNED, -1.0f, 16, channels, channels * 2, -1.0f, false);
 
-			myAudioInputStream = new DecodedMpegAudioInputStream(myAudioFormat, new AudioInputStream(new BufferedInputStream(url.openStream()), mpegAudioFormat, -1));
+			myAudioInputStream = new DecodedMpegAudioInputStream(myAudioFormat, new AudioInputStream(inputStream, mpegAudioFormat, -1));
 		} catch (Exception e) {
 			errorMessage("Unable to set up input streams in method 'initialize'");
 			printStackTrace(e);
@@ -148,8 +180,8 @@ public class CodecJLayerMP3 implements ICodec {
 		// Variables used when reading from the audio input stream.
 		int bytesRead = 0, cnt;
 
-		// Allocate memory for the audio data.
-		byte[] streamBuffer = new byte[SoundSystemConfig.getStreamingBufferSize()];
+		// Borrow memory for the audio data.
+		byte[] streamBuffer = SoundSystemConfig.getStreamBufferPool().borrow(SoundSystemConfig.getStreamingBufferSize());
 
 		try {
 			// Read until buffer is full or end of stream is reached.
@@ -180,10 +212,155 @@ public class CodecJLayerMP3 implements ICodec {
 			return null;
 		}
 
+		// Give back the memory if the data doesn't fill it (end of stream).
+		if (bytesRead < streamBuffer.length) {
+			byte[] data = SoundSystemConfig.getStreamBufferPool().borrow(bytesRead);
+			System.arraycopy(streamBuffer, 0, data, 0, bytesRead);
+			SoundSystemConfig.getStreamBufferPool().recycle(streamBuffer);
+			streamBuffer = data;
+		}
+		framePosition += bytesRead / audioFormat.getFrameSize();
+
 		// Wrap the data into a SoundBuffer.
 		return new SoundBuffer(streamBuffer, audioFormat);
 	}
 
+	@Override
+	public int read(ByteBuffer target) {
+		if (myAudioInputStream == null) {
+			endOfStream(SET, true);
+			return -1;
+		}
+
+		// Variables used when reading from the audio input stream.
+		int bytesRead = 0, cnt;
+		int length = Math.min(target.remaining(), SoundSystemConfig.getStreamingBufferSize());
+		if (readBuffer == null || readBuffer.length < length) readBuffer = new byte[length];
+
+		try {
+			// Read until buffer is full or end of stream is reached.
+			while ((!endOfStream(GET, XXX)) && (bytesRead < length)) {
+				myAudioInputStream.execute();
+				if ((cnt = myAudioInputStream.read(readBuffer, bytesRead, length - bytesRead)) <= 0) {
+					endOfStream(SET, true);
+					break;
+				}
+				// Keep track of how many bytes were read.
+				bytesRead += cnt;
+			}
+		} catch (IOException ioe) {
+			endOfStream(SET, true);
+			return -1;
+		} catch (ArrayIndexOutOfBoundsException e) {
+			// This exception is thrown at the end of the MP3s.
+			endOfStream(SET, true);
+			return -1;
+		}
+
+		// Return -1 if no data was read:
+		if (bytesRead <= 0) {
+			endOfStream(SET, true);
+			return -1;
+		}
+
+		target.put(readBuffer, 0, bytesRead);
+		framePosition += bytesRead / myAudioFormat.getFrameSize();
+		return bytesRead;
+	}
+
+	/**
+	 * Moves the stream to the specified sample frame.  The frame index gives
+	 * the offset of the mp3 frame containing it, and decoding starts a couple
+	 * of frames before that so the decoder's bit reservoir is filled.
+	 *
+	 * @param frame Sample frame to move to, counting from 0.
+	 * @return False if the stream is not initialized or could not be moved.
+	 */
+	@Override
+	public boolean seek(long frame) {
+		if (!initialized(GET, XXX) || frameIndex == null || myAudioInputStream == null) return false;
+		if (frame < 0) frame = 0;
+
+		try {
+			if (!frameIndex.scan(url)) return false;
+			int samplesPerFrame = frameIndex.samplesPerFrame;
+			long mpegFrame = frame / samplesPerFrame;
+			if (mpegFrame >= frameIndex.frameCount) {
+				// Past the end:
+				endOfStream(SET, true);
+				framePosition = frameIndex.frameCount * samplesPerFrame;
+				return true;
+			}
+			long startFrame = Math.max(0, mpegFrame - PREROLL_FRAMES);
+
+			// Open the stream at the start frame:
+			InputStream inputStream = new BufferedInputStream(url.openStream());
+			FrameIndex.skipFully(inputStream, frameIndex.getFrameOffset(startFrame));
+			myAudioInputStream.close();
+			myAudioInputStream = new DecodedMpegAudioInputStream(myAudioFormat, new AudioInputStream(inputStream, mpegAudioFormat, -1));
+			endOfStream(SET, false);
+
+			// Throw away what comes before the target frame:
+			framePosition = startFrame * samplesPerFrame;
+			discard((frame - framePosition) * myAudioFormat.getFrameSize());
+			framePosition = frame;
+		} catch (Exception e) {
+			errorMessage("Unable to seek in method 'seek'");
+			printStackTrace(e);
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the sample frame the next read will start at.
+	 *
+	 * @return Sample frame.
+	 */
+	@Override
+	public long position() {
+		return framePosition;
+	}
+
+	/**
+	 * Returns the length of the stream.  This is known right away if the file
+	 * has a Xing or VBRI header, otherwise local files have their frame headers
+	 * scanned (once) to count the frames.
+	 *
+	 * @return Number of sample frames, or -1 if unknown.
+	 */
+	@Override
+	public long length() {
+		if (frameIndex == null) return -1;
+		if (frameIndex.frameCount < 0 && "file".equals(url.getProtocol())) {
+			try {
+				frameIndex.scan(url);
+			} catch (IOException e) {
+				return -1;
+			}
+		}
+		if (frameIndex.frameCount < 0) return -1;
+		return frameIndex.frameCount * frameIndex.samplesPerFrame;
+	}
+
+	/**
+	 * Reads and throws away the specified number of bytes of decoded data.
+	 *
+	 * @param bytes Number of bytes to throw away.
+	 */
+	private void discard(long bytes) throws IOException {
+		int cnt;
+		if (readBuffer == null || readBuffer.length < 4096) readBuffer = new byte[4096];
+		while (bytes > 0) {
+			myAudioInputStream.execute();
+			if ((cnt = myAudioInputStream.read(readBuffer, 0, (int) Math.min(readBuffer.length, bytes))) <= 0) {
+				endOfStream(SET, true);
+				return;
+			}
+			bytes -= cnt;
+		}
+	}
+
 	@Override
 	public SoundBuffer readAll() {
 		// Check to make sure there is an audio format.
@@ -195,64 +372,74 @@ public class CodecJLayerMP3 implements ICodec {
 		// Array to contain the audio data.
 		byte[] fullBuffer = null;
 
-		// Determine how much data will be read in.
-		int fileSize = myAudioFormat.getChannels() * (int) myAudioInputStream.getFrameLength() * myAudioFormat.getSampleSizeInBits() / 8;
+		// Variables used when reading from the audio input stream.
+		int totalBytes = 0, bytesRead, cnt;
+
+		// Determine how much data will be read in, from the frame index.
+		long frames = length();
+		int fileSize = frames > 0 ? (int) Math.min(frames * myAudioFormat.getFrameSize(), SoundSystemConfig.getMaxFileSize()) : 0;
 		if (fileSize > 0) {
-			// Allocate memory for the audio data.
-			fullBuffer = new byte[myAudioFormat.getChannels() * (int) myAudioInputStream.getFrameLength() * myAudioFormat.getSampleSizeInBits() / 8];
-			int read, total = 0;
+			// Allocate memory for all of the audio data at once.
+			fullBuffer = new byte[fileSize];
 			try {
-				// Read until the end of the stream is reached.
-				while ((read = myAudioInputStream.read(fullBuffer, total, fullBuffer.length - total)) != -1 && total < fullBuffer.length) {
-					total += read;
+				while (totalBytes < fullBuffer.length) {
+					myAudioInputStream.execute();
+					if ((cnt = myAudioInputStream.read(fullBuffer, totalBytes, fullBuffer.length - totalBytes)) <= 0) {
+						endOfStream(SET, true);
+						break;
+					}
+					totalBytes += cnt;
 				}
 			} catch (IOException e) {
 				errorMessage("Exception thrown while reading from the AudioInputStream (location #1).");
 				printStackTrace(e);
 				return null;
+			} catch (ArrayIndexOutOfBoundsException e) {
+				// This exception is thrown at the end of the MP3s.
+				endOfStream(SET, true);
 			}
-		} else {
-			// Total file size unknown.
-
-			// Variables used when reading from the audio input stream.
-			int totalBytes = 0, bytesRead, cnt;
-			byte[] smallBuffer;
-
-			// Allocate memory for a chunk of data:
-			smallBuffer = new byte[SoundSystemConfig.getFileChunkSize()];
-
-			// Read until end of file or maximum file size is reached.
-			while ((!endOfStream(GET, XXX)) && (totalBytes < SoundSystemConfig.getMaxFileSize())) {
-				bytesRead = 0;
-
-				try {
-					// Read until small buffer is filled or end of file reached.
-					while (bytesRead < smallBuffer.length) {
-						myAudioInputStream.execute();
-						if ((cnt = myAudioInputStream.read(smallBuffer, bytesRead, smallBuffer.length - bytesRead)) <= 0) {
-							endOfStream(SET, true);
-							break;
-						}
-						bytesRead += cnt;
-					}
-				} catch (IOException e) {
-					errorMessage("Exception thrown while reading from the AudioInputStream (location #2).");
-					printStackTrace(e);
-					return null;
-				}
 
-				// Reverse byte order if necessary.
-				// if (reverseBytes) {
-				//     reverseBytes(smallBuffer, 0, bytesRead);
-				// }
+			// Trim off anything the decoder didn't fill.
+			if (totalBytes < fullBuffer.length) fullBuffer = Arrays.copyOf(fullBuffer, totalBytes);
+		}
 
-				// Keep track of the total number of bytes read:
-				totalBytes += bytesRead;
+		// Read whatever is left (everything, if the size wasn't known).
+		byte[] smallBuffer = null;
+		ByteArrayAccumulator accumulator = null;
+		while ((!endOfStream(GET, XXX)) && (totalBytes < SoundSystemConfig.getMaxFileSize())) {
+			bytesRead = 0;
+
+			// Allocate memory for a chunk of data, and start collecting chunks
+			// to be copied into one array at the end:
+			if (smallBuffer == null) {
+				smallBuffer = new byte[SoundSystemConfig.getFileChunkSize()];
+				accumulator = new ByteArrayAccumulator();
+				accumulator.append(fullBuffer);
+			}
 
-				// Append the small buffer to the full buffer:
-				fullBuffer = appendByteArrays(fullBuffer, smallBuffer, bytesRead);
+			try {
+				// Read until small buffer is filled or end of file reached.
+				while (bytesRead < smallBuffer.length) {
+					myAudioInputStream.execute();
+					if ((cnt = myAudioInputStream.read(smallBuffer, bytesRead, smallBuffer.length - bytesRead)) <= 0) {
+						endOfStream(SET, true);
+						break;
+					}
+					bytesRead += cnt;
+				}
+			} catch (IOException e) {
+				errorMessage("Exception thrown while reading from the AudioInputStream (location #2).");
+				printStackTrace(e);
+				return null;
 			}
+
+			// Keep track of the total number of bytes read:
+			totalBytes += bytesRead;
+
+			// Append the small buffer to the full buffer:
+			accumulator.append(smallBuffer, 0, bytesRead);
 		}
+		if (accumulator != null) fullBuffer = accumulator.toByteArray();
 
 		// Insert the converted data into a ByteBuffer.
 		// byte[] data = convertAudioBytes(fullBuffer,
@@ -336,12 +523,7 @@ public class CodecJLayerMP3 implements ICodec {
 	 * @param size number of bytes to reverse-order.
 	 */
 	public static void reverseBytes(byte[] buffer, int offset, int size) {
-		byte b;
-		for (int i = offset; i < (offset + size); i += 2) {
-			b = buffer[i];
-			buffer[i] = buffer[i + 1];
-			buffer[i + 1] = b;
-		}
+		PCMConverter.swapBytes16(buffer, offset, size);
 	}
 
 	/**
@@ -363,37 +545,309 @@ public class CodecJLayerMP3 implements ICodec {
 	}
 
 	/**
-	 * Creates a new array with the second array appended to the end of the first array.
-	 *
-	 * @param arrayOne The first array.
-	 * @param arrayTwo The second array.
-	 * @param length How many bytes to append from the second array.
-	 * @return Byte array containing information from both arrays.
+	 * The FrameIndex class reads MPEG audio frame headers without decoding
+	 * them.  The first frame header gives the format (and, if the file has a
+	 * Xing or VBRI header, the number of frames).  Scanning the rest of the
+	 * headers records the offset of every frame, for seeking.
 	 */
-	private static byte[] appendByteArrays(byte[] arrayOne, byte[] arrayTwo, int length) {
-		byte[] newArray;
-		if (arrayOne == null && arrayTwo == null) {
-			// No data, just return.
-			return null;
-		} else if (arrayOne == null) {
-			// Create the new array, same length as arrayTwo.
-			newArray = new byte[length];
-			// Fill the new array with the contents of arrayTwo.
-			System.arraycopy(arrayTwo, 0, newArray, 0, length);
-		} else if (arrayTwo == null) {
-			// Create the new array, same length as arrayOne.
-			newArray = new byte[arrayOne.length];
-			// Fill the new array with the contents of arrayOne.
-			System.arraycopy(arrayOne, 0, newArray, 0, arrayOne.length);
-		} else {
-			// Create the new array large enough to hold both arrays.
-			newArray = new byte[arrayOne.length + length];
-			System.arraycopy(arrayOne, 0, newArray, 0, arrayOne.length);
-			// Fill the new array with the contents of both arrays.
-			System.arraycopy(arrayTwo, 0, newArray, arrayOne.length, length);
-		}
-
-		return newArray;
+	private static class FrameIndex {
+		/**
+		 * Bitrates in kbps, by [version 1 or 2][layer 1 to 3][index].
+		 */
+		private static final int[][][] BITRATES = {
+				{
+						{0, 32, 64, 96, 128, 160, 192, 224, 256, 288, 320, 352, 384, 416, 448},
+						{0, 32, 48, 56, 64, 80, 96, 112, 128, 160, 192, 224, 256, 320, 384},
+						{0, 32, 40, 48, 56, 64, 80, 96, 112, 128, 160, 192, 224, 256, 320}
+				},
+				{
+						{0, 32, 48, 56, 64, 80, 96, 112, 128, 144, 160, 176, 192, 224, 256},
+						{0, 8, 16, 24, 32, 40, 48, 56, 64, 80, 96, 112, 128, 144, 160},
+						{0, 8, 16, 24, 32, 40, 48, 56, 64, 80, 96, 112, 128, 144, 160}
+				}
+		};
+
+		/**
+		 * Sample rates, by [version bits][index].
+		 */
+		private static final int[][] SAMPLE_RATES = {
+				{11025, 12000, 8000},
+				{0, 0, 0},
+				{22050, 24000, 16000},
+				{44100, 48000, 32000}
+		};
+
+		/**
+		 * How far into the stream to look for the first frame.
+		 */
+		private static final int SYNC_LIMIT = 65536;
+
+		/**
+		 * Bytes of the first frame read for a Xing or VBRI header.
+		 */
+		private static final int FIRST_FRAME_SIZE = 192;
+
+		/**
+		 * Sample rate of the stream.
+		 */
+		final int sampleRate;
+
+		/**
+		 * Number of channels.
+		 */
+		final int channels;
+
+		/**
+		 * Sample frames decoded from each mp3 frame.
+		 */
+		final int samplesPerFrame;
+
+		/**
+		 * Header bits which must be the same in every frame (sync, version,
+		 * layer, and sample rate).
+		 */
+		private final int headerMask = 0xFFFE0C00;
+
+		/**
+		 * The first frame's header, masked with headerMask.
+		 */
+		private final int firstHeader;
+
+		/**
+		 * Offset of the first frame in the file.
+		 */
+		private final long dataOffset;
+
+		/**
+		 * Number of mp3 frames, or -1 if not known yet.
+		 */
+		long frameCount = -1;
+
+		/**
+		 * Offset of each frame, once the file has been scanned.
+		 */
+		private long[] frameOffsets = null;
+
+		/**
+		 * Constructor:  Remembers the first frame.
+		 *
+		 * @param header     The first frame's header.
+		 * @param dataOffset Offset of the first frame in the file.
+		 */
+		private FrameIndex(int header, long dataOffset) {
+			int version = (header >>> 19) & 3;
+			int layer = 4 - ((header >>> 17) & 3);
+			sampleRate = SAMPLE_RATES[version][(header >>> 10) & 3];
+			channels = ((header >>> 6) & 3) == 3 ? 1 : 2;
+			samplesPerFrame = layer == 1 ? 384 : (layer == 3 && version != 3 ? 576 : 1152);
+			firstHeader = header & headerMask;
+			this.dataOffset = dataOffset;
+		}
+
+		/**
+		 * Reads the first frame header of the specified stream, and leaves the
+		 * stream positioned at the start of that frame (after any ID3v2 tag).
+		 *
+		 * @param inputStream Stream to read, which must support mark and reset.
+		 * @return Information about the stream, or null if no frame was found.
+		 */
+		static FrameIndex read(InputStream inputStream) throws IOException {
+			long offset = 0;
+			byte[] bytes = new byte[FIRST_FRAME_SIZE];
+
+			// Skip past an ID3v2 tag:
+			inputStream.mark(10);
+			if (readFully(inputStream, bytes, 10) == 10 && bytes[0] == 'I' && bytes[1] == 'D' && bytes[2] == '3') {
+				int size = ((bytes[6] & 0x7F) << 21) | ((bytes[7] & 0x7F) << 14) | ((bytes[8] & 0x7F) << 7) | (bytes[9] & 0x7F);
+				// A footer adds another 10 bytes:
+				if ((bytes[5] & 0x10) != 0) size += 10;
+				skipFully(inputStream, size);
+				offset = 10 + size;
+			} else {
+				inputStream.reset();
+			}
+
+			// Find the first frame:
+			inputStream.mark(SYNC_LIMIT + 4);
+			int header = 0;
+			int read;
+			int skip = -1;
+			for (int i = 0; i < SYNC_LIMIT + 4; i++) {
+				if ((read = inputStream.read()) < 0) return null;
+				header = (header << 8) | read;
+				if (i >= 3 && frameLength(header) > 0) {
+					skip = i - 3;
+					break;
+				}
+			}
+			if (skip < 0) return null;
+			inputStream.reset();
+			skipFully(inputStream, skip);
+			offset += skip;
+
+			FrameIndex frameIndex = new FrameIndex(header, offset);
+
+			// Look for a Xing or VBRI header in the first frame, then go back to
+			// its start for the decoder:
+			inputStream.mark(FIRST_FRAME_SIZE);
+			int length = readFully(inputStream, bytes, FIRST_FRAME_SIZE);
+			inputStream.reset();
+			frameIndex.readVbrHeader(header, bytes, length);
+
+			return frameIndex;
+		}
+
+		/**
+		 * Reads the frame count from a Xing ("Xing" or "Info") or VBRI header.
+		 *
+		 * @param header The first frame's header.
+		 * @param bytes  The rest of the first frame.
+		 * @param length Number of bytes in the array.
+		 */
+		private void readVbrHeader(int header, byte[] bytes, int length) {
+			boolean version1 = ((header >>> 19) & 3) == 3;
+			boolean mono = channels == 1;
+			// The Xing header follows the frame header and side information:
+			int xing = 4 + (version1 ? (mono ? 17 : 32) : (mono ? 9 : 17));
+			if (matches(bytes, length, xing, "Xing") || matches(bytes, length, xing, "Info")) {
+				int flags = readInt(bytes, xing + 4);
+				// The Xing frame itself decodes as a silent frame:
+				if ((flags & 1) != 0 && length >= xing + 12) frameCount = (readInt(bytes, xing + 8) & 0xFFFFFFFFL) + 1;
+				return;
+			}
+			// The VBRI header is always 32 bytes after the frame header:
+			if (matches(bytes, length, 36, "VBRI") && length >= 36 + 18) frameCount = (readInt(bytes, 36 + 14) & 0xFFFFFFFFL) + 1;
+		}
+
+		/**
+		 * Scans the frame headers of the whole file (once), recording where each
+		 * frame starts, and counting them.
+		 *
+		 * @param url URL to the file.
+		 * @return True if the frame offsets are known.
+		 */
+		synchronized boolean scan(URL url) throws IOException {
+			if (frameOffsets != null) return true;
+
+			long[] offsets = new long[1024];
+			int count = 0;
+			long offset = dataOffset;
+			int header = 0, length, read;
+			int have = 0;
+
+			try (InputStream inputStream = new BufferedInputStream(url.openStream())) {
+				skipFully(inputStream, offset);
+				while (true) {
+					// Fill up the four header bytes:
+					while (have < 4) {
+						if ((read = inputStream.read()) < 0) {
+							frameOffsets = offsets;
+							frameCount = count;
+							return true;
+						}
+						header = (header << 8) | read;
+						have++;
+					}
+					length = frameLength(header);
+					if (length <= 0 || (header & headerMask) != firstHeader) {
+						// Not a frame header, so resync one byte further on:
+						have--;
+						offset++;
+						continue;
+					}
+
+					if (count == offsets.length) {
+						long[] grown = new long[count * 2];
+						System.arraycopy(offsets, 0, grown, 0, count);
+						offsets = grown;
+					}
+					offsets[count++] = offset;
+					skipFully(inputStream, length - 4);
+					offset += length;
+					have = 0;
+				}
+			}
+		}
+
+		/**
+		 * Returns the offset of the specified frame.  The file must have been
+		 * scanned first.
+		 *
+		 * @param frame Index of the mp3 frame.
+		 * @return Offset in the file.
+		 */
+		long getFrameOffset(long frame) {
+			return frameOffsets[(int) frame];
+		}
+
+		/**
+		 * Works out the length of a frame from its header.
+		 *
+		 * @param header Four header bytes.
+		 * @return Length in bytes, or 0 if it is not a valid frame header.
+		 */
+		static int frameLength(int header) {
+			if ((header >>> 21) != 0x7FF) return 0;
+			int version = (header >>> 19) & 3;
+			int layerBits = (header >>> 17) & 3;
+			int bitrateIndex = (header >>> 12) & 0xF;
+			int sampleRateIndex = (header >>> 10) & 3;
+			// Reserved or free-format values:
+			if (version == 1 || layerBits == 0 || bitrateIndex == 0 || bitrateIndex == 15 || sampleRateIndex == 3) return 0;
+
+			int layer = 4 - layerBits;
+			int bitrate = BITRATES[version == 3 ? 0 : 1][layer - 1][bitrateIndex] * 1000;
+			int sampleRate = SAMPLE_RATES[version][sampleRateIndex];
+			int padding = (header >>> 9) & 1;
+			if (layer == 1) return (12 * bitrate / sampleRate + padding) * 4;
+			if (layer == 3 && version != 3) return 72 * bitrate / sampleRate + padding;
+			return 144 * bitrate / sampleRate + padding;
+		}
+
+		/**
+		 * Checks if the specified ASCII text appears in an array at an offset.
+		 */
+		private static boolean matches(byte[] bytes, int length, int offset, String text) {
+			if (offset + text.length() > length) return false;
+			for (int i = 0; i < text.length(); i++) {
+				if (bytes[offset + i] != (byte) text.charAt(i)) return false;
+			}
+			return true;
+		}
+
+		/**
+		 * Reads a big-endian int from an array.
+		 */
+		private static int readInt(byte[] bytes, int offset) {
+			return ((bytes[offset] & 0xFF) << 24) | ((bytes[offset + 1] & 0xFF) << 16) | ((bytes[offset + 2] & 0xFF) << 8) | (bytes[offset + 3] & 0xFF);
+		}
+
+		/**
+		 * Reads until the array is filled or the end of the stream.
+		 *
+		 * @return Number of bytes read.
+		 */
+		private static int readFully(InputStream inputStream, byte[] bytes, int length) throws IOException {
+			int total = 0, read;
+			while (total < length && (read = inputStream.read(bytes, total, length - total)) > 0) total += read;
+			return total;
+		}
+
+		/**
+		 * Skips the specified number of bytes, stopping early at the end of the
+		 * stream.
+		 */
+		static void skipFully(InputStream inputStream, long bytes) throws IOException {
+			long skipped;
+			while (bytes > 0) {
+				skipped = inputStream.skip(bytes);
+				if (skipped <= 0) {
+					if (inputStream.read() < 0) return;
+					skipped = 1;
+				}
+				bytes -= skipped;
+			}
+		}
 	}
 
 	private static class DMAISObuffer extends Obuffer {
@@ -66,6 +66,7 @@
 
 package paulscode.sound.libraries;
 
+import java.nio.Buffer;
 import java.nio.ByteBuffer;
 import java.nio.IntBuffer;
 import java.util.LinkedList;
@@ -156,6 +157,24 @@ public class ChannelJOAL extends Channel
         super.cleanup();
     }
     
+/**
+ * Stops this channel and lets go of the specified OpenAL sound-buffer, if it is
+ * the one attached, so the buffer can be deleted.
+ * @param buf OpenAL identifier of the sound-buffer about to be deleted.
+ */
+    public void detachBuffer( int buf )
+    {
+        if( ALSource == null || channelType != SoundSystemConfig.TYPE_NORMAL )
+            return;
+        int[] attached = new int[1];
+        al.alGetSourcei( ALSource[0], AL.AL_BUFFER, attached, 0 );
+        if( attached[0] != buf )
+            return;
+        al.alSourceStop( ALSource[0] );
+        al.alSourcei( ALSource[0], AL.AL_BUFFER, 0 );
+        checkALError();
+    }
+    
 /**
  * Attaches an OpenAL sound-buffer identifier for the sound data to be played 
  * back for a normal source.
@@ -387,6 +406,45 @@ public class ChannelJOAL extends Channel
         return true;
     }
 
+/**
+ * Queues up the data between the position and limit of a buffer to be
+ * streamed.  The buffer is handed straight to OpenAL, which copies the data,
+ * so the caller may reuse the buffer as soon as this returns.
+ * @param buffer The next buffer to be played for a streaming source.
+ * @return False if an error occurred or if the channel is shutting down.
+ */
+    @Override
+    public boolean queueBuffer( ByteBuffer buffer )
+    {
+        // Stream buffers can only be queued for streaming sources:
+        if( errorCheck( channelType != SoundSystemConfig.TYPE_STREAMING,
+                        "Buffers may only be queued for streaming sources." ) )
+            return false;
+
+        IntBuffer intBuffer = IntBuffer.wrap( new int[1] );
+
+        al.alSourceUnqueueBuffers( ALSource[0], 1, intBuffer );
+        if( checkALError() )
+            return false;
+
+        if( al.alIsBuffer( intBuffer.get( 0 ) ) )
+            millisPreviouslyPlayed += millisInBuffer( intBuffer.get( 0 ) );
+        checkALError();
+
+        int size = buffer.remaining();
+        al.alBufferData( intBuffer.get(0), ALformat, buffer, size,
+                         sampleRate );
+        if( checkALError() )
+            return false;
+        ( (Buffer) buffer ).position( buffer.limit() );
+
+        al.alSourceQueueBuffers( ALSource[0], 1, intBuffer );
+        if( checkALError() )
+            return false;
+
+        return true;
+    }
+
 /**
  * Feeds raw data to the stream.
  * @param buffer Buffer containing raw audio data to stream.
@@ -69,6 +69,7 @@ package paulscode.sound.libraries;
 import java.net.URL;
 import java.nio.ByteBuffer;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.Set;
 import javax.sound.sampled.AudioFormat;
@@ -85,6 +86,7 @@ import paulscode.sound.ICodec;
 import paulscode.sound.Library;
 import paulscode.sound.ListenerData;
 import paulscode.sound.SoundBuffer;
+import paulscode.sound.SoundBufferMap;
 import paulscode.sound.SoundSystemConfig;
 import paulscode.sound.SoundSystemException;
 import paulscode.sound.Source;
@@ -119,6 +121,13 @@ public class LibraryJOAL extends Library
  */
     private HashMap<String, int[]> ALBufferMap = null;
 
+/**
+ * OpenAL buffers of sounds which have been unloaded, waiting for the last
+ * source using the sound to let go of it before they are deleted.
+ */
+    private final IdentityHashMap<SoundBuffer, int[]> unloadedALBuffers =
+                                      new IdentityHashMap<SoundBuffer, int[]>();
+
 /**
  * Whether or not the AL_PITCH control is supported.
  */
@@ -307,6 +316,7 @@ public class LibraryJOAL extends Library
         String filename;
         int[] buffer;
         
+        int failed = 0;
         // loop through and clear all sound buffers:
         while( iter.hasNext() )
         {
@@ -315,10 +325,14 @@ public class LibraryJOAL extends Library
             if( buffer != null )
             {
                 al.alDeleteBuffers( 1, buffer, 0 );
-                checkALError();
+                if( checkALError() )
+                    failed++;
                 buffer = null;
             }
         }
+        if( failed > 0 )
+            importantMessage( failed + " OpenAL sound buffer(s) could not " +
+                              "be deleted" );
         
         try
         {
@@ -343,7 +357,7 @@ public class LibraryJOAL extends Library
         // Make sure the buffer map exists:
         if( bufferMap == null )
         {
-            bufferMap = new HashMap<String, SoundBuffer>();
+            bufferMap = new SoundBufferMap();
             importantMessage( "Buffer Map was null in method 'loadSound'" );
         }
         // Make sure the OpenAL buffer map exists:
@@ -363,7 +377,7 @@ public class LibraryJOAL extends Library
         if( bufferMap.get( filenameURL.getFilename() ) != null )
             return true;
         
-        ICodec codec = SoundSystemConfig.getCodec( filenameURL.getFilename() );
+        ICodec codec = SoundSystemConfig.getCodec( filenameURL );
         if( errorCheck( codec == null, "No codec found for file '" +
                                        filenameURL.getFilename() +
                                        "' in method 'loadSound'" ) )
@@ -376,9 +390,8 @@ public class LibraryJOAL extends Library
                                      "' in method 'loadSound'" ) )
             return false;
 
-        codec.initialize( url );
-        SoundBuffer buffer = codec.readAll();
-        codec.cleanup();
+        SoundBuffer buffer = SoundSystemConfig.getPCMDiskCache().readAll( codec, url, true );
+        SoundSystemConfig.releaseCodec( codec );
         codec = null;
         if( errorCheck( buffer == null,
                                    "Sound buffer null in method 'loadSound'" ) )
@@ -467,7 +480,7 @@ public class LibraryJOAL extends Library
         // Make sure the buffer map exists:
         if( bufferMap == null )
         {
-            bufferMap = new HashMap<String, SoundBuffer>();
+            bufferMap = new SoundBufferMap();
             importantMessage( "Buffer Map was null in method 'loadSound'" );
         }
         // Make sure the OpenAL buffer map exists:
@@ -570,10 +583,72 @@ public class LibraryJOAL extends Library
     @Override
     public void unloadSound( String filename )
     {
-        ALBufferMap.remove( filename );
+        int[] alBuffer = ALBufferMap.remove( filename );
+        SoundBuffer buffer = bufferMap.get( filename );
+        if( alBuffer != null && buffer != null )
+            unloadedALBuffers.put( buffer, alBuffer );
         super.unloadSound( filename );
     }
     
+/**
+ * Deletes the OpenAL buffer of a sound which has been unloaded, once no source
+ * is using it any more.
+ * @param filename Filename/identifier of the sound which was unloaded.
+ * @param buffer The sound's data.
+ */
+    @Override
+    protected void deleteBuffer( String filename, SoundBuffer buffer )
+    {
+        int[] alBuffer = unloadedALBuffers.remove( buffer );
+        if( alBuffer == null )
+            return;
+        
+        // OpenAL won't delete a buffer which is still attached to a source:
+        if( normalChannels != null )
+        {
+            for( Channel channel : normalChannels )
+            {
+                if( channel instanceof ChannelJOAL )
+                    ( (ChannelJOAL) channel ).detachBuffer( alBuffer[0] );
+            }
+        }
+        
+        al.alDeleteBuffers( 1, alBuffer, 0 );
+        if( checkALError() )
+            importantMessage( "OpenAL sound buffer for '" + filename +
+                              "' could not be deleted" );
+    }
+    
+ /**
+ * Each loaded sound is kept both in the buffer map and in an OpenAL buffer.
+ * @return 2.
+ */
+    @Override
+    protected int getBufferCopies()
+    {
+        return 2;
+    }
+    
+/**
+ * Sounds are decoded by codecs alone, so they can be loaded in the background.
+ * @return True.
+ */
+    @Override
+    public boolean supportsAsyncLoading()
+    {
+        return true;
+    }
+    
+/**
+ * OpenAL expects sample data in the native byte order.
+ * @return True.
+ */
+    @Override
+    protected boolean getReverseByteOrder()
+    {
+        return true;
+    }
+    
  /**
  * Sets the overall volume to the specified value, affecting all sources.
  * @param value New volume, float value ( 0.0f - 1.0f ).
@@ -785,7 +860,7 @@ public class LibraryJOAL extends Library
         // Make sure the buffer map exists:
         if( bufferMap == null )
         {
-            bufferMap = new HashMap<String, SoundBuffer>();
+            bufferMap = new SoundBufferMap();
             importantMessage( "Buffer Map was null in method 'copySources'" );
         }
         // Make sure the OpenAL buffer map exists:
@@ -42,8 +42,6 @@ import java.io.InputStream;
 import java.io.IOException;
 import java.net.URL;
 import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
-import java.nio.ShortBuffer;
 import javax.sound.sampled.AudioFormat;
 import javax.sound.sampled.AudioInputStream;
 
@@ -54,17 +52,22 @@ import de.jarnbjo.ogg.LogicalOggStream;
 import de.jarnbjo.vorbis.IdentificationHeader;
 import de.jarnbjo.vorbis.VorbisStream;
 
-import paulscode.sound.ICodec;
+import paulscode.sound.ByteArrayAccumulator;
+import paulscode.sound.IByteBufferCodec;
+import paulscode.sound.ISeekableCodec;
+import paulscode.sound.PCMConverter;
 import paulscode.sound.SoundBuffer;
 import paulscode.sound.SoundSystemConfig;
 import paulscode.sound.SoundSystemLogger;
+import paulscode.sound.StreamBufferPool;
 
 /**
  * The CodecJOgg class provides an ICodec interface to the external J-Ogg
- * library.
+ * library.  It can also seek (see {@link ISeekableCodec}), using the page
+ * index J-Ogg keeps for the stream, so seeking does not read the file again.
  */
 @SuppressWarnings({"unused", "FieldCanBeLocal"})
-public class CodecJOgg implements ICodec {
+public class CodecJOgg implements IByteBufferCodec, ISeekableCodec {
 	/**
 	 * True if there is no more data to read in.
 	 */
@@ -81,6 +84,16 @@ public class CodecJOgg implements ICodec {
 	 */
 	private boolean reverseBytes = false;
 
+	/**
+	 * Reused by read(ByteBuffer) to hold data from the audio input stream.
+	 */
+	private byte[] readBuffer = null;
+
+	/**
+	 * Sample frame the next read will start at.
+	 */
+	private long framePosition = 0;
+
 	/**
 	 * Cached URL stream, used for reading .ogg files.
 	 */
@@ -186,6 +199,7 @@ public class CodecJOgg implements ICodec {
 			return false;
 		}
 
+		framePosition = 0;
 		endOfStream(SET, false);
 		initialized(SET, true);
 		return true;
@@ -226,8 +240,9 @@ public class CodecJOgg implements ICodec {
 		// Variables used when reading from the audio input stream:
 		int bytesRead = 0, cnt;
 
-		// Allocate memory for the audio data:
-		byte[] streamBuffer = new byte[SoundSystemConfig.getStreamingBufferSize()];
+		// Borrow memory for the audio data:
+		StreamBufferPool pool = SoundSystemConfig.getStreamBufferPool();
+		byte[] streamBuffer = pool.borrow(SoundSystemConfig.getStreamingBufferSize());
 
 		try {
 			// Read until buffer is full or end of stream is reached:
@@ -254,17 +269,117 @@ public class CodecJOgg implements ICodec {
 		// Reverse the byte order if necessary (required for some .ogg files):
 		if (reverseBytes) reverseBytes(streamBuffer, 0, bytesRead);
 
-		// If we didn't fill the stream buffer entirely, trim it down to size:
-		if (bytesRead < streamBuffer.length) streamBuffer = trimArray(streamBuffer, bytesRead);
-
-
-		// Insert the converted data into a ByteBuffer:
-		byte[] data = convertAudioBytes(streamBuffer, audioFormat.getSampleSizeInBits() == 16);
+		// Convert the data into an array of the right size, and give back the
+		// one it was read into:
+		byte[] data = pool.borrow(bytesRead);
+		putAudioBytes(streamBuffer, bytesRead, audioFormat.getSampleSizeInBits() == 16, ByteBuffer.wrap(data));
+		pool.recycle(streamBuffer);
+		framePosition += bytesRead / audioFormat.getFrameSize();
 
 		// Wrap the data into a SoundBuffer:
 		return new SoundBuffer(data, audioFormat);
 	}
 
+	/**
+	 * Reads in up to one stream buffer worth of audio data, straight into the
+	 * specified buffer.  See {@link SoundSystemConfig SoundSystemConfig} for
+	 * more information about accessing and changing default settings.
+	 *
+	 * @param target Buffer to fill, starting at its position.
+	 * @return Number of bytes read, or -1 if nothing could be read.
+	 */
+	public int read(ByteBuffer target) {
+		if (myAudioInputStream == null) {
+			endOfStream(SET, true);
+			return -1;
+		}
+
+		// Get the format for the audio data:
+		AudioFormat audioFormat = myAudioInputStream.getFormat();
+
+		// Check to make sure there is an audio format:
+		if (audioFormat == null) {
+			errorMessage("Audio Format null in method 'read'");
+			endOfStream(SET, true);
+			return -1;
+		}
+
+		// Variables used when reading from the audio input stream:
+		int bytesRead = 0, cnt;
+		int length = Math.min(target.remaining(), SoundSystemConfig.getStreamingBufferSize());
+		if (readBuffer == null || readBuffer.length < length) readBuffer = new byte[length];
+
+		try {
+			// Read until buffer is full or end of stream is reached:
+			while ((!endOfStream(GET, XXX)) && (bytesRead < length)) {
+				if ((cnt = myAudioInputStream.read(readBuffer, bytesRead, length - bytesRead)) <= 0) {
+					endOfStream(SET, true);
+					break;
+				}
+				// keep track of how many bytes were read:
+				bytesRead += cnt;
+			}
+		} catch (IOException e) {
+			endOfStream(SET, true);
+			return -1;
+		}
+
+		// Return -1 if no data was read:
+		if (bytesRead <= 0) {
+			endOfStream(SET, true);
+			return -1;
+		}
+
+		// Reverse the byte order if necessary (required for some .ogg files):
+		if (reverseBytes) reverseBytes(readBuffer, 0, bytesRead);
+
+		putAudioBytes(readBuffer, bytesRead, audioFormat.getSampleSizeInBits() == 16, target);
+		framePosition += bytesRead / audioFormat.getFrameSize();
+		return bytesRead;
+	}
+
+	/**
+	 * Moves the stream to the page containing the specified sample frame.  The
+	 * position is only as exact as the page boundaries.
+	 *
+	 * @param frame Sample frame to move to, counting from 0.
+	 * @return False if the stream is not initialized or could not be moved.
+	 */
+	public boolean seek(long frame) {
+		if (!initialized(GET, XXX) || myLogicalOggStream == null) return false;
+		if (frame < 0) frame = 0;
+		try {
+			myLogicalOggStream.setTime(frame);
+		} catch (Exception e) {
+			errorMessage("Unable to seek in method 'seek'");
+			printStackTrace(e);
+			return false;
+		}
+		framePosition = frame;
+		endOfStream(SET, false);
+		return true;
+	}
+
+	/**
+	 * Returns the sample frame the next read will start at.
+	 *
+	 * @return Sample frame.
+	 */
+	public long position() {
+		return framePosition;
+	}
+
+	/**
+	 * Returns the length of the stream, from the granule position of the last
+	 * page.  This may be too short while the file is still being downloaded.
+	 *
+	 * @return Number of sample frames, or -1 if unknown.
+	 */
+	public long length() {
+		if (myLogicalOggStream == null) return -1;
+		return myLogicalOggStream.getMaximumGranulePosition();
+	}
+
 	/**
 	 * Reads in all the audio data from the stream (up to the default "maximum file size").
 	 * See {@link SoundSystemConfig} for more information about accessing and changing default settings.
@@ -307,6 +422,9 @@ public class CodecJOgg implements ICodec {
 			// Allocate memory for a chunk of data:
 			smallBuffer = new byte[SoundSystemConfig.getFileChunkSize()];
 
+			// Collects the chunks, to be copied into one array at the end:
+			ByteArrayAccumulator accumulator = new ByteArrayAccumulator();
+
 			// Read until end of file or maximum file size is reached:
 			while ((!endOfStream(GET, XXX)) && (totalBytes < SoundSystemConfig.getMaxFileSize())) {
 				bytesRead = 0;
@@ -333,13 +451,15 @@ public class CodecJOgg implements ICodec {
 				totalBytes += bytesRead;
 
 				// Append the small buffer to the full buffer:
-				fullBuffer = appendByteArrays(fullBuffer, smallBuffer, bytesRead);
+				accumulator.append(smallBuffer, 0, bytesRead);
 			}
+			fullBuffer = accumulator.toByteArray();
 		}
 
-		// Insert the converted data into a ByteBuffer
-		byte[] data = null;
-		if (fullBuffer != null) data = convertAudioBytes(fullBuffer, myAudioFormat.getSampleSizeInBits() == 16);
+		// Convert the data to native byte order:
+		if (fullBuffer != null && myAudioFormat.getSampleSizeInBits() == 16)
+			PCMConverter.littleEndianToNative16(fullBuffer, 0, fullBuffer.length);
+		byte[] data = fullBuffer;
 
 		// Wrap the data into an SoundBuffer:
 		SoundBuffer soundBuffer = new SoundBuffer(data, myAudioFormat);
@@ -367,6 +487,7 @@ public class CodecJOgg implements ICodec {
 	 * Closes the audio stream and remove references to all instantiated objects.
 	 */
 	public void cleanup() {
+		initialized(SET, false);
 		if (myLogicalOggStream != null) try {
 			myLogicalOggStream.close();
 		} catch (Exception ignored) {
@@ -424,91 +545,17 @@ public class CodecJOgg implements ICodec {
 	}
 
 	/**
-	 * Trims down the size of the array if it is larger than the specified
-	 * maximum length.
+	 * Copies little-endian audio data into the specified buffer in native byte
+	 * order.  16-bit data is converted in place before it is copied.
 	 *
-	 * @param array     Array containing audio data.
-	 * @param maxLength Maximum size this array may be.
-	 * @return New array.
-	 */
-	private static byte[] trimArray(byte[] array, int maxLength) {
-		byte[] trimmedArray = null;
-		if (array != null && array.length > maxLength) {
-			trimmedArray = new byte[maxLength];
-			System.arraycopy(array, 0, trimmedArray, 0, maxLength);
-		}
-		return trimmedArray;
-	}
-
-	/**
-	 * Converts sound bytes to little-endian format.
-	 *
-	 * @param audio_bytes    The original wave data
-	 * @param two_bytes_data For stereo sounds.
-	 * @return byte array containing the converted data.
-	 */
-	private static byte[] convertAudioBytes(byte[] audio_bytes, boolean two_bytes_data) {
-		ByteBuffer dest = ByteBuffer.allocateDirect(audio_bytes.length);
-		dest.order(ByteOrder.nativeOrder());
-		ByteBuffer src = ByteBuffer.wrap(audio_bytes);
-		src.order(ByteOrder.LITTLE_ENDIAN);
-		if (two_bytes_data) {
-			ShortBuffer dest_short = dest.asShortBuffer();
-			ShortBuffer src_short = src.asShortBuffer();
-			while (src_short.hasRemaining()) {
-				dest_short.put(src_short.get());
-			}
-		} else {
-			while (src.hasRemaining()) {
-				dest.put(src.get());
-			}
-		}
-		dest.rewind();
-
-		if (!dest.hasArray()) {
-			byte[] arrayBackedBuffer = new byte[dest.capacity()];
-			dest.get(arrayBackedBuffer);
-			dest.clear();
-
-			return arrayBackedBuffer;
-		}
-
-		return dest.array();
-	}
-
-	/**
-	 * Creates a new array with the second array appended to the end of the first
-	 * array.
-	 *
-	 * @param arrayOne The first array.
-	 * @param arrayTwo The second array.
-	 * @param length   How many bytes to append from the second array.
-	 * @return Byte array containing information from both arrays.
-	 */
-	private static byte[] appendByteArrays(byte[] arrayOne, byte[] arrayTwo, int length) {
-		byte[] newArray;
-		if (arrayOne == null && arrayTwo == null) {
-			// no data, just return
-			return null;
-		} else if (arrayOne == null) {
-			// create the new array, same length as arrayTwo:
-			newArray = new byte[length];
-			// fill the new array with the contents of arrayTwo:
-			System.arraycopy(arrayTwo, 0, newArray, 0, length);
-		} else if (arrayTwo == null) {
-			// create the new array, same length as arrayOne:
-			newArray = new byte[arrayOne.length];
-			// fill the new array with the contents of arrayOne:
-			System.arraycopy(arrayOne, 0, newArray, 0, arrayOne.length);
-		} else {
-			// create the new array large enough to hold both arrays:
-			newArray = new byte[arrayOne.length + length];
-			System.arraycopy(arrayOne, 0, newArray, 0, arrayOne.length);
-			// fill the new array with the contents of both arrays:
-			System.arraycopy(arrayTwo, 0, newArray, arrayOne.length, length);
-		}
-
-		return newArray;
+	 * @param audioBytes   Little-endian audio data.
+	 * @param length       Number of bytes to copy.
+	 * @param twoBytesData True if the data is 16-bit.
+	 * @param target       Buffer to copy into, starting at its position.
+	 */
+	private static void putAudioBytes(byte[] audioBytes, int length, boolean twoBytesData, ByteBuffer target) {
+		if (twoBytesData) PCMConverter.littleEndianToNative16(audioBytes, 0, length);
+		target.put(audioBytes, 0, length);
 	}
 
 	/**
@@ -528,13 +575,7 @@ public class CodecJOgg implements ICodec {
 	 * @param size   number of bytes to reverse-order.
 	 */
 	public static void reverseBytes(byte[] buffer, int offset, int size) {
-
-		byte b;
-		for (int i = offset; i < (offset + size); i += 2) {
-			b = buffer[i];
-			buffer[i] = buffer[i + 1];
-			buffer[i + 1] = b;
-		}
+		PCMConverter.swapBytes16(buffer, offset, size);
 	}
 
 	/**
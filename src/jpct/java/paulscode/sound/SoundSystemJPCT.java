@@ -617,7 +617,7 @@ public class SoundSystemJPCT extends SoundSystem {
 		SimpleVector position = convertCoordinates(jpctPosition);
 
 		commandQueue(new CommandObject(CommandObject.NEW_SOURCE, priority, false, toLoop, sourceName, new FilenameURL(filename), position.x, position.y, position.z, attModel, distOrRoll));
-		commandThread.interrupt();
+		wakeCommandThread();
 	}
 
 	/**
@@ -826,7 +826,7 @@ public class SoundSystemJPCT extends SoundSystem {
 		SimpleVector position = convertCoordinates(jpctPosition);
 
 		commandQueue(new CommandObject(CommandObject.NEW_SOURCE, priority, false, toLoop, sourceName, new FilenameURL(url, identifier), position.x, position.y, position.z, attModel, distOrRoll));
-		commandThread.interrupt();
+		wakeCommandThread();
 	}
 
 	/**
@@ -1006,7 +1006,7 @@ public class SoundSystemJPCT extends SoundSystem {
 		SimpleVector position = convertCoordinates(jpctPosition);
 
 		commandQueue(new CommandObject(CommandObject.NEW_SOURCE, priority, true, toLoop, sourceName, new FilenameURL(filename), position.x, position.y, position.z, attModel, distOrRoll));
-		commandThread.interrupt();
+		wakeCommandThread();
 	}
 
 	/**
@@ -1199,7 +1199,7 @@ public class SoundSystemJPCT extends SoundSystem {
 		SimpleVector position = convertCoordinates(jpctPosition);
 
 		commandQueue(new CommandObject(CommandObject.NEW_SOURCE, priority, true, toLoop, sourceName, new FilenameURL(url, identifier), position.x, position.y, position.z, attModel, distOrRoll));
-		commandThread.interrupt();
+		wakeCommandThread();
 	}
 
 	/**
@@ -1420,7 +1420,7 @@ public class SoundSystemJPCT extends SoundSystem {
 		commandQueue(new CommandObject(CommandObject.QUICK_PLAY, priority, false, toLoop, sourceName, new FilenameURL(filename), position.x, position.y, position.z, attModel, distOrRoll, true));
 		commandQueue(new CommandObject(CommandObject.PLAY, sourceName));
 		// Wake the command thread to process commands:
-		commandThread.interrupt();
+		wakeCommandThread();
 
 		// return the new source name.
 		return sourceName;
@@ -1550,7 +1550,7 @@ public class SoundSystemJPCT extends SoundSystem {
 		commandQueue(new CommandObject(CommandObject.QUICK_PLAY, priority, false, toLoop, sourceName, new FilenameURL(filename), position.x, position.y, position.z, attModel, distOrRoll, true));
 		commandQueue(new CommandObject(CommandObject.PLAY, sourceName));
 		// Wake the command thread to process commands:
-		commandThread.interrupt();
+		wakeCommandThread();
 
 		// Create the boundObjects map if it doesn't exist:
 		if (boundObjects == null) boundObjects = new HashMap<>();
@@ -1792,7 +1792,7 @@ public class SoundSystemJPCT extends SoundSystem {
 		commandQueue(new CommandObject(CommandObject.QUICK_PLAY, priority, false, toLoop, sourceName, new FilenameURL(url, identifier), position.x, position.y, position.z, attModel, distOrRoll, true));
 		commandQueue(new CommandObject(CommandObject.PLAY, sourceName));
 		// Wake the command thread to process commands:
-		commandThread.interrupt();
+		wakeCommandThread();
 
 		// return the new source name.
 		return sourceName;
@@ -1928,7 +1928,7 @@ public class SoundSystemJPCT extends SoundSystem {
 		commandQueue(new CommandObject(CommandObject.QUICK_PLAY, priority, false, toLoop, sourceName, new FilenameURL(url, identifier), position.x, position.y, position.z, attModel, distOrRoll, true));
 		commandQueue(new CommandObject(CommandObject.PLAY, sourceName));
 		// Wake the command thread to process commands:
-		commandThread.interrupt();
+		wakeCommandThread();
 
 		// Create the boundObjects map if it doesn't exist:
 		if (boundObjects == null) boundObjects = new HashMap<>();
@@ -2158,7 +2158,7 @@ public class SoundSystemJPCT extends SoundSystem {
 		commandQueue(new CommandObject(CommandObject.QUICK_PLAY, priority, true, toLoop, sourceName, new FilenameURL(filename), position.x, position.y, position.z, attModel, distOrRoll, true));
 		commandQueue(new CommandObject(CommandObject.PLAY, sourceName));
 		// Wake the command thread to process commands:
-		commandThread.interrupt();
+		wakeCommandThread();
 
 		// return the new source name.
 		return sourceName;
@@ -2288,7 +2288,7 @@ public class SoundSystemJPCT extends SoundSystem {
 		commandQueue(new CommandObject(CommandObject.QUICK_PLAY, priority, true, toLoop, sourceName, new FilenameURL(filename), position.x, position.y, position.z, attModel, distOrRoll, true));
 		commandQueue(new CommandObject(CommandObject.PLAY, sourceName));
 		// Wake the command thread to process commands:
-		commandThread.interrupt();
+		wakeCommandThread();
 
 		// Create the boundObjects map if it doesn't exist:
 		if (boundObjects == null) boundObjects = new HashMap<>();
@@ -2530,7 +2530,7 @@ public class SoundSystemJPCT extends SoundSystem {
 		commandQueue(new CommandObject(CommandObject.QUICK_PLAY, priority, true, toLoop, sourceName, new FilenameURL(url, identifier), position.x, position.y, position.z, attModel, distOrRoll, true));
 		commandQueue(new CommandObject(CommandObject.PLAY, sourceName));
 		// Wake the command thread to process commands:
-		commandThread.interrupt();
+		wakeCommandThread();
 
 		// return the new source name.
 		return sourceName;
@@ -2666,7 +2666,7 @@ public class SoundSystemJPCT extends SoundSystem {
 		commandQueue(new CommandObject(CommandObject.QUICK_PLAY, priority, true, toLoop, sourceName, new FilenameURL(url, identifier), position.x, position.y, position.z, attModel, distOrRoll, true));
 		commandQueue(new CommandObject(CommandObject.PLAY, sourceName));
 		// Wake the command thread to process commands:
-		commandThread.interrupt();
+		wakeCommandThread();
 
 		// Create the boundObjects map if it doesn't exist:
 		if (boundObjects == null) boundObjects = new HashMap<>();
@@ -2687,8 +2687,8 @@ public class SoundSystemJPCT extends SoundSystem {
 	public void setPosition(String sourceName, SimpleVector jpctPosition) {
 		SimpleVector position = convertCoordinates(jpctPosition);
 
-		commandQueue(new CommandObject(CommandObject.SET_POSITION, sourceName, position.x, position.y, position.z));
-		commandThread.interrupt();
+		commandQueue(CommandObject.obtain(CommandObject.SET_POSITION, sourceName, position.x, position.y, position.z));
+		wakeCommandThread();
 	}
 
 	/**
@@ -2699,8 +2699,8 @@ public class SoundSystemJPCT extends SoundSystem {
 	public void moveListener(SimpleVector jpctRelative) {
 		SimpleVector relative = convertCoordinates(jpctRelative);
 
-		commandQueue(new CommandObject(CommandObject.MOVE_LISTENER, relative.x, relative.y, relative.z));
-		commandThread.interrupt();
+		commandQueue(CommandObject.obtain(CommandObject.MOVE_LISTENER, relative.x, relative.y, relative.z));
+		wakeCommandThread();
 	}
 
 	/**
@@ -2711,8 +2711,8 @@ public class SoundSystemJPCT extends SoundSystem {
 	public void setListenerPosition(SimpleVector jpctPosition) {
 		SimpleVector position = convertCoordinates(jpctPosition);
 
-		commandQueue(new CommandObject(CommandObject.SET_LISTENER_POSITION, position.x, position.y, position.z));
-		commandThread.interrupt();
+		commandQueue(CommandObject.obtain(CommandObject.SET_LISTENER_POSITION, position.x, position.y, position.z));
+		wakeCommandThread();
 	}
 
 	/**
@@ -2725,8 +2725,8 @@ public class SoundSystemJPCT extends SoundSystem {
 		SimpleVector look = convertCoordinates(jpctLook);
 		SimpleVector up = convertCoordinates(jpctUp);
 
-		commandQueue(new CommandObject(CommandObject.SET_LISTENER_ORIENTATION, look.x, look.y, look.z, up.x, up.y, up.z));
-		commandThread.interrupt();
+		commandQueue(CommandObject.obtain(CommandObject.SET_LISTENER_ORIENTATION, look.x, look.y, look.z, up.x, up.y, up.z));
+		wakeCommandThread();
 	}
 
 	/**
@@ -2738,8 +2738,8 @@ public class SoundSystemJPCT extends SoundSystem {
 		SimpleVector look = convertCoordinates(camera.getDirection());
 		SimpleVector up = convertCoordinates(camera.getUpVector());
 
-		commandQueue(new CommandObject(CommandObject.SET_LISTENER_ORIENTATION, look.x, look.y, look.z, up.x, up.y, up.z));
-		commandThread.interrupt();
+		commandQueue(CommandObject.obtain(CommandObject.SET_LISTENER_ORIENTATION, look.x, look.y, look.z, up.x, up.y, up.z));
+		wakeCommandThread();
 	}
 
 	/**
@@ -2752,8 +2752,8 @@ public class SoundSystemJPCT extends SoundSystem {
 	 */
 	public void setVelocity(String sourceName, SimpleVector velocity) {
 		SimpleVector vel = convertCoordinates(velocity);
-		commandQueue(new CommandObject(CommandObject.SET_VELOCITY, sourceName, vel.x, vel.y, vel.z));
-		commandThread.interrupt();
+		commandQueue(CommandObject.obtain(CommandObject.SET_VELOCITY, sourceName, vel.x, vel.y, vel.z));
+		wakeCommandThread();
 	}
 
 	/**
@@ -2765,8 +2765,8 @@ public class SoundSystemJPCT extends SoundSystem {
 	 */
 	public void setListenerVelocity(SimpleVector velocity) {
 		SimpleVector vel = convertCoordinates(velocity);
-		commandQueue(new CommandObject(CommandObject.SET_LISTENER_VELOCITY, vel.x, vel.y, vel.z));
-		commandThread.interrupt();
+		commandQueue(CommandObject.obtain(CommandObject.SET_LISTENER_VELOCITY, vel.x, vel.y, vel.z));
+		wakeCommandThread();
 	}
 
 	/**
@@ -67,6 +67,7 @@ import java.nio.IntBuffer;
 import java.nio.FloatBuffer;
 import java.net.URL;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.Set;
 import javax.sound.sampled.AudioFormat;
@@ -83,6 +84,7 @@ import paulscode.sound.ICodec;
 import paulscode.sound.Library;
 import paulscode.sound.ListenerData;
 import paulscode.sound.SoundBuffer;
+import paulscode.sound.SoundBufferMap;
 import paulscode.sound.SoundSystemConfig;
 import paulscode.sound.SoundSystemException;
 import paulscode.sound.Source;
@@ -126,6 +128,12 @@ public class LibraryLWJGLOpenAL extends Library {
 	 */
 	private HashMap<String, IntBuffer> ALBufferMap;
 
+	/**
+	 * OpenAL buffers of sounds which have been unloaded, waiting for the last
+	 * source using the sound to let go of it before they are deleted.
+	 */
+	private final IdentityHashMap<SoundBuffer, IntBuffer> unloadedALBuffers = new IdentityHashMap<>();
+
 	/**
 	 * Whether the AL_PITCH control is supported.
 	 */
@@ -271,16 +279,18 @@ public class LibraryLWJGLOpenAL extends Library {
 		String fileName;
 		IntBuffer buffer;
 
+		int failed = 0;
 		// loop through and clear all sound buffers:
 		while (iterator.hasNext()) {
 			fileName = iterator.next();
 			buffer = ALBufferMap.get(fileName);
 			if (buffer != null) {
 				AL10.alDeleteBuffers(buffer);
-				checkALError();
+				if (checkALError()) failed++;
 				buffer.clear();
 			}
 		}
+		if (failed > 0) importantMessage(failed + " OpenAL sound buffer(s) could not be deleted");
 
 		bufferMap.clear();
 		AL.destroy();
@@ -301,7 +311,7 @@ public class LibraryLWJGLOpenAL extends Library {
 	public boolean loadSound(FilenameURL filenameURL) {
 		// Make sure the buffer map exists:
 		if (bufferMap == null) {
-			bufferMap = new HashMap<>();
+			bufferMap = new SoundBufferMap();
 			importantMessage("Buffer Map was null in method 'loadSound'");
 		}
 		// Make sure the OpenAL buffer map exists:
@@ -317,7 +327,7 @@ public class LibraryLWJGLOpenAL extends Library {
 		// check if it is already loaded:
 		if (bufferMap.get(filenameURL.getFilename()) != null) return true;
 
-		ICodec codec = SoundSystemConfig.getCodec(filenameURL.getFilename());
+		ICodec codec = SoundSystemConfig.getCodec(filenameURL);
 		if (errorCheck(codec == null, "No codec found for file '" + filenameURL.getFilename() + "' in method 'loadSound'"))
 			return false;
 		assert codec != null;
@@ -328,9 +338,8 @@ public class LibraryLWJGLOpenAL extends Library {
 		if (errorCheck(url == null, "Unable to open file '" + filenameURL.getFilename() + "' in method 'loadSound'"))
 			return false;
 
-		codec.initialize(url);
-		SoundBuffer buffer = codec.readAll();
-		codec.cleanup();
+		SoundBuffer buffer = SoundSystemConfig.getPCMDiskCache().readAll(codec, url, true);
+		SoundSystemConfig.releaseCodec(codec);
 		if (errorCheck(buffer == null, "Sound buffer null in method 'loadSound'")) return false;
 		assert buffer != null;
 
@@ -392,7 +401,7 @@ public class LibraryLWJGLOpenAL extends Library {
 	public boolean loadSound(SoundBuffer buffer, String identifier) {
 		// Make sure the buffer map exists:
 		if (bufferMap == null) {
-			bufferMap = new HashMap<>();
+			bufferMap = new SoundBufferMap();
 			importantMessage("Buffer Map was null in method 'loadSound'");
 		}
 		// Make sure the OpenAL buffer map exists:
@@ -462,10 +471,68 @@ public class LibraryLWJGLOpenAL extends Library {
 	 */
 	@Override
 	public void unloadSound(String filename) {
-		ALBufferMap.remove(filename);
+		IntBuffer alBuffer = ALBufferMap.remove(filename);
+		SoundBuffer buffer = bufferMap.get(filename);
+		if (alBuffer != null && buffer != null) unloadedALBuffers.put(buffer, alBuffer);
 		super.unloadSound(filename);
 	}
 
+	/**
+	 * Deletes the OpenAL buffer of a sound which has been unloaded, once no
+	 * source is using it any more.
+	 *
+	 * @param filename Filename/identifier of the sound which was unloaded.
+	 * @param buffer   The sound's data.
+	 */
+	@Override
+	protected void deleteBuffer(String filename, SoundBuffer buffer) {
+		IntBuffer alBuffer = unloadedALBuffers.remove(buffer);
+		if (alBuffer == null) return;
+
+		// OpenAL won't delete a buffer which is still attached to a source:
+		if (normalChannels != null) {
+			for (Channel channel : normalChannels) {
+				if (channel instanceof ChannelLWJGLOpenAL)
+					((ChannelLWJGLOpenAL) channel).detachBuffer(alBuffer.get(0));
+			}
+		}
+
+		AL10.alDeleteBuffers(alBuffer);
+		if (checkALError()) importantMessage("OpenAL sound buffer for '" + filename + "' could not be deleted");
+		alBuffer.clear();
+	}
+
+	/**
+	 * Each loaded sound is kept both in the buffer map and in an OpenAL buffer.
+	 *
+	 * @return 2.
+	 */
+	@Override
+	protected int getBufferCopies() {
+		return 2;
+	}
+
+	/**
+	 * Sounds are decoded by codecs alone, so they can be loaded in the
+	 * background.
+	 *
+	 * @return True.
+	 */
+	@Override
+	public boolean supportsAsyncLoading() {
+		return true;
+	}
+
+	/**
+	 * OpenAL expects sample data in the native byte order.
+	 *
+	 * @return True.
+	 */
+	@Override
+	protected boolean getReverseByteOrder() {
+		return true;
+	}
+
 	/**
 	 * Sets the overall volume to the specified value, affecting all sources.
 	 *
@@ -631,7 +698,7 @@ public class LibraryLWJGLOpenAL extends Library {
 
 		// Make sure the buffer map exists:
 		if (bufferMap == null) {
-			bufferMap = new HashMap<>();
+			bufferMap = new SoundBufferMap();
 			importantMessage("Buffer Map was null in method 'copySources'");
 		}
 		// Make sure the OpenAL buffer map exists:
@@ -227,52 +227,59 @@ public class SourceLWJGLOpenAL extends Source {
 			errorMessage("Method 'incrementSoundSequence' may only be used for streaming sources.");
 			return false;
 		}
-		synchronized (soundSequenceLock) {
-			if (soundSequenceQueue != null && !soundSequenceQueue.isEmpty()) {
-				filenameURL = soundSequenceQueue.remove(0);
-				if (codec != null) codec.cleanup();
-				codec = SoundSystemConfig.getCodec(filenameURL.getFilename());
-				if (codec != null) {
-					codec.reverseByteOrder(true);
-					if (codec.getAudioFormat() == null) codec.initialize(filenameURL.getURL());
-
-					AudioFormat audioFormat = codec.getAudioFormat();
-
-					if (audioFormat == null) {
-						errorMessage("Audio Format null in method 'incrementSoundSequence'");
-						return false;
-					}
-
-					int soundFormat;
-					if (audioFormat.getChannels() == 1) {
-						if (audioFormat.getSampleSizeInBits() == 8) {
-							soundFormat = AL10.AL_FORMAT_MONO8;
-						} else if (audioFormat.getSampleSizeInBits() == 16) {
-							soundFormat = AL10.AL_FORMAT_MONO16;
-						} else {
-							errorMessage("Illegal sample size in method 'incrementSoundSequence'");
+		// Keep the decode threads away from the codec while it is replaced:
+		decodeLock.lock();
+		try {
+			synchronized (soundSequenceLock) {
+				if (soundSequenceQueue != null && !soundSequenceQueue.isEmpty()) {
+					filenameURL = soundSequenceQueue.remove(0);
+					if (codec != null) codec.cleanup();
+					SoundSystemConfig.releaseCodec(codec);
+					codec = SoundSystemConfig.getCodec(filenameURL);
+					if (codec != null) {
+						codec.reverseByteOrder(true);
+						if (codec.getAudioFormat() == null) codec.initialize(filenameURL.getURL());
+
+						AudioFormat audioFormat = codec.getAudioFormat();
+
+						if (audioFormat == null) {
+							errorMessage("Audio Format null in method 'incrementSoundSequence'");
 							return false;
 						}
-					} else if (audioFormat.getChannels() == 2) {
-						if (audioFormat.getSampleSizeInBits() == 8) {
-							soundFormat = AL10.AL_FORMAT_STEREO8;
-						} else if (audioFormat.getSampleSizeInBits() == 16) {
-							soundFormat = AL10.AL_FORMAT_STEREO16;
+
+						int soundFormat;
+						if (audioFormat.getChannels() == 1) {
+							if (audioFormat.getSampleSizeInBits() == 8) {
+								soundFormat = AL10.AL_FORMAT_MONO8;
+							} else if (audioFormat.getSampleSizeInBits() == 16) {
+								soundFormat = AL10.AL_FORMAT_MONO16;
+							} else {
+								errorMessage("Illegal sample size in method 'incrementSoundSequence'");
+								return false;
+							}
+						} else if (audioFormat.getChannels() == 2) {
+							if (audioFormat.getSampleSizeInBits() == 8) {
+								soundFormat = AL10.AL_FORMAT_STEREO8;
+							} else if (audioFormat.getSampleSizeInBits() == 16) {
+								soundFormat = AL10.AL_FORMAT_STEREO16;
+							} else {
+								errorMessage("Illegal sample size in method 'incrementSoundSequence'");
+								return false;
+							}
 						} else {
-							errorMessage("Illegal sample size in method 'incrementSoundSequence'");
+							errorMessage("Audio data neither mono nor stereo in method 'incrementSoundSequence'");
 							return false;
 						}
-					} else {
-						errorMessage("Audio data neither mono nor stereo in method 'incrementSoundSequence'");
-						return false;
-					}
 
-					// Let the channel know what format and sample rate to use:
-					channelOpenAL.setFormat(soundFormat, (int) audioFormat.getSampleRate());
-					preLoad = true;
+						// Let the channel know what format and sample rate to use:
+						channelOpenAL.setFormat(soundFormat, (int) audioFormat.getSampleRate());
+						preLoad = true;
+					}
+					return true;
 				}
-				return true;
 			}
+		} finally {
+			decodeLock.unlock();
 		}
 		return false;
 	}
@@ -492,46 +499,52 @@ public class SourceLWJGLOpenAL extends Source {
 		// See if we are already playing:
 		if (!playing()) {
 			if (toStream && !wasPaused) {
-				if (codec == null) {
-					errorMessage("Decoder null in method 'play'");
-					return;
-				}
-				if (codec.getAudioFormat() == null) codec.initialize(filenameURL.getURL());
-
-				AudioFormat audioFormat = codec.getAudioFormat();
+				// Keep the decode threads away while the stream starts over:
+				decodeLock.lock();
+				try {
+					if (codec == null) {
+						errorMessage("Decoder null in method 'play'");
+						return;
+					}
+					if (codec.getAudioFormat() == null) codec.initialize(filenameURL.getURL());
 
-				if (audioFormat == null) {
-					errorMessage("Audio Format null in method 'play'");
-					return;
-				}
+					AudioFormat audioFormat = codec.getAudioFormat();
 
-				int soundFormat;
-				if (audioFormat.getChannels() == 1) {
-					if (audioFormat.getSampleSizeInBits() == 8) {
-						soundFormat = AL10.AL_FORMAT_MONO8;
-					} else if (audioFormat.getSampleSizeInBits() == 16) {
-						soundFormat = AL10.AL_FORMAT_MONO16;
-					} else {
-						errorMessage("Illegal sample size in method 'play'");
+					if (audioFormat == null) {
+						errorMessage("Audio Format null in method 'play'");
 						return;
 					}
-				} else if (audioFormat.getChannels() == 2) {
-					if (audioFormat.getSampleSizeInBits() == 8) {
-						soundFormat = AL10.AL_FORMAT_STEREO8;
-					} else if (audioFormat.getSampleSizeInBits() == 16) {
-						soundFormat = AL10.AL_FORMAT_STEREO16;
+
+					int soundFormat;
+					if (audioFormat.getChannels() == 1) {
+						if (audioFormat.getSampleSizeInBits() == 8) {
+							soundFormat = AL10.AL_FORMAT_MONO8;
+						} else if (audioFormat.getSampleSizeInBits() == 16) {
+							soundFormat = AL10.AL_FORMAT_MONO16;
+						} else {
+							errorMessage("Illegal sample size in method 'play'");
+							return;
+						}
+					} else if (audioFormat.getChannels() == 2) {
+						if (audioFormat.getSampleSizeInBits() == 8) {
+							soundFormat = AL10.AL_FORMAT_STEREO8;
+						} else if (audioFormat.getSampleSizeInBits() == 16) {
+							soundFormat = AL10.AL_FORMAT_STEREO16;
+						} else {
+							errorMessage("Illegal sample size in method 'play'");
+							return;
+						}
 					} else {
-						errorMessage("Illegal sample size in method 'play'");
+						errorMessage("Audio data neither mono nor stereo in method 'play'");
 						return;
 					}
-				} else {
-					errorMessage("Audio data neither mono nor stereo in method 'play'");
-					return;
-				}
 
-				// Let the channel know what format and sample rate to use:
-				channelOpenAL.setFormat(soundFormat, (int) audioFormat.getSampleRate());
-				preLoad = true;
+					// Let the channel know what format and sample rate to use:
+					channelOpenAL.setFormat(soundFormat, (int) audioFormat.getSampleRate());
+					preLoad = true;
+				} finally {
+					decodeLock.unlock();
+				}
 			}
 			channel.play();
 			if (pitch != 1.0f) checkPitch();
@@ -547,9 +560,9 @@ public class SourceLWJGLOpenAL extends Source {
 	public boolean preLoad() {
 		if (codec == null) return false;
 
-		codec.initialize(filenameURL.getURL());
+		restartStream();
 		LinkedList<byte[]> preLoadBuffers = new LinkedList<>();
-		for (int i = 0; i < SoundSystemConfig.getNumberStreamingBuffers(); i++) {
+		for (int i = 0; i < getNumberStreamingBuffers(); i++) {
 			soundBuffer = codec.read();
 
 			if (soundBuffer == null || soundBuffer.audioData == null) break;
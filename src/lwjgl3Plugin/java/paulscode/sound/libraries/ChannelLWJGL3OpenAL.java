@@ -66,6 +66,7 @@ package paulscode.sound.libraries;
 import org.lwjgl.BufferUtils;
 import org.lwjgl.openal.AL10;
 import org.lwjgl.openal.AL11;
+import org.lwjgl.openal.EXTFloat32;
 import paulscode.sound.Channel;
 import paulscode.sound.SoundSystemConfig;
 
@@ -86,6 +87,11 @@ public class ChannelLWJGL3OpenAL extends Channel {
 	 */
 	public IntBuffer ALSource;
 
+	/**
+	 * Reused by queueBuffer() to hold the name of the buffer being refilled.
+	 */
+	private final IntBuffer refillBuffer = BufferUtils.createIntBuffer(1);
+
 	/**
 	 * OpenAL data format to use when playing back the assigned source.
 	 */
@@ -141,6 +147,20 @@ public class ChannelLWJGL3OpenAL extends Channel {
 		super.cleanup();
 	}
 
+	/**
+	 * Stops this channel and lets go of the specified OpenAL sound-buffer, if it
+	 * is the one attached, so the buffer can be deleted.
+	 *
+	 * @param buf OpenAL identifier of the sound-buffer about to be deleted.
+	 */
+	public void detachBuffer(int buf) {
+		if (ALSource == null || channelType != SoundSystemConfig.TYPE_NORMAL) return;
+		if (AL10.alGetSourcei(ALSource.get(0), AL10.AL_BUFFER) != buf) return;
+		AL10.alSourceStop(ALSource.get(0));
+		AL10.alSourcei(ALSource.get(0), AL10.AL_BUFFER, 0);
+		checkALError();
+	}
+
 	/**
 	 * Attaches an OpenAL sound-buffer identifier for the sound data to be played
 	 * back for a normal source.
@@ -178,6 +198,8 @@ public class ChannelLWJGL3OpenAL extends Channel {
 				soundFormat = AL10.AL_FORMAT_MONO8;
 			} else if (audioFormat.getSampleSizeInBits() == 16) {
 				soundFormat = AL10.AL_FORMAT_MONO16;
+			} else if (audioFormat.getSampleSizeInBits() == 32 && AudioFormat.Encoding.PCM_FLOAT.equals(audioFormat.getEncoding())) {
+				soundFormat = EXTFloat32.AL_FORMAT_MONO_FLOAT32;
 			} else {
 				errorMessage("Illegal sample size in method 'setAudioFormat'");
 				return;
@@ -187,6 +209,8 @@ public class ChannelLWJGL3OpenAL extends Channel {
 				soundFormat = AL10.AL_FORMAT_STEREO8;
 			} else if (audioFormat.getSampleSizeInBits() == 16) {
 				soundFormat = AL10.AL_FORMAT_STEREO16;
+			} else if (audioFormat.getSampleSizeInBits() == 32 && AudioFormat.Encoding.PCM_FLOAT.equals(audioFormat.getEncoding())) {
+				soundFormat = EXTFloat32.AL_FORMAT_STEREO_FLOAT32;
 			} else {
 				errorMessage("Illegal sample size in method 'setAudioFormat'");
 				return;
@@ -292,13 +316,29 @@ public class ChannelLWJGL3OpenAL extends Channel {
 	 */
 	@Override
 	public boolean queueBuffer(byte[] buffer) {
+		return queueBuffer(BufferUtils.createByteBuffer(buffer.length).put(buffer).flip());
+	}
+
+	/**
+	 * Queues up the data between the position and limit of a buffer to be
+	 * streamed.  A direct buffer is handed straight to OpenAL, which copies
+	 * the data, so the caller may reuse the buffer as soon as this returns.
+	 *
+	 * @param buffer The next buffer to be played for a streaming source.
+	 * @return False if an error occurred or if the channel is shutting down.
+	 */
+	@Override
+	public boolean queueBuffer(ByteBuffer buffer) {
 		// Stream buffers can only be queued for streaming sources:
 		if (errorCheck(channelType != SoundSystemConfig.TYPE_STREAMING, "Buffers may only be queued for streaming sources."))
 			return false;
 
-		ByteBuffer byteBuffer = BufferUtils.createByteBuffer(buffer.length).put(buffer).flip();
+		// OpenAL can only read from native memory:
+		ByteBuffer byteBuffer = buffer;
+		if (!byteBuffer.isDirect()) byteBuffer = BufferUtils.createByteBuffer(buffer.remaining()).put(buffer).flip();
 
-		IntBuffer intBuffer = BufferUtils.createIntBuffer(1);
+		IntBuffer intBuffer = refillBuffer;
+		intBuffer.clear();
 
 		AL10.alSourceUnqueueBuffers(ALSource.get(0), intBuffer);
 		if (checkALError()) return false;
@@ -393,8 +433,12 @@ public class ChannelLWJGL3OpenAL extends Channel {
 				bytesPerFrame = 2f;
 				break;
 			case AL10.AL_FORMAT_STEREO16:
+			case EXTFloat32.AL_FORMAT_MONO_FLOAT32:
 				bytesPerFrame = 4f;
 				break;
+			case EXTFloat32.AL_FORMAT_STEREO_FLOAT32:
+				bytesPerFrame = 8f;
+				break;
 			case AL10.AL_FORMAT_MONO8:
 			default:
 				bytesPerFrame = 1f;
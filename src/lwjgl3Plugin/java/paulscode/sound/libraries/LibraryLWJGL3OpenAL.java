@@ -73,6 +73,7 @@ import java.nio.ByteBuffer;
 import java.nio.FloatBuffer;
 import java.nio.IntBuffer;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.Set;
 
@@ -117,11 +118,22 @@ public class LibraryLWJGL3OpenAL extends Library {
 	 */
 	private HashMap<String, IntBuffer> ALBufferMap;
 
+	/**
+	 * OpenAL buffers of sounds which have been unloaded, waiting for the last
+	 * source using the sound to let go of it before they are deleted.
+	 */
+	private final IdentityHashMap<SoundBuffer, IntBuffer> unloadedALBuffers = new IdentityHashMap<>();
+
 	/**
 	 * Whether the AL_PITCH control is supported.
 	 */
 	private static boolean alPitchSupported = true;
 
+	/**
+	 * Whether the AL_EXT_float32 extension is supported.
+	 */
+	private boolean alFloat32Supported = false;
+
 	/**
 	 * Instantiates the source map, buffer map and listener information.
 	 */
@@ -167,6 +179,9 @@ public class LibraryLWJGL3OpenAL extends Library {
 		create();
 		if (this.checkALError()) errors = true;
 
+		// Check if we can play 32-bit float data:
+		alFloat32Supported = !errors && AL10.alIsExtensionPresent("AL_EXT_float32");
+
 		// Let user know if the library loaded properly
 		if (errors) importantMessage("OpenAL did not initialize properly!");
 		else message("OpenAL initialized.");
@@ -263,16 +278,18 @@ public class LibraryLWJGL3OpenAL extends Library {
 		String fileName;
 		IntBuffer buffer;
 
+		int failed = 0;
 		// loop through and clear all sound buffers:
 		while (iterator.hasNext()) {
 			fileName = iterator.next();
 			buffer = ALBufferMap.get(fileName);
 			if (buffer != null) {
 				AL10.alDeleteBuffers(buffer);
-				checkALError();
+				if (checkALError()) failed++;
 				buffer.clear();
 			}
 		}
+		if (failed > 0) importantMessage(failed + " OpenAL sound buffer(s) could not be deleted");
 
 		bufferMap.clear();
 		this.destroy();
@@ -293,7 +310,7 @@ public class LibraryLWJGL3OpenAL extends Library {
 	public boolean loadSound(FilenameURL filenameURL) {
 		// Make sure the buffer map exists:
 		if (bufferMap == null) {
-			bufferMap = new HashMap<>();
+			bufferMap = new SoundBufferMap();
 			importantMessage("Buffer Map was null in method 'loadSound'");
 		}
 		// Make sure the OpenAL buffer map exists:
@@ -309,7 +326,7 @@ public class LibraryLWJGL3OpenAL extends Library {
 		// check if it is already loaded:
 		if (bufferMap.get(filenameURL.getFilename()) != null) return true;
 
-		ICodec codec = SoundSystemConfig.getCodec(filenameURL.getFilename());
+		ICodec codec = SoundSystemConfig.getCodec(filenameURL);
 		if (errorCheck(codec == null, "No codec found for file '" + filenameURL.getFilename() + "' in method 'loadSound'"))
 			return false;
 		assert codec != null;
@@ -320,9 +337,8 @@ public class LibraryLWJGL3OpenAL extends Library {
 		if (errorCheck(url == null, "Unable to open file '" + filenameURL.getFilename() + "' in method 'loadSound'"))
 			return false;
 
-		codec.initialize(url);
-		SoundBuffer buffer = codec.readAll();
-		codec.cleanup();
+		SoundBuffer buffer = SoundSystemConfig.getPCMDiskCache().readAll(codec, url, true);
+		SoundSystemConfig.releaseCodec(codec);
 		if (errorCheck(buffer == null, "Sound buffer null in method 'loadSound'")) return false;
 		assert buffer != null;
 
@@ -335,6 +351,8 @@ public class LibraryLWJGL3OpenAL extends Library {
 				soundFormat = AL10.AL_FORMAT_MONO8;
 			} else if (audioFormat.getSampleSizeInBits() == 16) {
 				soundFormat = AL10.AL_FORMAT_MONO16;
+			} else if (audioFormat.getSampleSizeInBits() == 32 && AudioFormat.Encoding.PCM_FLOAT.equals(audioFormat.getEncoding())) {
+				soundFormat = EXTFloat32.AL_FORMAT_MONO_FLOAT32;
 			} else {
 				errorMessage("Illegal sample size in method 'loadSound'");
 				return false;
@@ -344,6 +362,8 @@ public class LibraryLWJGL3OpenAL extends Library {
 				soundFormat = AL10.AL_FORMAT_STEREO8;
 			} else if (audioFormat.getSampleSizeInBits() == 16) {
 				soundFormat = AL10.AL_FORMAT_STEREO16;
+			} else if (audioFormat.getSampleSizeInBits() == 32 && AudioFormat.Encoding.PCM_FLOAT.equals(audioFormat.getEncoding())) {
+				soundFormat = EXTFloat32.AL_FORMAT_STEREO_FLOAT32;
 			} else {
 				errorMessage("Illegal sample size in method 'loadSound'");
 				return false;
@@ -378,7 +398,7 @@ public class LibraryLWJGL3OpenAL extends Library {
 	public boolean loadSound(SoundBuffer buffer, String identifier) {
 		// Make sure the buffer map exists:
 		if (bufferMap == null) {
-			bufferMap = new HashMap<>();
+			bufferMap = new SoundBufferMap();
 			importantMessage("Buffer Map was null in method 'loadSound'");
 		}
 		// Make sure the OpenAL buffer map exists:
@@ -405,6 +425,8 @@ public class LibraryLWJGL3OpenAL extends Library {
 				soundFormat = AL10.AL_FORMAT_MONO8;
 			} else if (audioFormat.getSampleSizeInBits() == 16) {
 				soundFormat = AL10.AL_FORMAT_MONO16;
+			} else if (audioFormat.getSampleSizeInBits() == 32 && AudioFormat.Encoding.PCM_FLOAT.equals(audioFormat.getEncoding())) {
+				soundFormat = EXTFloat32.AL_FORMAT_MONO_FLOAT32;
 			} else {
 				errorMessage("Illegal sample size in method 'loadSound'");
 				return false;
@@ -414,6 +436,8 @@ public class LibraryLWJGL3OpenAL extends Library {
 				soundFormat = AL10.AL_FORMAT_STEREO8;
 			} else if (audioFormat.getSampleSizeInBits() == 16) {
 				soundFormat = AL10.AL_FORMAT_STEREO16;
+			} else if (audioFormat.getSampleSizeInBits() == 32 && AudioFormat.Encoding.PCM_FLOAT.equals(audioFormat.getEncoding())) {
+				soundFormat = EXTFloat32.AL_FORMAT_STEREO_FLOAT32;
 			} else {
 				errorMessage("Illegal sample size in method 'loadSound'");
 				return false;
@@ -445,10 +469,68 @@ public class LibraryLWJGL3OpenAL extends Library {
 	 */
 	@Override
 	public void unloadSound(String filename) {
-		ALBufferMap.remove(filename);
+		IntBuffer alBuffer = ALBufferMap.remove(filename);
+		SoundBuffer buffer = bufferMap.get(filename);
+		if (alBuffer != null && buffer != null) unloadedALBuffers.put(buffer, alBuffer);
 		super.unloadSound(filename);
 	}
 
+	/**
+	 * Deletes the OpenAL buffer of a sound which has been unloaded, once no
+	 * source is using it any more.
+	 *
+	 * @param filename Filename/identifier of the sound which was unloaded.
+	 * @param buffer   The sound's data.
+	 */
+	@Override
+	protected void deleteBuffer(String filename, SoundBuffer buffer) {
+		IntBuffer alBuffer = unloadedALBuffers.remove(buffer);
+		if (alBuffer == null) return;
+
+		// OpenAL won't delete a buffer which is still attached to a source:
+		if (normalChannels != null) {
+			for (Channel channel : normalChannels) {
+				if (channel instanceof ChannelLWJGL3OpenAL)
+					((ChannelLWJGL3OpenAL) channel).detachBuffer(alBuffer.get(0));
+			}
+		}
+
+		AL10.alDeleteBuffers(alBuffer);
+		if (checkALError()) importantMessage("OpenAL sound buffer for '" + filename + "' could not be deleted");
+		alBuffer.clear();
+	}
+
+	/**
+	 * Each loaded sound is kept both in the buffer map and in an OpenAL buffer.
+	 *
+	 * @return 2.
+	 */
+	@Override
+	protected int getBufferCopies() {
+		return 2;
+	}
+
+	/**
+	 * Sounds are decoded by codecs alone, so they can be loaded in the
+	 * background.
+	 *
+	 * @return True.
+	 */
+	@Override
+	public boolean supportsAsyncLoading() {
+		return true;
+	}
+
+	/**
+	 * OpenAL expects sample data in the native byte order.
+	 *
+	 * @return True.
+	 */
+	@Override
+	protected boolean getReverseByteOrder() {
+		return true;
+	}
+
 	/**
 	 * Sets the overall volume to the specified value, affecting all sources.
 	 *
@@ -614,7 +696,7 @@ public class LibraryLWJGL3OpenAL extends Library {
 
 		// Make sure the buffer map exists:
 		if (bufferMap == null) {
-			bufferMap = new HashMap<>();
+			bufferMap = new SoundBufferMap();
 			importantMessage("Buffer Map was null in method 'copySources'");
 		}
 		// Make sure the OpenAL buffer map exists:
@@ -798,6 +880,17 @@ public class LibraryLWJGL3OpenAL extends Library {
 		}
 	}
 
+	/**
+	 * Checks if 32-bit float data can be played, using the AL_EXT_float32
+	 * extension.
+	 *
+	 * @return True if AL_EXT_float32 is supported.
+	 */
+	@Override
+	public boolean supportsFloatOutput() {
+		return alFloat32Supported;
+	}
+
 	/**
 	 * Whether the AL_PITCH control is supported.
 	 *
@@ -65,6 +65,7 @@ package paulscode.sound.libraries;
 
 import org.lwjgl.BufferUtils;
 import org.lwjgl.openal.AL10;
+import org.lwjgl.openal.EXTFloat32;
 import paulscode.sound.*;
 
 import javax.sound.sampled.AudioFormat;
@@ -216,52 +217,63 @@ public class SourceLWJGL3OpenAL extends Source {
 			errorMessage("Method 'incrementSoundSequence' may only be used for streaming sources.");
 			return false;
 		}
-		synchronized (soundSequenceLock) {
-			if (soundSequenceQueue != null && !soundSequenceQueue.isEmpty()) {
-				filenameURL = soundSequenceQueue.remove(0);
-				if (codec != null) codec.cleanup();
-				codec = SoundSystemConfig.getCodec(filenameURL.getFilename());
-				if (codec != null) {
-					codec.reverseByteOrder(true);
-					if (codec.getAudioFormat() == null) codec.initialize(filenameURL.getURL());
-
-					AudioFormat audioFormat = codec.getAudioFormat();
-
-					if (audioFormat == null) {
-						errorMessage("Audio Format null in method 'incrementSoundSequence'");
-						return false;
-					}
-
-					int soundFormat;
-					if (audioFormat.getChannels() == 1) {
-						if (audioFormat.getSampleSizeInBits() == 8) {
-							soundFormat = AL10.AL_FORMAT_MONO8;
-						} else if (audioFormat.getSampleSizeInBits() == 16) {
-							soundFormat = AL10.AL_FORMAT_MONO16;
-						} else {
-							errorMessage("Illegal sample size in method 'incrementSoundSequence'");
+		// Keep the decode threads away from the codec while it is replaced:
+		decodeLock.lock();
+		try {
+			synchronized (soundSequenceLock) {
+				if (soundSequenceQueue != null && !soundSequenceQueue.isEmpty()) {
+					filenameURL = soundSequenceQueue.remove(0);
+					if (codec != null) codec.cleanup();
+					SoundSystemConfig.releaseCodec(codec);
+					codec = SoundSystemConfig.getCodec(filenameURL);
+					if (codec != null) {
+						codec.reverseByteOrder(true);
+						if (codec.getAudioFormat() == null) codec.initialize(filenameURL.getURL());
+
+						AudioFormat audioFormat = codec.getAudioFormat();
+
+						if (audioFormat == null) {
+							errorMessage("Audio Format null in method 'incrementSoundSequence'");
 							return false;
 						}
-					} else if (audioFormat.getChannels() == 2) {
-						if (audioFormat.getSampleSizeInBits() == 8) {
-							soundFormat = AL10.AL_FORMAT_STEREO8;
-						} else if (audioFormat.getSampleSizeInBits() == 16) {
-							soundFormat = AL10.AL_FORMAT_STEREO16;
+
+						int soundFormat;
+						if (audioFormat.getChannels() == 1) {
+							if (audioFormat.getSampleSizeInBits() == 8) {
+								soundFormat = AL10.AL_FORMAT_MONO8;
+							} else if (audioFormat.getSampleSizeInBits() == 16) {
+								soundFormat = AL10.AL_FORMAT_MONO16;
+							} else if (audioFormat.getSampleSizeInBits() == 32 && AudioFormat.Encoding.PCM_FLOAT.equals(audioFormat.getEncoding())) {
+								soundFormat = EXTFloat32.AL_FORMAT_MONO_FLOAT32;
+							} else {
+								errorMessage("Illegal sample size in method 'incrementSoundSequence'");
+								return false;
+							}
+						} else if (audioFormat.getChannels() == 2) {
+							if (audioFormat.getSampleSizeInBits() == 8) {
+								soundFormat = AL10.AL_FORMAT_STEREO8;
+							} else if (audioFormat.getSampleSizeInBits() == 16) {
+								soundFormat = AL10.AL_FORMAT_STEREO16;
+							} else if (audioFormat.getSampleSizeInBits() == 32 && AudioFormat.Encoding.PCM_FLOAT.equals(audioFormat.getEncoding())) {
+								soundFormat = EXTFloat32.AL_FORMAT_STEREO_FLOAT32;
+							} else {
+								errorMessage("Illegal sample size in method 'incrementSoundSequence'");
+								return false;
+							}
 						} else {
-							errorMessage("Illegal sample size in method 'incrementSoundSequence'");
+							errorMessage("Audio data neither mono nor stereo in method 'incrementSoundSequence'");
 							return false;
 						}
-					} else {
-						errorMessage("Audio data neither mono nor stereo in method 'incrementSoundSequence'");
-						return false;
-					}
 
-					// Let the channel know what format and sample rate to use:
-					channelOpenAL.setFormat(soundFormat, (int) audioFormat.getSampleRate());
-					preLoad = true;
+						// Let the channel know what format and sample rate to use:
+						channelOpenAL.setFormat(soundFormat, (int) audioFormat.getSampleRate());
+						preLoad = true;
+					}
+					return true;
 				}
-				return true;
 			}
+		} finally {
+			decodeLock.unlock();
 		}
 		return false;
 	}
@@ -481,46 +493,56 @@ public class SourceLWJGL3OpenAL extends Source {
 		// See if we are already playing:
 		if (!playing()) {
 			if (toStream && !wasPaused) {
-				if (codec == null) {
-					errorMessage("Decoder null in method 'play'");
-					return;
-				}
-				if (codec.getAudioFormat() == null) codec.initialize(filenameURL.getURL());
-
-				AudioFormat audioFormat = codec.getAudioFormat();
+				// Keep the decode threads away while the stream starts over:
+				decodeLock.lock();
+				try {
+					if (codec == null) {
+						errorMessage("Decoder null in method 'play'");
+						return;
+					}
+					if (codec.getAudioFormat() == null) codec.initialize(filenameURL.getURL());
 
-				if (audioFormat == null) {
-					errorMessage("Audio Format null in method 'play'");
-					return;
-				}
+					AudioFormat audioFormat = codec.getAudioFormat();
 
-				int soundFormat;
-				if (audioFormat.getChannels() == 1) {
-					if (audioFormat.getSampleSizeInBits() == 8) {
-						soundFormat = AL10.AL_FORMAT_MONO8;
-					} else if (audioFormat.getSampleSizeInBits() == 16) {
-						soundFormat = AL10.AL_FORMAT_MONO16;
-					} else {
-						errorMessage("Illegal sample size in method 'play'");
+					if (audioFormat == null) {
+						errorMessage("Audio Format null in method 'play'");
 						return;
 					}
-				} else if (audioFormat.getChannels() == 2) {
-					if (audioFormat.getSampleSizeInBits() == 8) {
-						soundFormat = AL10.AL_FORMAT_STEREO8;
-					} else if (audioFormat.getSampleSizeInBits() == 16) {
-						soundFormat = AL10.AL_FORMAT_STEREO16;
+
+					int soundFormat;
+					if (audioFormat.getChannels() == 1) {
+						if (audioFormat.getSampleSizeInBits() == 8) {
+							soundFormat = AL10.AL_FORMAT_MONO8;
+						} else if (audioFormat.getSampleSizeInBits() == 16) {
+							soundFormat = AL10.AL_FORMAT_MONO16;
+						} else if (audioFormat.getSampleSizeInBits() == 32 && AudioFormat.Encoding.PCM_FLOAT.equals(audioFormat.getEncoding())) {
+							soundFormat = EXTFloat32.AL_FORMAT_MONO_FLOAT32;
+						} else {
+							errorMessage("Illegal sample size in method 'play'");
+							return;
+						}
+					} else if (audioFormat.getChannels() == 2) {
+						if (audioFormat.getSampleSizeInBits() == 8) {
+							soundFormat = AL10.AL_FORMAT_STEREO8;
+						} else if (audioFormat.getSampleSizeInBits() == 16) {
+							soundFormat = AL10.AL_FORMAT_STEREO16;
+						} else if (audioFormat.getSampleSizeInBits() == 32 && AudioFormat.Encoding.PCM_FLOAT.equals(audioFormat.getEncoding())) {
+							soundFormat = EXTFloat32.AL_FORMAT_STEREO_FLOAT32;
+						} else {
+							errorMessage("Illegal sample size in method 'play'");
+							return;
+						}
 					} else {
-						errorMessage("Illegal sample size in method 'play'");
+						errorMessage("Audio data neither mono nor stereo in method 'play'");
 						return;
 					}
-				} else {
-					errorMessage("Audio data neither mono nor stereo in method 'play'");
-					return;
-				}
 
-				// Let the channel know what format and sample rate to use:
-				channelOpenAL.setFormat(soundFormat, (int) audioFormat.getSampleRate());
-				preLoad = true;
+					// Let the channel know what format and sample rate to use:
+					channelOpenAL.setFormat(soundFormat, (int) audioFormat.getSampleRate());
+					preLoad = true;
+				} finally {
+					decodeLock.unlock();
+				}
 			}
 			channel.play();
 			if (pitch != 1.0f) checkPitch();
@@ -536,9 +558,9 @@ public class SourceLWJGL3OpenAL extends Source {
 	public boolean preLoad() {
 		if (codec == null) return false;
 
-		codec.initialize(filenameURL.getURL());
+		restartStream();
 		LinkedList<byte[]> preLoadBuffers = new LinkedList<>();
-		for (int i = 0; i < SoundSystemConfig.getNumberStreamingBuffers(); i++) {
+		for (int i = 0; i < getNumberStreamingBuffers(); i++) {
 			soundBuffer = codec.read();
 
 			if (soundBuffer == null || soundBuffer.audioData == null) break;
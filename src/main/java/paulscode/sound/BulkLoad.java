@@ -0,0 +1,211 @@
+/*
+ * The SoundSystem License:
+ *
+ * You are free to use this library for any purpose, commercial or otherwise.
+ * You may modify this library or source code, and distribute it any way you
+ * like, provided the following conditions are met:
+ *
+ * 1) You may not falsely claim to be the author of this library or any
+ *    unmodified portion of it.
+ * 2) You may not copyright this library or a modified version of it and then
+ *    sue me for copyright infringement.
+ * 3) If you modify the source code, you must clearly document the changes
+ *    made before redistributing the modified source code, so other users know
+ *    it is not the original code.
+ * 4) You are not required to give me credit for this library in any derived
+ *    work, but if you do, you must also mention my website:
+ *    https://www.paulscode.com
+ * 5) I the author will not be responsible for any damages (physical,
+ *    financial, or otherwise) caused by the use if this library or any part
+ *    of it.
+ * 6) I the author do not guarantee, warrant, or make any representations,
+ *    either expressed or implied, regarding the use of this library or any
+ *    part of it.
+ *
+ * Author: Paul Lamb
+ * https://www.paulscode.com
+ */
+
+package paulscode.sound;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The BulkLoad class reports the progress of sounds being loaded together by
+ * {@link SoundSystem#loadSounds(java.util.Collection) loadSounds()}.  All of
+ * its methods may be called from any thread while the sounds are loading.
+ */
+public class BulkLoad {
+	/**
+	 * Number of sounds being loaded.
+	 */
+	private final int soundCount;
+
+	/**
+	 * Number of sounds which have finished loading, successfully or not.
+	 */
+	private final AtomicInteger completed = new AtomicInteger();
+
+	/**
+	 * Number of sounds which could not be loaded.
+	 */
+	private final AtomicInteger failed = new AtomicInteger();
+
+	/**
+	 * Total size of the sample data decoded so far, in bytes.
+	 */
+	private final AtomicLong decodedBytes = new AtomicLong();
+
+	/**
+	 * System.nanoTime() when the sounds were handed to the decoding threads.
+	 */
+	private volatile long decodeStart = -1;
+
+	/**
+	 * Nanoseconds it took to decode all the sounds, or -1 until they are done.
+	 */
+	private volatile long decodeTime = -1;
+
+	/**
+	 * Completes with true once every sound has been loaded, or false if any
+	 * sound could not be loaded.
+	 */
+	private final CompletableFuture<Boolean> completion = new CompletableFuture<>();
+
+	/**
+	 * Constructor:  Starts keeping track of the specified number of sounds.
+	 *
+	 * @param soundCount Number of sounds being loaded.
+	 */
+	BulkLoad(int soundCount) {
+		this.soundCount = soundCount;
+		if (soundCount == 0) completion.complete(true);
+	}
+
+	/**
+	 * Returns the number of sounds being loaded.
+	 *
+	 * @return Number of sounds.
+	 */
+	public int getSoundCount() {
+		return soundCount;
+	}
+
+	/**
+	 * Returns the number of sounds which have finished loading, including any
+	 * which could not be loaded.
+	 *
+	 * @return Number of sounds finished.
+	 */
+	public int getCompletedCount() {
+		return completed.get();
+	}
+
+	/**
+	 * Returns the number of sounds which could not be loaded.
+	 *
+	 * @return Number of failed sounds.
+	 */
+	public int getFailedCount() {
+		return failed.get();
+	}
+
+	/**
+	 * Returns how much of the loading has been done.
+	 *
+	 * @return Fraction of the sounds which have finished loading (0.0f - 1.0f).
+	 */
+	public float getProgress() {
+		return soundCount == 0 ? 1.0f : (float) completed.get() / soundCount;
+	}
+
+	/**
+	 * Returns the total size of the sample data decoded so far.  Sounds which
+	 * were already loaded are not counted.
+	 *
+	 * @return Decoded bytes.
+	 */
+	public long getDecodedBytes() {
+		return decodedBytes.get();
+	}
+
+	/**
+	 * Returns how long the sounds have been decoding for, or how long it took
+	 * to decode them all once they are done.
+	 *
+	 * @return Nanoseconds spent decoding, or 0 if decoding has not started.
+	 */
+	public long getDecodeTime() {
+		long time = decodeTime;
+		if (time >= 0) return time;
+		long start = decodeStart;
+		return start < 0 ? 0 : System.nanoTime() - start;
+	}
+
+	/**
+	 * Returns the total decode throughput of all the decoding threads together.
+	 *
+	 * @return Decoded bytes per second, or 0 if nothing has been decoded yet.
+	 */
+	public double getThroughput() {
+		long time = getDecodeTime();
+		return time <= 0 ? 0 : decodedBytes.get() * 1000000000.0 / time;
+	}
+
+	/**
+	 * Checks if every sound has finished loading.
+	 *
+	 * @return True when loading is done.
+	 */
+	public boolean isDone() {
+		return completion.isDone();
+	}
+
+	/**
+	 * Returns a handle which completes once every sound has finished loading.
+	 *
+	 * @return Completes with true if all sounds were loaded, or false if any could not be.
+	 */
+	public CompletableFuture<Boolean> getCompletion() {
+		return completion;
+	}
+
+	/**
+	 * Counts the specified sound's handle towards the progress.  Called by
+	 * SoundSystem once for each sound.
+	 *
+	 * @param loaded Handle which completes when the sound has been loaded.
+	 */
+	void track(CompletableFuture<Boolean> loaded) {
+		loaded.whenComplete((result, exception) -> {
+			if (result == null || !result) failed.incrementAndGet();
+			if (completed.incrementAndGet() == soundCount) completion.complete(failed.get() == 0);
+		});
+	}
+
+	/**
+	 * Marks the start of decoding.  Called by SoundSystem.
+	 */
+	void decodingStarted() {
+		decodeStart = System.nanoTime();
+	}
+
+	/**
+	 * Adds to the number of bytes decoded.  Called by the decoding threads.
+	 *
+	 * @param bytes Size of a sound's sample data.
+	 */
+	void addDecodedBytes(long bytes) {
+		decodedBytes.addAndGet(bytes);
+	}
+
+	/**
+	 * Marks the end of decoding.  Called by SoundSystem.
+	 */
+	void decodingFinished() {
+		long start = decodeStart;
+		if (start >= 0) decodeTime = System.nanoTime() - start;
+	}
+}
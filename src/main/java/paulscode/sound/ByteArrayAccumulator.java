@@ -0,0 +1,170 @@
+/*
+ * The SoundSystem License:
+ *
+ * You are free to use this library for any purpose, commercial or otherwise.
+ * You may modify this library or source code, and distribute it any way you
+ * like, provided the following conditions are met:
+ *
+ * 1) You may not falsely claim to be the author of this library or any
+ *    unmodified portion of it.
+ * 2) You may not copyright this library or a modified version of it and then
+ *    sue me for copyright infringement.
+ * 3) If you modify the source code, you must clearly document the changes
+ *    made before redistributing the modified source code, so other users know
+ *    it is not the original code.
+ * 4) You are not required to give me credit for this library in any derived
+ *    work, but if you do, you must also mention my website:
+ *    https://www.paulscode.com
+ * 5) I the author will not be responsible for any damages (physical,
+ *    financial, or otherwise) caused by the use if this library or any part
+ *    of it.
+ * 6) I the author do not guarantee, warrant, or make any representations,
+ *    either expressed or implied, regarding the use of this library or any
+ *    part of it.
+ *
+ * Author: Paul Lamb
+ * https://www.paulscode.com
+ */
+
+package paulscode.sound;
+
+import java.util.ArrayList;
+
+/**
+ * The ByteArrayAccumulator class collects audio data a piece at a time, and
+ * copies it into one array at the end.  The data is kept in a list of
+ * segments which are never reallocated, so appending is linear in the amount
+ * of data, unlike growing one array by copying it each time.  If the total
+ * size is known ahead of time, one segment of exactly that size is used, and
+ * it is returned without any final copy.
+ * <p>
+ * NOTE: This class is used by the codecs to read in entire files, so it is
+ * unlikely that the user would ever need to use it.
+ */
+@SuppressWarnings("unused")
+public class ByteArrayAccumulator {
+	/**
+	 * Size of the first segment, if the total size is not known.
+	 */
+	private static final int MIN_SEGMENT_SIZE = 4096;
+
+	/**
+	 * Largest size segments grow to.
+	 */
+	private static final int MAX_SEGMENT_SIZE = 4194304;
+
+	/**
+	 * Segments which have been filled.
+	 */
+	private final ArrayList<byte[]> segments = new ArrayList<>();
+
+	/**
+	 * Segment being filled, or null.
+	 */
+	private byte[] current = null;
+
+	/**
+	 * Number of bytes in the current segment.
+	 */
+	private int currentSize = 0;
+
+	/**
+	 * Size of the next segment to allocate.
+	 */
+	private int nextSegmentSize;
+
+	/**
+	 * Total number of bytes appended.
+	 */
+	private int size = 0;
+
+	/**
+	 * Constructor:  Used when the total size is not known.
+	 */
+	public ByteArrayAccumulator() {
+		this(0);
+	}
+
+	/**
+	 * Constructor:  Allocates room for the expected amount of data up front.
+	 *
+	 * @param expectedSize Expected total size in bytes, or 0 if not known.
+	 */
+	public ByteArrayAccumulator(int expectedSize) {
+		if (expectedSize > 0) current = new byte[expectedSize];
+		nextSegmentSize = MIN_SEGMENT_SIZE;
+	}
+
+	/**
+	 * Appends the specified bytes.
+	 *
+	 * @param data   Array containing the bytes, or null.
+	 * @param offset Index of the first byte to append.
+	 * @param length Number of bytes to append.
+	 */
+	public void append(byte[] data, int offset, int length) {
+		if (data == null) return;
+		length = Math.min(length, data.length - offset);
+		int count;
+		while (length > 0) {
+			if (current == null || currentSize == current.length) newSegment(length);
+			count = Math.min(length, current.length - currentSize);
+			System.arraycopy(data, offset, current, currentSize, count);
+			currentSize += count;
+			offset += count;
+			length -= count;
+			size += count;
+		}
+	}
+
+	/**
+	 * Appends all of the specified bytes.
+	 *
+	 * @param data Array containing the bytes, or null.
+	 */
+	public void append(byte[] data) {
+		if (data != null) append(data, 0, data.length);
+	}
+
+	/**
+	 * Returns the total number of bytes appended.
+	 *
+	 * @return Number of bytes.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Copies everything appended into one array.
+	 *
+	 * @return Array containing the data, or null if nothing was appended.
+	 */
+	public byte[] toByteArray() {
+		if (size == 0) return null;
+		// Nothing to copy if one segment holds exactly all the data:
+		if (segments.isEmpty() && currentSize == current.length) return current;
+
+		byte[] data = new byte[size];
+		int offset = 0;
+		for (byte[] segment : segments) {
+			System.arraycopy(segment, 0, data, offset, segment.length);
+			offset += segment.length;
+		}
+		if (current != null) System.arraycopy(current, 0, data, offset, currentSize);
+		return data;
+	}
+
+	/**
+	 * Puts the current segment in the list of filled segments, and starts a new
+	 * one.  Segments double in size up to a limit.
+	 *
+	 * @param needed Number of bytes waiting to be appended.
+	 */
+	private void newSegment(int needed) {
+		if (current != null) segments.add(current);
+		current = new byte[Math.max(nextSegmentSize, Math.min(needed, MAX_SEGMENT_SIZE))];
+		currentSize = 0;
+		nextSegmentSize = Math.min(nextSegmentSize * 2, MAX_SEGMENT_SIZE);
+	}
+}
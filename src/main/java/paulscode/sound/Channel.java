@@ -28,6 +28,7 @@
 
 package paulscode.sound;
 
+import java.nio.ByteBuffer;
 import java.util.LinkedList;
 import javax.sound.sampled.AudioFormat;
 
@@ -109,6 +110,22 @@ public class Channel {
 		return false;
 	}
 
+	/**
+	 * Queues up the data between the position and limit of a buffer to be
+	 * streamed.  The data is copied (or handed to the audio library, which
+	 * copies it) before this method returns, so the caller may reuse the
+	 * buffer.  Libraries which can't use a ByteBuffer directly copy it into a
+	 * byte[] and call {@link #queueBuffer(byte[])}.
+	 *
+	 * @param buffer The next buffer to be played for a streaming source.
+	 * @return False if an error occurred or if the channel is shutting down.
+	 */
+	public boolean queueBuffer(ByteBuffer buffer) {
+		byte[] data = new byte[buffer.remaining()];
+		buffer.get(data);
+		return queueBuffer(data);
+	}
+
 	/**
 	 * Feeds raw data to the stream.
 	 *
@@ -128,6 +145,17 @@ public class Channel {
 		return 0;
 	}
 
+	/**
+	 * Checks if a streaming channel has played everything that was queued and
+	 * is waiting for more data.  Libraries which can't tell always return
+	 * false, and underruns are then detected from buffersProcessed() instead.
+	 *
+	 * @return True if the channel ran out of data.
+	 */
+	public boolean starved() {
+		return false;
+	}
+
 	/**
 	 * Calculates the number of milliseconds since the channel began playing.
 	 *
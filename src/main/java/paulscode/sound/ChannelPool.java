@@ -0,0 +1,245 @@
+/*
+ * The SoundSystem License:
+ *
+ * You are free to use this library for any purpose, commercial or otherwise.
+ * You may modify this library or source code, and distribute it any way you
+ * like, provided the following conditions are met:
+ *
+ * 1) You may not falsely claim to be the author of this library or any
+ *    unmodified portion of it.
+ * 2) You may not copyright this library or a modified version of it and then
+ *    sue me for copyright infringement.
+ * 3) If you modify the source code, you must clearly document the changes
+ *    made before redistributing the modified source code, so other users know
+ *    it is not the original code.
+ * 4) You are not required to give me credit for this library in any derived
+ *    work, but if you do, you must also mention my website:
+ *    https://www.paulscode.com
+ * 5) I the author will not be responsible for any damages (physical,
+ *    financial, or otherwise) caused by the use if this library or any part
+ *    of it.
+ * 6) I the author do not guarantee, warrant, or make any representations,
+ *    either expressed or implied, regarding the use of this library or any
+ *    part of it.
+ *
+ * Author: Paul Lamb
+ * https://www.paulscode.com
+ */
+
+package paulscode.sound;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * The ChannelPool class keeps track of which source each channel of one type
+ * (normal or streaming) was last given to, so the Library can find a channel
+ * for a source without scanning every channel.  Channels are handed back to
+ * the pool when their source stops or finishes playing, and are handed out
+ * again oldest first.  Channels given to non-priority sources are remembered
+ * in the order they were given out, so when no channel is free, the oldest
+ * non-priority one can be taken.  The pool only offers candidates; the
+ * Library still checks each one before using it.
+ */
+class ChannelPool {
+	/**
+	 * Name of the source each channel was last given to, or null.
+	 */
+	private String[] sourceNames = new String[0];
+
+	/**
+	 * Whether or not each channel is waiting in the free list.
+	 */
+	private boolean[] free = new boolean[0];
+
+	/**
+	 * Incremented each time a channel is given to a source, so old entries in
+	 * the free and non-priority lists can be recognized.
+	 */
+	private int[] generations = new int[0];
+
+	/**
+	 * Channel last given to each source, by source name.
+	 */
+	private final HashMap<String, Integer> channelBySource = new HashMap<>();
+
+	/**
+	 * Channels which are not playing anything, oldest first.  Entries are
+	 * packed like those in the non-priority list.
+	 */
+	private final ArrayDeque<Long> freeChannels = new ArrayDeque<>();
+
+	/**
+	 * Channels given to non-priority sources, oldest first.  Each entry holds
+	 * the channel's index in the low 32 bits and its generation in the high 32
+	 * bits.
+	 */
+	private final ArrayDeque<Long> nonPriorityChannels = new ArrayDeque<>();
+
+	/**
+	 * Makes sure the pool matches the specified number of channels.  If the
+	 * number changed, the pool starts over with every channel free.
+	 *
+	 * @param channels Number of channels of this type.
+	 */
+	void resize(int channels) {
+		if (channels == sourceNames.length) return;
+		sourceNames = new String[channels];
+		free = new boolean[channels];
+		generations = new int[channels];
+		channelBySource.clear();
+		freeChannels.clear();
+		nonPriorityChannels.clear();
+		Arrays.fill(free, true);
+		for (int i = 0; i < channels; i++) {
+			freeChannels.add(entry(i));
+		}
+	}
+
+	/**
+	 * Returns the channel last given to the specified source.
+	 *
+	 * @param sourceName Name of the source.
+	 * @return Index of the channel, or -1 if the source has no channel.
+	 */
+	int indexOf(String sourceName) {
+		Integer index = channelBySource.get(sourceName);
+		return index == null ? -1 : index;
+	}
+
+	/**
+	 * Returns the name of the source the specified channel was last given to.
+	 *
+	 * @param index Index of the channel.
+	 * @return Name of the source, or null.
+	 */
+	String sourceNameAt(int index) {
+		return sourceNames[index];
+	}
+
+	/**
+	 * Takes the oldest channel out of the free list.
+	 *
+	 * @return Index of the channel, or -1 if no channel is free.
+	 */
+	int nextFree() {
+		Long entry;
+		int index;
+		while ((entry = freeChannels.poll()) != null) {
+			if (!freeOutdated(entry)) {
+				index = (int) (entry & 0xFFFFFFFFL);
+				free[index] = false;
+				return index;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Takes the oldest channel given to a non-priority source out of the
+	 * non-priority list.
+	 *
+	 * @return Index of the channel, or -1 if there are none.
+	 */
+	int nextNonPriority() {
+		Long entry;
+		while ((entry = nonPriorityChannels.poll()) != null) {
+			if (!outdated(entry)) return (int) (entry & 0xFFFFFFFFL);
+		}
+		return -1;
+	}
+
+	/**
+	 * Gives the specified channel to a source.
+	 *
+	 * @param index      Index of the channel.
+	 * @param sourceName Name of the source.
+	 * @param priority   Whether the source is a priority source.
+	 */
+	void assign(int index, String sourceName, boolean priority) {
+		String previous = sourceNames[index];
+		if (previous != null && !previous.equals(sourceName)) channelBySource.remove(previous);
+		Integer current = channelBySource.get(sourceName);
+		if (current != null && current != index) sourceNames[current] = null;
+		sourceNames[index] = sourceName;
+		channelBySource.put(sourceName, index);
+		free[index] = false;
+		generations[index]++;
+		if (!priority) {
+			nonPriorityChannels.add(entry(index));
+			// Old entries pile up while channels are never taken, so drop them
+			// now and then:
+			if (nonPriorityChannels.size() > 2 * sourceNames.length + 16) nonPriorityChannels.removeIf(this::outdated);
+		}
+	}
+
+	/**
+	 * Packs the specified channel and its current generation into a list entry.
+	 *
+	 * @param index Index of the channel.
+	 * @return Entry for the free or non-priority list.
+	 */
+	private long entry(int index) {
+		return ((long) generations[index] << 32) | index;
+	}
+
+	/**
+	 * Checks if an entry in the free list no longer refers to a free channel.
+	 *
+	 * @param entry Entry from the free list.
+	 * @return True if the channel has been given to a source since.
+	 */
+	private boolean freeOutdated(long entry) {
+		int index = (int) (entry & 0xFFFFFFFFL);
+		return index >= generations.length || generations[index] != (int) (entry >>> 32) || !free[index];
+	}
+
+	/**
+	 * Checks if an entry in the non-priority list no longer refers to a channel
+	 * which could be taken.
+	 *
+	 * @param entry Entry from the non-priority list.
+	 * @return True if the channel has been freed or given to another source since.
+	 */
+	private boolean outdated(long entry) {
+		int index = (int) (entry & 0xFFFFFFFFL);
+		return index >= generations.length || generations[index] != (int) (entry >>> 32) || free[index];
+	}
+
+	/**
+	 * Hands the specified source's channel back to the pool because the source
+	 * is no longer playing.  The channel is still remembered as the source's,
+	 * so it is used again if the source plays before the channel is given to
+	 * another source.
+	 *
+	 * @param sourceName Name of the source.
+	 */
+	void release(String sourceName) {
+		Integer index = channelBySource.get(sourceName);
+		if (index == null || free[index]) return;
+		free[index] = true;
+		freeChannels.add(entry(index));
+		// A source which gets its own channel back leaves its old entry behind:
+		if (freeChannels.size() > 2 * sourceNames.length + 16) freeChannels.removeIf(this::freeOutdated);
+	}
+
+	/**
+	 * Hands the specified source's channel back to the pool and forgets about
+	 * the source, because it has been removed.
+	 *
+	 * @param sourceName Name of the source.
+	 */
+	void remove(String sourceName) {
+		release(sourceName);
+		Integer index = channelBySource.remove(sourceName);
+		if (index != null) sourceNames[index] = null;
+	}
+
+	/**
+	 * Forgets about every channel.
+	 */
+	void clear() {
+		resize(0);
+	}
+}
@@ -0,0 +1,139 @@
+/*
+ * The SoundSystem License:
+ *
+ * You are free to use this library for any purpose, commercial or otherwise.
+ * You may modify this library or source code, and distribute it any way you
+ * like, provided the following conditions are met:
+ *
+ * 1) You may not falsely claim to be the author of this library or any
+ *    unmodified portion of it.
+ * 2) You may not copyright this library or a modified version of it and then
+ *    sue me for copyright infringement.
+ * 3) If you modify the source code, you must clearly document the changes
+ *    made before redistributing the modified source code, so other users know
+ *    it is not the original code.
+ * 4) You are not required to give me credit for this library in any derived
+ *    work, but if you do, you must also mention my website:
+ *    https://www.paulscode.com
+ * 5) I the author will not be responsible for any damages (physical,
+ *    financial, or otherwise) caused by the use if this library or any part
+ *    of it.
+ * 6) I the author do not guarantee, warrant, or make any representations,
+ *    either expressed or implied, regarding the use of this library or any
+ *    part of it.
+ *
+ * Author: Paul Lamb
+ * https://www.paulscode.com
+ */
+
+package paulscode.sound;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+
+/**
+ * The CodecProbe class looks at the first bytes of an audio file to work out
+ * what format it is in, regardless of the file's name.  The format is returned
+ * as the file extension normally used for it, so the codec registered for that
+ * extension can be used to read the file.  Recognized formats are RIFF WAVE,
+ * Ogg Vorbis, Ogg Speex, MP3 (with or without an ID3 tag), MIDI, and the
+ * XM, S3M, and MOD module formats.
+ * <p>
+ * NOTE: Probing is done automatically by SoundSystem when
+ * {@link SoundSystemConfig#setProbeCodecs(boolean) setProbeCodecs()} is turned
+ * on, so it is unlikely that the user would ever need to use this class.
+ */
+@SuppressWarnings("unused")
+public class CodecProbe {
+	/**
+	 * Number of bytes needed to recognize every format (a MOD signature is at
+	 * offset 1080).
+	 */
+	public static final int PROBE_SIZE = 1084;
+
+	/**
+	 * Opens the specified URL and checks what format its contents are in.
+	 *
+	 * @param url URL interface to a file.
+	 * @return File extension for the format, or null if not recognized.
+	 */
+	public static String probe(URL url) {
+		if (url == null) return null;
+		byte[] header = new byte[PROBE_SIZE];
+		int length = 0;
+		try (InputStream in = url.openStream()) {
+			int n;
+			while (length < PROBE_SIZE && (n = in.read(header, length, PROBE_SIZE - length)) > 0) length += n;
+		} catch (IOException e) {
+			return null;
+		}
+		return probe(header, length);
+	}
+
+	/**
+	 * Checks what format the specified bytes from the start of a file are in.
+	 *
+	 * @param header Bytes from the start of the file.
+	 * @param length Number of bytes in the header.
+	 * @return File extension for the format, or null if not recognized.
+	 */
+	public static String probe(byte[] header, int length) {
+		if (header == null) return null;
+		length = Math.min(length, header.length);
+
+		if (matches(header, length, 0, "RIFF") && matches(header, length, 8, "WAVE")) return "wav";
+		if (matches(header, length, 0, "OggS") && length > 26) {
+			// First packet follows the page header and its segment table:
+			int packet = 27 + (header[26] & 0xFF);
+			if (matches(header, length, packet, "\u0001vorbis")) return "ogg";
+			if (matches(header, length, packet, "Speex   ")) return "spx";
+			return null;
+		}
+		if (matches(header, length, 0, "MThd")) return "mid";
+		if (matches(header, length, 0, "Extended Module: ")) return "xm";
+		if (matches(header, length, 44, "SCRM")) return "s3m";
+		if (matches(header, length, 0, "ID3")) return "mp3";
+		if (length > 1 && (header[0] & 0xFF) == 0xFF && (header[1] & 0xE0) == 0xE0) {
+			// MPEG frame sync.  Version and layer must not be reserved:
+			if ((header[1] & 0x18) != 0x08 && (header[1] & 0x06) != 0) return "mp3";
+		}
+		if (isModSignature(header, length, 1080)) return "mod";
+		return null;
+	}
+
+	/**
+	 * Checks for one of the ProTracker channel signatures ("M.K.", "FLT4",
+	 * "6CHN", "16CH", etc).
+	 *
+	 * @param header Bytes from the start of the file.
+	 * @param length Number of bytes in the header.
+	 * @param offset Where the signature should be.
+	 * @return True if a signature was found.
+	 */
+	private static boolean isModSignature(byte[] header, int length, int offset) {
+		if (offset + 4 > length) return false;
+		if (matches(header, length, offset, "M.K.") || matches(header, length, offset, "M!K!") || matches(header, length, offset, "FLT4") || matches(header, length, offset, "FLT8"))
+			return true;
+		char a = (char) header[offset], b = (char) header[offset + 1];
+		if (Character.isDigit(a) && matches(header, length, offset + 1, "CHN")) return true;
+		return Character.isDigit(a) && Character.isDigit(b) && matches(header, length, offset + 2, "CH");
+	}
+
+	/**
+	 * Checks if the specified ASCII text appears in the header at an offset.
+	 *
+	 * @param header Bytes from the start of the file.
+	 * @param length Number of bytes in the header.
+	 * @param offset Where the text should be.
+	 * @param text   ASCII text to look for.
+	 * @return True if the text is there.
+	 */
+	private static boolean matches(byte[] header, int length, int offset, String text) {
+		if (offset < 0 || offset + text.length() > length) return false;
+		for (int i = 0; i < text.length(); i++) {
+			if (header[offset + i] != (byte) text.charAt(i)) return false;
+		}
+		return true;
+	}
+}
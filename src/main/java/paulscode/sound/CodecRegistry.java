@@ -0,0 +1,332 @@
+/*
+ * The SoundSystem License:
+ *
+ * You are free to use this library for any purpose, commercial or otherwise.
+ * You may modify this library or source code, and distribute it any way you
+ * like, provided the following conditions are met:
+ *
+ * 1) You may not falsely claim to be the author of this library or any
+ *    unmodified portion of it.
+ * 2) You may not copyright this library or a modified version of it and then
+ *    sue me for copyright infringement.
+ * 3) If you modify the source code, you must clearly document the changes
+ *    made before redistributing the modified source code, so other users know
+ *    it is not the original code.
+ * 4) You are not required to give me credit for this library in any derived
+ *    work, but if you do, you must also mention my website:
+ *    https://www.paulscode.com
+ * 5) I the author will not be responsible for any damages (physical,
+ *    financial, or otherwise) caused by the use if this library or any part
+ *    of it.
+ * 6) I the author do not guarantee, warrant, or make any representations,
+ *    either expressed or implied, regarding the use of this library or any
+ *    part of it.
+ *
+ * Author: Paul Lamb
+ * https://www.paulscode.com
+ */
+
+package paulscode.sound;
+
+import java.lang.reflect.Constructor;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+/**
+ * The CodecRegistry class associates file extensions with the codecs used to
+ * read audio data from them.  Looking up a codec never takes a lock: the
+ * registered codecs are kept in a table which is replaced (not changed) each
+ * time a codec is registered, so readers always see a complete table.  A
+ * filename's extension is looked up in a hash map first, and the precompiled
+ * extension patterns are only checked if that fails.
+ * <p>
+ * Codecs are created by a factory rather than by reflection.  A codec may also
+ * be registered for reuse, in which case instances which have been cleaned up
+ * and passed to {@link #release(ICodec) release()} are handed out again
+ * instead of creating new ones.
+ * <p>
+ * NOTE: The registry used by SoundSystem is accessed through the static
+ * setCodec() and getCodec() methods in {@link SoundSystemConfig}, so it is
+ * unlikely that the user would ever need to use this class directly.
+ */
+@SuppressWarnings("unused")
+public class CodecRegistry {
+	/**
+	 * Most released instances to keep for reuse, per codec.
+	 */
+	private static final int MAX_REUSABLE = 4;
+
+	/**
+	 * The current table of codecs.  Replaced, never changed.
+	 */
+	private volatile Table table = new Table(new ArrayList<>());
+
+	/**
+	 * Associates the specified file extension with a codec type, which is
+	 * created through its public parameterless constructor.  Any codec
+	 * previously registered for a matching extension is replaced.
+	 *
+	 * @param extension   File extension to be associated with the specified codec.
+	 * @param iCodecClass Codec type to use for files with the specified extension.
+	 * @throws SoundSystemException If a parameter is null or the class does not implement ICodec.
+	 */
+	public void register(String extension, Class<?> iCodecClass) throws SoundSystemException {
+		if (extension == null)
+			throw new SoundSystemException("Parameter 'extension' null in method 'register'.", SoundSystemException.NULL_PARAMETER);
+		if (iCodecClass == null)
+			throw new SoundSystemException("Parameter 'iCodecClass' null in method 'register'.", SoundSystemException.NULL_PARAMETER);
+		if (!ICodec.class.isAssignableFrom(iCodecClass))
+			throw new SoundSystemException("The specified class does not implement interface 'ICodec' in method 'register'", SoundSystemException.CLASS_TYPE_MISMATCH);
+
+		// Look the constructor up once, rather than each time a codec is needed:
+		Constructor<?> found;
+		try {
+			found = iCodecClass.getConstructor();
+		} catch (NoSuchMethodException e) {
+			// Reported by getCodec(), as before:
+			found = null;
+		}
+		final Constructor<?> constructor = found;
+		register(extension, () -> {
+			if (constructor == null) return null;
+			try {
+				return (ICodec) constructor.newInstance();
+			} catch (Exception e) {
+				return null;
+			}
+		}, iCodecClass, false);
+	}
+
+	/**
+	 * Associates the specified file extension with a codec factory.  Any codec
+	 * previously registered for a matching extension is replaced.
+	 *
+	 * @param extension File extension to be associated with the specified codec.
+	 * @param factory   Creates a new codec each time one is needed.
+	 * @param reuse     True if codecs passed to release() may be handed out again.
+	 * @throws SoundSystemException If a parameter is null.
+	 */
+	public void register(String extension, Supplier<? extends ICodec> factory, boolean reuse) throws SoundSystemException {
+		register(extension, factory, null, reuse);
+	}
+
+	/**
+	 * Adds a codec to a copy of the table, and replaces the table with it.
+	 *
+	 * @param extension  File extension to be associated with the specified codec.
+	 * @param factory    Creates a new codec each time one is needed.
+	 * @param codecClass Type of codec the factory creates, or null if not known yet.
+	 * @param reuse      True if codecs passed to release() may be handed out again.
+	 * @throws SoundSystemException If a parameter is null.
+	 */
+	private synchronized void register(String extension, Supplier<? extends ICodec> factory, Class<?> codecClass, boolean reuse) throws SoundSystemException {
+		if (extension == null)
+			throw new SoundSystemException("Parameter 'extension' null in method 'register'.", SoundSystemException.NULL_PARAMETER);
+		if (factory == null)
+			throw new SoundSystemException("Parameter 'factory' null in method 'register'.", SoundSystemException.NULL_PARAMETER);
+
+		ArrayList<Entry> entries = new ArrayList<>();
+		for (Entry entry : table.entries) {
+			// Drop codecs which the new one replaces:
+			if (!entry.pattern.matcher(extension).matches()) entries.add(entry);
+		}
+		entries.add(new Entry(extension, factory, codecClass, reuse));
+		table = new Table(entries);
+	}
+
+	/**
+	 * Returns a codec that can be used to read audio data from the specified
+	 * file.  Never waits on a lock.
+	 *
+	 * @param filename File to get a codec for.
+	 * @return New (or reused) codec, or null if none is registered for the file.
+	 */
+	public ICodec getCodec(String filename) {
+		Entry entry = find(filename);
+		if (entry == null) return null;
+		return entry.getInstance();
+	}
+
+	/**
+	 * Checks if there is a codec registered for the specified file.
+	 *
+	 * @param filename File to check.
+	 * @return True if a codec would be returned by getCodec().
+	 */
+	public boolean hasCodec(String filename) {
+		return find(filename) != null;
+	}
+
+	/**
+	 * Gives back a codec which has been cleaned up and is no longer used, so it
+	 * can be handed out again if it was registered for reuse.  Otherwise the
+	 * codec is simply forgotten.
+	 *
+	 * @param codec Codec which has been cleaned up, or null.
+	 */
+	public void release(ICodec codec) {
+		if (codec == null) return;
+		Entry entry = table.byClass.get(codec.getClass());
+		if (entry != null && entry.reuse) entry.recycle(codec);
+	}
+
+	/**
+	 * Finds the entry for the specified file, first by its extension, then by
+	 * checking each pattern in the order the codecs were registered.
+	 *
+	 * @param filename File to find a codec for.
+	 * @return The entry, or null if none.
+	 */
+	private Entry find(String filename) {
+		if (filename == null) return null;
+		Table current = table;
+		int dot = filename.lastIndexOf('.');
+		if (dot >= 0) {
+			Entry entry = current.byExtension.get(filename.substring(dot + 1).toLowerCase(Locale.ENGLISH));
+			if (entry != null) return entry;
+		}
+		for (Entry entry : current.entries) {
+			if (entry.pattern.matcher(filename).matches()) return entry;
+		}
+		return null;
+	}
+
+	/**
+	 * A snapshot of the registered codecs.
+	 */
+	private static class Table {
+		/**
+		 * Codecs in the order they were registered.
+		 */
+		final Entry[] entries;
+		/**
+		 * Codecs by lower-case extension.
+		 */
+		final HashMap<String, Entry> byExtension = new HashMap<>();
+		/**
+		 * Codecs by the type of codec they create, for release().
+		 */
+		final IdentityHashMap<Class<?>, Entry> byClass = new IdentityHashMap<>();
+
+		/**
+		 * Constructor:  Builds the indexes.
+		 *
+		 * @param entries Codecs in the order they were registered.
+		 */
+		Table(ArrayList<Entry> entries) {
+			this.entries = entries.toArray(new Entry[0]);
+			for (Entry entry : this.entries) {
+				if (!entry.extension.isEmpty()) byExtension.put(entry.extension, entry);
+				if (entry.codecClass != null) byClass.put(entry.codecClass, entry);
+			}
+		}
+	}
+
+	/**
+	 * A file extension and the codec used to read audio data from it.
+	 */
+	private static class Entry {
+		/**
+		 * Lower-case file extension.
+		 */
+		final String extension;
+		/**
+		 * Matches filenames which end with the extension, in any case.
+		 */
+		final Pattern pattern;
+		/**
+		 * Creates new codecs.
+		 */
+		final Supplier<? extends ICodec> factory;
+		/**
+		 * Type of codec the factory creates, or null if not known.
+		 */
+		final Class<?> codecClass;
+		/**
+		 * True if released codecs may be handed out again.
+		 */
+		final boolean reuse;
+		/**
+		 * Released codecs waiting to be reused.
+		 */
+		private final ConcurrentLinkedQueue<ICodec> released = new ConcurrentLinkedQueue<>();
+		/**
+		 * Number of codecs in the released queue.
+		 */
+		private final AtomicInteger releasedCount = new AtomicInteger();
+
+		/**
+		 * Constructor:  Compiles the extension pattern.
+		 *
+		 * @param extension  File extension.
+		 * @param factory    Creates new codecs.
+		 * @param codecClass Type of codec the factory creates, or null if not known.
+		 * @param reuse      True if released codecs may be handed out again.
+		 */
+		Entry(String extension, Supplier<? extends ICodec> factory, Class<?> codecClass, boolean reuse) {
+			this.extension = extension.toLowerCase(Locale.ENGLISH);
+			// We are only interested in the file extension.  The filename can
+			// begin with whatever:
+			this.pattern = extension.isEmpty() ? Pattern.compile("") : Pattern.compile(".*" + Pattern.quote(extension) + "$", Pattern.CASE_INSENSITIVE);
+			this.factory = factory;
+			this.reuse = reuse;
+			if (codecClass == null && reuse) {
+				// Find out what the factory creates, so released codecs can be
+				// matched back to this entry:
+				ICodec sample = factory.get();
+				if (sample != null) {
+					codecClass = sample.getClass();
+					recycle(sample);
+				}
+			}
+			this.codecClass = codecClass;
+		}
+
+		/**
+		 * Returns a released codec if one is waiting, otherwise a new one.
+		 *
+		 * @return Codec, or null if the factory failed.
+		 */
+		ICodec getInstance() {
+			if (reuse) {
+				ICodec codec = released.poll();
+				if (codec != null) {
+					releasedCount.decrementAndGet();
+					return codec;
+				}
+			}
+			ICodec codec = factory.get();
+			if (codec == null) errorMessage("Unrecognized ICodec implementation in method 'getInstance'.  Ensure that the implementing class has one public, parameterless constructor.");
+			return codec;
+		}
+
+		/**
+		 * Keeps a released codec for reuse, unless enough are already waiting.
+		 *
+		 * @param codec Codec which has been cleaned up.
+		 */
+		void recycle(ICodec codec) {
+			if (releasedCount.incrementAndGet() > MAX_REUSABLE) {
+				releasedCount.decrementAndGet();
+				return;
+			}
+			released.offer(codec);
+		}
+
+		/**
+		 * Prints an error message.
+		 *
+		 * @param message Message to print.
+		 */
+		private static void errorMessage(String message) {
+			SoundSystemLogger logger = SoundSystemConfig.getLogger();
+			if (logger != null) logger.errorMessage("CodecRegistry", message, 0);
+		}
+	}
+}
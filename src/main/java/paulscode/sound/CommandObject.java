@@ -198,6 +198,14 @@ public class CommandObject {
 	 * Global identifier for the command to create a new library.
 	 */
 	public static final int NEW_LIBRARY              = 40;
+	/**
+	 * Global identifier for a batch of commands which are executed in order.
+	 */
+	public static final int BATCH                    = 41;
+	/**
+	 * Global identifier for the command to load several sounds in parallel.
+	 */
+	public static final int LOAD_SOUNDS              = 42;
 
 	/**
 	 * Any buffer required for a command.
@@ -239,6 +247,34 @@ public class CommandObject {
 	 */
 	public int Command;
 
+	/**
+	 * Maximum number of unused pooled commands which are kept around for reuse.
+	 */
+	private static final int POOL_SIZE = 1024;
+
+	/**
+	 * Unused commands for the frequently-called methods such as setPosition,
+	 * waiting to be handed out again by one of the obtain() methods.
+	 */
+	private static final CommandRing pool = new CommandRing(POOL_SIZE);
+
+	/**
+	 * True if this command came from the pool and should be returned to it
+	 * after it has been executed.
+	 */
+	private boolean pooled;
+
+	/**
+	 * Constructor used to create a reusable command.  Argument arrays are
+	 * allocated large enough for any of the pooled commands.
+	 */
+	private CommandObject() {
+		pooled = true;
+		intArgs = new int[1];
+		floatArgs = new float[6];
+		stringArgs = new String[1];
+	}
+
 	/**
 	 * Constructor used to create a command which doesn't require any arguments.
 	 *
@@ -309,6 +345,20 @@ public class CommandObject {
 		objectArgs[0] = o;
 	}
 
+	/**
+	 * Constructor used to create a command which requires two Object arguments.
+	 *
+	 * @param cmd Which command to execute.
+	 * @param o1  First Object argument needed to execute this command.
+	 * @param o2  Second Object argument needed to execute this command.
+	 */
+	public CommandObject(int cmd, Object o1, Object o2) {
+		Command = cmd;
+		objectArgs = new Object[2];
+		objectArgs[0] = o1;
+		objectArgs[1] = o2;
+	}
+
 	/**
 	 * Constructor used to create a command which requires one String argument and
 	 * one Object argument.
@@ -599,4 +649,152 @@ public class CommandObject {
 		stringArgs[0] = s;
 		objectArgs[0] = o;
 	}
+
+	/**
+	 * Returns a reusable command which requires a String and a float as
+	 * arguments.  The command is returned to the pool by
+	 * {@link #recycle() recycle()} after it has been executed, so steady
+	 * streams of commands such as volume or pitch changes don't generate any
+	 * garbage.
+	 *
+	 * @param cmd Which command to execute.
+	 * @param s   The String argument needed to execute this command.
+	 * @param f   The float argument needed to execute this command.
+	 * @return A command ready to be queued.
+	 */
+	public static CommandObject obtain(int cmd, String s, float f) {
+		CommandObject commandObject = obtain(cmd);
+		commandObject.stringArgs[0] = s;
+		commandObject.floatArgs[0] = f;
+		return commandObject;
+	}
+
+	/**
+	 * Returns a reusable command which requires a source handle and a float as
+	 * arguments.  See {@link #obtain(int, String, float) obtain()} for more
+	 * information.
+	 *
+	 * @param cmd    Which command to execute.
+	 * @param handle Handle for the source the command applies to.
+	 * @param f      The float argument needed to execute this command.
+	 * @return A command ready to be queued.
+	 */
+	public static CommandObject obtain(int cmd, int handle, float f) {
+		CommandObject commandObject = obtain(cmd);
+		commandObject.intArgs[0] = handle;
+		commandObject.floatArgs[0] = f;
+		return commandObject;
+	}
+
+	/**
+	 * Returns a reusable command which requires a source handle and three float
+	 * arguments.  See {@link #obtain(int, String, float) obtain()} for more
+	 * information.
+	 *
+	 * @param cmd    Which command to execute.
+	 * @param handle Handle for the source the command applies to.
+	 * @param f1     The first float argument needed to execute this command.
+	 * @param f2     The second float argument needed to execute this command.
+	 * @param f3     The third float argument needed to execute this command.
+	 * @return A command ready to be queued.
+	 */
+	public static CommandObject obtain(int cmd, int handle, float f1, float f2, float f3) {
+		CommandObject commandObject = obtain(cmd);
+		commandObject.intArgs[0] = handle;
+		commandObject.floatArgs[0] = f1;
+		commandObject.floatArgs[1] = f2;
+		commandObject.floatArgs[2] = f3;
+		return commandObject;
+	}
+
+	/**
+	 * Returns a reusable command which requires three float arguments.  See
+	 * {@link #obtain(int, String, float) obtain()} for more information.
+	 *
+	 * @param cmd Which command to execute.
+	 * @param f1  The first float argument needed to execute this command.
+	 * @param f2  The second float argument needed to execute this command.
+	 * @param f3  The third float argument needed to execute this command.
+	 * @return A command ready to be queued.
+	 */
+	public static CommandObject obtain(int cmd, float f1, float f2, float f3) {
+		CommandObject commandObject = obtain(cmd);
+		commandObject.floatArgs[0] = f1;
+		commandObject.floatArgs[1] = f2;
+		commandObject.floatArgs[2] = f3;
+		return commandObject;
+	}
+
+	/**
+	 * Returns a reusable command which requires a String and three float
+	 * arguments.  See {@link #obtain(int, String, float) obtain()} for more
+	 * information.
+	 *
+	 * @param cmd Which command to execute.
+	 * @param s   The String argument needed to execute this command.
+	 * @param f1  The first float argument needed to execute this command.
+	 * @param f2  The second float argument needed to execute this command.
+	 * @param f3  The third float argument needed to execute this command.
+	 * @return A command ready to be queued.
+	 */
+	public static CommandObject obtain(int cmd, String s, float f1, float f2, float f3) {
+		CommandObject commandObject = obtain(cmd);
+		commandObject.stringArgs[0] = s;
+		commandObject.floatArgs[0] = f1;
+		commandObject.floatArgs[1] = f2;
+		commandObject.floatArgs[2] = f3;
+		return commandObject;
+	}
+
+	/**
+	 * Returns a reusable command which requires six float arguments.  See
+	 * {@link #obtain(int, String, float) obtain()} for more information.
+	 *
+	 * @param cmd Which command to execute.
+	 * @param f1  The first float argument needed to execute this command.
+	 * @param f2  The second float argument needed to execute this command.
+	 * @param f3  The third float argument needed to execute this command.
+	 * @param f4  The fourth float argument needed to execute this command.
+	 * @param f5  The fifth float argument needed to execute this command.
+	 * @param f6  The sixth float argument needed to execute this command.
+	 * @return A command ready to be queued.
+	 */
+	public static CommandObject obtain(int cmd, float f1, float f2, float f3, float f4, float f5, float f6) {
+		CommandObject commandObject = obtain(cmd);
+		commandObject.floatArgs[0] = f1;
+		commandObject.floatArgs[1] = f2;
+		commandObject.floatArgs[2] = f3;
+		commandObject.floatArgs[3] = f4;
+		commandObject.floatArgs[4] = f5;
+		commandObject.floatArgs[5] = f6;
+		return commandObject;
+	}
+
+	/**
+	 * Returns this command to the pool after it has been executed, if it came
+	 * from the pool.  Commands created with a constructor are left alone.  A
+	 * recycled command must not be touched again by whoever queued it.
+	 */
+	public void recycle() {
+		if (!pooled) return;
+		// Don't hang on to the source name:
+		stringArgs[0] = null;
+		intArgs[0] = 0;
+		// If the pool is already full, just let this one be garbage collected:
+		pool.offer(this);
+	}
+
+	/**
+	 * Takes an unused command from the pool, or creates a new one if the pool
+	 * is empty.
+	 *
+	 * @param cmd Which command to execute.
+	 * @return A reusable command.
+	 */
+	private static CommandObject obtain(int cmd) {
+		CommandObject commandObject = pool.poll();
+		if (commandObject == null) commandObject = new CommandObject();
+		commandObject.Command = cmd;
+		return commandObject;
+	}
 }
@@ -0,0 +1,212 @@
+/*
+ * The SoundSystem License:
+ *
+ * You are free to use this library for any purpose, commercial or otherwise.
+ * You may modify this library or source code, and distribute it any way you
+ * like, provided the following conditions are met:
+ *
+ * 1) You may not falsely claim to be the author of this library or any
+ *    unmodified portion of it.
+ * 2) You may not copyright this library or a modified version of it and then
+ *    sue me for copyright infringement.
+ * 3) If you modify the source code, you must clearly document the changes
+ *    made before redistributing the modified source code, so other users know
+ *    it is not the original code.
+ * 4) You are not required to give me credit for this library in any derived
+ *    work, but if you do, you must also mention my website:
+ *    https://www.paulscode.com
+ * 5) I the author will not be responsible for any damages (physical,
+ *    financial, or otherwise) caused by the use if this library or any part
+ *    of it.
+ * 6) I the author do not guarantee, warrant, or make any representations,
+ *    either expressed or implied, regarding the use of this library or any
+ *    part of it.
+ *
+ * Author: Paul Lamb
+ * https://www.paulscode.com
+ */
+
+package paulscode.sound;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * The CommandRing class is a bounded, lock-free queue used to pass
+ * {@link CommandObject CommandObjects} from the threads which call the
+ * {@link SoundSystem SoundSystem} methods to the
+ * {@link CommandThread CommandThread}.  Any number of threads may offer
+ * commands at the same time without taking a lock, so they are never held up
+ * while the Command Thread is busy executing a slow command such as loading a
+ * sound file.  Each slot carries a sequence number which tells producers when
+ * the slot is free and tells the consumer when the slot has been filled, so
+ * commands are always polled in the order they were offered.
+ * <p>
+ * NOTE: The command ring is created automatically by the sound system, so it
+ * is unlikely that the user would ever need to use this class.
+ */
+@SuppressWarnings("unused")
+public class CommandRing {
+	/**
+	 * Number of slots in the ring (always a power of two).
+	 */
+	private final int capacity;
+
+	/**
+	 * Used to wrap positions around the ring ( capacity - 1 ).
+	 */
+	private final int mask;
+
+	/**
+	 * Commands waiting to be polled.
+	 */
+	private final AtomicReferenceArray<CommandObject> commands;
+
+	/**
+	 * Sequence number of each slot.  A slot is free for the producer of
+	 * position p when its sequence equals p, and it is ready for the consumer
+	 * of position p when its sequence equals p + 1.
+	 */
+	private final AtomicLongArray sequences;
+
+	/**
+	 * Next position to be claimed by a producer.
+	 */
+	private final AtomicLong tail = new AtomicLong();
+
+	/**
+	 * Next position to be claimed by a consumer.
+	 */
+	private final AtomicLong head = new AtomicLong();
+
+	/**
+	 * Number of commands which could not be queued because the ring was full.
+	 */
+	private final AtomicLong overflows = new AtomicLong();
+
+	/**
+	 * Constructor:  Creates a ring with room for at least the specified number
+	 * of commands.  The actual capacity is rounded up to a power of two.
+	 *
+	 * @param minCapacity Minimum number of commands the ring must hold.
+	 */
+	public CommandRing(int minCapacity) {
+		int size = 2;
+		while (size < minCapacity && size < (1 << 30)) size <<= 1;
+
+		capacity = size;
+		mask = size - 1;
+		commands = new AtomicReferenceArray<>(size);
+		sequences = new AtomicLongArray(size);
+		for (int i = 0; i < size; i++) sequences.set(i, i);
+	}
+
+	/**
+	 * Adds a command to the end of the ring without blocking.
+	 *
+	 * @param command Command to queue.
+	 * @return False if the ring was full.
+	 */
+	public boolean offer(CommandObject command) {
+		if (command == null) return false;
+
+		long position = tail.get();
+		while (true) {
+			int index = (int) position & mask;
+			long difference = sequences.get(index) - position;
+			if (difference == 0) {
+				// Slot is free, try to claim it:
+				if (tail.compareAndSet(position, position + 1)) {
+					commands.lazySet(index, command);
+					sequences.set(index, position + 1);
+					return true;
+				}
+				position = tail.get();
+			} else if (difference < 0) {
+				// The consumer hasn't freed this slot yet, so the ring is full:
+				overflows.incrementAndGet();
+				return false;
+			} else {
+				// Another producer claimed this position first:
+				position = tail.get();
+			}
+		}
+	}
+
+	/**
+	 * Removes and returns the oldest command in the ring.
+	 *
+	 * @return The oldest command, or null if the ring is empty.
+	 */
+	public CommandObject poll() {
+		long position = head.get();
+		while (true) {
+			int index = (int) position & mask;
+			long difference = sequences.get(index) - (position + 1);
+			if (difference == 0) {
+				if (head.compareAndSet(position, position + 1)) {
+					CommandObject command = commands.get(index);
+					commands.lazySet(index, null);
+					// Free the slot for the producer one lap ahead:
+					sequences.set(index, position + capacity);
+					return command;
+				}
+				position = head.get();
+			} else if (difference < 0) {
+				// Nothing has been published at this position yet:
+				return null;
+			} else {
+				position = head.get();
+			}
+		}
+	}
+
+	/**
+	 * Removes all commands from the ring.
+	 */
+	public void clear() {
+		while (poll() != null) ;
+	}
+
+	/**
+	 * Returns true if no commands are waiting to be polled.  The result is only
+	 * a hint if other threads are offering commands at the same time.
+	 *
+	 * @return True if the ring is empty.
+	 */
+	public boolean isEmpty() {
+		return size() == 0;
+	}
+
+	/**
+	 * Returns the approximate number of commands waiting to be polled.
+	 *
+	 * @return Number of queued commands.
+	 */
+	public int size() {
+		long size = tail.get() - head.get();
+		if (size < 0) return 0;
+		if (size > capacity) return capacity;
+		return (int) size;
+	}
+
+	/**
+	 * Returns the maximum number of commands the ring can hold.
+	 *
+	 * @return Capacity of the ring.
+	 */
+	public int capacity() {
+		return capacity;
+	}
+
+	/**
+	 * Returns the number of times a command could not be queued because the
+	 * ring was full.
+	 *
+	 * @return Number of overflows.
+	 */
+	public long overflows() {
+		return overflows.get();
+	}
+}
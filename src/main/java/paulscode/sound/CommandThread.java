@@ -35,10 +35,9 @@ package paulscode.sound;
  * arguments for each command are stored in a
  * {@link CommandObject CommandObject}.  The Command Queue is
  * located in the {@link SoundSystem SoundSystem} class.
- * Calling kill() stops the thread, and this should be immediately followed
- * by a call to interrupt() to wake up the thread so it may end.  This class
- * also checks for temporary sources that are finished playing, and removes
- * them.
+ * Calling kill() stops the thread, waking it up if necessary so it may end.
+ * This class also checks for temporary sources that are finished playing, and
+ * removes them.
  * <p>
  * NOTE: The command thread is created automatically by the sound system, so it
  * is unlikely that the user would ever need to use this class.
@@ -89,7 +88,7 @@ public class CommandThread extends SimpleThread {
 	/**
 	 * The main loop for processing commands.  The Command Thread starts out
 	 * asleep, and it sleeps again after it finishes processing commands, so it
-	 * must be interrupted when commands are queued for processing.
+	 * must be woken up with wake() when commands are queued for processing.
 	 */
 	@Override
 	public void run() {
@@ -105,12 +104,14 @@ public class CommandThread extends SimpleThread {
 		// Start out asleep:
 		snooze(3600000);
 
+		boolean moreCommands;
+		boolean sourcesPlaying;
 		while (!dying()) {
 			// Perform user-specific source management:
 			soundSystem.ManageSources();
 
 			// Process all queued commands:
-			soundSystem.commandQueue(null);
+			moreCommands = soundSystem.commandQueue(null);
 
 			// Remove temporary sources every ten seconds:
 			currentTime = System.currentTimeMillis();
@@ -119,8 +120,13 @@ public class CommandThread extends SimpleThread {
 				soundSystem.removeTemporarySources();
 			}
 
-			// Wait for more commands:
-			if (!dying()) snooze(3600000);
+			// Publish the state of each source for methods like playing():
+			sourcesPlaying = soundSystem.publishSourceSnapshots();
+
+			// Wait for more commands, unless some are still waiting.  While
+			// sources are playing, wake up periodically to keep the published
+			// state up to date:
+			if (!dying() && !moreCommands) snooze(sourcesPlaying ? SoundSystemConfig.getSourceSnapshotInterval() : 3600000);
 		}
 
 		cleanup(); // Important!
@@ -0,0 +1,329 @@
+/*
+ * The SoundSystem License:
+ *
+ * You are free to use this library for any purpose, commercial or otherwise.
+ * You may modify this library or source code, and distribute it any way you
+ * like, provided the following conditions are met:
+ *
+ * 1) You may not falsely claim to be the author of this library or any
+ *    unmodified portion of it.
+ * 2) You may not copyright this library or a modified version of it and then
+ *    sue me for copyright infringement.
+ * 3) If you modify the source code, you must clearly document the changes
+ *    made before redistributing the modified source code, so other users know
+ *    it is not the original code.
+ * 4) You are not required to give me credit for this library in any derived
+ *    work, but if you do, you must also mention my website:
+ *    https://www.paulscode.com
+ * 5) I the author will not be responsible for any damages (physical,
+ *    financial, or otherwise) caused by the use if this library or any part
+ *    of it.
+ * 6) I the author do not guarantee, warrant, or make any representations,
+ *    either expressed or implied, regarding the use of this library or any
+ *    part of it.
+ *
+ * Author: Paul Lamb
+ * https://www.paulscode.com
+ */
+
+package paulscode.sound;
+
+import java.util.LinkedList;
+import java.util.ListIterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The EventThread class delivers stream and source events to the
+ * {@link IStreamListener IStreamListener}s, one at a time and in the order they
+ * happened.  Events are posted to a queue by the Command Thread and the Stream
+ * Thread, which never wait for the listeners.  If the queue holds as many
+ * events as its capacity (because a listener is taking too long), new
+ * STREAM_UNDERRUN events are thrown away and counted.  Other events report
+ * that something has finished, which listeners may be waiting on, so they are
+ * always queued.  The thread sleeps when there is nothing to deliver.
+ * <p>
+ * NOTE: The EventThread is created automatically by
+ * {@link SoundSystemConfig SoundSystemConfig} the first time an event is
+ * posted while there are listeners, so it is unlikely that the user would ever
+ * need to use this class.
+ */
+@SuppressWarnings("unused")
+public class EventThread extends SimpleThread {
+	/**
+	 * Event type: a streaming source reached the end of its stream.
+	 */
+	public static final int END_OF_STREAM = 1;
+	/**
+	 * Event type: a normal source finished playing.
+	 */
+	public static final int SOURCE_FINISHED = 2;
+	/**
+	 * Event type: a streaming source ran out of queued data.
+	 */
+	public static final int STREAM_UNDERRUN = 3;
+	/**
+	 * Event type: a source was culled.
+	 */
+	public static final int SOURCE_CULLED = 4;
+
+	/**
+	 * Events waiting to be delivered.
+	 */
+	private final ConcurrentLinkedQueue<Event> queue = new ConcurrentLinkedQueue<>();
+
+	/**
+	 * Number of events waiting to be delivered.
+	 */
+	private final AtomicInteger queueDepth = new AtomicInteger();
+
+	/**
+	 * Queue depth at which events which may be lost are thrown away.
+	 */
+	private final int capacity;
+
+	/**
+	 * Number of events delivered.
+	 */
+	private final AtomicLong delivered = new AtomicLong();
+
+	/**
+	 * Number of events thrown away because the queue was full.
+	 */
+	private final AtomicLong dropped = new AtomicLong();
+
+	/**
+	 * Total nanoseconds between posting and delivering events.
+	 */
+	private final AtomicLong totalLatency = new AtomicLong();
+
+	/**
+	 * Longest time in nanoseconds between posting and delivering an event.
+	 */
+	private volatile long maxLatency = 0;
+
+	/**
+	 * Processes status messages, warnings, and error messages.
+	 */
+	private final SoundSystemLogger logger;
+
+	/**
+	 * List of stream listeners (shared with SoundSystemConfig).
+	 */
+	private final LinkedList<IStreamListener> listeners;
+
+	/**
+	 * For synchronizing access to the listeners list.
+	 */
+	private final Object listenersLock;
+
+	/**
+	 * Constructor:  Grabs a handle to the message logger and creates the event
+	 * queue.
+	 *
+	 * @param capacity      Queue depth at which STREAM_UNDERRUN events are thrown away.
+	 * @param listeners     List of stream listeners to deliver events to.
+	 * @param listenersLock Object to synchronize on when using the list.
+	 */
+	public EventThread(int capacity, LinkedList<IStreamListener> listeners, Object listenersLock) {
+		super();
+		logger = SoundSystemConfig.getLogger();
+		this.capacity = Math.max(1, capacity);
+		this.listeners = listeners;
+		this.listenersLock = listenersLock;
+		setName("Event Thread");
+		setDaemon(true);
+	}
+
+	/**
+	 * Queues an event to be delivered, and wakes the thread.  Never waits; if
+	 * the queue is full and the event may be lost, it is thrown away.
+	 *
+	 * @param type       Event type (see the constants in this class).
+	 * @param sourceName Name of the source the event is about.
+	 * @param value      Extra information: the play queue size for END_OF_STREAM, or the underrun count for STREAM_UNDERRUN.
+	 * @return False if the event was thrown away.
+	 */
+	public boolean post(int type, String sourceName, long value) {
+		// END_OF_STREAM and the like are never thrown away, since listeners may
+		// be waiting on them:
+		if (queueDepth.incrementAndGet() > capacity && type == STREAM_UNDERRUN) {
+			queueDepth.decrementAndGet();
+			dropped.incrementAndGet();
+			return false;
+		}
+		queue.add(new Event(type, sourceName, value));
+		wake();
+		return true;
+	}
+
+	/**
+	 * The main loop for delivering events.  The thread sleeps when the queue is
+	 * empty, and it is woken up by post().
+	 */
+	@Override
+	public void run() {
+		while (!dying()) {
+			deliverAll();
+			if (!dying()) snooze(3600000);
+		}
+		// Don't leave anyone waiting on events which already happened:
+		deliverAll();
+
+		cleanup();  // Important!!
+	}
+
+	/**
+	 * Delivers every queued event.
+	 */
+	private void deliverAll() {
+		Event event;
+		long latency;
+		while ((event = queue.poll()) != null) {
+			queueDepth.decrementAndGet();
+			deliver(event);
+			latency = System.nanoTime() - event.timePosted;
+			delivered.incrementAndGet();
+			totalLatency.addAndGet(latency);
+			if (latency > maxLatency) maxLatency = latency;
+		}
+	}
+
+	/**
+	 * Passes an event to each stream listener.  The list is copied first, so
+	 * that threads posting events or adding listeners never have to wait while
+	 * a listener is busy.
+	 *
+	 * @param event Event to deliver.
+	 */
+	private void deliver(Event event) {
+		IStreamListener[] current;
+		synchronized (listenersLock) {
+			ListIterator<IStreamListener> i = listeners.listIterator();
+			while (i.hasNext()) {
+				if (i.next() == null) i.remove();
+			}
+			current = listeners.toArray(new IStreamListener[0]);
+		}
+		for (IStreamListener streamListener : current) {
+			// A misbehaving listener must not stop the others, or later events:
+			try {
+				switch (event.type) {
+					case END_OF_STREAM:
+						streamListener.endOfStream(event.sourceName, (int) event.value);
+						break;
+					case SOURCE_FINISHED:
+						streamListener.sourceFinished(event.sourceName);
+						break;
+					case STREAM_UNDERRUN:
+						streamListener.streamUnderrun(event.sourceName, event.value);
+						break;
+					case SOURCE_CULLED:
+						streamListener.sourceCulled(event.sourceName);
+						break;
+					default:
+						break;
+				}
+			} catch (RuntimeException e) {
+				errorMessage("Stream listener threw an exception while handling an event for source '" + event.sourceName + "'");
+				logger.printStackTrace(e, 1);
+			}
+		}
+	}
+
+	/**
+	 * Prints an error message.
+	 *
+	 * @param message Message to print.
+	 */
+	private void errorMessage(String message) {
+		logger.errorMessage("EventThread", message, 0);
+	}
+
+	/**
+	 * Returns the number of events waiting to be delivered.
+	 *
+	 * @return Queue depth.
+	 */
+	public int getQueueDepth() {
+		return queueDepth.get();
+	}
+
+	/**
+	 * Returns the number of events delivered so far.
+	 *
+	 * @return Number of events.
+	 */
+	public long getDeliveredCount() {
+		return delivered.get();
+	}
+
+	/**
+	 * Returns the number of STREAM_UNDERRUN events thrown away because the
+	 * queue was full.
+	 *
+	 * @return Number of events.
+	 */
+	public long getDroppedCount() {
+		return dropped.get();
+	}
+
+	/**
+	 * Returns the average time between an event being posted and the listeners
+	 * finishing with it.
+	 *
+	 * @return Milliseconds, or 0 if nothing has been delivered.
+	 */
+	public float getAverageLatency() {
+		long count = delivered.get();
+		if (count == 0) return 0;
+		return totalLatency.get() / (count * 1000000.0f);
+	}
+
+	/**
+	 * Returns the longest time between an event being posted and the listeners
+	 * finishing with it.
+	 *
+	 * @return Milliseconds.
+	 */
+	public float getMaxLatency() {
+		return maxLatency / 1000000.0f;
+	}
+
+	/**
+	 * An event waiting to be delivered.
+	 */
+	private static class Event {
+		/**
+		 * Event type.
+		 */
+		final int type;
+		/**
+		 * Name of the source the event is about.
+		 */
+		final String sourceName;
+		/**
+		 * Extra information about the event.
+		 */
+		final long value;
+		/**
+		 * System.nanoTime() when the event was posted.
+		 */
+		final long timePosted;
+
+		/**
+		 * Constructor:
+		 *
+		 * @param type       Event type.
+		 * @param sourceName Name of the source the event is about.
+		 * @param value      Extra information about the event.
+		 */
+		Event(int type, String sourceName, long value) {
+			this.type = type;
+			this.sourceName = sourceName;
+			this.value = value;
+			this.timePosted = System.nanoTime();
+		}
+	}
+}
@@ -51,6 +51,16 @@ public class FilenameURL {
 	 */
 	private URL url;
 
+	/**
+	 * File extension matching the file's content, once probed.
+	 */
+	private volatile String contentType = null;
+
+	/**
+	 * Whether or not the file's content has been probed yet.
+	 */
+	private volatile boolean probed = false;
+
 	/**
 	 * Constructor: Saves handles to the url and identifier.  The identifier should
 	 * look like a filename, and it must have the correct extension so SoundSystem
@@ -119,6 +129,26 @@ public class FilenameURL {
 		return url;
 	}
 
+	/**
+	 * Returns the file extension matching the format the file's content is
+	 * actually in, which may differ from the extension of the filename.  The
+	 * first time this method is called the beginning of the file is read (see
+	 * {@link CodecProbe}), and the result is remembered.
+	 *
+	 * @return File extension for the content, or null if not recognized.
+	 */
+	public String getContentType() {
+		if (!probed) {
+			synchronized (this) {
+				if (!probed) {
+					contentType = CodecProbe.probe(getURL());
+					probed = true;
+				}
+			}
+		}
+		return contentType;
+	}
+
 	/**
 	 * Prints an error message.
 	 *
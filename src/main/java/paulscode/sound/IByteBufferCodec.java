@@ -0,0 +1,55 @@
+/*
+ * The SoundSystem License:
+ *
+ * You are free to use this library for any purpose, commercial or otherwise.
+ * You may modify this library or source code, and distribute it any way you
+ * like, provided the following conditions are met:
+ *
+ * 1) You may not falsely claim to be the author of this library or any
+ *    unmodified portion of it.
+ * 2) You may not copyright this library or a modified version of it and then
+ *    sue me for copyright infringement.
+ * 3) If you modify the source code, you must clearly document the changes
+ *    made before redistributing the modified source code, so other users know
+ *    it is not the original code.
+ * 4) You are not required to give me credit for this library in any derived
+ *    work, but if you do, you must also mention my website:
+ *    https://www.paulscode.com
+ * 5) I the author will not be responsible for any damages (physical,
+ *    financial, or otherwise) caused by the use if this library or any part
+ *    of it.
+ * 6) I the author do not guarantee, warrant, or make any representations,
+ *    either expressed or implied, regarding the use of this library or any
+ *    part of it.
+ *
+ * Author: Paul Lamb
+ * https://www.paulscode.com
+ */
+
+package paulscode.sound;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The IByteBufferCodec interface is an extension of {@link ICodec ICodec} for
+ * codecs which can decode straight into a buffer supplied by the caller.
+ * Streaming sources whose codec implements this interface reuse one direct
+ * buffer for every read, and hand it to the channel without allocating a new
+ * byte[] for each stream buffer.  Codecs which only implement ICodec are read
+ * with {@link ICodec#read() read()} as before.
+ */
+public interface IByteBufferCodec extends ICodec {
+	/**
+	 * Should read up to one stream buffer worth of audio data into the
+	 * specified buffer, starting at its position, and advance its position past
+	 * the data read.  No more than target.remaining() bytes may be written;
+	 * anything else decoded must be kept for the next call.  The data must be in
+	 * the same format as the data returned by {@link #read() read()}.  See
+	 * {@link SoundSystemConfig SoundSystemConfig} for more information about
+	 * accessing and changing default settings.
+	 *
+	 * @param target Buffer to fill, which may be direct.
+	 * @return Number of bytes read, or -1 if nothing could be read.
+	 */
+	int read(ByteBuffer target);
+}
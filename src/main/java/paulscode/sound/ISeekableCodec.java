@@ -0,0 +1,63 @@
+/*
+ * The SoundSystem License:
+ *
+ * You are free to use this library for any purpose, commercial or otherwise.
+ * You may modify this library or source code, and distribute it any way you
+ * like, provided the following conditions are met:
+ *
+ * 1) You may not falsely claim to be the author of this library or any
+ *    unmodified portion of it.
+ * 2) You may not copyright this library or a modified version of it and then
+ *    sue me for copyright infringement.
+ * 3) If you modify the source code, you must clearly document the changes
+ *    made before redistributing the modified source code, so other users know
+ *    it is not the original code.
+ * 4) You are not required to give me credit for this library in any derived
+ *    work, but if you do, you must also mention my website:
+ *    https://www.paulscode.com
+ * 5) I the author will not be responsible for any damages (physical,
+ *    financial, or otherwise) caused by the use if this library or any part
+ *    of it.
+ * 6) I the author do not guarantee, warrant, or make any representations,
+ *    either expressed or implied, regarding the use of this library or any
+ *    part of it.
+ *
+ * Author: Paul Lamb
+ * https://www.paulscode.com
+ */
+
+package paulscode.sound;
+
+/**
+ * The ISeekableCodec interface is an extension of {@link ICodec ICodec} for
+ * codecs which can move to any point in the stream they are reading from.
+ * Streaming sources whose codec implements this interface loop, rewind, and
+ * start from a saved position by seeking, rather than calling
+ * {@link #initialize(java.net.URL) initialize()} again and reading the file
+ * from the beginning.  Positions are measured in sample frames (one sample for
+ * each channel).
+ */
+public interface ISeekableCodec extends ICodec {
+	/**
+	 * Should move the stream to the specified sample frame, so the next call to
+	 * read() returns data starting there.  Clears the end of stream flag.
+	 *
+	 * @param frame Sample frame to move to, counting from 0.
+	 * @return False if the stream is not initialized or could not be moved.
+	 */
+	boolean seek(long frame);
+
+	/**
+	 * Should return the sample frame the next call to read() will start at.
+	 *
+	 * @return Sample frame, or -1 if unknown.
+	 */
+	long position();
+
+	/**
+	 * Should return the total length of the stream.
+	 *
+	 * @return Number of sample frames, or -1 if unknown.
+	 */
+	long length();
+}
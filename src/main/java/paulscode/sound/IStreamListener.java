@@ -36,4 +36,31 @@ public interface IStreamListener {
 	 * @param queueSize  Number of items left in the stream's play queue, or zero if none.
 	 */
 	void endOfStream(String sourceName, int queueSize);
+
+	/**
+	 * Notifies implementation that a normal (non-streaming) source finished
+	 * playing on its own (it was not stopped, paused, or culled).
+	 *
+	 * @param sourceName String identifier of the source which finished.
+	 */
+	default void sourceFinished(String sourceName) {
+	}
+
+	/**
+	 * Notifies implementation that a streaming source played everything that
+	 * was queued before more data arrived.
+	 *
+	 * @param sourceName String identifier of the source which ran out of data.
+	 * @param underruns  Number of times the source has run out of data so far.
+	 */
+	default void streamUnderrun(String sourceName, long underruns) {
+	}
+
+	/**
+	 * Notifies implementation that a source was culled.
+	 *
+	 * @param sourceName String identifier of the source which was culled.
+	 */
+	default void sourceCulled(String sourceName) {
+	}
 }
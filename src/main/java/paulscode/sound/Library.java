@@ -28,11 +28,18 @@
 
 package paulscode.sound;
 
+import java.net.URL;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 import javax.sound.sampled.AudioFormat;
 
 /**
@@ -48,6 +55,12 @@ import javax.sound.sampled.AudioFormat;
  */
 @SuppressWarnings({"unused", "FieldMayBeFinal", "UnusedAssignment", "UnusedReturnValue"})
 public class Library {
+	/**
+	 * Number of passes a source which isn't playing keeps being published after
+	 * it changes, since some channels take a moment to start playing.
+	 */
+	private static final int SETTLE_PASSES = 2;
+
 	/**
 	 * Processes status messages, warnings, and error messages.
 	 */
@@ -60,48 +73,86 @@ public class Library {
 
 	/**
 	 * Map containing sound file data for easy lookup by filename / identifier.
+	 * This should be a {@link SoundBufferMap}, so the least recently used
+	 * sounds can be found when the loaded sounds grow too large.
 	 */
 	protected HashMap<String, SoundBuffer> bufferMap;
 
+	/**
+	 * Sounds which were loaded from sample data rather than from a file.  They
+	 * can not be loaded again, so they are never unloaded to stay within the
+	 * loaded sound budget.
+	 */
+	private final HashSet<String> permanentSounds = new HashSet<>();
+
+	/**
+	 * Number of times a new source found its sound already loaded.
+	 */
+	private final AtomicLong bufferHits = new AtomicLong();
+
+	/**
+	 * Number of times a new source had to load its sound.
+	 */
+	private final AtomicLong bufferMisses = new AtomicLong();
+
+	/**
+	 * Number of sounds unloaded to stay within the loaded sound budget.
+	 */
+	private final AtomicLong bufferEvictions = new AtomicLong();
+
+	/**
+	 * Sounds which were unloaded while sources were still using them.  They are
+	 * released once their last source lets go of them.
+	 */
+	private final IdentityHashMap<SoundBuffer, String> pendingUnloads = new IdentityHashMap<>();
+
 	/**
 	 * Map containing all created sources for easy look-up by name.
 	 */
 	protected HashMap<String, Source> sourceMap;  // (name, source data) pairs
 
 	/**
-	 * Interface through which MIDI files can be played.
+	 * Latest published state of each source, which may be read from any thread.
 	 */
-	private MidiChannel midiChannel;
+	private final ConcurrentHashMap<String, SourceSnapshot> snapshots = new ConcurrentHashMap<>();
 
 	/**
-	 * Array containing maximum number of non-streaming audio channels.
+	 * Number of sources which were playing when snapshots were last published.
 	 */
-	protected List<Channel> streamingChannels;
+	private volatile int playingSources = 0;
 
 	/**
-	 * Array containing maximum number of non-streaming audio channels.
+	 * Sources whose snapshots are published on each pass: those which are
+	 * playing, and those which changed recently, each with the number of
+	 * passes left before it is dropped if it still isn't playing.  Only used by
+	 * the Command Thread.
 	 */
-	protected List<Channel> normalChannels;
+	private final HashMap<String, Integer> activeSources = new HashMap<>();
 
 	/**
-	 * Source name last played on each streaming channel.
+	 * Interface through which MIDI files can be played.
 	 */
-	private String[] streamingChannelSourceNames;
+	private MidiChannel midiChannel;
+
+	/**
+	 * Array containing maximum number of non-streaming audio channels.
+	 */
+	protected List<Channel> streamingChannels;
 
 	/**
-	 * Source name last played on each non-streaming channel.
+	 * Array containing maximum number of non-streaming audio channels.
 	 */
-	private String[] normalChannelSourceNames;
+	protected List<Channel> normalChannels;
 
 	/**
-	 * Increments through the steaming channel list as new sources are played.
+	 * Keeps track of which source each streaming channel was given to.
 	 */
-	private int nextStreamingChannel = 0;
+	private final ChannelPool streamingChannelPool = new ChannelPool();
 
 	/**
-	 * Increments through the non-steaming channel list as new sources are played.
+	 * Keeps track of which source each non-streaming channel was given to.
 	 */
-	private int nextNormalChannel = 0;
+	private final ChannelPool normalChannelPool = new ChannelPool();
 
 	/**
 	 * Handles processing for all streaming sources.
@@ -124,7 +175,7 @@ public class Library {
 		logger = SoundSystemConfig.getLogger();
 
 		// instantiate the buffer map:
-		bufferMap = new HashMap<>();
+		bufferMap = new SoundBufferMap();
 
 		// instantiate the source map:
 		sourceMap = new HashMap<>();
@@ -136,8 +187,6 @@ public class Library {
 
 		streamingChannels = new LinkedList<>();
 		normalChannels = new LinkedList<>();
-		streamingChannelSourceNames = new String[SoundSystemConfig.getNumberStreamingChannels()];
-		normalChannelSourceNames = new String[SoundSystemConfig.getNumberNormalChannels()];
 
 		streamThread = new StreamThread();
 		streamThread.start();
@@ -156,7 +205,7 @@ public class Library {
 	 */
 	public void cleanup() {
 		streamThread.kill();
-		streamThread.interrupt();
+		streamThread.wake();
 
 		// wait up to 5 seconds for stream thread to end:
 		for (int i = 0; i < 50; i++) {
@@ -210,6 +259,12 @@ public class Library {
 		}
 		sourceMap.clear();
 		sourceMap = null;
+		normalChannelPool.clear();
+		streamingChannelPool.clear();
+		releaseAllSounds();
+		snapshots.clear();
+		activeSources.clear();
+		playingSources = 0;
 
 		listener = null;
 		streamThread = null;
@@ -235,6 +290,18 @@ public class Library {
 		}
 	}
 
+	/**
+	 * Checks if this library can play 32-bit float PCM data.  Only valid after
+	 * init() has been called.  Codecs are asked to decode to float only when
+	 * this returns true and {@link SoundSystemConfig#setFloatOutput(boolean)
+	 * float output} has been turned on.
+	 *
+	 * @return True if float data can be played.
+	 */
+	public boolean supportsFloatOutput() {
+		return false;
+	}
+
 	/**
 	 * Checks if the no-sound library type is compatible.
 	 *
@@ -279,6 +346,67 @@ public class Library {
 		return true;
 	}
 
+	/**
+	 * Checks if sounds for this library may be decoded on another thread with
+	 * decodeSound(), then handed to loadSound(SoundBuffer, String) on the
+	 * Command Thread.  Libraries which keep the sample data of loaded sounds
+	 * should override this method and return true.
+	 *
+	 * @return True if sounds can be loaded in the background.
+	 */
+	public boolean supportsAsyncLoading() {
+		return false;
+	}
+
+	/**
+	 * Returns whether codecs should reverse the byte order of the data they
+	 * decode for this library.
+	 *
+	 * @return True if the byte order should be reversed.
+	 */
+	protected boolean getReverseByteOrder() {
+		return false;
+	}
+
+	/**
+	 * Decodes the specified sound file without adding it to the buffer map.
+	 * This does not touch any of the library's state, so it may be called from
+	 * any thread, and several sounds may be decoded at the same time.
+	 *
+	 * @param filenameURL Filename/URL of the sound file to decode.
+	 * @return The sample data, or null if it could not be decoded.
+	 */
+	public SoundBuffer decodeSound(FilenameURL filenameURL) {
+		if (errorCheck(filenameURL == null, "Filename/URL not specified in method 'decodeSound'")) return null;
+
+		ICodec codec = SoundSystemConfig.getCodec(filenameURL);
+		if (errorCheck(codec == null, "No codec found for file '" + filenameURL.getFilename() + "' in method 'decodeSound'"))
+			return null;
+
+		URL url = filenameURL.getURL();
+		if (errorCheck(url == null, "Unable to open file '" + filenameURL.getFilename() + "' in method 'decodeSound'")) {
+			SoundSystemConfig.releaseCodec(codec);
+			return null;
+		}
+
+		boolean reverse = getReverseByteOrder();
+		if (reverse) codec.reverseByteOrder(true);
+		SoundBuffer buffer = SoundSystemConfig.getPCMDiskCache().readAll(codec, url, reverse);
+		SoundSystemConfig.releaseCodec(codec);
+		if (buffer == null) errorMessage("Sound buffer null in method 'decodeSound'");
+		return buffer;
+	}
+
+	/**
+	 * Checks if the specified sound is currently loaded.
+	 *
+	 * @param filename Filename/identifier of the sound.
+	 * @return True if the sound is in the buffer map.
+	 */
+	public boolean isSoundLoaded(String filename) {
+		return bufferMap != null && bufferMap.containsKey(filename);
+	}
+
 	/**
 	 * Returns the filenames of all previously loaded sounds.
 	 *
@@ -327,7 +455,89 @@ public class Library {
 	 * @param filename Filename/identifier of the sound file to unload.
 	 */
 	public void unloadSound(String filename) {
-		bufferMap.remove(filename);
+		SoundBuffer buffer = bufferMap.remove(filename);
+		permanentSounds.remove(filename);
+		if (buffer == null) return;
+		if (buffer.getUserCount() > 0) pendingUnloads.put(buffer, filename);
+		else deleteBuffer(filename, buffer);
+	}
+
+	/**
+	 * Releases whatever the audio library is holding for a sound which has been
+	 * unloaded and is no longer used by any source.  Libraries which copy sound
+	 * data into native buffers should override this method and delete them.
+	 *
+	 * @param filename Filename/identifier of the sound which was unloaded.
+	 * @param buffer   The sound's data.
+	 */
+	protected void deleteBuffer(String filename, SoundBuffer buffer) {
+	}
+
+	/**
+	 * Releases the sounds which were unloaded while still in use, once no source
+	 * is using them any more.
+	 */
+	public void freeUnusedSounds() {
+		if (pendingUnloads.isEmpty()) return;
+		Iterator<Map.Entry<SoundBuffer, String>> iterator = pendingUnloads.entrySet().iterator();
+		while (iterator.hasNext()) {
+			Map.Entry<SoundBuffer, String> entry = iterator.next();
+			SoundBuffer buffer = entry.getKey();
+			if (buffer.getUserCount() > 0) continue;
+			String filename = entry.getValue();
+			iterator.remove();
+			deleteBuffer(filename, buffer);
+		}
+	}
+
+	/**
+	 * Reports any loaded sound still held by a source after all sources have been
+	 * cleaned up, then releases the sounds which were waiting to be unloaded.
+	 * Called from cleanup().
+	 */
+	private void releaseAllSounds() {
+		int leaked = 0;
+		if (bufferMap != null) {
+			for (Map.Entry<String, SoundBuffer> entry : bufferMap.entrySet()) {
+				if (entry.getValue() != null && entry.getValue().getUserCount() > 0) {
+					importantMessage("Sound '" + entry.getKey() + "' is still held by " + entry.getValue().getUserCount() + " source(s) at clean-up");
+					leaked++;
+				}
+			}
+		}
+		for (Map.Entry<SoundBuffer, String> entry : pendingUnloads.entrySet()) {
+			if (entry.getKey().getUserCount() > 0) {
+				importantMessage("Unloaded sound '" + entry.getValue() + "' is still held by " + entry.getKey().getUserCount() + " source(s) at clean-up");
+				leaked++;
+			}
+			deleteBuffer(entry.getValue(), entry.getKey());
+		}
+		pendingUnloads.clear();
+		if (leaked > 0) importantMessage(leaked + " loaded sound(s) were not released by their sources");
+	}
+
+	/**
+	 * Lets go of the loaded sound used by the source with the specified name, if
+	 * any, before a new source replaces it in the source map.  Called by
+	 * SoundSystem before creating a source.
+	 *
+	 * @param sourceName Name of the source about to be created.
+	 */
+	void releaseReplacedSource(String sourceName) {
+		if (sourceMap == null) return;
+		Source old = sourceMap.get(sourceName);
+		if (old != null) old.releaseBuffer();
+	}
+
+	/**
+	 * Returns how many copies of each loaded sound's sample data this library
+	 * keeps.  Libraries which copy the data into the audio library's own
+	 * buffers, while also keeping it in the buffer map, should return 2.
+	 *
+	 * @return Number of copies.
+	 */
+	protected int getBufferCopies() {
+		return 1;
 	}
 
 	/**
@@ -405,8 +615,19 @@ public class Library {
 	 * @param z          Destination Z coordinate.
 	 */
 	public void setPosition(String sourceName, float x, float y, float z) {
-		Source mySource = sourceMap.get(sourceName);
-		if (mySource != null) mySource.setPosition(x, y, z);
+		setPosition(sourceMap.get(sourceName), x, y, z);
+	}
+
+	/**
+	 * Changes the specified source's position.
+	 *
+	 * @param source The source to move, or null to do nothing.
+	 * @param x      Destination X coordinate.
+	 * @param y      Destination Y coordinate.
+	 * @param z      Destination Z coordinate.
+	 */
+	public void setPosition(Source source, float x, float y, float z) {
+		if (source != null) source.setPosition(x, y, z);
 	}
 
 	/**
@@ -463,8 +684,19 @@ public class Library {
 	 * @param z          Velocity along world z-axis.
 	 */
 	public void setVelocity(String sourceName, float x, float y, float z) {
-		Source mySource = sourceMap.get(sourceName);
-		if (mySource != null) mySource.setVelocity(x, y, z);
+		setVelocity(sourceMap.get(sourceName), x, y, z);
+	}
+
+	/**
+	 * Sets the specified source's velocity, for use in Doppler effect.
+	 *
+	 * @param source The source to change, or null to do nothing.
+	 * @param x      Velocity along world x-axis.
+	 * @param y      Velocity along world y-axis.
+	 * @param z      Velocity along world z-axis.
+	 */
+	public void setVelocity(Source source, float x, float y, float z) {
+		if (source != null) source.setVelocity(x, y, z);
 	}
 
 	/**
@@ -557,6 +789,7 @@ public class Library {
 			errorMessage("Streaming source already associated with a file or URL in method 'feedRawAudioData'");
 			return -1;
 		}
+		sourceChanged(source);
 
 		if (!source.playing() || source.channel == null) {
 			Channel channel;
@@ -566,7 +799,7 @@ public class Library {
 			int processed = source.feedRawAudioData(channel, buffer);
 			channel.attachedSource = source;
 			streamThread.watch(source);
-			streamThread.interrupt();
+			streamThread.wake();
 			return processed;
 		}
 
@@ -602,6 +835,7 @@ public class Library {
 	 */
 	public void play(Source source) {
 		if (source == null) return;
+		sourceChanged(source);
 
 		// raw data streams will automatically play when data is sent to them,
 		// so no need to do anything here.
@@ -618,7 +852,7 @@ public class Library {
 				source.play(channel);
 				if (source.toStream) {
 					streamThread.watch(source);
-					streamThread.interrupt();
+					streamThread.wake();
 				}
 			}
 		}
@@ -637,11 +871,23 @@ public class Library {
 		if (midiSourceName(sourceName)) {
 			midiChannel.stop();
 		} else {
-			Source mySource = sourceMap.get(sourceName);
-			if (mySource != null) mySource.stop();
+			stop(sourceMap.get(sourceName));
 		}
 	}
 
+	/**
+	 * Stops the specified source.
+	 *
+	 * @param source The source to stop.
+	 */
+	public void stop(Source source) {
+		if (source == null) return;
+		source.stop();
+		// Its channel may be given to another source now:
+		releaseChannel(source, false);
+		sourceChanged(source);
+	}
+
 	/**
 	 * Pauses the specified source.
 	 *
@@ -655,11 +901,21 @@ public class Library {
 		if (midiSourceName(sourceName)) {
 			midiChannel.pause();
 		} else {
-			Source mySource = sourceMap.get(sourceName);
-			if (mySource != null) mySource.pause();
+			pause(sourceMap.get(sourceName));
 		}
 	}
 
+	/**
+	 * Pauses the specified source.
+	 *
+	 * @param source The source to pause.
+	 */
+	public void pause(Source source) {
+		if (source == null) return;
+		source.pause();
+		sourceChanged(source);
+	}
+
 	/**
 	 * Rewinds the specified source.
 	 *
@@ -669,11 +925,21 @@ public class Library {
 		if (midiSourceName(sourceName)) {
 			midiChannel.rewind();
 		} else {
-			Source mySource = sourceMap.get(sourceName);
-			if (mySource != null) mySource.rewind();
+			rewind(sourceMap.get(sourceName));
 		}
 	}
 
+	/**
+	 * Rewinds the specified source.
+	 *
+	 * @param source The source to rewind.
+	 */
+	public void rewind(Source source) {
+		if (source == null) return;
+		source.rewind();
+		sourceChanged(source);
+	}
+
 	/**
 	 * Clears all previously queued data from a stream.
 	 *
@@ -683,7 +949,10 @@ public class Library {
 		if (midiSourceName(sourceName)) errorMessage("You can not flush the MIDI channel");
 		else {
 			Source mySource = sourceMap.get(sourceName);
-			if (mySource != null) mySource.flush();
+			if (mySource != null) {
+				mySource.flush();
+				sourceChanged(mySource);
+			}
 		}
 	}
 
@@ -695,7 +964,10 @@ public class Library {
 	 */
 	public void cull(String sourceName) {
 		Source mySource = sourceMap.get(sourceName);
-		if (mySource != null) mySource.cull();
+		if (mySource != null) {
+			mySource.cull();
+			sourceChanged(mySource);
+		}
 	}
 
 	/**
@@ -707,6 +979,7 @@ public class Library {
 		Source mySource = sourceMap.get(sourceName);
 		if (mySource != null) {
 			mySource.activate();
+			sourceChanged(mySource);
 			if (mySource.toPlay) play(mySource);
 		}
 	}
@@ -731,15 +1004,25 @@ public class Library {
 		if (midiSourceName(sourceName)) {
 			midiChannel.setVolume(value);
 		} else {
-			Source mySource = sourceMap.get(sourceName);
-			if (mySource != null) {
-				float newVolume = value;
-				if (newVolume < 0.0f) newVolume = 0.0f;
-				else if (newVolume > 1.0f) newVolume = 1.0f;
+			setVolume(sourceMap.get(sourceName), value);
+		}
+	}
 
-				mySource.sourceVolume = newVolume;
-				mySource.positionChanged();
-			}
+	/**
+	 * Manually sets the specified source's volume.
+	 *
+	 * @param source The source to change, or null to do nothing.
+	 * @param value  A float value ( 0.0f - 1.0f ).
+	 */
+	public void setVolume(Source source, float value) {
+		if (source != null) {
+			float newVolume = value;
+			if (newVolume < 0.0f) newVolume = 0.0f;
+			else if (newVolume > 1.0f) newVolume = 1.0f;
+
+			source.sourceVolume = newVolume;
+			source.positionChanged();
+			sourceChanged(source);
 		}
 	}
 
@@ -768,15 +1051,25 @@ public class Library {
 	 */
 	public void setPitch(String sourceName, float value) {
 		if (!midiSourceName(sourceName)) {
-			Source mySource = sourceMap.get(sourceName);
-			if (mySource != null) {
-				float newPitch = value;
-				if (newPitch < 0.5f) newPitch = 0.5f;
-				else if (newPitch > 2.0f) newPitch = 2.0f;
+			setPitch(sourceMap.get(sourceName), value);
+		}
+	}
 
-				mySource.setPitch(newPitch);
-				mySource.positionChanged();
-			}
+	/**
+	 * Manually sets the specified source's pitch.
+	 *
+	 * @param source The source to change, or null to do nothing.
+	 * @param value  A float value ( 0.5f - 2.0f ).
+	 */
+	public void setPitch(Source source, float value) {
+		if (source != null) {
+			float newPitch = value;
+			if (newPitch < 0.5f) newPitch = 0.5f;
+			else if (newPitch > 2.0f) newPitch = 2.0f;
+
+			source.setPitch(newPitch);
+			source.positionChanged();
+			sourceChanged(source);
 		}
 	}
 
@@ -943,11 +1236,14 @@ public class Library {
 	public void removeSource(String sourceName) {
 		Source mySource = sourceMap.get(sourceName);
 		if (mySource != null) {
+			releaseChannel(mySource, true);
 			// if this is a streaming source just mark it removed - https://github.com/MinecraftForge/MinecraftForge/pull/4765
 			if (mySource.toStream) mySource.removed = true;
 			else mySource.cleanup(); // end the source, free memory
 		}
 		sourceMap.remove(sourceName);
+		snapshots.remove(sourceName);
+		freeUnusedSounds();
 	}
 
 	/**
@@ -964,16 +1260,119 @@ public class Library {
 			sourceName = iterator.next();
 			srcData = sourceMap.get(sourceName);
 			if ((srcData != null) && (srcData.temporary) && (!srcData.playing())) {
+				releaseChannel(srcData, true);
 				srcData.cleanup(); // end the source, free memory
 				iterator.remove();
+				snapshots.remove(sourceName);
 			}
 		}
+		freeUnusedSounds();
 	}
 
 	/* ########################################################################## */
 	/*                         END OVERRIDE METHODS                               */
 	/* ########################################################################## */
 
+	/**
+	 * Returns the memory used by the loaded sounds, counting each copy of the
+	 * sample data the library keeps.
+	 *
+	 * @return Size in bytes.
+	 */
+	public long getLoadedBytes() {
+		if (bufferMap == null) return 0;
+		long total = 0;
+		for (SoundBuffer buffer : bufferMap.values()) {
+			if (buffer != null && buffer.audioData != null) total += buffer.audioData.length;
+		}
+		return total * getBufferCopies();
+	}
+
+	/**
+	 * Returns the number of times a new non-streaming source found its sound
+	 * already loaded.
+	 *
+	 * @return Number of hits.
+	 */
+	public long getBufferHitCount() {
+		return bufferHits.get();
+	}
+
+	/**
+	 * Returns the number of times a new non-streaming source had to load its
+	 * sound first, including sounds which were unloaded to stay within the
+	 * budget.
+	 *
+	 * @return Number of misses.
+	 */
+	public long getBufferMissCount() {
+		return bufferMisses.get();
+	}
+
+	/**
+	 * Returns the number of sounds which have been unloaded to stay within
+	 * {@link SoundSystemConfig#getLoadedSoundBudget()}.
+	 *
+	 * @return Number of evictions.
+	 */
+	public long getBufferEvictionCount() {
+		return bufferEvictions.get();
+	}
+
+	/**
+	 * Counts whether or not the specified sound is already loaded, for the hit
+	 * and miss counts.  Called by SoundSystem before creating a non-streaming
+	 * source.
+	 *
+	 * @param filename Filename/identifier of the sound the source will play.
+	 */
+	void countBufferLookup(String filename) {
+		if (bufferMap != null && bufferMap.containsKey(filename)) bufferHits.incrementAndGet();
+		else bufferMisses.incrementAndGet();
+	}
+
+	/**
+	 * Marks the specified sound as loaded from sample data rather than from a
+	 * file, so it is never unloaded to stay within the budget.  Called by
+	 * SoundSystem after loading a SoundBuffer.
+	 *
+	 * @param identifier Identifier of the sound.
+	 */
+	void setPermanent(String identifier) {
+		permanentSounds.add(identifier);
+	}
+
+	/**
+	 * Unloads the least recently used sounds until the loaded sounds fit within
+	 * {@link SoundSystemConfig#getLoadedSoundBudget()}.  Sounds which are
+	 * held by a non-streaming source, sounds loaded from sample data, and
+	 * the most recently used sound are never unloaded.  An unloaded sound is
+	 * loaded again the next time a source needs it.
+	 */
+	public void enforceBufferBudget() {
+		long budget = SoundSystemConfig.getLoadedSoundBudget();
+		if (budget <= 0 || bufferMap == null || bufferMap.size() < 2) return;
+		long total = getLoadedBytes();
+		if (total <= budget) return;
+
+		// Least recently used first, leaving out the most recently used:
+		List<Map.Entry<String, SoundBuffer>> entries = new ArrayList<>(bufferMap.entrySet());
+		entries.remove(entries.size() - 1);
+
+		int copies = getBufferCopies();
+		for (Map.Entry<String, SoundBuffer> entry : entries) {
+			if (total <= budget) break;
+			SoundBuffer buffer = entry.getValue();
+			// Sounds in use can't be unloaded:
+			if (permanentSounds.contains(entry.getKey()) || (buffer != null && buffer.getUserCount() > 0)) continue;
+			long bytes = (buffer == null || buffer.audioData == null) ? 0 : (long) buffer.audioData.length * copies;
+			unloadSound(entry.getKey());
+			total -= bytes;
+			bufferEvictions.incrementAndGet();
+			message("Unloaded '" + entry.getKey() + "' to stay within the loaded sound budget");
+		}
+	}
+
 	/**
 	 * Returns a handle to the next available channel.  If the specified
 	 * source is a normal source, a normal channel is returned, and if it is a
@@ -991,76 +1390,78 @@ public class Library {
 		String sourceName = source.sourcename;
 		if (sourceName == null) return null;
 
-		int x;
-		int channels;
-		int nextChannel;
+		ChannelPool pool;
 		List<Channel> channelList;
-		String[] sourceNames;
-		String name;
-
 		if (source.toStream) {
-			nextChannel = nextStreamingChannel;
+			pool = streamingChannelPool;
 			channelList = streamingChannels;
-			sourceNames = streamingChannelSourceNames;
 		} else {
-			nextChannel = nextNormalChannel;
+			pool = normalChannelPool;
 			channelList = normalChannels;
-			sourceNames = normalChannelSourceNames;
 		}
-
-		channels = channelList.size();
+		if (channelList == null) return null;
+		pool.resize(channelList.size());
 
 		// Check if this source is already on a channel:
-		for (x = 0; x < channels; x++) {
-			if (sourceName.equals(sourceNames[x])) return channelList.get(x);
-		}
-
-		int n = nextChannel;
+		int n = pool.indexOf(sourceName);
 		Source src;
-		// Play on the next new or non-playing channel:
-		for (x = 0; x < channels; x++) {
-			name = sourceNames[n];
-			if (name == null) src = null;
-			else src = sourceMap.get(name);
 
-			if (src == null || !src.playing()) {
-				if (source.toStream) {
-					nextStreamingChannel = n + 1;
-					if (nextStreamingChannel >= channels) nextStreamingChannel = 0;
-				} else {
-					nextNormalChannel = n + 1;
-					if (nextNormalChannel >= channels) nextNormalChannel = 0;
-				}
-				sourceNames[n] = sourceName;
-				return channelList.get(n);
-			}
-			n++;
-			if (n >= channels) n = 0;
+		// Play on the oldest channel which has stopped playing:
+		while (n < 0) {
+			n = pool.nextFree();
+			if (n < 0) break;
+			src = sourceOf(pool.sourceNameAt(n));
+			if (src != null && src != source && src.playing()) n = -1;
 		}
 
-		n = nextChannel;
-		// Play on the next non-priority channel:
-		for (x = 0; x < channels; x++) {
-			name = sourceNames[n];
-			if (name == null) src = null;
-			else src = sourceMap.get(name);
+		// Play on the oldest channel playing a non-priority source:
+		while (n < 0) {
+			n = pool.nextNonPriority();
+			if (n < 0) break;
+			src = sourceOf(pool.sourceNameAt(n));
+			if (src != null && src != source && src.playing() && src.priority) n = -1;
+		}
 
-			if (src == null || !src.playing() || !src.priority) {
-				if (source.toStream) {
-					nextStreamingChannel = n + 1;
-					if (nextStreamingChannel >= channels) nextStreamingChannel = 0;
-				} else {
-					nextNormalChannel = n + 1;
-					if (nextNormalChannel >= channels) nextNormalChannel = 0;
+		// Channels which finished or changed priority since they were last
+		// seen are only found by checking them all:
+		if (n < 0) {
+			int channels = channelList.size();
+			for (int x = 0; x < channels; x++) {
+				src = sourceOf(pool.sourceNameAt(x));
+				if (src == null || !src.playing() || !src.priority) {
+					n = x;
+					break;
 				}
-				sourceNames[n] = sourceName;
-				return channelList.get(n);
 			}
-			n++;
-			if (n >= channels) n = 0;
 		}
+		if (n < 0) return null;
+
+		pool.assign(n, sourceName, source.priority);
+		return channelList.get(n);
+	}
+
+	/**
+	 * Looks up a source by name.
+	 *
+	 * @param sourceName Name of the source, or null.
+	 * @return The source, or null if there is no such source.
+	 */
+	private Source sourceOf(String sourceName) {
+		return sourceName == null ? null : sourceMap.get(sourceName);
+	}
 
-		return null;
+	/**
+	 * Hands the channel of the specified source back to the channel pool, so
+	 * it can be given to another source.
+	 *
+	 * @param source  The source.
+	 * @param removed True if the source is being removed.
+	 */
+	private void releaseChannel(Source source, boolean removed) {
+		if (source == null || source.sourcename == null) return;
+		ChannelPool pool = source.toStream ? streamingChannelPool : normalChannelPool;
+		if (removed) pool.remove(source.sourcename);
+		else pool.release(source.sourcename);
 	}
 
 	/**
@@ -1308,6 +1709,126 @@ public class Library {
 		return sourceMap;
 	}
 
+	/**
+	 * Publishes a snapshot of the current state of each source which is playing
+	 * or has changed, so it can be read from other threads without waiting on
+	 * the {@link SoundSystemConfig#THREAD_SYNC} lock.  Sources which are not
+	 * playing are left alone until something changes them, so idle sources
+	 * cost nothing here.  This method is used internally by SoundSystem, and it
+	 * is unlikely that the user will ever need to use it.
+	 *
+	 * @return Number of sources which should be published again on the next pass.
+	 */
+	public int publishSnapshots() {
+		if (sourceMap == null) return 0;
+		// Sources created or removed behind our back (for example by
+		// copySources()) are found by comparing counts:
+		if (snapshots.size() != sourceMap.size()) {
+			snapshots.keySet().retainAll(sourceMap.keySet());
+			for (String name : sourceMap.keySet()) {
+				if (!snapshots.containsKey(name)) activeSources.put(name, SETTLE_PASSES);
+			}
+		}
+
+		int playing = 0;
+		Iterator<Map.Entry<String, Integer>> iterator = activeSources.entrySet().iterator();
+		Map.Entry<String, Integer> entry;
+		String sourceName;
+		Source source;
+		SourceSnapshot snapshot;
+		boolean wasPlaying;
+
+		while (iterator.hasNext()) {
+			entry = iterator.next();
+			sourceName = entry.getKey();
+			source = sourceMap.get(sourceName);
+			if (source == null) {
+				snapshots.remove(sourceName);
+				iterator.remove();
+				continue;
+			}
+			snapshot = snapshots.get(sourceName);
+			if (snapshot == null) {
+				snapshot = new SourceSnapshot();
+				snapshots.put(sourceName, snapshot);
+			}
+			wasPlaying = snapshot.playing();
+			snapshot.publish(source);
+			if (snapshot.playing()) {
+				playing++;
+				entry.setValue(SETTLE_PASSES);
+				continue;
+			}
+			if (wasPlaying) sourceFinished(source);
+			// A stream keeps being published until the Stream Thread is done
+			// with it, since its first buffers may take a while to load:
+			if (source.streamWatched && !source.stopped() && !source.paused()) continue;
+			if (entry.getValue() <= 1) iterator.remove();
+			else entry.setValue(entry.getValue() - 1);
+		}
+
+		playingSources = playing;
+		return activeSources.size();
+	}
+
+	/**
+	 * Marks the specified source as changed, so its snapshot is published on
+	 * the next pass.  This method is used internally by SoundSystem, and it is
+	 * unlikely that the user will ever need to use it.
+	 *
+	 * @param sourceName The source's name.
+	 */
+	public void sourceChanged(String sourceName) {
+		if (sourceName != null) activeSources.put(sourceName, SETTLE_PASSES);
+	}
+
+	/**
+	 * Marks the specified source as changed, so its snapshot is published on
+	 * the next pass.
+	 *
+	 * @param source The source.
+	 */
+	private void sourceChanged(Source source) {
+		sourceChanged(source.sourcename);
+	}
+
+	/**
+	 * Called when a source which was playing is found to have stopped.  Hands
+	 * its channel back to the channel pool, and notifies stream listeners if it
+	 * is a normal source which finished on its own.  (Streaming sources report
+	 * the end of their streams from the Stream Thread.)
+	 *
+	 * @param source The source.
+	 */
+	private void sourceFinished(Source source) {
+		// Its channel may be given to another source now:
+		releaseChannel(source, false);
+		if (!source.toStream && !source.stopped() && !source.paused() && source.channel != null && source.channel.attachedSource == source)
+			SoundSystemConfig.notifySourceFinished(source.sourcename);
+	}
+
+	/**
+	 * Returns the latest published state of the specified source.  May be called
+	 * from any thread.
+	 *
+	 * @param sourceName The source's name.
+	 * @return Snapshot of the source, or null if the source was not found.
+	 */
+	public SourceSnapshot getSnapshot(String sourceName) {
+		if (sourceName == null) return null;
+		return snapshots.get(sourceName);
+	}
+
+	/**
+	 * Returns the number of sources which were playing when snapshots were last
+	 * published.  May be called from any thread.
+	 *
+	 * @return Number of playing sources.
+	 */
+	public int playingSourceCount() {
+		return playingSources;
+	}
+
 	/**
 	 * Returns information about the listener.
 	 *
@@ -306,7 +306,7 @@ public class MidiChannel implements MetaEventListener {
 			boolean killException = false;
 			try {
 				fadeThread.kill();        // end the fade effects thread.
-				fadeThread.interrupt();   // wake the thread up so it can end.
+				fadeThread.wake();        // wake the thread up so it can end.
 			} catch (Exception e) {
 				killException = true;
 			}
@@ -417,7 +417,7 @@ public class MidiChannel implements MetaEventListener {
 			fadeThread = new FadeThread();
 			fadeThread.start();
 		}
-		fadeThread.interrupt();
+		fadeThread.wake();
 	}
 
 	/**
@@ -458,7 +458,7 @@ public class MidiChannel implements MetaEventListener {
 			fadeThread = new FadeThread();
 			fadeThread.start();
 		}
-		fadeThread.interrupt();
+		fadeThread.wake();
 	}
 
 	/**
@@ -0,0 +1,269 @@
+/*
+ * The SoundSystem License:
+ *
+ * You are free to use this library for any purpose, commercial or otherwise.
+ * You may modify this library or source code, and distribute it any way you
+ * like, provided the following conditions are met:
+ *
+ * 1) You may not falsely claim to be the author of this library or any
+ *    unmodified portion of it.
+ * 2) You may not copyright this library or a modified version of it and then
+ *    sue me for copyright infringement.
+ * 3) If you modify the source code, you must clearly document the changes
+ *    made before redistributing the modified source code, so other users know
+ *    it is not the original code.
+ * 4) You are not required to give me credit for this library in any derived
+ *    work, but if you do, you must also mention my website:
+ *    https://www.paulscode.com
+ * 5) I the author will not be responsible for any damages (physical,
+ *    financial, or otherwise) caused by the use if this library or any part
+ *    of it.
+ * 6) I the author do not guarantee, warrant, or make any representations,
+ *    either expressed or implied, regarding the use of this library or any
+ *    part of it.
+ *
+ * Author: Paul Lamb
+ * https://www.paulscode.com
+ */
+
+package paulscode.sound;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * The OggPageSeeker class finds pages in an Ogg file by their granule
+ * position (the sample frame at the end of the page), without decoding
+ * anything.  It bisects the file by byte offset, reading only the page headers
+ * it lands on, so finding a position takes O(log n) small reads.  Only files
+ * with a single logical stream are supported, since granule positions are
+ * assumed to increase through the whole file.
+ * <p>
+ * NOTE: This class is used by the Ogg codec plug-ins, so it is unlikely that the
+ * user would ever need to use it.
+ */
+@SuppressWarnings("unused")
+public class OggPageSeeker {
+	/**
+	 * Bytes read at a time while scanning for a page header.
+	 */
+	private static final int CHUNK_SIZE = 8192;
+
+	/**
+	 * Once the search narrows down to this many bytes, pages are checked one by
+	 * one instead.
+	 */
+	private static final int LINEAR_SIZE = 65536;
+
+	/**
+	 * Size of a page header, not counting its segment table.
+	 */
+	private static final int HEADER_SIZE = 27;
+
+	/**
+	 * File to read pages from.
+	 */
+	private final FileChannel channel;
+
+	/**
+	 * Holds bytes being scanned for a page header.
+	 */
+	private final ByteBuffer chunk = ByteBuffer.allocate(CHUNK_SIZE);
+
+	/**
+	 * Holds a page header and its segment table.
+	 */
+	private final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE + 255).order(ByteOrder.LITTLE_ENDIAN);
+
+	/**
+	 * Byte offset of the last page found.
+	 */
+	private long pageOffset;
+
+	/**
+	 * Granule position of the last page found, or -1 if no packet ends on it.
+	 */
+	private long pageGranule;
+
+	/**
+	 * Size in bytes of the last page found, including its header.
+	 */
+	private int pageLength;
+
+	/**
+	 * Opens the file the specified URL points to for random access, if it is a
+	 * local file.
+	 *
+	 * @param url URL interface to a file.
+	 * @return Open file, or null if the URL is not a local file.
+	 */
+	public static FileChannel openChannel(URL url) {
+		if (url == null || !"file".equals(url.getProtocol())) return null;
+		try {
+			return FileChannel.open(new File(url.toURI()).toPath(), StandardOpenOption.READ);
+		} catch (Exception e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Constructor:  Searches the specified file.  The file's position is never
+	 * changed, so it may also be used for reading the stream.
+	 *
+	 * @param channel File to read pages from.
+	 */
+	public OggPageSeeker(FileChannel channel) {
+		this.channel = channel;
+	}
+
+	/**
+	 * Returns the granule position of the last page in the file, which for an
+	 * audio stream is its length in sample frames.
+	 *
+	 * @return Granule position, or -1 if no page was found.
+	 */
+	public long lastGranule() throws IOException {
+		long size = channel.size();
+		long from = size;
+		long last = -1;
+		// Search backwards from the end, a piece at a time:
+		while (last == -1 && from > 0) {
+			long to = from;
+			from = Math.max(0, from - LINEAR_SIZE);
+			long offset = from;
+			while (findPage(offset, to)) {
+				if (pageGranule != -1) last = pageGranule;
+				offset = pageOffset + pageLength;
+			}
+		}
+		return last;
+	}
+
+	/**
+	 * Finds the page to start decoding from, in order to reach the specified
+	 * granule position.  This is the last page with a granule position at or
+	 * before the target, so decoding from it produces samples starting no later
+	 * than the target.  Header pages (granule position 0) are never returned.
+	 *
+	 * @param target Granule position (sample frame) to reach.
+	 * @return Byte offset of the page, or -1 if there are no audio pages.
+	 */
+	public long findOffset(long target) throws IOException {
+		long size = channel.size();
+		long best = -1;
+		long lo = 0, hi = size;
+		long offset;
+		boolean found;
+
+		while (hi - lo > LINEAR_SIZE) {
+			long mid = lo + (hi - lo) / 2;
+			// Find the first page after the middle which ends a packet:
+			offset = mid;
+			found = false;
+			while (findPage(offset, hi)) {
+				if (pageGranule != -1) {
+					found = true;
+					break;
+				}
+				offset = pageOffset + pageLength;
+			}
+			if (!found) {
+				hi = mid;
+			} else if (pageGranule <= target) {
+				if (pageGranule > 0) best = pageOffset;
+				lo = pageOffset + pageLength;
+			} else {
+				hi = mid;
+			}
+		}
+
+		// Check the pages which are left one by one:
+		offset = lo;
+		while (findPage(offset, hi) && (pageGranule == -1 || pageGranule <= target)) {
+			if (pageGranule > 0) best = pageOffset;
+			offset = pageOffset + pageLength;
+		}
+		if (best != -1) return best;
+
+		// The target is before the end of the first audio page:
+		offset = 0;
+		while (findPage(offset, size)) {
+			if (pageGranule > 0) return pageOffset;
+			offset = pageOffset + pageLength;
+		}
+		return -1;
+	}
+
+	/**
+	 * Finds the first page header which starts at or after one offset and
+	 * before another, and remembers its offset, granule position, and size.
+	 *
+	 * @param from  Offset to start looking at.
+	 * @param limit Offset the page must start before.
+	 * @return True if a page was found.
+	 */
+	private boolean findPage(long from, long limit) throws IOException {
+		long offset = from;
+		int n;
+		while (offset < limit) {
+			((Buffer) chunk).clear();
+			n = channel.read(chunk, offset);
+			if (n < 4) return false;
+			for (int i = 0; i + 3 < n && offset + i < limit; i++) {
+				// Look for the capture pattern "OggS":
+				if (chunk.get(i) == 'O' && chunk.get(i + 1) == 'g' && chunk.get(i + 2) == 'g' && chunk.get(i + 3) == 'S' && readHeader(offset + i))
+					return true;
+			}
+			offset += n - 3;
+		}
+		return false;
+	}
+
+	/**
+	 * Reads the page header at the specified offset.
+	 *
+	 * @param offset Offset of the capture pattern.
+	 * @return False if it was not a valid page header.
+	 */
+	private boolean readHeader(long offset) throws IOException {
+		((Buffer) header).clear();
+		((Buffer) header).limit(HEADER_SIZE);
+		if (!readFully(header, offset)) return false;
+		// Stream structure version must be 0, and only three flags are defined:
+		if (header.get(4) != 0 || (header.get(5) & 0xF8) != 0) return false;
+
+		int segments = header.get(26) & 0xFF;
+		((Buffer) header).limit(HEADER_SIZE + segments);
+		if (!readFully(header, offset + HEADER_SIZE)) return false;
+		int body = 0;
+		for (int i = 0; i < segments; i++) {
+			body += header.get(HEADER_SIZE + i) & 0xFF;
+		}
+
+		pageOffset = offset;
+		pageGranule = header.getLong(6);
+		pageLength = HEADER_SIZE + segments + body;
+		return true;
+	}
+
+	/**
+	 * Fills the rest of the specified buffer from the file.
+	 *
+	 * @param buffer Buffer to fill, from its position to its limit.
+	 * @param offset Offset in the file to read from.
+	 * @return False if the end of the file was reached first.
+	 */
+	private boolean readFully(ByteBuffer buffer, long offset) throws IOException {
+		int start = buffer.position();
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer, offset + buffer.position() - start) < 0) return false;
+		}
+		return true;
+	}
+}
@@ -0,0 +1,131 @@
+/*
+ * The SoundSystem License:
+ *
+ * You are free to use this library for any purpose, commercial or otherwise.
+ * You may modify this library or source code, and distribute it any way you
+ * like, provided the following conditions are met:
+ *
+ * 1) You may not falsely claim to be the author of this library or any
+ *    unmodified portion of it.
+ * 2) You may not copyright this library or a modified version of it and then
+ *    sue me for copyright infringement.
+ * 3) If you modify the source code, you must clearly document the changes
+ *    made before redistributing the modified source code, so other users know
+ *    it is not the original code.
+ * 4) You are not required to give me credit for this library in any derived
+ *    work, but if you do, you must also mention my website:
+ *    https://www.paulscode.com
+ * 5) I the author will not be responsible for any damages (physical,
+ *    financial, or otherwise) caused by the use if this library or any part
+ *    of it.
+ * 6) I the author do not guarantee, warrant, or make any representations,
+ *    either expressed or implied, regarding the use of this library or any
+ *    part of it.
+ *
+ * Author: Paul Lamb
+ * https://www.paulscode.com
+ */
+
+package paulscode.sound;
+
+import java.nio.ByteOrder;
+
+/**
+ * The PCMConverter class contains the sample conversions shared by the
+ * codecs: swapping the byte order of 16-bit data, and converting float
+ * samples to 16-bit or 32-bit float data.  Unless stated otherwise, 16-bit
+ * samples are signed, and data is converted in place or into a caller-supplied
+ * array, so no garbage is created for each chunk of audio.
+ * <p>
+ * NOTE: This class is used by the codecs, so it is unlikely that the user
+ * would ever need to use it.
+ */
+public final class PCMConverter {
+	/**
+	 * Whether the native byte order is big-endian.
+	 */
+	private static final boolean NATIVE_BIG_ENDIAN = ByteOrder.nativeOrder() == ByteOrder.BIG_ENDIAN;
+
+	private PCMConverter() {
+	}
+
+	/**
+	 * Swaps the two bytes of each 16-bit sample in the specified range.  If
+	 * the range has an odd number of bytes, the last byte is left alone.
+	 *
+	 * @param data   Array containing 16-bit audio data.
+	 * @param offset Array index to begin.
+	 * @param length Number of bytes to convert.
+	 */
+	public static void swapBytes16(byte[] data, int offset, int length) {
+		int end = offset + (length & ~1);
+		byte b;
+		for (int i = offset; i < end; i += 2) {
+			b = data[i];
+			data[i] = data[i + 1];
+			data[i + 1] = b;
+		}
+	}
+
+	/**
+	 * Converts little-endian 16-bit samples in the specified range to native
+	 * byte order.  Nothing is done on little-endian machines.
+	 *
+	 * @param data   Array containing little-endian 16-bit audio data.
+	 * @param offset Array index to begin.
+	 * @param length Number of bytes to convert.
+	 */
+	public static void littleEndianToNative16(byte[] data, int offset, int length) {
+		if (NATIVE_BIG_ENDIAN) swapBytes16(data, offset, length);
+	}
+
+	/**
+	 * Converts float samples from -1.0 to 1.0 into signed 16-bit little-endian
+	 * samples, clamping any which are out of range.  The output may be
+	 * interleaved with other channels by using a stride larger than 2.
+	 *
+	 * @param src       Array containing float samples.
+	 * @param srcOffset Index of the first sample to convert.
+	 * @param dst       Array to write 16-bit data into.
+	 * @param dstOffset Index in dst to write the first sample at.
+	 * @param samples   Number of samples to convert.
+	 * @param dstStride Bytes from the start of one output sample to the next.
+	 */
+	public static void floatToSigned16(float[] src, int srcOffset, byte[] dst, int dstOffset, int samples, int dstStride) {
+		int d = dstOffset;
+		int val;
+		for (int i = srcOffset; i < srcOffset + samples; i++) {
+			val = (int) (src[i] * 32767);
+			if (val > 32767) val = 32767;
+			if (val < -32768) val = -32768;
+			dst[d] = (byte) val;
+			dst[d + 1] = (byte) (val >>> 8);
+			d += dstStride;
+		}
+	}
+
+	/**
+	 * Writes float samples as 32-bit little-endian IEEE floats, without
+	 * clamping them.  The output may be interleaved with other channels by
+	 * using a stride larger than 4.
+	 *
+	 * @param src       Array containing float samples.
+	 * @param srcOffset Index of the first sample to convert.
+	 * @param dst       Array to write float data into.
+	 * @param dstOffset Index in dst to write the first sample at.
+	 * @param samples   Number of samples to convert.
+	 * @param dstStride Bytes from the start of one output sample to the next.
+	 */
+	public static void floatToFloat32(float[] src, int srcOffset, byte[] dst, int dstOffset, int samples, int dstStride) {
+		int d = dstOffset;
+		int val;
+		for (int i = srcOffset; i < srcOffset + samples; i++) {
+			val = Float.floatToRawIntBits(src[i]);
+			dst[d] = (byte) val;
+			dst[d + 1] = (byte) (val >>> 8);
+			dst[d + 2] = (byte) (val >>> 16);
+			dst[d + 3] = (byte) (val >>> 24);
+			d += dstStride;
+		}
+	}
+}
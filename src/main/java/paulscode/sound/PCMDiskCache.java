@@ -0,0 +1,400 @@
+/*
+ * The SoundSystem License:
+ *
+ * You are free to use this library for any purpose, commercial or otherwise.
+ * You may modify this library or source code, and distribute it any way you
+ * like, provided the following conditions are met:
+ *
+ * 1) You may not falsely claim to be the author of this library or any
+ *    unmodified portion of it.
+ * 2) You may not copyright this library or a modified version of it and then
+ *    sue me for copyright infringement.
+ * 3) If you modify the source code, you must clearly document the changes
+ *    made before redistributing the modified source code, so other users know
+ *    it is not the original code.
+ * 4) You are not required to give me credit for this library in any derived
+ *    work, but if you do, you must also mention my website:
+ *    https://www.paulscode.com
+ * 5) I the author will not be responsible for any damages (physical,
+ *    financial, or otherwise) caused by the use if this library or any part
+ *    of it.
+ * 6) I the author do not guarantee, warrant, or make any representations,
+ *    either expressed or implied, regarding the use of this library or any
+ *    part of it.
+ *
+ * Author: Paul Lamb
+ * https://www.paulscode.com
+ */
+
+package paulscode.sound;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.sound.sampled.AudioFormat;
+
+/**
+ * The PCMDiskCache class keeps decoded sample data on disk, so sounds which
+ * have been loaded before can be loaded again without decoding them.  It is
+ * turned on by choosing a directory with
+ * {@link SoundSystemConfig#setPCMCacheDirectory(File)}.
+ * <p>
+ * Each sound is stored in its own file, named after a hash of its URL, the
+ * URL's size and last-modified time, and the codec settings it was decoded
+ * with.  When a file changes, its old entry is simply never looked up again,
+ * and is eventually evicted.  A cache file holds the sound's AudioFormat
+ * followed by the raw sample data, and is memory-mapped when it is read.
+ * The total size of the cache files is limited by
+ * {@link SoundSystemConfig#getPCMCacheSize()}; the files which were used
+ * least recently are deleted first.
+ * <p>
+ * The cache is only an optimization: if anything goes wrong reading or
+ * writing it, the sound is decoded as usual.  All methods may be called from
+ * any thread.
+ */
+@SuppressWarnings("unused")
+public class PCMDiskCache {
+	/**
+	 * Identifies a cache file ("SSPC").
+	 */
+	private static final int MAGIC = 0x53535043;
+
+	/**
+	 * Version of the cache file layout.
+	 */
+	private static final int VERSION = 1;
+
+	/**
+	 * Extension of cache files.
+	 */
+	private static final String EXTENSION = ".pcm";
+
+	/**
+	 * Lock held while writing to the cache directory and evicting files.
+	 */
+	private final Object writeLock = new Object();
+
+	/**
+	 * Number of sounds found in the cache.
+	 */
+	private final AtomicLong hits = new AtomicLong();
+
+	/**
+	 * Number of sounds which had to be decoded.
+	 */
+	private final AtomicLong misses = new AtomicLong();
+
+	/**
+	 * Number of cache files deleted to stay within the size limit.
+	 */
+	private final AtomicLong evictions = new AtomicLong();
+
+	/**
+	 * Decodes the entire specified file, or loads it from the cache if it has
+	 * been decoded before.  The codec is initialized, read, and cleaned up
+	 * only if the sound is not in the cache.  If the cache is turned off,
+	 * this is the same as calling the codec directly.
+	 *
+	 * @param codec        Codec to decode the file with.
+	 * @param url          URL of the file.
+	 * @param reverseBytes True if the codec has been told to reverse the byte order.
+	 * @return The sample data, or null if it could not be decoded.
+	 */
+	public SoundBuffer readAll(ICodec codec, URL url, boolean reverseBytes) {
+		File directory = SoundSystemConfig.getPCMCacheDirectory();
+		String key = directory == null ? null : createKey(codec, url, reverseBytes);
+
+		if (key != null) {
+			SoundBuffer buffer = get(directory, key);
+			if (buffer != null) {
+				hits.incrementAndGet();
+				return buffer;
+			}
+			misses.incrementAndGet();
+		}
+
+		codec.initialize(url);
+		SoundBuffer buffer = codec.readAll();
+		codec.cleanup();
+
+		if (key != null && buffer != null && buffer.audioData != null) put(directory, key, buffer);
+		return buffer;
+	}
+
+	/**
+	 * Deletes every file in the cache directory.
+	 */
+	public void clear() {
+		File directory = SoundSystemConfig.getPCMCacheDirectory();
+		if (directory == null) return;
+		synchronized (writeLock) {
+			for (File file : listFiles(directory)) {
+				if (!file.delete()) errorMessage("Unable to delete cache file " + file);
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of sounds which were loaded from the cache.
+	 *
+	 * @return Number of sounds.
+	 */
+	public long getHitCount() {
+		return hits.get();
+	}
+
+	/**
+	 * Returns the number of sounds which were not in the cache and had to be
+	 * decoded.
+	 *
+	 * @return Number of sounds.
+	 */
+	public long getMissCount() {
+		return misses.get();
+	}
+
+	/**
+	 * Returns the number of cache files which have been deleted to stay within
+	 * the size limit.
+	 *
+	 * @return Number of files.
+	 */
+	public long getEvictionCount() {
+		return evictions.get();
+	}
+
+	/**
+	 * Loads a sound from the cache.
+	 *
+	 * @param directory Cache directory.
+	 * @param key       Key the sound was stored under.
+	 * @return The sample data, or null if it is not in the cache.
+	 */
+	private SoundBuffer get(File directory, String key) {
+		File file = new File(directory, fileName(key));
+		if (!file.isFile()) return null;
+
+		try (RandomAccessFile in = new RandomAccessFile(file, "r")) {
+			FileChannel channel = in.getChannel();
+			MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+			if (map.getInt() != MAGIC || map.getInt() != VERSION) return null;
+			// A different key means two keys hashed to the same name:
+			if (!key.equals(getString(map))) return null;
+
+			AudioFormat.Encoding encoding = new AudioFormat.Encoding(getString(map));
+			float sampleRate = map.getFloat();
+			int sampleSizeInBits = map.getInt();
+			int channels = map.getInt();
+			int frameSize = map.getInt();
+			float frameRate = map.getFloat();
+			boolean bigEndian = map.get() != 0;
+			int length = map.getInt();
+			if (length < 0 || length > map.remaining()) return null;
+
+			byte[] data = new byte[length];
+			map.get(data);
+
+			// Mark the file as recently used:
+			file.setLastModified(System.currentTimeMillis());
+
+			return new SoundBuffer(data, new AudioFormat(encoding, sampleRate, sampleSizeInBits, channels, frameSize, frameRate, bigEndian));
+		} catch (IOException | RuntimeException e) {
+			errorMessage("Unable to read cache file " + file + ": " + e.getMessage());
+			return null;
+		}
+	}
+
+	/**
+	 * Stores a sound in the cache, then deletes the least recently used files
+	 * if the cache has grown too large.
+	 *
+	 * @param directory Cache directory.
+	 * @param key       Key to store the sound under.
+	 * @param buffer    The sample data.
+	 */
+	private void put(File directory, String key, SoundBuffer buffer) {
+		AudioFormat format = buffer.audioFormat;
+		byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+		byte[] encodingBytes = format.getEncoding().toString().getBytes(StandardCharsets.UTF_8);
+		int headerSize = 4 + 4 + 4 + keyBytes.length + 4 + encodingBytes.length + 4 + 4 + 4 + 4 + 4 + 1 + 4;
+		long limit = SoundSystemConfig.getPCMCacheSize();
+		if (headerSize + (long) buffer.audioData.length > limit) {
+			// Too large to keep, but the limit may have been lowered:
+			synchronized (writeLock) {
+				trim(directory, limit);
+			}
+			return;
+		}
+
+		ByteBuffer header = ByteBuffer.allocate(headerSize);
+		header.putInt(MAGIC).putInt(VERSION);
+		header.putInt(keyBytes.length).put(keyBytes);
+		header.putInt(encodingBytes.length).put(encodingBytes);
+		header.putFloat(format.getSampleRate());
+		header.putInt(format.getSampleSizeInBits());
+		header.putInt(format.getChannels());
+		header.putInt(format.getFrameSize());
+		header.putFloat(format.getFrameRate());
+		header.put((byte) (format.isBigEndian() ? 1 : 0));
+		header.putInt(buffer.audioData.length);
+		((Buffer) header).flip();
+
+		synchronized (writeLock) {
+			if (!directory.isDirectory() && !directory.mkdirs()) {
+				errorMessage("Unable to create cache directory " + directory);
+				return;
+			}
+			File file = new File(directory, fileName(key));
+			File temp = null;
+			try {
+				// Write to a temporary file first, so a half-written file is
+				// never mistaken for a cached sound:
+				temp = File.createTempFile("sspc", ".tmp", directory);
+				try (RandomAccessFile out = new RandomAccessFile(temp, "rw")) {
+					FileChannel channel = out.getChannel();
+					while (header.hasRemaining()) channel.write(header);
+					ByteBuffer data = ByteBuffer.wrap(buffer.audioData);
+					while (data.hasRemaining()) channel.write(data);
+				}
+				Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+				temp = null;
+			} catch (IOException e) {
+				errorMessage("Unable to write cache file " + file + ": " + e.getMessage());
+			} finally {
+				if (temp != null && !temp.delete()) temp.deleteOnExit();
+			}
+			trim(directory, limit);
+		}
+	}
+
+	/**
+	 * Deletes the least recently used cache files until the total size of the
+	 * cache is within the specified limit.
+	 *
+	 * @param directory Cache directory.
+	 * @param limit     Most bytes the cache may use.
+	 */
+	private void trim(File directory, long limit) {
+		File[] files = listFiles(directory);
+		long total = 0;
+		for (File file : files) {
+			total += file.length();
+		}
+		if (total <= limit) return;
+
+		Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+		for (File file : files) {
+			if (total <= limit) break;
+			long length = file.length();
+			if (file.delete()) {
+				total -= length;
+				evictions.incrementAndGet();
+			}
+		}
+	}
+
+	/**
+	 * Returns the cache files in the specified directory.
+	 *
+	 * @param directory Cache directory.
+	 * @return Cache files, which may be empty.
+	 */
+	private static File[] listFiles(File directory) {
+		File[] files = directory.listFiles((dir, name) -> name.endsWith(EXTENSION));
+		return files == null ? new File[0] : files;
+	}
+
+	/**
+	 * Creates the key which a decoded sound is stored under.  It identifies the
+	 * file's contents by its size and last-modified time, and includes
+	 * everything which changes how the codec decodes it.
+	 *
+	 * @param codec        Codec used to decode the file.
+	 * @param url          URL of the file.
+	 * @param reverseBytes True if the codec reverses the byte order.
+	 * @return The key, or null if the file's size and age can not be found.
+	 */
+	private static String createKey(ICodec codec, URL url, boolean reverseBytes) {
+		long length;
+		long lastModified;
+		try {
+			if ("file".equals(url.getProtocol())) {
+				File file = new File(url.toURI());
+				length = file.length();
+				lastModified = file.lastModified();
+			} else {
+				URLConnection connection = url.openConnection();
+				length = connection.getContentLengthLong();
+				lastModified = connection.getLastModified();
+				// Don't leave the connection's stream open, if it opened one:
+				if (connection.getDoInput()) connection.getInputStream().close();
+			}
+		} catch (Exception e) {
+			return null;
+		}
+		// Without a size or time, a changed file could not be noticed:
+		if (length <= 0 || lastModified <= 0) return null;
+
+		return url.toExternalForm() + '\n' + length + '\n' + lastModified + '\n' + codec.getClass().getName() + '\n' + reverseBytes + '\n' + SoundSystemConfig.useFloatOutput();
+	}
+
+	/**
+	 * Returns the name of the cache file for the specified key.
+	 *
+	 * @param key Key a sound is stored under.
+	 * @return File name.
+	 */
+	private static String fileName(String key) {
+		try {
+			byte[] digest = MessageDigest.getInstance("SHA-1").digest(key.getBytes(StandardCharsets.UTF_8));
+			StringBuilder name = new StringBuilder(digest.length * 2 + EXTENSION.length());
+			for (byte b : digest) {
+				name.append(Character.forDigit((b >> 4) & 0xF, 16));
+				name.append(Character.forDigit(b & 0xF, 16));
+			}
+			return name.append(EXTENSION).toString();
+		} catch (NoSuchAlgorithmException e) {
+			// Every Java platform is required to have SHA-1:
+			return Integer.toHexString(key.hashCode()) + EXTENSION;
+		}
+	}
+
+	/**
+	 * Reads a length-prefixed UTF-8 string.
+	 *
+	 * @param buffer Buffer to read from.
+	 * @return The string.
+	 */
+	private static String getString(ByteBuffer buffer) {
+		int length = buffer.getInt();
+		if (length < 0 || length > buffer.remaining()) throw new IllegalStateException("Bad string length " + length);
+		byte[] bytes = new byte[length];
+		buffer.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Prints an error message.
+	 *
+	 * @param message Message to print.
+	 */
+	private static void errorMessage(String message) {
+		SoundSystemLogger logger = SoundSystemConfig.getLogger();
+		if (logger != null) logger.errorMessage("PCMDiskCache", message, 0);
+	}
+}
@@ -28,41 +28,53 @@
 
 package paulscode.sound;
 
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+
 /**
  * The SimpleThread class is the template used to create all thread classes
  * used by in the SoundSystem library.  It provides methods for common actions
- * like sleeping, killing, and checking aliveness.  NOTE: super.cleanup() must
+ * like sleeping, waking, killing, and checking aliveness.  A thread sleeping
+ * in {@link #snooze(long) snooze()} is woken up by {@link #wake() wake()},
+ * which uses LockSupport rather than Thread.interrupt(), so a wake-up can never
+ * break blocking I/O the thread happens to be doing.  NOTE: super.cleanup() must
  * be called at the bottom of overridden cleanup() methods, and cleanup()
  * must be called at the bottom of the run() method for all extended classes.
  */
 @SuppressWarnings({"BooleanMethodIsAlwaysInverted", "unused"})
 public class SimpleThread extends Thread {
 	/**
-	 * Used to return a current value from one of the synchronized
-	 * boolean-interface methods.
+	 * Used to return a current value from one of the boolean-interface methods.
 	 */
 	private static final boolean GET = false;
 
 	/**
-	 * Used to set the value in one of the synchronized boolean-interface methods.
+	 * Used to set the value in one of the boolean-interface methods.
 	 */
 	private static final boolean SET = true;
 
 	/**
-	 * Used when a parameter for one of the synchronized boolean-interface methods
-	 * is not applicable.
+	 * Used when a parameter for one of the boolean-interface methods is not
+	 * applicable.
 	 */
 	private static final boolean XXX = false;
 
 	/**
 	 * True when thread is running.
 	 */
-	private boolean alive = true;
+	private volatile boolean alive = true;
 
 	/**
 	 * True when thread should end.
 	 */
-	private boolean kill = false;
+	private volatile boolean kill = false;
+
+	/**
+	 * True when wake() has been called and the signal has not yet been consumed
+	 * by snooze().
+	 */
+	private final AtomicBoolean signalled = new AtomicBoolean(false);
 
 	/**
 	 * Removes all references to instantiated objects, and changes the thread's
@@ -127,10 +139,20 @@ public class SimpleThread extends Thread {
 
 	/**
 	 * Causes method dying() to return true, letting the thread know it needs to
-	 * shut down.
+	 * shut down, and wakes the thread up if it is snoozing.
 	 */
 	public void kill() {
 		kill(SET, true);
+		wake();
+	}
+
+	/**
+	 * Wakes the thread up if it is snoozing.  If it is not, its next call to
+	 * snooze() returns right away, so a wake-up is never lost.
+	 */
+	public void wake() {
+		signalled.set(true);
+		LockSupport.unpark(this);
 	}
 
 	/**
@@ -147,7 +169,7 @@ public class SimpleThread extends Thread {
 	 * @param value  New value if action == SET, or XXX if action == GET.
 	 * @return True while the thread is alive.
 	 */
-	private synchronized boolean alive(boolean action, boolean value) {
+	private boolean alive(boolean action, boolean value) {
 		if (action) alive = value;
 		return alive;
 	}
@@ -159,18 +181,35 @@ public class SimpleThread extends Thread {
 	 * @param value  New value if action == SET, or XXX if action == GET.
 	 * @return true if the thread should die.
 	 */
-	private synchronized boolean kill(boolean action, boolean value) {
+	private boolean kill(boolean action, boolean value) {
 		if (action == SET) kill = value;
 		return kill;
 	}
 
 	/**
-	 * Sleeps for the specified number of milliseconds.
+	 * Sleeps for the specified number of milliseconds, or until wake() or
+	 * kill() is called.  For compatibility, Thread.interrupt() also ends the
+	 * snooze (and the interrupt is cleared).
 	 */
 	protected void snooze(long milliseconds) {
-		try {
-			Thread.sleep(milliseconds);
-		} catch (InterruptedException ignored) {
+		// Some other thread (such as the one running rerun()) is waiting on us:
+		if (Thread.currentThread() != this) {
+			try {
+				Thread.sleep(milliseconds);
+			} catch (InterruptedException ignored) {
+			}
+			return;
+		}
+
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(milliseconds);
+		long remaining;
+		// Consume the signal atomically, so a wake() which arrives after the
+		// snooze times out is kept for the next snooze rather than lost:
+		while (!signalled.getAndSet(false) && !kill) {
+			remaining = deadline - System.nanoTime();
+			if (remaining <= 0) break;
+			LockSupport.parkNanos(this, remaining);
+			if (Thread.interrupted()) break;
 		}
 	}
 }
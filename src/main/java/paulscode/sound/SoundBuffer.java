@@ -29,6 +29,7 @@
 package paulscode.sound;
 
 import javax.sound.sampled.AudioFormat;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * The SoundBuffer class is used to wrap audio data along with the format in
@@ -44,6 +45,10 @@ public class SoundBuffer {
 	 * The audio format in which the data is stored.
 	 */
 	public AudioFormat audioFormat;
+	/**
+	 * Number of sources currently holding this buffer.
+	 */
+	private final AtomicInteger users = new AtomicInteger();
 
 	/**
 	 * Constructor: Wraps the specified data with the specified audio format.
@@ -64,6 +69,39 @@ public class SoundBuffer {
 		audioFormat = null;
 	}
 
+	/**
+	 * Registers one more source as using this buffer.  A library will not
+	 * release a loaded sound while its buffer still has users.
+	 *
+	 * @return Number of users after this call.
+	 */
+	public int acquire() {
+		return users.incrementAndGet();
+	}
+
+	/**
+	 * Unregisters one source which was using this buffer.
+	 *
+	 * @return Number of users after this call (never less than zero).
+	 */
+	public int release() {
+		int current;
+		do {
+			current = users.get();
+			if (current == 0) return 0;
+		} while (!users.compareAndSet(current, current - 1));
+		return current - 1;
+	}
+
+	/**
+	 * Returns the number of sources currently using this buffer.
+	 *
+	 * @return Number of users.
+	 */
+	public int getUserCount() {
+		return users.get();
+	}
+
 	/**
 	 * Trims down the size of the audio data if it is larger than the specified
 	 * maximum length.
@@ -0,0 +1,54 @@
+/*
+ * The SoundSystem License:
+ *
+ * You are free to use this library for any purpose, commercial or otherwise.
+ * You may modify this library or source code, and distribute it any way you
+ * like, provided the following conditions are met:
+ *
+ * 1) You may not falsely claim to be the author of this library or any
+ *    unmodified portion of it.
+ * 2) You may not copyright this library or a modified version of it and then
+ *    sue me for copyright infringement.
+ * 3) If you modify the source code, you must clearly document the changes
+ *    made before redistributing the modified source code, so other users know
+ *    it is not the original code.
+ * 4) You are not required to give me credit for this library in any derived
+ *    work, but if you do, you must also mention my website:
+ *    https://www.paulscode.com
+ * 5) I the author will not be responsible for any damages (physical,
+ *    financial, or otherwise) caused by the use if this library or any part
+ *    of it.
+ * 6) I the author do not guarantee, warrant, or make any representations,
+ *    either expressed or implied, regarding the use of this library or any
+ *    part of it.
+ *
+ * Author: Paul Lamb
+ * https://www.paulscode.com
+ */
+
+package paulscode.sound;
+
+import java.util.LinkedHashMap;
+
+/**
+ * The SoundBufferMap class holds the sample data of the sounds a library has
+ * loaded, by filename or identifier.  It keeps its entries in least recently
+ * used order: looking a sound up with get() moves it to the end, so the
+ * sounds which have gone unused longest come first when iterating.  The
+ * library uses this order to decide which sounds to unload when the loaded
+ * sounds grow past {@link SoundSystemConfig#getLoadedSoundBudget()}.
+ * <p>
+ * NOTE: Because get() changes the order, do not look sounds up while iterating
+ * over the map.
+ */
+@SuppressWarnings("unused")
+public class SoundBufferMap extends LinkedHashMap<String, SoundBuffer> {
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Constructor:  Creates an empty map in least recently used order.
+	 */
+	public SoundBufferMap() {
+		super(16, 0.75f, true);
+	}
+}
@@ -0,0 +1,74 @@
+/*
+ * The SoundSystem License:
+ *
+ * You are free to use this library for any purpose, commercial or otherwise.
+ * You may modify this library or source code, and distribute it any way you
+ * like, provided the following conditions are met:
+ *
+ * 1) You may not falsely claim to be the author of this library or any
+ *    unmodified portion of it.
+ * 2) You may not copyright this library or a modified version of it and then
+ *    sue me for copyright infringement.
+ * 3) If you modify the source code, you must clearly document the changes
+ *    made before redistributing the modified source code, so other users know
+ *    it is not the original code.
+ * 4) You are not required to give me credit for this library in any derived
+ *    work, but if you do, you must also mention my website:
+ *    https://www.paulscode.com
+ * 5) I the author will not be responsible for any damages (physical,
+ *    financial, or otherwise) caused by the use if this library or any part
+ *    of it.
+ * 6) I the author do not guarantee, warrant, or make any representations,
+ *    either expressed or implied, regarding the use of this library or any
+ *    part of it.
+ *
+ * Author: Paul Lamb
+ * https://www.paulscode.com
+ */
+
+package paulscode.sound;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * The SoundLoad class keeps track of one sound which is being decoded on a
+ * load thread.  When decoding is done, the Command Thread adds the sample data
+ * to the library the sound was decoded for, then completes the handle which
+ * was returned by {@link SoundSystem#loadSoundAsync(String) loadSoundAsync()}.
+ */
+class SoundLoad {
+	/**
+	 * Filename/URL of the sound being loaded.
+	 */
+	final FilenameURL filenameURL;
+
+	/**
+	 * Library the sound is being decoded for.
+	 */
+	final Library library;
+
+	/**
+	 * Completes with true once the sound has been loaded, or false if it could
+	 * not be loaded.
+	 */
+	final CompletableFuture<Boolean> loaded;
+
+	/**
+	 * The decoded sample data, or null if the sound could not be decoded.  Set
+	 * by the load thread before the load is handed back to the Command Thread.
+	 */
+	SoundBuffer buffer;
+
+	/**
+	 * Constructor:  Starts keeping track of a sound which is about to be decoded.
+	 *
+	 * @param filenameURL Filename/URL of the sound being loaded.
+	 * @param library     Library the sound is being decoded for.
+	 * @param loaded      Handle to complete once the sound has been loaded.
+	 */
+	SoundLoad(FilenameURL filenameURL, Library library, CompletableFuture<Boolean> loaded) {
+		this.filenameURL = filenameURL;
+		this.library = library;
+		this.loaded = loaded;
+	}
+}
@@ -29,6 +29,9 @@
 package paulscode.sound;
 
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedList;
@@ -36,6 +39,16 @@ import java.util.List;
 import java.util.ListIterator;
 import java.util.Random;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
 import javax.sound.sampled.AudioFormat;
 
 /**
@@ -74,6 +87,12 @@ public class SoundSystem {
 	 */
 	private static final boolean XXX = false;
 
+	/**
+	 * Longest time in nanoseconds a thread waits for room in a full command
+	 * queue before the command is discarded.
+	 */
+	private static final long QUEUE_FULL_TIMEOUT = 1000000000L;
+
 	/**
 	 * Processes status messages, warnings, and error messages.
 	 */
@@ -85,9 +104,9 @@ public class SoundSystem {
 	protected Library soundLibrary;
 
 	/**
-	 * List of queued commands to perform.
+	 * Lock-free queue of commands to perform.
 	 */
-	protected List<CommandObject> commandQueue;
+	protected CommandRing commandQueue;
 
 	/**
 	 * Used internally by SoundSystem to keep track of play/pause/stop/rewind
@@ -102,6 +121,70 @@ public class SoundSystem {
 	 */
 	protected CommandThread commandThread;
 
+	/**
+	 * Integer handles for sources, used by the handle-based methods such as
+	 * {@link #setPosition(int, float, float, float) setPosition(int, ...)}.
+	 */
+	protected SourceHandleTable sourceHandles;
+
+	/**
+	 * Commands queued by each thread since it called
+	 * {@link #beginBatch() beginBatch()}, or null if that thread does not have
+	 * a batch open.
+	 */
+	private final ThreadLocal<List<CommandObject>> openBatch = new ThreadLocal<>();
+
+	/**
+	 * Number of times the Command Thread has been woken up to process commands.
+	 */
+	private final AtomicLong wakeUps = new AtomicLong();
+
+	/**
+	 * Number of batches committed with {@link #commitBatch() commitBatch()}.
+	 */
+	private final AtomicLong batchesCommitted = new AtomicLong();
+
+	/**
+	 * Nanoseconds from commitBatch() until the pass which executed the most
+	 * recent batch finished, or -1 if no batch has been executed yet.
+	 */
+	private volatile long lastBatchLatency = -1;
+
+	/**
+	 * Threads which decode sounds for loadSound(), or null if
+	 * SoundSystemConfig.getLoadThreads() is 0.
+	 */
+	private ExecutorService loadPool = null;
+
+	/**
+	 * Threads which decode sounds in parallel for loadSounds().
+	 */
+	private ForkJoinPool bulkLoadPool = null;
+
+	/**
+	 * Sounds being decoded on the load threads, by filename.  Only used by the
+	 * Command Thread.
+	 */
+	private final HashMap<String, SoundLoad> pendingLoads = new HashMap<>();
+
+	/**
+	 * Groups of sounds which have finished decoding, waiting for the Command
+	 * Thread to add them to the sound library.
+	 */
+	private final ConcurrentLinkedQueue<List<SoundLoad>> finishedLoads = new ConcurrentLinkedQueue<>();
+
+	/**
+	 * Commands which are waiting for a sound to finish loading, by filename.
+	 * Only used by the Command Thread.
+	 */
+	private final HashMap<String, List<CommandObject>> deferredCommands = new HashMap<>();
+
+	/**
+	 * Sources whose commands are waiting for a sound to finish loading, mapped
+	 * to the sound's filename.  Only used by the Command Thread.
+	 */
+	private final HashMap<String, String> deferredSources = new HashMap<>();
+
 	/**
 	 * Generates random numbers.
 	 */
@@ -213,9 +296,29 @@ public class SoundSystem {
 		// create the random number generator:
 		randomNumberGenerator = new Random();
 		// create the command queue:
-		commandQueue = new LinkedList<>();
+		commandQueue = new CommandRing(SoundSystemConfig.getCommandQueueCapacity());
+		// create the source handle table:
+		sourceHandles = new SourceHandleTable(SoundSystemConfig.getNumberNormalChannels() + SoundSystemConfig.getNumberStreamingChannels());
 		// create the working source playlist:
 		sourcePlayList = new LinkedList<>();
+		// create the threads which decode sounds for loadSound():
+		int threads = SoundSystemConfig.getLoadThreads();
+		if (threads > 0) {
+			AtomicInteger count = new AtomicInteger();
+			loadPool = Executors.newFixedThreadPool(threads, runnable -> {
+				Thread thread = new Thread(runnable, "Load Thread " + count.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
+		// create the threads which decode sounds for loadSounds():
+		int parallelism = SoundSystemConfig.getLoadParallelism();
+		AtomicInteger bulkCount = new AtomicInteger();
+		bulkLoadPool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors(), pool -> {
+			ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+			thread.setName("Bulk Load Thread " + bulkCount.incrementAndGet());
+			return thread;
+		}, null, false);
 
 		// Instantiate and start the Command Processor thread:
 		commandThread = new CommandThread(this); // Gets a SoundSystem handle
@@ -239,7 +342,7 @@ public class SoundSystem {
 		// End the command thread:
 		try {
 			commandThread.kill();        // end the command processor loop.
-			commandThread.interrupt();   // wake the thread up so it can end.
+			commandThread.wake();        // wake the thread up so it can end.
 		} catch (Exception e) {
 			killException = true;
 		}
@@ -258,10 +361,25 @@ public class SoundSystem {
 			message("Ignoring errors... continuing clean-up.", 0);
 		}
 
+		// Stop decoding sounds, and let anyone waiting on them know they were
+		// not loaded:
+		if (loadPool != null) loadPool.shutdownNow();
+		loadPool = null;
+		if (bulkLoadPool != null) bulkLoadPool.shutdownNow();
+		bulkLoadPool = null;
+		for (SoundLoad load : pendingLoads.values()) {
+			load.loaded.complete(false);
+		}
+		pendingLoads.clear();
+		finishedLoads.clear();
+		deferredCommands.clear();
+		deferredSources.clear();
+
 		initialized(SET, false);
 		currentLibrary(SET, null);
 		try {
 			// Stop all sources and shut down the sound library:
+			SoundSystemConfig.setFloatOutputSupported(false);
 			if (soundLibrary != null) soundLibrary.cleanup();
 		} catch (Exception e) {
 			errorMessage("Problem during Library.cleanup()!", 0);
@@ -276,6 +394,12 @@ public class SoundSystem {
 			message("Ignoring errors... continuing clean-up.", 0);
 		}
 
+		// forget about all source handles:
+		if (sourceHandles != null) sourceHandles.clear();
+
+		// deliver any remaining events, then end the event thread:
+		SoundSystemConfig.stopEventThread();
+
 		try {
 			// empty the source management list:
 			if (sourcePlayList != null) sourcePlayList.clear();
@@ -288,6 +412,7 @@ public class SoundSystem {
 		randomNumberGenerator = null;
 		soundLibrary = null;
 		commandQueue = null;
+		sourceHandles = null;
 		sourcePlayList = null;
 		commandThread = null;
 
@@ -308,7 +433,7 @@ public class SoundSystem {
 			return;
 		}
 		// Wake the command thread to process commands:
-		commandThread.interrupt();
+		commandThread.wake();
 	}
 
 	/**
@@ -318,29 +443,97 @@ public class SoundSystem {
 	 * is located within the compiled JAR, the package in which sound files are
 	 * located may be set by calling SoundSystemConfig.setSoundFilesPackage().
 	 *
+	 * The sound is decoded on a load thread (see
+	 * {@link SoundSystemConfig#setLoadThreads(int)}), so other commands are not
+	 * held up while it loads.  Commands for sources which play this sound wait
+	 * until it has finished loading.  Use {@link #loadSoundAsync(String)} to
+	 * find out when it has.
+	 *
 	 * @param filename Filename of the sound file to load.
 	 */
 	public void loadSound(String filename) {
-		// Queue a command to load the sound file:
-		commandQueue(new CommandObject(CommandObject.LOAD_SOUND, new FilenameURL(filename)));
-		// Wake the command thread to process commands:
-		commandThread.interrupt();
+		loadSoundAsync(filename);
 	}
 
 	/**
 	 * Pre-loads a sound specified by the given URL into memory.  The second
 	 * parameter 'identifier' should look like a filename, and it must have the
 	 * correct extension so SoundSystem knows what codec to use for the file
-	 * referenced by the URL instance.
+	 * referenced by the URL instance.  Use {@link #loadSoundAsync(URL, String)}
+	 * to find out when the sound has finished loading.
 	 *
 	 * @param url        URL handle to the sound file to load.
 	 * @param identifier Filename/identifier of the file referenced by the URL.
 	 */
 	public void loadSound(URL url, String identifier) {
-		// Queue a command to load the sound file from a URL:
-		commandQueue(new CommandObject(CommandObject.LOAD_SOUND, new FilenameURL(url, identifier)));
+		loadSoundAsync(url, identifier);
+	}
+
+	/**
+	 * Pre-loads a sound into memory, like {@link #loadSound(String)}, and
+	 * returns a handle for finding out when it has been loaded.
+	 *
+	 * @param filename Filename of the sound file to load.
+	 * @return Handle which completes with true once the sound has been loaded,
+	 * or false if it could not be loaded.
+	 */
+	public CompletableFuture<Boolean> loadSoundAsync(String filename) {
+		return loadSound(new FilenameURL(filename));
+	}
+
+	/**
+	 * Pre-loads a sound specified by the given URL into memory, like
+	 * {@link #loadSound(URL, String)}, and returns a handle for finding out
+	 * when it has been loaded.
+	 *
+	 * @param url        URL handle to the sound file to load.
+	 * @param identifier Filename/identifier of the file referenced by the URL.
+	 * @return Handle which completes with true once the sound has been loaded,
+	 * or false if it could not be loaded.
+	 */
+	public CompletableFuture<Boolean> loadSoundAsync(URL url, String identifier) {
+		return loadSound(new FilenameURL(url, identifier));
+	}
+
+	/**
+	 * Queues a command to load the specified sound file.
+	 *
+	 * @param filenameURL Filename/URL of the sound file to load.
+	 * @return Handle which completes when the sound has been loaded.
+	 */
+	private CompletableFuture<Boolean> loadSound(FilenameURL filenameURL) {
+		CompletableFuture<Boolean> loaded = new CompletableFuture<>();
+		// Queue a command to load the sound file:
+		if (!commandQueue(new CommandObject(CommandObject.LOAD_SOUND, filenameURL, loaded))) loaded.complete(false);
 		// Wake the command thread to process commands:
-		commandThread.interrupt();
+		wakeCommandThread();
+		return loaded;
+	}
+
+	/**
+	 * Pre-loads several sounds into memory at once, such as all the sounds a
+	 * level needs.  The sounds are decoded in parallel on
+	 * {@link SoundSystemConfig#setLoadParallelism(int) several threads}, then
+	 * added to the sound library together in one step.  Neither the calling
+	 * thread nor the Command Thread waits while the sounds decode.  Commands
+	 * for sources which play these sounds wait until they are loaded.
+	 *
+	 * @param sounds Filenames/URLs of the sound files to load.
+	 * @return Handle for following the progress of the load.
+	 */
+	public BulkLoad loadSounds(Collection<FilenameURL> sounds) {
+		List<FilenameURL> list = sounds == null ? new ArrayList<>() : new ArrayList<>(sounds);
+		BulkLoad bulkLoad = new BulkLoad(list.size());
+		if (list.isEmpty()) return bulkLoad;
+		// Queue a command to load the sound files:
+		if (!commandQueue(new CommandObject(CommandObject.LOAD_SOUNDS, list, bulkLoad))) {
+			for (int i = 0; i < list.size(); i++) {
+				bulkLoad.track(CompletableFuture.completedFuture(false));
+			}
+		}
+		// Wake the command thread to process commands:
+		wakeCommandThread();
+		return bulkLoad;
 	}
 
 	/**
@@ -356,7 +549,7 @@ public class SoundSystem {
 		// Queue a command to load the sound file from a URL:
 		commandQueue(new CommandObject(CommandObject.LOAD_DATA, identifier, new SoundBuffer(data, format)));
 		// Wake the command thread to process commands:
-		commandThread.interrupt();
+		wakeCommandThread();
 	}
 
 
@@ -374,7 +567,7 @@ public class SoundSystem {
 		// Queue a command to unload the sound file:
 		commandQueue(new CommandObject(CommandObject.UNLOAD_SOUND, filename));
 		// Wake the command thread to process commands:
-		commandThread.interrupt();
+		wakeCommandThread();
 	}
 
 	/**
@@ -394,7 +587,7 @@ public class SoundSystem {
 		// Queue a command to queue the sound:
 		commandQueue(new CommandObject(CommandObject.QUEUE_SOUND, sourceName, new FilenameURL(filename)));
 		// Wake the command thread to process commands:
-		commandThread.interrupt();
+		wakeCommandThread();
 	}
 
 	/**
@@ -413,7 +606,7 @@ public class SoundSystem {
 		// Queue a command to queue the sound:
 		commandQueue(new CommandObject(CommandObject.QUEUE_SOUND, sourceName, new FilenameURL(url, identifier)));
 		// Wake the command thread to process commands:
-		commandThread.interrupt();
+		wakeCommandThread();
 	}
 
 	/**
@@ -428,7 +621,7 @@ public class SoundSystem {
 		// Queue a command to dequeue the sound:
 		commandQueue(new CommandObject(CommandObject.DEQUEUE_SOUND, sourceName, filename));
 		// Wake the command thread to process commands:
-		commandThread.interrupt();
+		wakeCommandThread();
 	}
 
 	/**
@@ -456,7 +649,7 @@ public class SoundSystem {
 		// Queue a command to fade out:
 		commandQueue(new CommandObject(CommandObject.FADE_OUT, sourceName, fu, millis));
 		// Wake the command thread to process commands:
-		commandThread.interrupt();
+		wakeCommandThread();
 	}
 
 	/**
@@ -483,7 +676,7 @@ public class SoundSystem {
 		// Queue a command to fade out:
 		commandQueue(new CommandObject(CommandObject.FADE_OUT, sourceName, fu, millis));
 		// Wake the command thread to process commands:
-		commandThread.interrupt();
+		wakeCommandThread();
 	}
 
 	/**
@@ -510,7 +703,7 @@ public class SoundSystem {
 		// Queue a command to load the sound file:
 		commandQueue(new CommandObject(CommandObject.FADE_OUT_IN, sourceName, new FilenameURL(filename), millisOut, millisIn));
 		// Wake the command thread to process commands:
-		commandThread.interrupt();
+		wakeCommandThread();
 	}
 
 	/**
@@ -536,7 +729,7 @@ public class SoundSystem {
 		// Queue a command to load the sound file:
 		commandQueue(new CommandObject(CommandObject.FADE_OUT_IN, sourceName, new FilenameURL(url, identifier), millisOut, millisIn));
 		// Wake the command thread to process commands:
-		commandThread.interrupt();
+		wakeCommandThread();
 	}
 
 	/**
@@ -554,7 +747,7 @@ public class SoundSystem {
 		// Queue a command to load check fading source volumes:
 		commandQueue(new CommandObject(CommandObject.CHECK_FADE_VOLUMES));
 		// Wake the command thread to process commands:
-		commandThread.interrupt();
+		wakeCommandThread();
 	}
 
 	/**
@@ -575,7 +768,7 @@ public class SoundSystem {
 		commandQueue(new CommandObject(CommandObject.QUICK_PLAY, true, true, toLoop, sourceName, new FilenameURL(filename), 0, 0, 0, SoundSystemConfig.ATTENUATION_NONE, 0, false));
 		commandQueue(new CommandObject(CommandObject.PLAY, sourceName));
 
-		commandThread.interrupt();
+		wakeCommandThread();
 	}
 
 	/**
@@ -594,7 +787,7 @@ public class SoundSystem {
 		commandQueue(new CommandObject(CommandObject.QUICK_PLAY, true, true, toLoop, sourceName, new FilenameURL(url, identifier), 0, 0, 0, SoundSystemConfig.ATTENUATION_NONE, 0, false));
 		commandQueue(new CommandObject(CommandObject.PLAY, sourceName));
 
-		commandThread.interrupt();
+		wakeCommandThread();
 	}
 
 	/**
@@ -614,7 +807,7 @@ public class SoundSystem {
 	 */
 	public void newSource(boolean priority, String sourceName, String filename, boolean toLoop, float x, float y, float z, int attModel, float distOrRoll) {
 		commandQueue(new CommandObject(CommandObject.NEW_SOURCE, priority, false, toLoop, sourceName, new FilenameURL(filename), x, y, z, attModel, distOrRoll));
-		commandThread.interrupt();
+		wakeCommandThread();
 	}
 
 	/**
@@ -635,7 +828,7 @@ public class SoundSystem {
 	 */
 	public void newSource(boolean priority, String sourceName, URL url, String identifier, boolean toLoop, float x, float y, float z, int attModel, float distOrRoll) {
 		commandQueue(new CommandObject(CommandObject.NEW_SOURCE, priority, false, toLoop, sourceName, new FilenameURL(url, identifier), x, y, z, attModel, distOrRoll));
-		commandThread.interrupt();
+		wakeCommandThread();
 	}
 
 	/**
@@ -658,7 +851,7 @@ public class SoundSystem {
 	 */
 	public void newStreamingSource(boolean priority, String sourceName, String filename, boolean toLoop, float x, float y, float z, int attModel, float distOrRoll) {
 		commandQueue(new CommandObject(CommandObject.NEW_SOURCE, priority, true, toLoop, sourceName, new FilenameURL(filename), x, y, z, attModel, distOrRoll));
-		commandThread.interrupt();
+		wakeCommandThread();
 	}
 
 	/**
@@ -679,7 +872,7 @@ public class SoundSystem {
 	 */
 	public void newStreamingSource(boolean priority, String sourceName, URL url, String identifier, boolean toLoop, float x, float y, float z, int attModel, float distOrRoll) {
 		commandQueue(new CommandObject(CommandObject.NEW_SOURCE, priority, true, toLoop, sourceName, new FilenameURL(url, identifier), x, y, z, attModel, distOrRoll));
-		commandThread.interrupt();
+		wakeCommandThread();
 	}
 
 	/**
@@ -700,7 +893,7 @@ public class SoundSystem {
 	 */
 	public void rawDataStream(AudioFormat audioFormat, boolean priority, String sourceName, float x, float y, float z, int attModel, float distOrRoll) {
 		commandQueue(new CommandObject(CommandObject.RAW_DATA_STREAM, audioFormat, priority, sourceName, x, y, z, attModel, distOrRoll));
-		commandThread.interrupt();
+		wakeCommandThread();
 	}
 
 	/**
@@ -727,7 +920,7 @@ public class SoundSystem {
 		commandQueue(new CommandObject(CommandObject.QUICK_PLAY, priority, false, toLoop, sourceName, new FilenameURL(filename), x, y, z, attModel, distOrRoll, true));
 		commandQueue(new CommandObject(CommandObject.PLAY, sourceName));
 		// Wake the command thread to process commands:
-		commandThread.interrupt();
+		wakeCommandThread();
 
 		// return the new source name.
 		return sourceName;
@@ -758,7 +951,7 @@ public class SoundSystem {
 		commandQueue(new CommandObject(CommandObject.QUICK_PLAY, priority, false, toLoop, sourceName, new FilenameURL(url, identifier), x, y, z, attModel, distOrRoll, true));
 		commandQueue(new CommandObject(CommandObject.PLAY, sourceName));
 		// Wake the command thread to process commands:
-		commandThread.interrupt();
+		wakeCommandThread();
 
 		// return the new source name.
 		return sourceName;
@@ -793,7 +986,7 @@ public class SoundSystem {
 		commandQueue(new CommandObject(CommandObject.QUICK_PLAY, priority, true, toLoop, sourceName, new FilenameURL(filename), x, y, z, attModel, distOrRoll, true));
 		commandQueue(new CommandObject(CommandObject.PLAY, sourceName));
 		// Wake the command thread to process commands:
-		commandThread.interrupt();
+		wakeCommandThread();
 
 		// return the new source name.
 		return sourceName;
@@ -827,7 +1020,7 @@ public class SoundSystem {
 		commandQueue(new CommandObject(CommandObject.QUICK_PLAY, priority, true, toLoop, sourceName, new FilenameURL(url, identifier), x, y, z, attModel, distOrRoll, true));
 		commandQueue(new CommandObject(CommandObject.PLAY, sourceName));
 		// Wake the command thread to process commands:
-		commandThread.interrupt();
+		wakeCommandThread();
 
 		// return the new source name.
 		return sourceName;
@@ -842,8 +1035,8 @@ public class SoundSystem {
 	 * @param z          destination Z coordinate.
 	 */
 	public void setPosition(String sourceName, float x, float y, float z) {
-		commandQueue(new CommandObject(CommandObject.SET_POSITION, sourceName, x, y, z));
-		commandThread.interrupt();
+		commandQueue(CommandObject.obtain(CommandObject.SET_POSITION, sourceName, x, y, z));
+		wakeCommandThread();
 	}
 
 	/**
@@ -853,8 +1046,8 @@ public class SoundSystem {
 	 * @param value      New volume, float value ( 0.0f - 1.0f ).
 	 */
 	public void setVolume(String sourceName, float value) {
-		commandQueue(new CommandObject(CommandObject.SET_VOLUME, sourceName, value));
-		commandThread.interrupt();
+		commandQueue(CommandObject.obtain(CommandObject.SET_VOLUME, sourceName, value));
+		wakeCommandThread();
 	}
 
 	/**
@@ -865,6 +1058,11 @@ public class SoundSystem {
 	 * @return Float value representing the source volume (0.0f - 1.0f).
 	 */
 	public float getVolume(String sourceName) {
+		Library library = soundLibrary;
+		if (library == null) return 0.0f;
+		SourceSnapshot snapshot = library.getSnapshot(sourceName);
+		if (snapshot != null) return snapshot.getVolume();
+		// Not a normal source (maybe the MIDI source), so ask the library:
 		synchronized (SoundSystemConfig.THREAD_SYNC) {
 			if (soundLibrary != null) return soundLibrary.getVolume(sourceName);
 			else return 0.0f;
@@ -878,8 +1076,8 @@ public class SoundSystem {
 	 * @param value      A float value ( 0.5f - 2.0f ).
 	 */
 	public void setPitch(String sourceName, float value) {
-		commandQueue(new CommandObject(CommandObject.SET_PITCH, sourceName, value));
-		commandThread.interrupt();
+		commandQueue(CommandObject.obtain(CommandObject.SET_PITCH, sourceName, value));
+		wakeCommandThread();
 	}
 
 	/**
@@ -902,7 +1100,7 @@ public class SoundSystem {
 	 */
 	public void setPriority(String sourceName, boolean pri) {
 		commandQueue(new CommandObject(CommandObject.SET_PRIORITY, sourceName, pri));
-		commandThread.interrupt();
+		wakeCommandThread();
 	}
 
 	/**
@@ -913,7 +1111,7 @@ public class SoundSystem {
 	 */
 	public void setLooping(String sourceName, boolean lp) {
 		commandQueue(new CommandObject(CommandObject.SET_LOOPING, sourceName, lp));
-		commandThread.interrupt();
+		wakeCommandThread();
 	}
 
 	/**
@@ -926,7 +1124,7 @@ public class SoundSystem {
 	 */
 	public void setAttenuation(String sourceName, int model) {
 		commandQueue(new CommandObject(CommandObject.SET_ATTENUATION, sourceName, model));
-		commandThread.interrupt();
+		wakeCommandThread();
 	}
 
 	/**
@@ -939,7 +1137,7 @@ public class SoundSystem {
 	 */
 	public void setDistOrRoll(String sourceName, float dr) {
 		commandQueue(new CommandObject(CommandObject.SET_DIST_OR_ROLL, sourceName, dr));
-		commandThread.interrupt();
+		wakeCommandThread();
 	}
 
 	/**
@@ -951,7 +1149,7 @@ public class SoundSystem {
 	 */
 	public void changeDopplerFactor(float dopplerFactor) {
 		commandQueue(new CommandObject(CommandObject.CHANGE_DOPPLER_FACTOR, dopplerFactor));
-		commandThread.interrupt();
+		wakeCommandThread();
 	}
 
 	/**
@@ -963,7 +1161,7 @@ public class SoundSystem {
 	 */
 	public void changeDopplerVelocity(float dopplerVelocity) {
 		commandQueue(new CommandObject(CommandObject.CHANGE_DOPPLER_VELOCITY, dopplerVelocity));
-		commandThread.interrupt();
+		wakeCommandThread();
 	}
 
 	/**
@@ -977,8 +1175,8 @@ public class SoundSystem {
 	 * @param z          Velocity along world z-axis.
 	 */
 	public void setVelocity(String sourceName, float x, float y, float z) {
-		commandQueue(new CommandObject(CommandObject.SET_VELOCITY, sourceName, x, y, z));
-		commandThread.interrupt();
+		commandQueue(CommandObject.obtain(CommandObject.SET_VELOCITY, sourceName, x, y, z));
+		wakeCommandThread();
 	}
 
 	/**
@@ -991,8 +1189,8 @@ public class SoundSystem {
 	 * @param z Velocity along world z-axis.
 	 */
 	public void setListenerVelocity(float x, float y, float z) {
-		commandQueue(new CommandObject(CommandObject.SET_LISTENER_VELOCITY, x, y, z));
-		commandThread.interrupt();
+		commandQueue(CommandObject.obtain(CommandObject.SET_LISTENER_VELOCITY, x, y, z));
+		wakeCommandThread();
 	}
 
 	/**
@@ -1001,11 +1199,136 @@ public class SoundSystem {
 	 * @return milliseconds, or -1 if not playing or unable to calculate
 	 */
 	public float millisecondsPlayed(String sourceName) {
+		Library library = soundLibrary;
+		if (library != null) {
+			SourceSnapshot snapshot = library.getSnapshot(sourceName);
+			if (snapshot != null) return snapshot.millisecondsPlayed();
+		}
+		// Not a normal source, so let the library report the problem:
 		synchronized (SoundSystemConfig.THREAD_SYNC) {
 			return soundLibrary.millisecondsPlayed(sourceName);
 		}
 	}
 
+	/**
+	 * Returns the underrun counts and decode timing for the specified streaming
+	 * source.  The returned object keeps updating as the source plays.
+	 *
+	 * @param sourceName Name of the streaming source.
+	 * @return The source's stream statistics, or null if there is no such source.
+	 */
+	public StreamStatistics getStreamStatistics(String sourceName) {
+		synchronized (SoundSystemConfig.THREAD_SYNC) {
+			if (soundLibrary == null) return null;
+			Source source = soundLibrary.getSource(sourceName);
+			if (source == null) return null;
+			return source.getStreamStatistics();
+		}
+	}
+
+	/**
+	 * Returns the memory used by the loaded (non-streaming) sounds, counting
+	 * the copy in the audio library's own buffers where there is one.  See
+	 * {@link SoundSystemConfig#setLoadedSoundBudget(long)}.
+	 *
+	 * @return Size in bytes.
+	 */
+	public long getLoadedSoundBytes() {
+		synchronized (SoundSystemConfig.THREAD_SYNC) {
+			if (soundLibrary == null) return 0;
+			return soundLibrary.getLoadedBytes();
+		}
+	}
+
+	/**
+	 * Returns the number of times a new non-streaming source found its sound
+	 * already loaded.
+	 *
+	 * @return Number of hits.
+	 */
+	public long getLoadedSoundHitCount() {
+		synchronized (SoundSystemConfig.THREAD_SYNC) {
+			if (soundLibrary == null) return 0;
+			return soundLibrary.getBufferHitCount();
+		}
+	}
+
+	/**
+	 * Returns the number of times a new non-streaming source had to load its
+	 * sound first.
+	 *
+	 * @return Number of misses.
+	 */
+	public long getLoadedSoundMissCount() {
+		synchronized (SoundSystemConfig.THREAD_SYNC) {
+			if (soundLibrary == null) return 0;
+			return soundLibrary.getBufferMissCount();
+		}
+	}
+
+	/**
+	 * Returns the number of sounds which have been unloaded to stay within the
+	 * loaded sound budget.
+	 *
+	 * @return Number of evictions.
+	 */
+	public long getLoadedSoundEvictionCount() {
+		synchronized (SoundSystemConfig.THREAD_SYNC) {
+			if (soundLibrary == null) return 0;
+			return soundLibrary.getBufferEvictionCount();
+		}
+	}
+
+	/**
+	 * Sets the sample frame the specified streaming source starts at the next
+	 * time it starts playing from the beginning (for example after stop() or
+	 * rewind()).  This can be used to resume a stream from a position saved
+	 * with getStreamPosition().  Only has an effect if the codec for the
+	 * source's file format can seek.
+	 *
+	 * @param sourceName Name of the streaming source.
+	 * @param frame      Sample frame to start at.
+	 */
+	public void setStreamPosition(String sourceName, long frame) {
+		synchronized (SoundSystemConfig.THREAD_SYNC) {
+			if (soundLibrary == null) return;
+			Source source = soundLibrary.getSource(sourceName);
+			if (source != null) source.setStreamStartFrame(frame);
+		}
+	}
+
+	/**
+	 * Returns the sample frame the specified streaming source's codec will read
+	 * next.  This is slightly ahead of what is being heard, by the amount of
+	 * data queued up to play.
+	 *
+	 * @param sourceName Name of the streaming source.
+	 * @return Sample frame, or -1 if unknown.
+	 */
+	public long getStreamPosition(String sourceName) {
+		synchronized (SoundSystemConfig.THREAD_SYNC) {
+			if (soundLibrary == null) return -1;
+			Source source = soundLibrary.getSource(sourceName);
+			if (source == null) return -1;
+			return source.getStreamPosition();
+		}
+	}
+
+	/**
+	 * Returns the length of the specified streaming source's stream.
+	 *
+	 * @param sourceName Name of the streaming source.
+	 * @return Number of sample frames, or -1 if unknown.
+	 */
+	public long getStreamLength(String sourceName) {
+		synchronized (SoundSystemConfig.THREAD_SYNC) {
+			if (soundLibrary == null) return -1;
+			Source source = soundLibrary.getSource(sourceName);
+			if (source == null) return -1;
+			return source.getStreamLength();
+		}
+	}
+
 	/**
 	 * Feeds raw data through the specified source.  The source must be a
 	 * streaming source, and it can not be already associated with a file or URL to
@@ -1022,7 +1345,7 @@ public class SoundSystem {
 	 */
 	public void feedRawAudioData(String sourceName, byte[] buffer) {
 		commandQueue(new CommandObject(CommandObject.FEED_RAW_AUDIO_DATA, sourceName, buffer));
-		commandThread.interrupt();
+		wakeCommandThread();
 	}
 
 	/**
@@ -1032,7 +1355,7 @@ public class SoundSystem {
 	 */
 	public void play(String sourceName) {
 		commandQueue(new CommandObject(CommandObject.PLAY, sourceName));
-		commandThread.interrupt();
+		wakeCommandThread();
 	}
 
 	/**
@@ -1042,7 +1365,7 @@ public class SoundSystem {
 	 */
 	public void pause(String sourceName) {
 		commandQueue(new CommandObject(CommandObject.PAUSE, sourceName));
-		commandThread.interrupt();
+		wakeCommandThread();
 	}
 
 	/**
@@ -1052,7 +1375,7 @@ public class SoundSystem {
 	 */
 	public void stop(String sourceName) {
 		commandQueue(new CommandObject(CommandObject.STOP, sourceName));
-		commandThread.interrupt();
+		wakeCommandThread();
 	}
 
 	/**
@@ -1062,7 +1385,7 @@ public class SoundSystem {
 	 */
 	public void rewind(String sourceName) {
 		commandQueue(new CommandObject(CommandObject.REWIND, sourceName));
-		commandThread.interrupt();
+		wakeCommandThread();
 	}
 
 	/**
@@ -1072,7 +1395,7 @@ public class SoundSystem {
 	 */
 	public void flush(String sourceName) {
 		commandQueue(new CommandObject(CommandObject.FLUSH, sourceName));
-		commandThread.interrupt();
+		wakeCommandThread();
 	}
 
 	/**
@@ -1083,7 +1406,7 @@ public class SoundSystem {
 	 */
 	public void cull(String sourceName) {
 		commandQueue(new CommandObject(CommandObject.CULL, sourceName));
-		commandThread.interrupt();
+		wakeCommandThread();
 	}
 
 	/**
@@ -1094,7 +1417,7 @@ public class SoundSystem {
 	 */
 	public void activate(String sourceName) {
 		commandQueue(new CommandObject(CommandObject.ACTIVATE, sourceName));
-		commandThread.interrupt();
+		wakeCommandThread();
 	}
 
 	/**
@@ -1112,7 +1435,7 @@ public class SoundSystem {
 	 */
 	public void setTemporary(String sourceName, boolean temporary) {
 		commandQueue(new CommandObject(CommandObject.SET_TEMPORARY, sourceName, temporary));
-		commandThread.interrupt();
+		wakeCommandThread();
 	}
 
 	/**
@@ -1122,7 +1445,273 @@ public class SoundSystem {
 	 */
 	public void removeSource(String sourceName) {
 		commandQueue(new CommandObject(CommandObject.REMOVE_SOURCE, sourceName));
-		commandThread.interrupt();
+		wakeCommandThread();
+	}
+
+	/**
+	 * Creates a new non-streaming source, and returns an integer handle for it.
+	 * The handle may be used in place of a source name with methods such as
+	 * {@link #setPosition(int, float, float, float) setPosition(int, ...)},
+	 * which are faster than their source name counterparts, since the source
+	 * does not have to be looked up by name every time.  The source name
+	 * generated for the new source can be found with
+	 * {@link #getSourceName(int) getSourceName()}, for use with any other
+	 * method.
+	 * See {@link SoundSystemConfig SoundSystemConfig} for more
+	 * information about Attenuation, fade distance, and roll-off factor.
+	 *
+	 * @param priority   Setting this to true will prevent other sounds from overriding this one.
+	 * @param filename   Filename/identifier of the sound file to play at this source.
+	 * @param toLoop     Should this source loop, or play only once.
+	 * @param x          X position for this source.
+	 * @param y          Y position for this source.
+	 * @param z          Z position for this source.
+	 * @param attModel   Attenuation model to use.
+	 * @param distOrRoll Either the fading distance or roll-off factor, depending on the value of "attModel".
+	 * @return The new source's handle, or SourceHandleTable.INVALID_HANDLE.
+	 */
+	public int newSourceHandle(boolean priority, String filename, boolean toLoop, float x, float y, float z, int attModel, float distOrRoll) {
+		int handle = allocateSourceHandle("newSourceHandle");
+		if (handle == SourceHandleTable.INVALID_HANDLE) return handle;
+		newSource(priority, sourceHandles.getName(handle), filename, toLoop, x, y, z, attModel, distOrRoll);
+		return handle;
+	}
+
+	/**
+	 * Creates a new streaming source, and returns an integer handle for it.
+	 * See {@link #newSourceHandle(boolean, String, boolean, float, float, float, int, float) newSourceHandle()}
+	 * for more information about source handles.
+	 *
+	 * @param priority   Setting this to true will prevent other sounds from overriding this one.
+	 * @param filename   The filename of the sound file to play at this source.
+	 * @param toLoop     Should this source loop, or play only once.
+	 * @param x          X position for this source.
+	 * @param y          Y position for this source.
+	 * @param z          Z position for this source.
+	 * @param attModel   Attenuation model to use.
+	 * @param distOrRoll Either the fading distance or roll-off factor, depending on the value of "attModel".
+	 * @return The new source's handle, or SourceHandleTable.INVALID_HANDLE.
+	 */
+	public int newStreamingSourceHandle(boolean priority, String filename, boolean toLoop, float x, float y, float z, int attModel, float distOrRoll) {
+		int handle = allocateSourceHandle("newStreamingSourceHandle");
+		if (handle == SourceHandleTable.INVALID_HANDLE) return handle;
+		newStreamingSource(priority, sourceHandles.getName(handle), filename, toLoop, x, y, z, attModel, distOrRoll);
+		return handle;
+	}
+
+	/**
+	 * Creates a temporary source, plays it, and returns an integer handle for
+	 * it.  After the source finishes playing, it is removed and the handle is no
+	 * longer valid.  Unlike quickPlay(), no random source name is generated.
+	 * See {@link #newSourceHandle(boolean, String, boolean, float, float, float, int, float) newSourceHandle()}
+	 * for more information about source handles.
+	 *
+	 * @param priority   Setting this to true will prevent other sounds from overriding this one.
+	 * @param filename   Filename/identifier of the sound file to play at this source.
+	 * @param toLoop     Should this source loop, or play only once.
+	 * @param x          X position for this source.
+	 * @param y          Y position for this source.
+	 * @param z          Z position for this source.
+	 * @param attModel   Attenuation model to use.
+	 * @param distOrRoll Either the fading distance or roll-off factor, depending on the value of "attModel".
+	 * @return The new source's handle, or SourceHandleTable.INVALID_HANDLE.
+	 */
+	public int quickPlayHandle(boolean priority, String filename, boolean toLoop, float x, float y, float z, int attModel, float distOrRoll) {
+		return quickHandle("quickPlayHandle", priority, false, filename, toLoop, x, y, z, attModel, distOrRoll);
+	}
+
+	/**
+	 * Creates a temporary streaming source, plays it, and returns an integer
+	 * handle for it.  See
+	 * {@link #quickPlayHandle(boolean, String, boolean, float, float, float, int, float) quickPlayHandle()}
+	 * for more information.
+	 *
+	 * @param priority   Setting this to true will prevent other sounds from overriding this one.
+	 * @param filename   Filename/identifier of the sound file to play at this source.
+	 * @param toLoop     Should this source loop, or play only once.
+	 * @param x          X position for this source.
+	 * @param y          Y position for this source.
+	 * @param z          Z position for this source.
+	 * @param attModel   Attenuation model to use.
+	 * @param distOrRoll Either the fading distance or roll-off factor, depending on the value of "attModel".
+	 * @return The new source's handle, or SourceHandleTable.INVALID_HANDLE.
+	 */
+	public int quickStreamHandle(boolean priority, String filename, boolean toLoop, float x, float y, float z, int attModel, float distOrRoll) {
+		return quickHandle("quickStreamHandle", priority, true, filename, toLoop, x, y, z, attModel, distOrRoll);
+	}
+
+	/**
+	 * Returns an integer handle for an existing source which was created by
+	 * name.  A handle is allocated the first time, and the same handle is
+	 * returned after that until the source is removed.
+	 *
+	 * @param sourceName Identifier for the source.
+	 * @return A handle for the source, or SourceHandleTable.INVALID_HANDLE.
+	 */
+	public int getSourceHandle(String sourceName) {
+		if (sourceName == null) return SourceHandleTable.INVALID_HANDLE;
+		SourceHandleTable handles = sourceHandles;
+		if (handles == null) return SourceHandleTable.INVALID_HANDLE;
+		return handles.lookup(sourceName);
+	}
+
+	/**
+	 * Returns the name of the source the specified handle refers to.
+	 *
+	 * @param handle Handle for the source.
+	 * @return The source name, or null if the handle is no longer valid.
+	 */
+	public String getSourceName(int handle) {
+		SourceHandleTable handles = sourceHandles;
+		if (handles == null) return null;
+		return handles.getName(handle);
+	}
+
+	/**
+	 * Move a source to the specified location.
+	 *
+	 * @param handle Handle for the source.
+	 * @param x      destination X coordinate.
+	 * @param y      destination Y coordinate.
+	 * @param z      destination Z coordinate.
+	 */
+	public void setPosition(int handle, float x, float y, float z) {
+		commandQueue(CommandObject.obtain(CommandObject.SET_POSITION, handle, x, y, z));
+		wakeCommandThread();
+	}
+
+	/**
+	 * Sets the specified source's velocity, for use in Doppler effect.
+	 *
+	 * @param handle Handle for the source.
+	 * @param x      Velocity along world x-axis.
+	 * @param y      Velocity along world y-axis.
+	 * @param z      Velocity along world z-axis.
+	 */
+	public void setVelocity(int handle, float x, float y, float z) {
+		commandQueue(CommandObject.obtain(CommandObject.SET_VELOCITY, handle, x, y, z));
+		wakeCommandThread();
+	}
+
+	/**
+	 * Manually sets the specified source's volume.
+	 *
+	 * @param handle Handle for the source.
+	 * @param value  New volume, float value ( 0.0f - 1.0f ).
+	 */
+	public void setVolume(int handle, float value) {
+		commandQueue(CommandObject.obtain(CommandObject.SET_VOLUME, handle, value));
+		wakeCommandThread();
+	}
+
+	/**
+	 * Manually sets the specified source's pitch.
+	 *
+	 * @param handle Handle for the source.
+	 * @param value  A float value ( 0.5f - 2.0f ).
+	 */
+	public void setPitch(int handle, float value) {
+		commandQueue(CommandObject.obtain(CommandObject.SET_PITCH, handle, value));
+		wakeCommandThread();
+	}
+
+	/**
+	 * Plays the specified source.
+	 *
+	 * @param handle Handle for the source.
+	 */
+	public void play(int handle) {
+		commandQueue(new CommandObject(CommandObject.PLAY, (String) null, handle));
+		wakeCommandThread();
+	}
+
+	/**
+	 * Pauses the specified source.
+	 *
+	 * @param handle Handle for the source.
+	 */
+	public void pause(int handle) {
+		commandQueue(new CommandObject(CommandObject.PAUSE, (String) null, handle));
+		wakeCommandThread();
+	}
+
+	/**
+	 * Stops the specified source.
+	 *
+	 * @param handle Handle for the source.
+	 */
+	public void stop(int handle) {
+		commandQueue(new CommandObject(CommandObject.STOP, (String) null, handle));
+		wakeCommandThread();
+	}
+
+	/**
+	 * Rewinds the specified source.
+	 *
+	 * @param handle Handle for the source.
+	 */
+	public void rewind(int handle) {
+		commandQueue(new CommandObject(CommandObject.REWIND, (String) null, handle));
+		wakeCommandThread();
+	}
+
+	/**
+	 * Removes the specified source and clears up any memory it used.  The handle
+	 * is no longer valid once the source has been removed.
+	 *
+	 * @param handle Handle for the source.
+	 */
+	public void removeSource(int handle) {
+		String sourceName = getSourceName(handle);
+		if (sourceName == null) return;
+		commandQueue(new CommandObject(CommandObject.REMOVE_SOURCE, sourceName, handle));
+		wakeCommandThread();
+	}
+
+	/**
+	 * Allocates a handle with a generated source name.
+	 *
+	 * @param methodName Name of the calling method, for error messages.
+	 * @return The new handle, or SourceHandleTable.INVALID_HANDLE.
+	 */
+	private int allocateSourceHandle(String methodName) {
+		SourceHandleTable handles = sourceHandles;
+		if (handles == null) {
+			errorMessage("Source handle table null in method '" + methodName + "'", 0);
+			return SourceHandleTable.INVALID_HANDLE;
+		}
+		int handle = handles.allocate(null);
+		if (handle == SourceHandleTable.INVALID_HANDLE) errorMessage("Out of source handles in method '" + methodName + "'", 0);
+		return handle;
+	}
+
+	/**
+	 * Creates a temporary source with a handle, and plays it.
+	 *
+	 * @param methodName Name of the calling method, for error messages.
+	 * @param priority   Setting this to true will prevent other sounds from overriding this one.
+	 * @param toStream   Whether to stream the source.
+	 * @param filename   Filename/identifier of the sound file to play at this source.
+	 * @param toLoop     Should this source loop, or play only once.
+	 * @param x          X position for this source.
+	 * @param y          Y position for this source.
+	 * @param z          Z position for this source.
+	 * @param attModel   Attenuation model to use.
+	 * @param distOrRoll Either the fading distance or roll-off factor, depending on the value of "attModel".
+	 * @return The new source's handle, or SourceHandleTable.INVALID_HANDLE.
+	 */
+	private int quickHandle(String methodName, boolean priority, boolean toStream, String filename, boolean toLoop, float x, float y, float z, int attModel, float distOrRoll) {
+		int handle = allocateSourceHandle(methodName);
+		if (handle == SourceHandleTable.INVALID_HANDLE) return handle;
+		String sourceName = sourceHandles.getName(handle);
+
+		// Queue a command to quick play this new source:
+		commandQueue(new CommandObject(CommandObject.QUICK_PLAY, priority, toStream, toLoop, sourceName, new FilenameURL(filename), x, y, z, attModel, distOrRoll, true));
+		commandQueue(new CommandObject(CommandObject.PLAY, sourceName));
+		// Wake the command thread to process commands:
+		wakeCommandThread();
+
+		return handle;
 	}
 
 	/**
@@ -1133,8 +1722,8 @@ public class SoundSystem {
 	 * @param z Z offset.
 	 */
 	public void moveListener(float x, float y, float z) {
-		commandQueue(new CommandObject(CommandObject.MOVE_LISTENER, x, y, z));
-		commandThread.interrupt();
+		commandQueue(CommandObject.obtain(CommandObject.MOVE_LISTENER, x, y, z));
+		wakeCommandThread();
 	}
 
 	/**
@@ -1145,8 +1734,8 @@ public class SoundSystem {
 	 * @param z Destination Z coordinate.
 	 */
 	public void setListenerPosition(float x, float y, float z) {
-		commandQueue(new CommandObject(CommandObject.SET_LISTENER_POSITION, x, y, z));
-		commandThread.interrupt();
+		commandQueue(CommandObject.obtain(CommandObject.SET_LISTENER_POSITION, x, y, z));
+		wakeCommandThread();
 	}
 
 	/**
@@ -1157,7 +1746,7 @@ public class SoundSystem {
 	 */
 	public void turnListener(float angle) {
 		commandQueue(new CommandObject(CommandObject.TURN_LISTENER, angle));
-		commandThread.interrupt();
+		wakeCommandThread();
 	}
 
 	/**
@@ -1167,7 +1756,7 @@ public class SoundSystem {
 	 */
 	public void setListenerAngle(float angle) {
 		commandQueue(new CommandObject(CommandObject.SET_LISTENER_ANGLE, angle));
-		commandThread.interrupt();
+		wakeCommandThread();
 	}
 
 	/**
@@ -1181,8 +1770,8 @@ public class SoundSystem {
 	 * @param upZ   Z coordinate of the (normalized) up-direction vector.
 	 */
 	public void setListenerOrientation(float lookX, float lookY, float lookZ, float upX, float upY, float upZ) {
-		commandQueue(new CommandObject(CommandObject.SET_LISTENER_ORIENTATION, lookX, lookY, lookZ, upX, upY, upZ));
-		commandThread.interrupt();
+		commandQueue(CommandObject.obtain(CommandObject.SET_LISTENER_ORIENTATION, lookX, lookY, lookZ, upX, upY, upZ));
+		wakeCommandThread();
 	}
 
 	/**
@@ -1192,7 +1781,7 @@ public class SoundSystem {
 	 */
 	public void setMasterVolume(float value) {
 		commandQueue(new CommandObject(CommandObject.SET_MASTER_VOLUME, value));
-		commandThread.interrupt();
+		wakeCommandThread();
 	}
 
 	/**
@@ -1249,6 +1838,7 @@ public class SoundSystem {
 					midiFilenameURL = midiChannel.getFilenameURL();
 				}
 
+				SoundSystemConfig.setFloatOutputSupported(false);
 				soundLibrary.cleanup();
 				soundLibrary = null;
 			}
@@ -1276,6 +1866,7 @@ public class SoundSystem {
 				initialized(SET, true);
 				throw sse;
 			}
+			SoundSystemConfig.setFloatOutputSupported(soundLibrary.supportsFloatOutput());
 
 			soundLibrary.setListenerData(listenerData);
 			if (wasMidiChannel) {
@@ -1305,11 +1896,11 @@ public class SoundSystem {
 		initialized(SET, false);
 
 		commandQueue(new CommandObject(CommandObject.NEW_LIBRARY, libraryClass));
-		commandThread.interrupt();
+		commandThread.wake();
 
 		for (int x = 0; (!initialized(GET, XXX)) && (x < 100); x++) {
 			snooze(400);
-			commandThread.interrupt();
+			commandThread.wake();
 		}
 
 		if (!initialized(GET, XXX)) {
@@ -1340,6 +1931,7 @@ public class SoundSystem {
 			currentLibrary(SET, null);
 			// we are switching libraries
 			headerMessage = "Switching to ";
+			SoundSystemConfig.setFloatOutputSupported(false);
 			soundLibrary.cleanup();
 			soundLibrary = null;
 		}
@@ -1372,6 +1964,7 @@ public class SoundSystem {
 			initialized(SET, true);
 			return;
 		}
+		SoundSystemConfig.setFloatOutputSupported(soundLibrary.supportsFloatOutput());
 
 		lastException(SET, null);
 		initialized(SET, true);
@@ -1390,6 +1983,7 @@ public class SoundSystem {
 				throw sse;
 			}
 			soundLibrary.init();
+			SoundSystemConfig.setFloatOutputSupported(soundLibrary.supportsFloatOutput());
 		} catch (SoundSystemException sse) {
 			lastException(SET, sse);
 			initialized(SET, true);
@@ -1402,10 +1996,249 @@ public class SoundSystem {
 	 * called directly - please use the loadSound() method instead.
 	 *
 	 * @param filenameURL Filename/URL of the sound file to load.
+	 * @param loaded      Handle to complete once the sound has been loaded, or null.
 	 */
-	private void CommandLoadSound(FilenameURL filenameURL) {
-		if (soundLibrary != null) soundLibrary.loadSound(filenameURL);
-		else errorMessage("Variable 'soundLibrary' null in method 'CommandLoadSound'", 0);
+	private void CommandLoadSound(FilenameURL filenameURL, CompletableFuture<Boolean> loaded) {
+		if (soundLibrary != null) {
+			// Decode on a load thread if possible:
+			if (startLoad(filenameURL, loaded)) return;
+			boolean result = soundLibrary.loadSound(filenameURL);
+			soundLibrary.enforceBufferBudget();
+			if (loaded != null) loaded.complete(result);
+		} else {
+			errorMessage("Variable 'soundLibrary' null in method 'CommandLoadSound'", 0);
+			if (loaded != null) loaded.complete(false);
+		}
+	}
+
+	/**
+	 * Returns the handle passed along with a LOAD_SOUND command.
+	 *
+	 * @param commandObject LOAD_SOUND command.
+	 * @return Handle to complete once the sound has been loaded, or null.
+	 */
+	@SuppressWarnings("unchecked")
+	private static CompletableFuture<Boolean> loadHandle(CommandObject commandObject) {
+		if (commandObject.objectArgs.length < 2) return null;
+		return (CompletableFuture<Boolean>) commandObject.objectArgs[1];
+	}
+
+	/**
+	 * Starts decoding the specified sound on a load thread.  This method is used
+	 * internally by SoundSystem on the Command Thread.
+	 *
+	 * @param filenameURL Filename/URL of the sound file to load.
+	 * @param loaded      Handle to complete once the sound has been loaded, or null.
+	 * @return False if the sound is already loaded or can't be loaded on a load thread.
+	 */
+	private boolean startLoad(FilenameURL filenameURL, CompletableFuture<Boolean> loaded) {
+		ExecutorService pool = loadPool;
+		if (pool == null || filenameURL == null || soundLibrary == null || !soundLibrary.supportsAsyncLoading() || soundLibrary.isSoundLoaded(filenameURL.getFilename()))
+			return false;
+
+		SoundLoad load = new SoundLoad(filenameURL, soundLibrary, loaded == null ? new CompletableFuture<>() : loaded);
+		pendingLoads.put(filenameURL.getFilename(), load);
+		try {
+			pool.execute(() -> {
+				decode(load);
+				// Hand the sound back to the Command Thread:
+				finishedLoads.add(Collections.singletonList(load));
+				wakeCommandThread();
+			});
+		} catch (RejectedExecutionException e) {
+			pendingLoads.remove(filenameURL.getFilename());
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Loads several sounds, decoding the ones which aren't loaded yet in
+	 * parallel on the bulk load threads.  This method is used internally by
+	 * SoundSystem for thread synchronization, and it can not be called directly
+	 * - please use the loadSounds() method instead.
+	 *
+	 * @param sounds   Filenames/URLs of the sound files to load.
+	 * @param bulkLoad Progress of the load.
+	 */
+	private void CommandLoadSounds(List<?> sounds, BulkLoad bulkLoad) {
+		if (soundLibrary == null) {
+			errorMessage("Variable 'soundLibrary' null in method 'CommandLoadSounds'", 0);
+			for (int i = 0; i < sounds.size(); i++) {
+				bulkLoad.track(CompletableFuture.completedFuture(false));
+			}
+			return;
+		}
+
+		ForkJoinPool pool = bulkLoadPool;
+		boolean async = pool != null && !pool.isShutdown() && soundLibrary.supportsAsyncLoading();
+		List<SoundLoad> loads = new ArrayList<>();
+		boolean loadedHere = false;
+		for (Object sound : sounds) {
+			FilenameURL filenameURL = (FilenameURL) sound;
+			SoundLoad pending = filenameURL == null ? null : pendingLoads.get(filenameURL.getFilename());
+			if (pending != null) {
+				// Already decoding:
+				bulkLoad.track(pending.loaded);
+			} else if (!async || filenameURL == null || soundLibrary.isSoundLoaded(filenameURL.getFilename())) {
+				bulkLoad.track(CompletableFuture.completedFuture(soundLibrary.loadSound(filenameURL)));
+				loadedHere = true;
+			} else {
+				SoundLoad load = new SoundLoad(filenameURL, soundLibrary, new CompletableFuture<>());
+				pendingLoads.put(filenameURL.getFilename(), load);
+				loads.add(load);
+				bulkLoad.track(load.loaded);
+			}
+		}
+		if (loadedHere) soundLibrary.enforceBufferBudget();
+		if (loads.isEmpty()) return;
+
+		bulkLoad.decodingStarted();
+		CompletableFuture<?>[] decodes = new CompletableFuture<?>[loads.size()];
+		for (int i = 0; i < decodes.length; i++) {
+			SoundLoad load = loads.get(i);
+			try {
+				decodes[i] = CompletableFuture.runAsync(() -> {
+					decode(load);
+					if (load.buffer != null && load.buffer.audioData != null) bulkLoad.addDecodedBytes(load.buffer.audioData.length);
+				}, pool);
+			} catch (RejectedExecutionException e) {
+				// Shutting down, the sound will not be loaded:
+				decodes[i] = CompletableFuture.completedFuture(null);
+			}
+		}
+		// Once every sound is decoded, hand them all back to the Command Thread
+		// together:
+		CompletableFuture.allOf(decodes).whenComplete((result, exception) -> {
+			bulkLoad.decodingFinished();
+			finishedLoads.add(loads);
+			wakeCommandThread();
+		});
+		bulkLoad.getCompletion().thenRun(() -> message("Loaded " + bulkLoad.getSoundCount() + " sounds, decoded " + (bulkLoad.getDecodedBytes() / 1024) + " KB in " + (bulkLoad.getDecodeTime() / 1000000) + " ms (" + (long) (bulkLoad.getThroughput() / 1024) + " KB/s)", 0));
+	}
+
+	/**
+	 * Decodes a sound on a load thread.
+	 *
+	 * @param load Sound to decode.
+	 */
+	private void decode(SoundLoad load) {
+		try {
+			load.buffer = load.library.decodeSound(load.filenameURL);
+		} catch (RuntimeException e) {
+			errorMessage("Problem decoding '" + load.filenameURL.getFilename() + "': " + e.getMessage(), 0);
+		}
+	}
+
+	/**
+	 * Adds sounds which have finished decoding to the sound library in one
+	 * step, and completes their handles.  This method is used internally by
+	 * SoundSystem on the Command Thread.
+	 *
+	 * @param loads Sounds which have finished decoding.
+	 * @return Commands which were waiting for the sounds, to execute now, or null.
+	 */
+	private CommandObject[] finishLoads(List<SoundLoad> loads) {
+		List<CommandObject> waiting = null;
+		for (SoundLoad load : loads) {
+			String filename = load.filenameURL.getFilename();
+			if (pendingLoads.get(filename) == load) pendingLoads.remove(filename);
+
+			boolean result = false;
+			if (soundLibrary != null) {
+				if (soundLibrary != load.library) {
+					// The library was switched while decoding, decode for the new one:
+					if (startLoad(load.filenameURL, load.loaded)) continue;
+					result = soundLibrary.loadSound(load.filenameURL);
+				} else if (load.buffer != null) {
+					result = soundLibrary.loadSound(load.buffer, filename);
+				}
+			}
+			load.loaded.complete(result);
+
+			List<CommandObject> commands = deferredCommands.remove(filename);
+			if (commands != null) {
+				deferredSources.values().removeIf(filename::equals);
+				if (waiting == null) waiting = commands;
+				else waiting.addAll(commands);
+			}
+		}
+		if (soundLibrary != null) soundLibrary.enforceBufferBudget();
+		return waiting == null ? null : waiting.toArray(new CommandObject[0]);
+	}
+
+	/**
+	 * Holds on to a command which has to wait for a sound to finish loading.
+	 * Commands which create a non-streaming source for a sound that isn't
+	 * loaded yet start loading it, then wait along with every later command for
+	 * the same source.  A command which already waited for a load never starts
+	 * another one, so a sound which fails to decode is tried once more by the
+	 * command itself, which reports the error.  This method is used internally
+	 * by SoundSystem on the Command Thread.
+	 *
+	 * @param commandObject Command about to be executed.
+	 * @param replayed      True if the command already waited for a load.
+	 * @return True if the command will be executed after the sound loads.
+	 */
+	private boolean deferCommand(CommandObject commandObject, boolean replayed) {
+		String filename;
+		String sourceName = null;
+		switch (commandObject.Command) {
+			case CommandObject.LOAD_SOUND:
+				FilenameURL loadURL = (FilenameURL) commandObject.objectArgs[0];
+				filename = (loadURL != null && pendingLoads.containsKey(loadURL.getFilename())) ? loadURL.getFilename() : null;
+				break;
+			case CommandObject.UNLOAD_SOUND:
+				filename = pendingLoads.containsKey(commandObject.stringArgs[0]) ? commandObject.stringArgs[0] : null;
+				break;
+			case CommandObject.NEW_SOURCE:
+			case CommandObject.QUICK_PLAY:
+				sourceName = commandObject.stringArgs[0];
+				filename = deferredSources.get(sourceName);
+				FilenameURL sourceURL = (FilenameURL) commandObject.objectArgs[0];
+				if (filename == null && !commandObject.boolArgs[1] && sourceURL != null && !(sourceURL.getFilename().matches(SoundSystemConfig.EXTENSION_MIDI) && !SoundSystemConfig.midiCodec())) {
+					if (pendingLoads.containsKey(sourceURL.getFilename()) || (!replayed && startLoad(sourceURL, null)))
+						filename = sourceURL.getFilename();
+				}
+				break;
+			case CommandObject.RAW_DATA_STREAM:
+				sourceName = commandObject.stringArgs[0];
+				filename = deferredSources.get(sourceName);
+				break;
+			case CommandObject.QUEUE_SOUND:
+			case CommandObject.DEQUEUE_SOUND:
+			case CommandObject.FADE_OUT:
+			case CommandObject.FADE_OUT_IN:
+			case CommandObject.SET_POSITION:
+			case CommandObject.SET_VOLUME:
+			case CommandObject.SET_PITCH:
+			case CommandObject.SET_PRIORITY:
+			case CommandObject.SET_LOOPING:
+			case CommandObject.SET_ATTENUATION:
+			case CommandObject.SET_DIST_OR_ROLL:
+			case CommandObject.SET_VELOCITY:
+			case CommandObject.PLAY:
+			case CommandObject.FEED_RAW_AUDIO_DATA:
+			case CommandObject.PAUSE:
+			case CommandObject.STOP:
+			case CommandObject.REWIND:
+			case CommandObject.FLUSH:
+			case CommandObject.CULL:
+			case CommandObject.ACTIVATE:
+			case CommandObject.SET_TEMPORARY:
+			case CommandObject.REMOVE_SOURCE:
+				if (deferredSources.isEmpty()) return false;
+				String name = hasSourceHandle(commandObject) ? sourceHandles.getName(commandObject.intArgs[0]) : commandObject.stringArgs[0];
+				filename = name == null ? null : deferredSources.get(name);
+				break;
+			default:
+				return false;
+		}
+		if (filename == null) return false;
+
+		deferredCommands.computeIfAbsent(filename, key -> new ArrayList<>()).add(commandObject);
+		if (sourceName != null) deferredSources.put(sourceName, filename);
+		return true;
 	}
 
 	/**
@@ -1419,8 +2252,10 @@ public class SoundSystem {
 	 * @param identifier What to call the sample.
 	 */
 	private void CommandLoadSound(SoundBuffer buffer, String identifier) {
-		if (soundLibrary != null) soundLibrary.loadSound(buffer, identifier);
-		else errorMessage("Variable 'soundLibrary' null in method 'CommandLoadSound'", 0);
+		if (soundLibrary != null) {
+			if (soundLibrary.loadSound(buffer, identifier)) soundLibrary.setPermanent(identifier);
+			soundLibrary.enforceBufferBudget();
+		} else errorMessage("Variable 'soundLibrary' null in method 'CommandLoadSound'", 0);
 	}
 
 	/**
@@ -1547,7 +2382,12 @@ public class SoundSystem {
 			if (filenameURL.getFilename().matches(SoundSystemConfig.EXTENSION_MIDI) && !SoundSystemConfig.midiCodec()) {
 				soundLibrary.loadMidi(toLoop, sourceName, filenameURL);
 			} else {
+				soundLibrary.releaseReplacedSource(sourceName);
+				if (!toStream) soundLibrary.countBufferLookup(filenameURL.getFilename());
 				soundLibrary.newSource(priority, toStream, toLoop, sourceName, filenameURL, x, y, z, attModel, distOrRoll);
+				soundLibrary.sourceChanged(sourceName);
+				if (!toStream) soundLibrary.enforceBufferBudget();
+				soundLibrary.freeUnusedSounds();
 			}
 		} else errorMessage("Variable 'soundLibrary' null in method 'CommandNewSource'", 0);
 	}
@@ -1567,9 +2407,10 @@ public class SoundSystem {
 	 * @param distOrRoll  Either the fading distance or roll-off factor, depending on the value of "attModel".
 	 */
 	private void CommandRawDataStream(AudioFormat audioFormat, boolean priority, String sourceName, float x, float y, float z, int attModel, float distOrRoll) {
-		if (soundLibrary != null)
+		if (soundLibrary != null) {
 			soundLibrary.rawDataStream(audioFormat, priority, sourceName, x, y, z, attModel, distOrRoll);
-		else errorMessage("Variable 'soundLibrary' null in method 'CommandRawDataStream'", 0);
+			soundLibrary.sourceChanged(sourceName);
+		} else errorMessage("Variable 'soundLibrary' null in method 'CommandRawDataStream'", 0);
 	}
 
 	/**
@@ -1595,7 +2436,12 @@ public class SoundSystem {
 			if (filenameURL.getFilename().matches(SoundSystemConfig.EXTENSION_MIDI) && !SoundSystemConfig.midiCodec()) {
 				soundLibrary.loadMidi(toLoop, sourceName, filenameURL);
 			} else {
+				soundLibrary.releaseReplacedSource(sourceName);
+				if (!toStream) soundLibrary.countBufferLookup(filenameURL.getFilename());
 				soundLibrary.quickPlay(priority, toStream, toLoop, sourceName, filenameURL, x, y, z, attModel, distOrRoll, temporary);
+				soundLibrary.sourceChanged(sourceName);
+				if (!toStream) soundLibrary.enforceBufferBudget();
+				soundLibrary.freeUnusedSounds();
 			}
 		} else errorMessage("Variable 'soundLibrary' null in method 'CommandQuickPlay'", 0);
 	}
@@ -1615,6 +2461,22 @@ public class SoundSystem {
 		else errorMessage("Variable 'soundLibrary' null in method 'CommandMoveSource'", 0);
 	}
 
+	/**
+	 * Moves the source with the specified handle to the specified coordinates.
+	 * This method is used internally by SoundSystem for thread synchronization,
+	 * and it can not be called directly - please use the setPosition() method
+	 * instead.
+	 *
+	 * @param handle Handle for the source to move.
+	 * @param x      Destination X coordinate.
+	 * @param y      Destination Y coordinate.
+	 * @param z      Destination Z coordinate.
+	 */
+	private void CommandSetPosition(int handle, float x, float y, float z) {
+		if (soundLibrary != null) soundLibrary.setPosition(sourceHandles.getSource(handle, soundLibrary), x, y, z);
+		else errorMessage("Variable 'soundLibrary' null in method 'CommandMoveSource'", 0);
+	}
+
 	/**
 	 * Manually sets the specified source's volume.  This method is used
 	 * internally by SoundSystem for thread synchronization, and it can not be
@@ -1628,6 +2490,23 @@ public class SoundSystem {
 		else errorMessage("Variable 'soundLibrary' null in method 'CommandSetVolume'", 0);
 	}
 
+	/**
+	 * Manually sets the volume of the source with the specified handle.  This
+	 * method is used internally by SoundSystem for thread synchronization, and
+	 * it can not be called directly - please use the setVolume() method instead.
+	 *
+	 * @param handle Handle for the source to change the volume of.
+	 * @param value  New volume, float value ( 0.0f - 1.0f ).
+	 */
+	private void CommandSetVolume(int handle, float value) {
+		if (soundLibrary != null) {
+			Source source = sourceHandles.getSource(handle, soundLibrary);
+			// The handle might refer to the MIDI source, which is looked up by name:
+			if (source != null) soundLibrary.setVolume(source, value);
+			else CommandSetVolume(sourceHandles.getName(handle), value);
+		} else errorMessage("Variable 'soundLibrary' null in method 'CommandSetVolume'", 0);
+	}
+
 	/**
 	 * Manually sets the specified source's pitch.  This method is used
 	 * internally by SoundSystem for thread synchronization, and it can not be
@@ -1641,6 +2520,19 @@ public class SoundSystem {
 		else errorMessage("Variable 'soundLibrary' null in method 'CommandSetPitch'", 0);
 	}
 
+	/**
+	 * Manually sets the pitch of the source with the specified handle.  This
+	 * method is used internally by SoundSystem for thread synchronization, and
+	 * it can not be called directly - please use the setPitch() method instead.
+	 *
+	 * @param handle Handle for the source to change the pitch of.
+	 * @param value  New pitch, float value ( 0.5f - 2.0f ).
+	 */
+	private void CommandSetPitch(int handle, float value) {
+		if (soundLibrary != null) soundLibrary.setPitch(sourceHandles.getSource(handle, soundLibrary), value);
+		else errorMessage("Variable 'soundLibrary' null in method 'CommandSetPitch'", 0);
+	}
+
 	/**
 	 * Set a source's priority factor.  A priority source will not be overridden when
 	 * too many sources are playing at once.  This method is used
@@ -1745,6 +2637,32 @@ public class SoundSystem {
 		else errorMessage("Variable 'soundLibrary' null in method 'CommandVelocity'", 0);
 	}
 
+	/**
+	 * Changes the velocity of the source with the specified handle, for use in
+	 * Doppler effect.  This method is used internally by SoundSystem for thread
+	 * synchronization, and it can not be called directly - please use the
+	 * setVelocity() method instead.
+	 *
+	 * @param handle Handle for the source.
+	 * @param x      Source's velocity along the world x-axis.
+	 * @param y      Source's velocity along the world y-axis.
+	 * @param z      Source's velocity along the world z-axis.
+	 */
+	private void CommandSetVelocity(int handle, float x, float y, float z) {
+		if (soundLibrary != null) soundLibrary.setVelocity(sourceHandles.getSource(handle, soundLibrary), x, y, z);
+		else errorMessage("Variable 'soundLibrary' null in method 'CommandVelocity'", 0);
+	}
+
+	/**
+	 * Checks if a command refers to its source by handle rather than by name.
+	 *
+	 * @param commandObject Command to check.
+	 * @return True if the command's first int argument is a source handle.
+	 */
+	private boolean hasSourceHandle(CommandObject commandObject) {
+		return sourceHandles != null && commandObject.stringArgs[0] == null && commandObject.intArgs != null && commandObject.intArgs[0] != SourceHandleTable.INVALID_HANDLE;
+	}
+
 	/**
 	 * Changes the listener's velocity, for use in Doppler effect.  This method is
 	 * used internally by SoundSystem for thread synchronization, and it can not be
@@ -1773,6 +2691,23 @@ public class SoundSystem {
 		else errorMessage("Variable 'soundLibrary' null in method 'CommandPlay'", 0);
 	}
 
+	/**
+	 * Plays the source with the specified handle.  This method is used
+	 * internally by SoundSystem for thread synchronization, and it can not be
+	 * called directly - please use the play() method instead.
+	 *
+	 * @param handle Handle for the source.
+	 */
+	private void CommandPlay(int handle) {
+		if (soundLibrary != null) {
+			Source source = sourceHandles.getSource(handle, soundLibrary);
+			// The handle might refer to the MIDI source, which is looked up by name:
+			String sourceName;
+			if (source != null) soundLibrary.play(source);
+			else if ((sourceName = sourceHandles.getName(handle)) != null) CommandPlay(sourceName);
+		} else errorMessage("Variable 'soundLibrary' null in method 'CommandPlay'", 0);
+	}
+
 	/**
 	 * Feeds raw data through the specified source.  The source must be a
 	 * streaming source, and it can not be already associated with a file or URL to
@@ -1800,6 +2735,23 @@ public class SoundSystem {
 		else errorMessage("Variable 'soundLibrary' null in method 'CommandPause'", 0);
 	}
 
+	/**
+	 * Pauses the source with the specified handle.  This method is used
+	 * internally by SoundSystem for thread synchronization, and it can not be
+	 * called directly - please use the pause() method instead.
+	 *
+	 * @param handle Handle for the source.
+	 */
+	private void CommandPause(int handle) {
+		if (soundLibrary != null) {
+			Source source = sourceHandles.getSource(handle, soundLibrary);
+			// The handle might refer to the MIDI source, which is looked up by name:
+			String sourceName;
+			if (source != null) soundLibrary.pause(source);
+			else if ((sourceName = sourceHandles.getName(handle)) != null) CommandPause(sourceName);
+		} else errorMessage("Variable 'soundLibrary' null in method 'CommandPause'", 0);
+	}
+
 	/**
 	 * Stops the specified source.  This method is used
 	 * internally by SoundSystem for thread synchronization, and it can not be
@@ -1812,6 +2764,23 @@ public class SoundSystem {
 		else errorMessage("Variable 'soundLibrary' null in method 'CommandStop'", 0);
 	}
 
+	/**
+	 * Stops the source with the specified handle.  This method is used
+	 * internally by SoundSystem for thread synchronization, and it can not be
+	 * called directly - please use the stop() method instead.
+	 *
+	 * @param handle Handle for the source.
+	 */
+	private void CommandStop(int handle) {
+		if (soundLibrary != null) {
+			Source source = sourceHandles.getSource(handle, soundLibrary);
+			// The handle might refer to the MIDI source, which is looked up by name:
+			String sourceName;
+			if (source != null) soundLibrary.stop(source);
+			else if ((sourceName = sourceHandles.getName(handle)) != null) CommandStop(sourceName);
+		} else errorMessage("Variable 'soundLibrary' null in method 'CommandStop'", 0);
+	}
+
 	/**
 	 * Rewinds the specified source.  This method is used
 	 * internally by SoundSystem for thread synchronization, and it can not be
@@ -1824,6 +2793,23 @@ public class SoundSystem {
 		else errorMessage("Variable 'soundLibrary' null in method 'CommandRewind'", 0);
 	}
 
+	/**
+	 * Rewinds the source with the specified handle.  This method is used
+	 * internally by SoundSystem for thread synchronization, and it can not be
+	 * called directly - please use the rewind() method instead.
+	 *
+	 * @param handle Handle for the source.
+	 */
+	private void CommandRewind(int handle) {
+		if (soundLibrary != null) {
+			Source source = sourceHandles.getSource(handle, soundLibrary);
+			// The handle might refer to the MIDI source, which is looked up by name:
+			String sourceName;
+			if (source != null) soundLibrary.rewind(source);
+			else if ((sourceName = sourceHandles.getName(handle)) != null) CommandRewind(sourceName);
+		} else errorMessage("Variable 'soundLibrary' null in method 'CommandRewind'", 0);
+	}
+
 	/**
 	 * Flushes all previously queued audio data from a streaming source.  This
 	 * method is used internally by SoundSystem for thread synchronization, and it
@@ -2003,196 +2989,365 @@ public class SoundSystem {
 	/**
 	 * Queues a command.
 	 * If newCommand is null, all commands are dequeued and executed.
+	 * Queuing a command never takes the {@link SoundSystemConfig#THREAD_SYNC}
+	 * lock, so callers are not held up while the Command Thread is executing
+	 * other commands.  If the queue is full, the command is handled according
+	 * to {@link SoundSystemConfig#getCommandQueueOverflow()}.
 	 * This is automatically used by the sound system, so it is not
 	 * likely that a user would ever need to use this method.
 	 * See {@link CommandObject CommandObject} for more information
 	 * about commands.
 	 *
 	 * @param newCommand Command to queue, or null to execute commands.
-	 * @return True if more commands exist, false if queue is empty.
+	 * @return True if more commands exist, false if queue is empty (or, when
+	 * queuing, false if the command could not be queued).
 	 */
 	public boolean commandQueue(CommandObject newCommand) {
+		if (newCommand != null) {
+			// If this thread has a batch open, hold on to the command until the
+			// batch is committed:
+			List<CommandObject> batch = openBatch.get();
+			if (batch != null) {
+				batch.add(newCommand);
+				return true;
+			}
+			// make sure the commandQueue exists:
+			CommandRing queue = commandQueue;
+			if (queue == null) return false;
+			// queue a new command
+			long deadline = 0;
+			while (!queue.offer(newCommand)) {
+				// The queue is full.  Never wait if that would mean waiting on
+				// ourselves, either directly or because the Command Thread
+				// needs the THREAD_SYNC lock we are holding to make room:
+				CommandThread thread = commandThread;
+				if (thread == null || thread == Thread.currentThread() || Thread.holdsLock(SoundSystemConfig.THREAD_SYNC) || SoundSystemConfig.getCommandQueueOverflow() == SoundSystemConfig.OVERFLOW_DISCARD) {
+					errorMessage("Command queue full, command discarded in method 'commandQueue'", 0);
+					return false;
+				}
+				if (deadline == 0) {
+					deadline = System.nanoTime() + QUEUE_FULL_TIMEOUT;
+				} else if (System.nanoTime() - deadline > 0) {
+					errorMessage("Timed out waiting for room in the command queue, command discarded in method 'commandQueue'", 0);
+					return false;
+				}
+				// Wake the command thread so it can make room, then try again:
+				thread.wake();
+				LockSupport.parkNanos(100000);
+			}
+			// Of course there is something in the queue now, since we just
+			// added it:
+			return true;
+		}
 		synchronized (SoundSystemConfig.THREAD_SYNC) {
-			if (newCommand == null) {
-				// New command is null - that means execute all queued commands.
-				boolean activations = false;
-				CommandObject commandObject;
-
-				// Loop through the command queue:
-				while (commandQueue != null && !commandQueue.isEmpty()) {
+			// New command is null - that means execute all queued commands.
+			boolean activations = false;
+			CommandObject commandObject;
+			CommandObject[] batch = null;
+			int batchIndex = 0;
+			long batchCommitted = 0;
+			// True while the batch holds commands which waited for a load:
+			boolean replay = false;
+			boolean replayed;
+
+			// Loop through the commands which are in the queue now.  Commands
+			// queued while this pass is running are limited to one lap of the
+			// ring, so a busy producer can't keep us here forever:
+			int remaining = commandQueue == null ? 0 : commandQueue.capacity();
+			while (commandQueue != null) {
+				if ((batch == null || batchIndex >= batch.length) && !finishedLoads.isEmpty()) {
+					// Add sounds which finished decoding, then execute the
+					// commands which were waiting for them like a batch:
+					CommandObject[] waiting = finishLoads(finishedLoads.poll());
+					if (waiting != null) {
+						batch = waiting;
+						batchIndex = 0;
+						replay = true;
+					}
+					continue;
+				}
+				if (batch != null && batchIndex < batch.length) {
+					// Finish the batch before grabbing anything else:
+					commandObject = batch[batchIndex++];
+					replayed = replay;
+				} else {
+					if (remaining-- <= 0) break;
 					// Grab the oldest command in the queue:
-					commandObject = commandQueue.remove(0);
+					commandObject = commandQueue.poll();
+					if (commandObject == null) break;
+					replayed = false;
+				}
+				// Commands for a sound which is still loading wait for it:
+				if (deferCommand(commandObject, replayed)) continue;
+				// See what it is, and execute the proper Command method:
+				switch (commandObject.Command) {
+					case CommandObject.BATCH:
+						batch = (CommandObject[]) commandObject.objectArgs[0];
+						batchIndex = 0;
+						replay = false;
+						batchCommitted = commandObject.longArgs[0];
+						break;
+					case CommandObject.INITIALIZE:
+						CommandInitialize();
+						break;
+					case CommandObject.LOAD_SOUND:
+						CommandLoadSound((FilenameURL) commandObject.objectArgs[0], loadHandle(commandObject));
+						break;
+					case CommandObject.LOAD_SOUNDS:
+						CommandLoadSounds((List<?>) commandObject.objectArgs[0], (BulkLoad) commandObject.objectArgs[1]);
+						break;
+					case CommandObject.LOAD_DATA:
+						CommandLoadSound((SoundBuffer) commandObject.objectArgs[0], commandObject.stringArgs[0]);
+						break;
+					case CommandObject.UNLOAD_SOUND:
+						CommandUnloadSound(commandObject.stringArgs[0]);
+						break;
+					case CommandObject.QUEUE_SOUND:
+						CommandQueueSound(commandObject.stringArgs[0], (FilenameURL) commandObject.objectArgs[0]);
+						break;
+					case CommandObject.DEQUEUE_SOUND:
+						CommandDequeueSound(commandObject.stringArgs[0], commandObject.stringArgs[1]);
+						break;
+					case CommandObject.FADE_OUT:
+						CommandFadeOut(commandObject.stringArgs[0], (FilenameURL) commandObject.objectArgs[0], commandObject.longArgs[0]);
+						break;
+					case CommandObject.FADE_OUT_IN:
+						CommandFadeOutIn(commandObject.stringArgs[0], (FilenameURL) commandObject.objectArgs[0], commandObject.longArgs[0], commandObject.longArgs[1]);
+						break;
+					case CommandObject.CHECK_FADE_VOLUMES:
+						CommandCheckFadeVolumes();
+						break;
+					case CommandObject.NEW_SOURCE:
+						CommandNewSource(commandObject.boolArgs[0], commandObject.boolArgs[1], commandObject.boolArgs[2], commandObject.stringArgs[0], (FilenameURL) commandObject.objectArgs[0], commandObject.floatArgs[0], commandObject.floatArgs[1], commandObject.floatArgs[2], commandObject.intArgs[0], commandObject.floatArgs[3]);
+						break;
+					case CommandObject.RAW_DATA_STREAM:
+						CommandRawDataStream((AudioFormat) commandObject.objectArgs[0], commandObject.boolArgs[0], commandObject.stringArgs[0], commandObject.floatArgs[0], commandObject.floatArgs[1], commandObject.floatArgs[2], commandObject.intArgs[0], commandObject.floatArgs[3]);
+						break;
+					case CommandObject.QUICK_PLAY:
+						CommandQuickPlay(commandObject.boolArgs[0], commandObject.boolArgs[1], commandObject.boolArgs[2], commandObject.stringArgs[0], (FilenameURL) commandObject.objectArgs[0], commandObject.floatArgs[0], commandObject.floatArgs[1], commandObject.floatArgs[2], commandObject.intArgs[0], commandObject.floatArgs[3], commandObject.boolArgs[3]);
+						break;
+					case CommandObject.SET_POSITION:
+						if (hasSourceHandle(commandObject)) CommandSetPosition(commandObject.intArgs[0], commandObject.floatArgs[0], commandObject.floatArgs[1], commandObject.floatArgs[2]);
+						else CommandSetPosition(commandObject.stringArgs[0], commandObject.floatArgs[0], commandObject.floatArgs[1], commandObject.floatArgs[2]);
+						break;
+					case CommandObject.SET_VOLUME:
+						if (hasSourceHandle(commandObject)) CommandSetVolume(commandObject.intArgs[0], commandObject.floatArgs[0]);
+						else CommandSetVolume(commandObject.stringArgs[0], commandObject.floatArgs[0]);
+						break;
+					case CommandObject.SET_PITCH:
+						if (hasSourceHandle(commandObject)) CommandSetPitch(commandObject.intArgs[0], commandObject.floatArgs[0]);
+						else CommandSetPitch(commandObject.stringArgs[0], commandObject.floatArgs[0]);
+						break;
+					case CommandObject.SET_PRIORITY:
+						CommandSetPriority(commandObject.stringArgs[0], commandObject.boolArgs[0]);
+						break;
+					case CommandObject.SET_LOOPING:
+						CommandSetLooping(commandObject.stringArgs[0], commandObject.boolArgs[0]);
+						break;
+					case CommandObject.SET_ATTENUATION:
+						CommandSetAttenuation(commandObject.stringArgs[0], commandObject.intArgs[0]);
+						break;
+					case CommandObject.SET_DIST_OR_ROLL:
+						CommandSetDistOrRoll(commandObject.stringArgs[0], commandObject.floatArgs[0]);
+						break;
+					case CommandObject.CHANGE_DOPPLER_FACTOR:
+						CommandChangeDopplerFactor(commandObject.floatArgs[0]);
+						break;
+					case CommandObject.CHANGE_DOPPLER_VELOCITY:
+						CommandChangeDopplerVelocity(commandObject.floatArgs[0]);
+						break;
+					case CommandObject.SET_VELOCITY:
+						if (hasSourceHandle(commandObject)) CommandSetVelocity(commandObject.intArgs[0], commandObject.floatArgs[0], commandObject.floatArgs[1], commandObject.floatArgs[2]);
+						else CommandSetVelocity(commandObject.stringArgs[0], commandObject.floatArgs[0], commandObject.floatArgs[1], commandObject.floatArgs[2]);
+						break;
+					case CommandObject.SET_LISTENER_VELOCITY:
+						CommandSetListenerVelocity(commandObject.floatArgs[0], commandObject.floatArgs[1], commandObject.floatArgs[2]);
+						break;
+					// Methods related to playing sources must be processed
+					// after cull/activate commands in order for source
+					// management to work properly, so save them for
+					// later:
+					//------------------------------------------------------
+					case CommandObject.PLAY:
+						sourcePlayList.add(commandObject);
+						break;
+					case CommandObject.FEED_RAW_AUDIO_DATA:
+						sourcePlayList.add(commandObject);
+						break;
+					//------------------------------------------------------
+					case CommandObject.PAUSE:
+						if (hasSourceHandle(commandObject)) CommandPause(commandObject.intArgs[0]);
+						else CommandPause(commandObject.stringArgs[0]);
+						break;
+					case CommandObject.STOP:
+						if (hasSourceHandle(commandObject)) CommandStop(commandObject.intArgs[0]);
+						else CommandStop(commandObject.stringArgs[0]);
+						break;
+					case CommandObject.REWIND:
+						if (hasSourceHandle(commandObject)) CommandRewind(commandObject.intArgs[0]);
+						else CommandRewind(commandObject.stringArgs[0]);
+						break;
+					case CommandObject.FLUSH:
+						CommandFlush(commandObject.stringArgs[0]);
+						break;
+					case CommandObject.CULL:
+						CommandCull(commandObject.stringArgs[0]);
+						break;
+					case CommandObject.ACTIVATE:
+						activations = true;
+						CommandActivate(commandObject.stringArgs[0]);
+						break;
+					case CommandObject.SET_TEMPORARY:
+						CommandSetTemporary(commandObject.stringArgs[0], commandObject.boolArgs[0]);
+						break;
+					case CommandObject.REMOVE_SOURCE:
+						CommandRemoveSource(commandObject.stringArgs[0]);
+						if (commandObject.intArgs != null && sourceHandles != null) sourceHandles.release(commandObject.intArgs[0]);
+						break;
+					case CommandObject.MOVE_LISTENER:
+						CommandMoveListener(commandObject.floatArgs[0], commandObject.floatArgs[1], commandObject.floatArgs[2]);
+						break;
+					case CommandObject.SET_LISTENER_POSITION:
+						CommandSetListenerPosition(commandObject.floatArgs[0], commandObject.floatArgs[1], commandObject.floatArgs[2]);
+						break;
+					case CommandObject.TURN_LISTENER:
+						CommandTurnListener(commandObject.floatArgs[0]);
+						break;
+					case CommandObject.SET_LISTENER_ANGLE:
+						CommandSetListenerAngle(commandObject.floatArgs[0]);
+						break;
+					case CommandObject.SET_LISTENER_ORIENTATION:
+						CommandSetListenerOrientation(commandObject.floatArgs[0], commandObject.floatArgs[1], commandObject.floatArgs[2], commandObject.floatArgs[3], commandObject.floatArgs[4], commandObject.floatArgs[5]);
+						break;
+					case CommandObject.SET_MASTER_VOLUME:
+						CommandSetMasterVolume(commandObject.floatArgs[0]);
+						break;
+					case CommandObject.NEW_LIBRARY:
+						CommandNewLibrary(commandObject.classArgs[0]);
+						break;
+					// If we don't recognize the command, just skip it:
+					default:
+						break;
+				}
+				// Reuse the command if it came from the pool:
+				commandObject.recycle();
+			}
+
+			// If any sources were reactivated, check if they need to be
+			// replayed:
+			if (activations) soundLibrary.replaySources();
+
+			// Now that we have the correct sources culled and activated, we
+			// can start playing sources.  Loop through the playlist and
+			// execute the commands:
+			while (sourcePlayList != null && !sourcePlayList.isEmpty()) {
+				// Grab the oldest command in the queue:
+				commandObject = sourcePlayList.remove(0);
+				if (commandObject != null) {
 					// See what it is, and execute the proper Command method:
-					if (commandObject != null) {
-						switch (commandObject.Command) {
-							case CommandObject.INITIALIZE:
-								CommandInitialize();
-								break;
-							case CommandObject.LOAD_SOUND:
-								CommandLoadSound((FilenameURL) commandObject.objectArgs[0]);
-								break;
-							case CommandObject.LOAD_DATA:
-								CommandLoadSound((SoundBuffer) commandObject.objectArgs[0], commandObject.stringArgs[0]);
-								break;
-							case CommandObject.UNLOAD_SOUND:
-								CommandUnloadSound(commandObject.stringArgs[0]);
-								break;
-							case CommandObject.QUEUE_SOUND:
-								CommandQueueSound(commandObject.stringArgs[0], (FilenameURL) commandObject.objectArgs[0]);
-								break;
-							case CommandObject.DEQUEUE_SOUND:
-								CommandDequeueSound(commandObject.stringArgs[0], commandObject.stringArgs[1]);
-								break;
-							case CommandObject.FADE_OUT:
-								CommandFadeOut(commandObject.stringArgs[0], (FilenameURL) commandObject.objectArgs[0], commandObject.longArgs[0]);
-								break;
-							case CommandObject.FADE_OUT_IN:
-								CommandFadeOutIn(commandObject.stringArgs[0], (FilenameURL) commandObject.objectArgs[0], commandObject.longArgs[0], commandObject.longArgs[1]);
-								break;
-							case CommandObject.CHECK_FADE_VOLUMES:
-								CommandCheckFadeVolumes();
-								break;
-							case CommandObject.NEW_SOURCE:
-								CommandNewSource(commandObject.boolArgs[0], commandObject.boolArgs[1], commandObject.boolArgs[2], commandObject.stringArgs[0], (FilenameURL) commandObject.objectArgs[0], commandObject.floatArgs[0], commandObject.floatArgs[1], commandObject.floatArgs[2], commandObject.intArgs[0], commandObject.floatArgs[3]);
-								break;
-							case CommandObject.RAW_DATA_STREAM:
-								CommandRawDataStream((AudioFormat) commandObject.objectArgs[0], commandObject.boolArgs[0], commandObject.stringArgs[0], commandObject.floatArgs[0], commandObject.floatArgs[1], commandObject.floatArgs[2], commandObject.intArgs[0], commandObject.floatArgs[3]);
-								break;
-							case CommandObject.QUICK_PLAY:
-								CommandQuickPlay(commandObject.boolArgs[0], commandObject.boolArgs[1], commandObject.boolArgs[2], commandObject.stringArgs[0], (FilenameURL) commandObject.objectArgs[0], commandObject.floatArgs[0], commandObject.floatArgs[1], commandObject.floatArgs[2], commandObject.intArgs[0], commandObject.floatArgs[3], commandObject.boolArgs[3]);
-								break;
-							case CommandObject.SET_POSITION:
-								CommandSetPosition(commandObject.stringArgs[0], commandObject.floatArgs[0], commandObject.floatArgs[1], commandObject.floatArgs[2]);
-								break;
-							case CommandObject.SET_VOLUME:
-								CommandSetVolume(commandObject.stringArgs[0], commandObject.floatArgs[0]);
-								break;
-							case CommandObject.SET_PITCH:
-								CommandSetPitch(commandObject.stringArgs[0], commandObject.floatArgs[0]);
-								break;
-							case CommandObject.SET_PRIORITY:
-								CommandSetPriority(commandObject.stringArgs[0], commandObject.boolArgs[0]);
-								break;
-							case CommandObject.SET_LOOPING:
-								CommandSetLooping(commandObject.stringArgs[0], commandObject.boolArgs[0]);
-								break;
-							case CommandObject.SET_ATTENUATION:
-								CommandSetAttenuation(commandObject.stringArgs[0], commandObject.intArgs[0]);
-								break;
-							case CommandObject.SET_DIST_OR_ROLL:
-								CommandSetDistOrRoll(commandObject.stringArgs[0], commandObject.floatArgs[0]);
-								break;
-							case CommandObject.CHANGE_DOPPLER_FACTOR:
-								CommandChangeDopplerFactor(commandObject.floatArgs[0]);
-								break;
-							case CommandObject.CHANGE_DOPPLER_VELOCITY:
-								CommandChangeDopplerVelocity(commandObject.floatArgs[0]);
-								break;
-							case CommandObject.SET_VELOCITY:
-								CommandSetVelocity(commandObject.stringArgs[0], commandObject.floatArgs[0], commandObject.floatArgs[1], commandObject.floatArgs[2]);
-								break;
-							case CommandObject.SET_LISTENER_VELOCITY:
-								CommandSetListenerVelocity(commandObject.floatArgs[0], commandObject.floatArgs[1], commandObject.floatArgs[2]);
-								break;
-							// Methods related to playing sources must be processed
-							// after cull/activate commands in order for source
-							// management to work properly, so save them for
-							// later:
-							//------------------------------------------------------
-							case CommandObject.PLAY:
-								sourcePlayList.add(commandObject);
-								break;
-							case CommandObject.FEED_RAW_AUDIO_DATA:
-								sourcePlayList.add(commandObject);
-								break;
-							//------------------------------------------------------
-							case CommandObject.PAUSE:
-								CommandPause(commandObject.stringArgs[0]);
-								break;
-							case CommandObject.STOP:
-								CommandStop(commandObject.stringArgs[0]);
-								break;
-							case CommandObject.REWIND:
-								CommandRewind(commandObject.stringArgs[0]);
-								break;
-							case CommandObject.FLUSH:
-								CommandFlush(commandObject.stringArgs[0]);
-								break;
-							case CommandObject.CULL:
-								CommandCull(commandObject.stringArgs[0]);
-								break;
-							case CommandObject.ACTIVATE:
-								activations = true;
-								CommandActivate(commandObject.stringArgs[0]);
-								break;
-							case CommandObject.SET_TEMPORARY:
-								CommandSetTemporary(commandObject.stringArgs[0], commandObject.boolArgs[0]);
-								break;
-							case CommandObject.REMOVE_SOURCE:
-								CommandRemoveSource(commandObject.stringArgs[0]);
-								break;
-							case CommandObject.MOVE_LISTENER:
-								CommandMoveListener(commandObject.floatArgs[0], commandObject.floatArgs[1], commandObject.floatArgs[2]);
-								break;
-							case CommandObject.SET_LISTENER_POSITION:
-								CommandSetListenerPosition(commandObject.floatArgs[0], commandObject.floatArgs[1], commandObject.floatArgs[2]);
-								break;
-							case CommandObject.TURN_LISTENER:
-								CommandTurnListener(commandObject.floatArgs[0]);
-								break;
-							case CommandObject.SET_LISTENER_ANGLE:
-								CommandSetListenerAngle(commandObject.floatArgs[0]);
-								break;
-							case CommandObject.SET_LISTENER_ORIENTATION:
-								CommandSetListenerOrientation(commandObject.floatArgs[0], commandObject.floatArgs[1], commandObject.floatArgs[2], commandObject.floatArgs[3], commandObject.floatArgs[4], commandObject.floatArgs[5]);
-								break;
-							case CommandObject.SET_MASTER_VOLUME:
-								CommandSetMasterVolume(commandObject.floatArgs[0]);
-								break;
-							case CommandObject.NEW_LIBRARY:
-								CommandNewLibrary(commandObject.classArgs[0]);
-								break;
-							// If we don't recognize the command, just skip it:
-							default:
-								break;
-						}
+					switch (commandObject.Command) {
+						case CommandObject.PLAY:
+							if (hasSourceHandle(commandObject)) CommandPlay(commandObject.intArgs[0]);
+							else CommandPlay(commandObject.stringArgs[0]);
+							break;
+						case CommandObject.FEED_RAW_AUDIO_DATA:
+							CommandFeedRawAudioData(commandObject.stringArgs[0], commandObject.buffer);
+							break;
 					}
 				}
+			}
 
-				// If any sources were reactivated, check if they need to be
-				// replayed:
-				if (activations) soundLibrary.replaySources();
+			// The pass which executed the batch is finished:
+			if (batchCommitted != 0) lastBatchLatency = System.nanoTime() - batchCommitted;
 
-				// Now that we have the correct sources culled and activated, we
-				// can start playing sources.  Loop through the playlist and
-				// execute the commands:
-				while (sourcePlayList != null && !sourcePlayList.isEmpty()) {
-					// Grab the oldest command in the queue:
-					commandObject = sourcePlayList.remove(0);
-					if (commandObject != null) {
-						// See what it is, and execute the proper Command method:
-						switch (commandObject.Command) {
-							case CommandObject.PLAY:
-								CommandPlay(commandObject.stringArgs[0]);
-								break;
-							case CommandObject.FEED_RAW_AUDIO_DATA:
-								CommandFeedRawAudioData(commandObject.stringArgs[0], commandObject.buffer);
-								break;
-						}
-					}
-				}
+			return (commandQueue != null && !commandQueue.isEmpty()) || !finishedLoads.isEmpty();
+		}
+	}
 
-				return (commandQueue != null && !commandQueue.isEmpty());
-			} else {
-				// make sure the commandQueue exists:
-				if (commandQueue == null) return false;
-				// queue a new command
-				commandQueue.add(newCommand);
-				// Of course there is something in the list now, since we just
-				// added it:
-				return true;
-			}
+	/**
+	 * Starts a batch of commands on the calling thread.  Until
+	 * {@link #commitBatch() commitBatch()} is called, commands queued by this
+	 * thread (for example by setPosition or play) are held back rather than
+	 * passed to the Command Thread one at a time.  When the batch is
+	 * committed, all of its commands are handed over together, executed in
+	 * order during a single pass, and the Command Thread is only woken up
+	 * once.  This is useful for submitting a whole frame's worth of source
+	 * updates.  Methods which wait for the Command Thread, such as newLibrary,
+	 * should not be called while a batch is open.
+	 */
+	public void beginBatch() {
+		if (openBatch.get() != null) {
+			errorMessage("Batch already started in method 'beginBatch'", 0);
+			return;
+		}
+		openBatch.set(new ArrayList<CommandObject>());
+	}
+
+	/**
+	 * Hands all commands queued since {@link #beginBatch() beginBatch()} over
+	 * to the Command Thread, and wakes it up once to process them.
+	 *
+	 * @return True if the batch was queued, false if there was no batch open or it could not be queued.
+	 */
+	public boolean commitBatch() {
+		List<CommandObject> batch = openBatch.get();
+		if (batch == null) {
+			errorMessage("No batch started in method 'commitBatch'", 0);
+			return false;
 		}
+		openBatch.remove();
+		if (batch.isEmpty()) return true;
+
+		CommandObject commands = new CommandObject(CommandObject.BATCH, null, batch.toArray(new CommandObject[0]), System.nanoTime());
+		if (!commandQueue(commands)) return false;
+		batchesCommitted.incrementAndGet();
+		// Wake the command thread to process commands:
+		wakeCommandThread();
+		return true;
+	}
+
+	/**
+	 * Wakes up the Command Thread to process newly queued commands, unless the
+	 * calling thread has a batch open, in which case the Command Thread is
+	 * woken when the batch is committed.
+	 */
+	protected void wakeCommandThread() {
+		if (openBatch.get() != null) return;
+		CommandThread thread = commandThread;
+		if (thread == null) return;
+		wakeUps.incrementAndGet();
+		thread.wake();
+	}
+
+	/**
+	 * Returns the number of times the Command Thread has been woken up to
+	 * process newly queued commands.
+	 *
+	 * @return Number of wake-ups.
+	 */
+	public long getWakeUpCount() {
+		return wakeUps.get();
+	}
+
+	/**
+	 * Returns the number of batches committed with
+	 * {@link #commitBatch() commitBatch()}.
+	 *
+	 * @return Number of batches.
+	 */
+	public long getBatchCount() {
+		return batchesCommitted.get();
+	}
+
+	/**
+	 * Returns how long it took from the most recent call to
+	 * {@link #commitBatch() commitBatch()} until the Command Thread finished
+	 * the pass which executed that batch.
+	 *
+	 * @return Latency in nanoseconds, or -1 if no batch has been executed yet.
+	 */
+	public long getLastBatchLatency() {
+		return lastBatchLatency;
 	}
 
 	/**
@@ -2203,6 +3358,8 @@ public class SoundSystem {
 	public void removeTemporarySources() {
 		synchronized (SoundSystemConfig.THREAD_SYNC) {
 			if (soundLibrary != null) soundLibrary.removeTemporarySources();
+			// Release handles to sources which no longer exist:
+			if (sourceHandles != null) sourceHandles.releaseMissing(soundLibrary);
 		}
 	}
 
@@ -2213,39 +3370,39 @@ public class SoundSystem {
 	 * @return True or false.
 	 */
 	public boolean playing(String sourceName) {
-		synchronized (SoundSystemConfig.THREAD_SYNC) {
-			if (soundLibrary == null) return false;
+		Library library = soundLibrary;
+		if (library == null) return false;
 
-			Source src = soundLibrary.getSources().get(sourceName);
+		SourceSnapshot snapshot = library.getSnapshot(sourceName);
 
-			if (src == null) return false;
+		if (snapshot == null) return false;
 
-			return src.playing();
-		}
+		return snapshot.playing();
 	}
 
 	/**
 	 * @return true if anything is currently playing.
 	 */
 	public boolean playing() {
-		synchronized (SoundSystemConfig.THREAD_SYNC) {
-			if (soundLibrary == null) return false;
-
-			HashMap<String, Source> sourceMap = soundLibrary.getSources();
-			if (sourceMap == null) return false;
+		Library library = soundLibrary;
+		if (library == null) return false;
 
-			Set<String> keys = sourceMap.keySet();
-			Iterator<String> iterator = keys.iterator();
-			String sourceName;
-			Source source;
-
-			while (iterator.hasNext()) {
-				sourceName = iterator.next();
-				source = sourceMap.get(sourceName);
-				if (source != null) if (source.playing()) return true;
-			}
+		return library.playingSourceCount() > 0;
+	}
 
-			return false;
+	/**
+	 * Publishes the current state of sources which are playing or have changed,
+	 * for use by methods such as playing() and millisecondsPlayed(), which read
+	 * it without waiting for the Command Thread.  This method is used
+	 * internally by SoundSystem, and it is unlikely that the user will ever
+	 * need to use it.
+	 *
+	 * @return True if any sources should be published again soon, such as sources which are playing.
+	 */
+	public boolean publishSourceSnapshots() {
+		synchronized (SoundSystemConfig.THREAD_SYNC) {
+			if (soundLibrary == null) return false;
+			return soundLibrary.publishSnapshots() > 0;
 		}
 	}
 
@@ -28,11 +28,11 @@
 
 package paulscode.sound;
 
+import java.io.File;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
-import java.util.Locale;
-import java.util.ListIterator;
 import java.util.LinkedList;
+import java.util.function.Supplier;
 
 /**
  * The SoundSystemConfig class is used to access global sound system settings,
@@ -84,6 +84,23 @@ public class SoundSystemConfig {
 	 */
 	public static final int ATTENUATION_LINEAR  = 2;  // linear attenuation
 
+	/**
+	 * Global identifier for the "wait" command queue overflow policy.  When the
+	 * command queue is full, the calling thread blocks until the Command Thread
+	 * has made room for the new command.  The caller may be held up while a
+	 * slow command (such as loading a large sound file) is executing.  A
+	 * command is still discarded if there is no room after one second, or if
+	 * the caller holds the {@link #THREAD_SYNC} lock, which the Command Thread
+	 * needs in order to make room.
+	 */
+	public static final int OVERFLOW_WAIT    = 0;
+	/**
+	 * Global identifier for the "discard" command queue overflow policy.  When
+	 * the command queue is full, the new command is discarded and an error
+	 * message is printed.  The calling thread is never held up.
+	 */
+	public static final int OVERFLOW_DISCARD = 1;
+
 	/**
 	 * A Regular expression for determining if a file's extension is MIDI.
 	 */
@@ -107,15 +124,25 @@ public class SoundSystemConfig {
 	 */
 	private static SoundSystemLogger logger = null;
 
+	/**
+	 * Stream buffers which can be reused by codecs and channels.
+	 */
+	private static final StreamBufferPool streamBufferPool = new StreamBufferPool();
+
+	/**
+	 * Decoded sounds kept on disk, so they can be loaded without decoding.
+	 */
+	private static final PCMDiskCache pcmDiskCache = new PCMDiskCache();
+
 	/**
 	 * List of library types in their order of priority.
 	 */
 	private static LinkedList<Class<?>> libraries;
 
 	/**
-	 * List of codecs and the file formats they are associated with.
+	 * Codecs and the file formats they are associated with.
 	 */
-	private static LinkedList<Codec> codecs = null;
+	private static final CodecRegistry codecs = new CodecRegistry();
 
 	/**
 	 * List of stream listeners.
@@ -125,6 +152,10 @@ public class SoundSystemConfig {
 	 * For synchronizing access to the streamListeners list.
 	 */
 	private static final Object                      streamListenersLock = new Object();
+	/**
+	 * Delivers events to the stream listeners, or null if not started yet.
+	 */
+	private static       EventThread                 eventThread         = null;
 
 	/**
 	 * Maximum number of normal (non-streaming) channels that can be created.
@@ -196,11 +227,88 @@ public class SoundSystemConfig {
 	 */
 	private static int     fileChunkSize           = 1048576;
 
+	/**
+	 * Number of commands which may be waiting in the command queue at once.
+	 * Rounded up to a power of two when the SoundSystem is created.
+	 */
+	private static int commandQueueCapacity = 8192;
+	/**
+	 * What to do with a new command when the command queue is full.
+	 */
+	private static int commandQueueOverflow = OVERFLOW_WAIT;
+	/**
+	 * Milliseconds between source state snapshots while sources are playing.
+	 */
+	private static long sourceSnapshotInterval = 50;
+	/**
+	 * Number of threads used to decode streaming sources ahead of time, or 0 to
+	 * decode on the streaming thread.
+	 */
+	private static int decodeThreads = 0;
+	/**
+	 * Number of threads which decode sounds for loadSound(), or 0 to decode
+	 * them on the Command Thread.
+	 */
+	private static int loadThreads = 1;
+	/**
+	 * Number of threads which decode sounds for loadSounds(), or 0 for one per
+	 * processor.
+	 */
+	private static int loadParallelism = 0;
+	/**
+	 * Number of buffers to decode ahead for each streaming source.
+	 */
+	private static int decodeAheadBuffers = 2;
+	/**
+	 * Whether or not each streaming source chooses its own number of buffers.
+	 */
+	private static boolean adaptiveStreaming = false;
+	/**
+	 * Most buffers a streaming source may use when adaptive streaming is on.
+	 */
+	private static int maxStreamingBuffers = 8;
+	/**
+	 * Most events which may wait to be delivered to the stream listeners.
+	 */
+	private static int eventQueueCapacity = 1024;
+	/**
+	 * Most bytes of unused stream buffers to keep for reuse.
+	 */
+	private static long streamBufferPoolSize = 4194304;
+	/**
+	 * Directory to keep decoded sounds in, or null to not keep them.
+	 */
+	private static File pcmCacheDirectory = null;
+	/**
+	 * Most bytes of decoded sounds to keep on disk.
+	 */
+	private static long pcmCacheSize = 268435456;
+	/**
+	 * Most bytes of loaded sounds to keep in memory, or 0 for no limit.
+	 */
+	private static long loadedSoundBudget = 0;
+
 	/**
 	 * Indicates whether there is a codec for reading from MIDI files.  If
 	 * there is no codec for MIDI, then SoundSystem uses javax.sound.midi.
 	 */
-	private static boolean midiCodec = false;
+	private static volatile boolean midiCodec = false;
+
+	/**
+	 * Whether or not to choose codecs by looking at the first bytes of each
+	 * file, rather than only by the filename's extension.
+	 */
+	private static volatile boolean probeCodecs = false;
+
+	/**
+	 * Whether or not codecs which are able to should decode to 32-bit float PCM.
+	 */
+	private static volatile boolean floatOutput = false;
+
+	/**
+	 * Whether or not the current sound library can play 32-bit float PCM.
+	 */
+	private static volatile boolean floatOutputSupported = false;
 
 	/**
 	 * MIDI device to try using as the Synthesizer.  It may be the full name or part
@@ -390,6 +498,29 @@ public class SoundSystemConfig {
 		return logger;
 	}
 
+	/**
+	 * Returns the pool of stream buffers shared by the codecs and channels.
+	 * Codecs should borrow their stream buffers from it.  The pool is kept
+	 * after the sound system shuts down; call its clear() method to let go of
+	 * the arrays in it.
+	 *
+	 * @return The stream buffer pool.
+	 */
+	public static StreamBufferPool getStreamBufferPool() {
+		return streamBufferPool;
+	}
+
+	/**
+	 * Returns the cache of decoded sounds on disk, used by the libraries when
+	 * loading sounds.  It does nothing unless a directory has been set with
+	 * setPCMCacheDirectory().
+	 *
+	 * @return The decoded sound cache.
+	 */
+	public static PCMDiskCache getPCMDiskCache() {
+		return pcmDiskCache;
+	}
+
 //  STATIC SYNCHRONIZED INTERFACE METHODS
 
 	/**
@@ -676,6 +807,315 @@ public class SoundSystemConfig {
 		return fileChunkSize;
 	}
 
+	/**
+	 * Sets the number of commands which may be waiting in the command queue at
+	 * once.  Use this method BEFORE instantiating the SoundSystem.  The value is
+	 * rounded up to a power of two.
+	 *
+	 * @param capacity Number of commands.
+	 */
+	public static synchronized void setCommandQueueCapacity(int capacity) {
+		commandQueueCapacity = capacity;
+	}
+
+	/**
+	 * Returns the number of commands which may be waiting in the command queue
+	 * at once.
+	 *
+	 * @return Number of commands.
+	 */
+	public static synchronized int getCommandQueueCapacity() {
+		return commandQueueCapacity;
+	}
+
+	/**
+	 * Sets what to do with a new command when the command queue is full.
+	 * Possible values are {@link #OVERFLOW_WAIT} (default) and
+	 * {@link #OVERFLOW_DISCARD}.
+	 *
+	 * @param policy A global overflow policy identifier.
+	 */
+	public static synchronized void setCommandQueueOverflow(int policy) {
+		commandQueueOverflow = policy;
+	}
+
+	/**
+	 * Returns what to do with a new command when the command queue is full.
+	 *
+	 * @return A global overflow policy identifier.
+	 */
+	public static synchronized int getCommandQueueOverflow() {
+		return commandQueueOverflow;
+	}
+
+	/**
+	 * Sets how often the Command Thread publishes the state of each source
+	 * while any sources are playing.  Methods such as SoundSystem.playing()
+	 * read the published state, so they may be out of date by up to this many
+	 * milliseconds.  Smaller values give fresher results, at the cost of waking
+	 * the Command Thread more often.
+	 *
+	 * @param millis Milliseconds between snapshots.
+	 */
+	public static synchronized void setSourceSnapshotInterval(long millis) {
+		sourceSnapshotInterval = millis;
+	}
+
+	/**
+	 * Returns how often the Command Thread publishes the state of each source
+	 * while any sources are playing.
+	 *
+	 * @return Milliseconds between snapshots.
+	 */
+	public static synchronized long getSourceSnapshotInterval() {
+		return sourceSnapshotInterval;
+	}
+
+	/**
+	 * Sets the number of threads used to decode streaming sources ahead of
+	 * time.  When this is 0 (default), all streaming sources are decoded one
+	 * after the other on the streaming thread, so one slow codec can hold up
+	 * the rest.  With decode threads, buffers are decoded in parallel and the
+	 * streaming thread only has to queue finished buffers.  Use this method
+	 * BEFORE instantiating the SoundSystem.
+	 *
+	 * @param threads Number of decode threads, or 0 for none.
+	 */
+	public static synchronized void setDecodeThreads(int threads) {
+		decodeThreads = threads;
+	}
+
+	/**
+	 * Returns the number of threads used to decode streaming sources ahead of
+	 * time.
+	 *
+	 * @return Number of decode threads, or 0 for none.
+	 */
+	public static synchronized int getDecodeThreads() {
+		return decodeThreads;
+	}
+
+	/**
+	 * Sets the number of threads which decode sounds loaded with
+	 * {@link SoundSystem#loadSound(String) loadSound()}, and sounds needed by
+	 * new non-streaming sources which have not been loaded yet.  While a sound
+	 * is decoding, the Command Thread keeps executing other commands; only
+	 * commands for sources which use that sound wait for it.  When this is 0,
+	 * sounds are decoded on the Command Thread, holding up every command
+	 * queued behind them.  The default is 1.  Use this method BEFORE
+	 * instantiating the SoundSystem.
+	 *
+	 * @param threads Number of load threads, or 0 for none.
+	 */
+	public static synchronized void setLoadThreads(int threads) {
+		loadThreads = threads;
+	}
+
+	/**
+	 * Returns the number of threads which decode sounds for loadSound().
+	 *
+	 * @return Number of load threads, or 0 for none.
+	 */
+	public static synchronized int getLoadThreads() {
+		return loadThreads;
+	}
+
+	/**
+	 * Sets the number of threads which decode sounds in parallel for
+	 * {@link SoundSystem#loadSounds(java.util.Collection) loadSounds()}.  When
+	 * this is 0 (default), one thread is used per available processor.  Use
+	 * this method BEFORE instantiating the SoundSystem.
+	 *
+	 * @param parallelism Number of decoding threads, or 0 for one per processor.
+	 */
+	public static synchronized void setLoadParallelism(int parallelism) {
+		loadParallelism = parallelism;
+	}
+
+	/**
+	 * Returns the number of threads which decode sounds in parallel for
+	 * loadSounds().
+	 *
+	 * @return Number of decoding threads, or 0 for one per processor.
+	 */
+	public static synchronized int getLoadParallelism() {
+		return loadParallelism;
+	}
+
+	/**
+	 * Sets the number of buffers decoded ahead of time for each streaming
+	 * source, when decode threads are used.  Each buffer takes up
+	 * getStreamingBufferSize() bytes of memory.
+	 *
+	 * @param buffers Number of buffers.
+	 */
+	public static synchronized void setDecodeAheadBuffers(int buffers) {
+		decodeAheadBuffers = buffers;
+	}
+
+	/**
+	 * Returns the number of buffers decoded ahead of time for each streaming
+	 * source.
+	 *
+	 * @return Number of buffers.
+	 */
+	public static synchronized int getDecodeAheadBuffers() {
+		return decodeAheadBuffers;
+	}
+
+	/**
+	 * Sets whether each streaming source should choose its own number of
+	 * buffers.  When enabled, a source which underruns or uses a slow codec is
+	 * given more buffers (up to getMaxStreamingBuffers()), and a source which
+	 * keeps up easily goes back down toward getNumberStreamingBuffers(), so
+	 * low-latency sources stay small.  Changes take effect the next time a
+	 * source's stream starts or loops.  The size of each buffer is still
+	 * getStreamingBufferSize(), because the codecs read that value directly.
+	 *
+	 * @param val False by default.
+	 */
+	public static synchronized void setAdaptiveStreaming(boolean val) {
+		adaptiveStreaming = val;
+	}
+
+	/**
+	 * Returns whether each streaming source chooses its own number of buffers.
+	 *
+	 * @return True or False.
+	 */
+	public static synchronized boolean getAdaptiveStreaming() {
+		return adaptiveStreaming;
+	}
+
+	/**
+	 * Sets the most buffers a streaming source may use when adaptive streaming
+	 * is enabled.
+	 *
+	 * @param num How many buffers.
+	 */
+	public static synchronized void setMaxStreamingBuffers(int num) {
+		maxStreamingBuffers = num;
+	}
+
+	/**
+	 * Returns the most buffers a streaming source may use when adaptive
+	 * streaming is enabled.
+	 *
+	 * @return How many buffers.
+	 */
+	public static synchronized int getMaxStreamingBuffers() {
+		return maxStreamingBuffers;
+	}
+
+	/**
+	 * Sets the most events which may wait to be delivered to the stream
+	 * listeners.  If a listener falls this far behind, new STREAM_UNDERRUN
+	 * events are thrown away (END_OF_STREAM and other events are always
+	 * delivered).  Use this method BEFORE adding stream listeners.
+	 *
+	 * @param capacity Number of events.
+	 */
+	public static synchronized void setEventQueueCapacity(int capacity) {
+		eventQueueCapacity = capacity;
+	}
+
+	/**
+	 * Returns the most events which may wait to be delivered to the stream
+	 * listeners.
+	 *
+	 * @return Number of events.
+	 */
+	public static synchronized int getEventQueueCapacity() {
+		return eventQueueCapacity;
+	}
+
+	/**
+	 * Sets the most bytes of unused stream buffers to keep for reuse (see
+	 * {@link StreamBufferPool}).  To stream without allocating, this should be
+	 * at least a few times getStreamingBufferSize() per streaming source.
+	 *
+	 * @param size Size in bytes, or 0 to not reuse stream buffers.
+	 */
+	public static synchronized void setStreamBufferPoolSize(long size) {
+		streamBufferPoolSize = size;
+	}
+
+	/**
+	 * Returns the most bytes of unused stream buffers to keep for reuse.
+	 *
+	 * @return Size in bytes.
+	 */
+	public static synchronized long getStreamBufferPoolSize() {
+		return streamBufferPoolSize;
+	}
+
+	/**
+	 * Sets the most memory the loaded (non-streaming) sounds may use.  This
+	 * counts the sample data kept by the library, plus the copy in the audio
+	 * library's own buffers for libraries such as OpenAL.  When a sound is
+	 * loaded and the total grows past this, the sounds which were used least
+	 * recently are unloaded, and loaded again the next time a source needs
+	 * them.  Sounds attached to a source, and sounds loaded from a
+	 * SoundBuffer, are never unloaded this way.
+	 *
+	 * @param bytes Budget in bytes, or 0 for no limit.
+	 */
+	public static synchronized void setLoadedSoundBudget(long bytes) {
+		loadedSoundBudget = bytes;
+	}
+
+	/**
+	 * Returns the most memory the loaded sounds may use.
+	 *
+	 * @return Budget in bytes, or 0 if there is no limit.
+	 */
+	public static synchronized long getLoadedSoundBudget() {
+		return loadedSoundBudget;
+	}
+
+	/**
+	 * Sets the directory to keep decoded sounds in (see {@link PCMDiskCache}).
+	 * When sounds are loaded, they are read from this directory if they have
+	 * been decoded before, which is much faster than decoding compressed
+	 * formats such as Ogg or MP3.  The directory is created if it does not
+	 * exist.  It should not be used for anything else, since files in it may be
+	 * deleted to keep it within the size set by setPCMCacheSize().
+	 *
+	 * @param directory Directory to use, or null to not keep decoded sounds.
+	 */
+	public static synchronized void setPCMCacheDirectory(File directory) {
+		pcmCacheDirectory = directory;
+	}
+
+	/**
+	 * Returns the directory decoded sounds are kept in.
+	 *
+	 * @return The directory, or null if decoded sounds are not kept.
+	 */
+	public static synchronized File getPCMCacheDirectory() {
+		return pcmCacheDirectory;
+	}
+
+	/**
+	 * Sets the most bytes of decoded sounds to keep on disk.  When the cache
+	 * grows larger than this, the sounds which were used least recently are
+	 * deleted.  Sounds larger than this are never kept.
+	 *
+	 * @param size Size in bytes.
+	 */
+	public static synchronized void setPCMCacheSize(long size) {
+		pcmCacheSize = size;
+	}
+
+	/**
+	 * Returns the most bytes of decoded sounds to keep on disk.
+	 *
+	 * @return Size in bytes.
+	 */
+	public static synchronized long getPCMCacheSize() {
+		return pcmCacheSize;
+	}
+
 	/**
 	 * Returns the name of the MIDI synthesizer to use instead of the default, or
 	 * empty string if none was specified.
@@ -704,7 +1144,7 @@ public class SoundSystemConfig {
 	 * @param extension   File extension to be associated with the specified codec.
 	 * @param iCodecClass Codec type to use for files with the specified extension.
 	 */
-	public static synchronized void setCodec(String extension, Class<?> iCodecClass) throws SoundSystemException {
+	public static void setCodec(String extension, Class<?> iCodecClass) throws SoundSystemException {
 		if (extension == null)
 			throw new SoundSystemException("Parameter 'extension' null in method 'setCodec'.", SoundSystemException.NULL_PARAMETER);
 		if (iCodecClass == null)
@@ -712,41 +1152,148 @@ public class SoundSystemConfig {
 		if (!ICodec.class.isAssignableFrom(iCodecClass))
 			throw new SoundSystemException("The specified class does not implement interface 'ICodec' in method 'setCodec'", SoundSystemException.CLASS_TYPE_MISMATCH);
 
-		if (codecs == null) codecs = new LinkedList<>();
+		codecs.register(extension, iCodecClass);
+		checkMidiCodec(extension);
+	}
 
-		ListIterator<Codec> i = codecs.listIterator();
-		Codec codec;
+	/**
+	 * Uses the specified file extension to associate a particular file format
+	 * with a factory which creates the codecs used to read audio data from it.
+	 * If reuse is true, codecs which have been cleaned up are handed out again
+	 * (see {@link #releaseCodec(ICodec) releaseCodec()}) instead of creating new
+	 * ones, so the factory should create codecs which can be initialized again
+	 * after cleanup().
+	 *
+	 * @param extension File extension to be associated with the specified codec.
+	 * @param factory   Creates a new codec each time one is needed.
+	 * @param reuse     True if codecs which have been cleaned up may be reused.
+	 */
+	public static void setCodec(String extension, Supplier<? extends ICodec> factory, boolean reuse) throws SoundSystemException {
+		if (extension == null)
+			throw new SoundSystemException("Parameter 'extension' null in method 'setCodec'.", SoundSystemException.NULL_PARAMETER);
+		if (factory == null)
+			throw new SoundSystemException("Parameter 'factory' null in method 'setCodec'.", SoundSystemException.NULL_PARAMETER);
 
-		while (i.hasNext()) {
-			codec = i.next();
-			if (extension.matches(codec.extensionRegX)) i.remove();
-		}
-		codecs.add(new Codec(extension, iCodecClass));
+		codecs.register(extension, factory, reuse);
+		checkMidiCodec(extension);
+	}
 
-		// Let SoundSystem know if this is a MIDI codec, so it won't use
-		// javax.sound.midi anymore:
+	/**
+	 * Let SoundSystem know if the specified extension is for a MIDI codec, so
+	 * it won't use javax.sound.midi anymore.
+	 *
+	 * @param extension File extension a codec was associated with.
+	 */
+	private static void checkMidiCodec(String extension) {
 		if (extension.matches(EXTENSION_MIDI)) midiCodec = true;
 	}
 
 	/**
 	 * Returns the codec that can be used to read audio data from the specified
-	 * file.
+	 * file.  This never waits on a lock, so it is safe to call from any thread.
 	 *
 	 * @param filename File to get a codec for.
 	 * @return Codec to use for reading audio data.
 	 */
-	public static synchronized ICodec getCodec(String filename) {
-		if (codecs == null) return null;
-
-		ListIterator<Codec> i = codecs.listIterator();
-		Codec codec;
+	public static ICodec getCodec(String filename) {
+		return codecs.getCodec(filename);
+	}
 
-		while (i.hasNext()) {
-			codec = i.next();
-			if (filename.matches(codec.extensionRegX)) return codec.getInstance();
+	/**
+	 * Returns the codec that can be used to read audio data from the specified
+	 * file.  If {@link #setProbeCodecs(boolean) probing} is turned on, the codec
+	 * is chosen by the format the file's content is in (probed only once per
+	 * FilenameURL), falling back on the filename's extension if the content is
+	 * not recognized or there is no codec for its format.
+	 *
+	 * @param filenameURL File to get a codec for.
+	 * @return Codec to use for reading audio data.
+	 */
+	public static ICodec getCodec(FilenameURL filenameURL) {
+		if (filenameURL == null) return null;
+		if (probeCodecs) {
+			String contentType = filenameURL.getContentType();
+			if (contentType != null && codecs.hasCodec("." + contentType)) return codecs.getCodec("." + contentType);
 		}
+		return codecs.getCodec(filenameURL.getFilename());
+	}
+
+	/**
+	 * Turns choosing codecs by the content of each file on or off.  When on,
+	 * mislabeled files and URLs without an extension can still be played, at
+	 * the cost of reading the beginning of each file an extra time (once per
+	 * FilenameURL).
+	 *
+	 * @param value True to probe file content when choosing codecs.
+	 */
+	public static void setProbeCodecs(boolean value) {
+		probeCodecs = value;
+	}
 
-		return null;
+	/**
+	 * Returns whether or not codecs are chosen by the content of each file.
+	 *
+	 * @return True if file content is probed when choosing codecs.
+	 */
+	public static boolean getProbeCodecs() {
+		return probeCodecs;
+	}
+
+	/**
+	 * Turns decoding to 32-bit float PCM on or off.  When on, codecs which
+	 * decode to float internally (such as Vorbis) hand their samples over as
+	 * {@link javax.sound.sampled.AudioFormat.Encoding#PCM_FLOAT PCM_FLOAT}
+	 * instead of rounding them to 16-bit integers.  This only takes effect if
+	 * the current sound library is able to play float data (for example,
+	 * OpenAL with the AL_EXT_float32 extension); otherwise codecs continue to
+	 * decode to 16-bit.  Sounds which are already loaded are not affected.
+	 *
+	 * @param value True to decode to float when possible.
+	 */
+	public static void setFloatOutput(boolean value) {
+		floatOutput = value;
+	}
+
+	/**
+	 * Returns whether or not decoding to 32-bit float PCM has been turned on.
+	 *
+	 * @return True if codecs should decode to float when possible.
+	 */
+	public static boolean getFloatOutput() {
+		return floatOutput;
+	}
+
+	/**
+	 * Checks if codecs should decode to 32-bit float PCM.  This is true when
+	 * float output has been turned on and the current sound library is able
+	 * to play float data.  Used by codecs when they are initialized.
+	 *
+	 * @return True if codecs should decode to float.
+	 */
+	public static boolean useFloatOutput() {
+		return floatOutput && floatOutputSupported;
+	}
+
+	/**
+	 * Tells codecs whether or not the current sound library is able to play
+	 * 32-bit float PCM.  Used internally by SoundSystem when libraries are
+	 * created and cleaned up.
+	 *
+	 * @param value True if the current library can play float data.
+	 */
+	static void setFloatOutputSupported(boolean value) {
+		floatOutputSupported = value;
+	}
+
+	/**
+	 * Gives back a codec which has been cleaned up and is no longer used.  If
+	 * its file format was associated with a reusable codec factory, it may be
+	 * handed out again by getCodec().
+	 *
+	 * @param codec Codec which has been cleaned up, or null.
+	 */
+	public static void releaseCodec(ICodec codec) {
+		codecs.release(codec);
 	}
 
 	/**
@@ -793,24 +1340,62 @@ public class SoundSystemConfig {
 	 * @param queueSize  Number of items left in the stream's play queue, or zero if none.
 	 */
 	public static void notifyEOS(String sourceName, int queueSize) {
+		postEvent(EventThread.END_OF_STREAM, sourceName, queueSize);
+	}
+
+	/**
+	 * Notifies all stream listeners that a normal source finished playing.  If
+	 * there are no listeners, the command is ignored.
+	 *
+	 * @param sourceName String identifier of the source which finished.
+	 */
+	public static void notifySourceFinished(String sourceName) {
+		postEvent(EventThread.SOURCE_FINISHED, sourceName, 0);
+	}
+
+	/**
+	 * Notifies all stream listeners that a streaming source ran out of data.  If
+	 * there are no listeners, the command is ignored.
+	 *
+	 * @param sourceName String identifier of the source which ran out of data.
+	 * @param underruns  Number of times the source has run out of data so far.
+	 */
+	public static void notifyStreamUnderrun(String sourceName, long underruns) {
+		postEvent(EventThread.STREAM_UNDERRUN, sourceName, underruns);
+	}
+
+	/**
+	 * Notifies all stream listeners that a source was culled.  If there are no
+	 * listeners, the command is ignored.
+	 *
+	 * @param sourceName String identifier of the source which was culled.
+	 */
+	public static void notifySourceCulled(String sourceName) {
+		postEvent(EventThread.SOURCE_CULLED, sourceName, 0);
+	}
+
+	/**
+	 * Returns the thread which delivers events to the stream listeners, which
+	 * can be used to check its queue depth and delivery latency.
+	 *
+	 * @return The event thread, or null if no events have been posted yet.
+	 */
+	public static EventThread getEventThread() {
 		synchronized (streamListenersLock) {
-			if (streamListeners == null) return;
+			return eventThread;
+		}
+	}
+
+	/**
+	 * Shuts down the thread which delivers events to the stream listeners, after
+	 * it delivers any events already posted.  It is started again if another
+	 * event is posted.  This method is called by SoundSystem.cleanup().
+	 */
+	public static void stopEventThread() {
+		synchronized (streamListenersLock) {
+			if (eventThread != null) eventThread.kill();
+			eventThread = null;
 		}
-		final String srcName = sourceName;
-		final int qSize = queueSize;
-
-		new Thread(() -> {
-			synchronized (streamListenersLock) {
-				if (streamListeners == null) return;
-				ListIterator<IStreamListener> i = streamListeners.listIterator();
-				IStreamListener streamListener;
-				while (i.hasNext()) {
-					streamListener = i.next();
-					if (streamListener == null) i.remove();
-					else streamListener.endOfStream(srcName, qSize);
-				}
-			}
-		}).start();
 	}
 
 //  END STATIC SYNCHRONIZED INTERFACE METHODS
@@ -818,6 +1403,27 @@ public class SoundSystemConfig {
 
 //  PRIVATE INTERNAL METHODS
 
+	/**
+	 * Queues an event for the event thread to deliver, starting the thread if
+	 * necessary.  If there are no listeners, the event is ignored.
+	 *
+	 * @param type       Event type (see the constants in EventThread).
+	 * @param sourceName Name of the source the event is about.
+	 * @param value      Extra information about the event.
+	 */
+	private static void postEvent(int type, String sourceName, long value) {
+		EventThread thread;
+		synchronized (streamListenersLock) {
+			if (streamListeners == null || streamListeners.isEmpty()) return;
+			if (eventThread == null) {
+				eventThread = new EventThread(getEventQueueCapacity(), streamListeners, streamListenersLock);
+				eventThread.start();
+			}
+			thread = eventThread;
+		}
+		thread.post(type, sourceName, value);
+	}
+
 	/**
 	 * Display the specified error message using the current logger.
 	 *
@@ -890,77 +1496,4 @@ public class SoundSystemConfig {
 	}
 
 //  END PRIVATE INTERNAL METHODS
-
-
-//  PRIVATE INTERNAL CLASSES
-
-	/**
-	 * The Codec class is used to associate individual file formats with the
-	 * codecs used to load audio data from them.
-	 * <p>
-	 * Author: Paul Lamb
-	 */
-	private static class Codec {
-		/**
-		 * A regular expression used to match a file's extension.  This is used to
-		 * determine the file format.
-		 */
-		public String   extensionRegX;
-		/**
-		 * Codec used to load audio data from this file format.
-		 */
-		public Class<?> iCodecClass;
-
-		/**
-		 * Constructor:  Converts the specified extension string into a regular
-		 * expression, and associates that with the specified codec.
-		 *
-		 * @param extension   File extension to be associated with the specified codec.
-		 * @param iCodecClass Codec to use for files with the specified extension.
-		 */
-		public Codec(String extension, Class<?> iCodecClass) {
-			extensionRegX = "";
-			// Make sure an extension was specified:
-			if (extension != null && !extension.isEmpty()) {
-				// We are only interested in the file extension.  The filename
-				// can begin with whatever:
-				extensionRegX = ".*";
-				String c;
-				StringBuilder extensionBuilder = new StringBuilder();
-				for (int x = 0; x < extension.length(); x++) {
-					// Each character could be either upper or lower case:
-					c = extension.substring(x, x + 1);
-					extensionBuilder.append("[").append(c.toLowerCase(Locale.ENGLISH)).append(c.toUpperCase(Locale.ENGLISH)).append("]");
-				}
-				// The extension will be at the end of the filename:
-				extensionRegX += extensionBuilder + "$";
-			}
-			// remember the codec to use for this format:
-			this.iCodecClass = iCodecClass;
-		}
-
-		public ICodec getInstance() {
-			if (iCodecClass == null) return null;
-
-			Object o;
-			try {
-				o = iCodecClass.newInstance();
-			} catch (Exception e) {
-				instantiationErrorMessage();
-				return null;
-			}
-
-			if (o == null) {
-				instantiationErrorMessage();
-				return null;
-			}
-
-			return (ICodec) o;
-		}
-
-		private void instantiationErrorMessage() {
-			errorMessage("Unrecognized ICodec implementation in method 'getInstance'.  Ensure that the implementing class has one public, parameterless constructor.");
-		}
-	}
-//  END PRIVATE INTERNAL CLASSES
 }
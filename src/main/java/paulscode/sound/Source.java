@@ -28,9 +28,16 @@
 
 package paulscode.sound;
 
-import java.net.URL;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.util.LinkedList;
 import java.util.ListIterator;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
 import javax.sound.sampled.AudioFormat;
 
 /**
@@ -157,6 +164,64 @@ public class Source {
 	 */
 	public boolean removed = false;
 
+	/**
+	 * Time (from System.nanoTime()) when the streaming thread should next
+	 * process this source.  Only used by the {@link StreamThread StreamThread}.
+	 */
+	long streamDeadline = 0;
+
+	/**
+	 * True while the streaming thread is watching this source.  Set and cleared
+	 * by the {@link StreamThread StreamThread} while it holds its list lock.
+	 */
+	volatile boolean streamWatched = false;
+
+	/**
+	 * Held while the codec is in use by either the streaming thread or a decode
+	 * thread, so they never use it at the same time.  Subclasses hold it while
+	 * replacing or restarting the codec, and when setting {@link #preLoad}.
+	 */
+	protected final ReentrantLock decodeLock = new ReentrantLock();
+
+	/**
+	 * Buffers decoded ahead of time by the decode threads, or null if
+	 * decode-ahead is not being used for this source.
+	 */
+	private ArrayBlockingQueue<SoundBuffer> decodedBuffers = null;
+
+	/**
+	 * Decode threads to use for decoding ahead, or null if not used.
+	 */
+	private ExecutorService decodeExecutor = null;
+
+	/**
+	 * True while a decode-ahead task is queued or running for this source.
+	 */
+	private final AtomicBoolean decodeScheduled = new AtomicBoolean(false);
+
+	/**
+	 * Underrun counts and decode timing for this source's stream.
+	 */
+	protected final StreamStatistics streamStatistics = new StreamStatistics();
+
+	/**
+	 * Reusable direct buffer which codecs implementing IByteBufferCodec decode
+	 * into, or null if not needed yet.
+	 */
+	private ByteBuffer streamByteBuffer = null;
+
+	/**
+	 * Number of buffers this source streams with, or 0 to use
+	 * SoundSystemConfig.getNumberStreamingBuffers().
+	 */
+	protected int streamBufferCount = 0;
+
+	/**
+	 * Sample frame the stream starts at the next time it is preloaded.  Only
+	 * used if the codec implements ISeekableCodec.
+	 */
+	protected volatile long streamStartFrame = 0;
+
 	/**
 	 * This value represents the source's pitch (float value between 0.5f - 2.0f).
 	 */
@@ -177,6 +242,12 @@ public class Source {
 	 */
 	public SoundBuffer soundBuffer;
 
+	/**
+	 * Loaded sound this normal source has acquired, released again when the
+	 * source is cleaned up or changed.
+	 */
+	private SoundBuffer acquiredBuffer = null;
+
 	/**
 	 * False when this source gets culled.
 	 */
@@ -283,7 +354,9 @@ public class Source {
 		this.velocity = new Vector3D(0, 0, 0);
 		this.temporary = temporary;
 
-		if (toStream && filenameURL != null) codec = SoundSystemConfig.getCodec(filenameURL.getFilename());
+		acquireBuffer(soundBuffer);
+
+		if (toStream && filenameURL != null) codec = SoundSystemConfig.getCodec(filenameURL);
 	}
 
 	/**
@@ -313,8 +386,9 @@ public class Source {
 		rawDataFormat = old.rawDataFormat;
 
 		this.soundBuffer = soundBuffer;
+		acquireBuffer(soundBuffer);
 
-		if (toStream && filenameURL != null) codec = SoundSystemConfig.getCodec(filenameURL.getFilename());
+		if (toStream && filenameURL != null) codec = SoundSystemConfig.getCodec(filenameURL);
 	}
 
 	/**
@@ -355,7 +429,17 @@ public class Source {
 	 * Shuts the source down and removes references to all instantiated objects.
 	 */
 	public void cleanup() {
-		if (codec != null) codec.cleanup();
+		// Wait for any decode-ahead which is using the codec:
+		decodeLock.lock();
+		try {
+			clearDecodedBuffers();
+			decodeExecutor = null;
+			if (codec != null) codec.cleanup();
+			SoundSystemConfig.releaseCodec(codec);
+			codec = null;
+		} finally {
+			decodeLock.unlock();
+		}
 
 		synchronized (soundSequenceLock) {
 			if (soundSequenceQueue != null) soundSequenceQueue.clear();
@@ -365,10 +449,36 @@ public class Source {
 		sourcename = null;
 		filenameURL = null;
 		position = null;
+		releaseBuffer();
 		soundBuffer = null;
 		codec = null;
 	}
 
+	/**
+	 * Registers this source as a user of the specified loaded sound, letting go
+	 * of any sound it was using before.  Streaming sources hold no loaded sound.
+	 *
+	 * @param buffer Loaded sound this source will play, or null.
+	 */
+	private void acquireBuffer(SoundBuffer buffer) {
+		releaseBuffer();
+		if (!toStream && buffer != null) {
+			buffer.acquire();
+			acquiredBuffer = buffer;
+		}
+	}
+
+	/**
+	 * Unregisters this source as a user of the loaded sound it was playing, so
+	 * the sound may be unloaded once no other source needs it.
+	 */
+	void releaseBuffer() {
+		if (acquiredBuffer != null) {
+			acquiredBuffer.release();
+			acquiredBuffer = null;
+		}
+	}
+
 	/**
 	 * If this is a streaming source, queues up the next sound to play when
 	 * the previous stream ends.  This method has no effect on non-streaming
@@ -521,11 +631,7 @@ public class Source {
 			if (fadeOutMilis == 0) {
 				fadeOutGain = -1.0f;
 				fadeInGain = 0.0f;
-				if (!incrementSoundSequence()) {
-					stop();
-				}
-				positionChanged();
-				preLoad = true;
+				fadeOutFinished();
 				return false;
 			} else {
 				float fadeOutReduction = ((float) millisPast) / ((float) fadeOutMilis);
@@ -533,9 +639,7 @@ public class Source {
 				if (fadeOutGain <= 0.0f) {
 					fadeOutGain = -1.0f;
 					fadeInGain = 0.0f;
-					if (!incrementSoundSequence()) stop();
-					positionChanged();
-					preLoad = true;
+					fadeOutFinished();
 					return false;
 				}
 			}
@@ -560,6 +664,22 @@ public class Source {
 		return false;
 	}
 
+	/**
+	 * Moves on to the next sound in the sound sequence queue when a fade-out
+	 * has finished, or stops if there is none.  The decode threads are kept
+	 * away from the codec until the stream is marked to start over.
+	 */
+	private void fadeOutFinished() {
+		decodeLock.lock();
+		try {
+			if (!incrementSoundSequence()) stop();
+			positionChanged();
+			preLoad = true;
+		} finally {
+			decodeLock.unlock();
+		}
+	}
+
 	/**
 	 * Removes the next filename/URL from the sound sequence queue and assigns it to
 	 * this source.  This method has no effect on non-streaming sources.  This
@@ -574,13 +694,20 @@ public class Source {
 			return false;
 		}
 
-		synchronized (soundSequenceLock) {
-			if (soundSequenceQueue != null && !soundSequenceQueue.isEmpty()) {
-				filenameURL = soundSequenceQueue.remove(0);
-				if (codec != null) codec.cleanup();
-				codec = SoundSystemConfig.getCodec(filenameURL.getFilename());
-				return true;
+		// Keep the decode threads away from the codec while it is replaced:
+		decodeLock.lock();
+		try {
+			synchronized (soundSequenceLock) {
+				if (soundSequenceQueue != null && !soundSequenceQueue.isEmpty()) {
+					filenameURL = soundSequenceQueue.remove(0);
+					if (codec != null) codec.cleanup();
+					SoundSystemConfig.releaseCodec(codec);
+					codec = SoundSystemConfig.getCodec(filenameURL);
+					return true;
+				}
 			}
+		} finally {
+			decodeLock.unlock();
 		}
 		return false;
 	}
@@ -602,13 +729,14 @@ public class Source {
 		synchronized (soundSequenceLock) {
 			if (soundSequenceQueue != null && !soundSequenceQueue.isEmpty()) {
 				if (nextCodec != null) nextCodec.cleanup();
-				nextCodec = SoundSystemConfig.getCodec(soundSequenceQueue.get(0).getFilename());
+				SoundSystemConfig.releaseCodec(nextCodec);
+				nextCodec = SoundSystemConfig.getCodec(soundSequenceQueue.get(0));
 				if (nextCodec == null) return false;
 
 				nextCodec.initialize(soundSequenceQueue.get(0).getURL());
 
 				SoundBuffer buffer;
-				for (int i = 0; i < SoundSystemConfig.getNumberStreamingBuffers() && !nextCodec.endOfStream(); i++) {
+				for (int i = 0; i < getNumberStreamingBuffers() && !nextCodec.endOfStream(); i++) {
 					buffer = nextCodec.read();
 					if (buffer != null) {
 						if (nextBuffers == null) nextBuffers = new LinkedList<>();
@@ -780,6 +908,7 @@ public class Source {
 		this.sourcename = sourceName;
 		this.filenameURL = filenameURL;
 		this.soundBuffer = soundBuffer;
+		acquireBuffer(soundBuffer);
 		position.x = x;
 		position.y = y;
 		position.z = z;
@@ -844,7 +973,12 @@ public class Source {
 
 		if (preLoad) {
 			if (rawDataStream) preLoad = false;
-			else return preLoad();
+			else {
+				// Anything decoded ahead is from before the stream restarted:
+				clearDecodedBuffers();
+				adaptStreamingBuffers();
+				return preLoad();
+			}
 		}
 
 		if (rawDataStream) {
@@ -857,21 +991,26 @@ public class Source {
 			if (paused()) return true;
 
 			int processed = channel.buffersProcessed();
+			int bufferCount = getNumberStreamingBuffers();
+			boolean starved = processed >= bufferCount || channel.starved();
+			// Only report an underrun once, when the source first runs dry:
+			if (streamStatistics.recordCheck(processed, bufferCount, starved)) SoundSystemConfig.notifyStreamUnderrun(sourcename, streamStatistics.getUnderruns());
 
 			SoundBuffer buffer;
 			for (int i = 0; i < processed; i++) {
-				buffer = codec.read();
-				if (buffer != null) {
-					if (buffer.audioData != null) channel.queueBuffer(buffer.audioData);
-					buffer.cleanup();
+				if (queueStreamBuffer()) {
+					streamStatistics.recordRefill();
+					// A channel which ran out of data may have stopped itself:
+					if (starved && !channel.playing()) channel.play();
 					return true;
 				} else if (codec.endOfStream()) {
 					synchronized (soundSequenceLock) {
 						if (SoundSystemConfig.getStreamQueueFormatsMatch()) {
 							if (soundSequenceQueue != null && !soundSequenceQueue.isEmpty()) {
 								if (codec != null) codec.cleanup();
+								SoundSystemConfig.releaseCodec(codec);
 								filenameURL = soundSequenceQueue.remove(0);
-								codec = SoundSystemConfig.getCodec(filenameURL.getFilename());
+								codec = SoundSystemConfig.getCodec(filenameURL);
 
 								// Should never happen...
 								if (codec == null) return false;
@@ -884,7 +1023,7 @@ public class Source {
 									return true;
 								}
 							} else if (toLoop) {
-								codec.initialize(filenameURL.getURL());
+								restartCodec(0);
 								buffer = codec.read();
 								if (buffer != null) {
 									if (buffer.audioData != null) channel.queueBuffer(buffer.audioData);
@@ -900,6 +1039,280 @@ public class Source {
 		return false;
 	}
 
+	/**
+	 * Lets decode threads read buffers for this source ahead of time, so that
+	 * streaming doesn't have to wait on the codec.  This method is used
+	 * internally by the {@link StreamThread StreamThread}, and it is unlikely
+	 * that the user will ever need to use it.
+	 *
+	 * @param executor Decode threads to use.
+	 * @param buffers  Number of buffers to decode ahead.
+	 */
+	public void enableDecodeAhead(ExecutorService executor, int buffers) {
+		if (executor == null || buffers < 1 || rawDataStream || decodedBuffers != null) return;
+		decodedBuffers = new ArrayBlockingQueue<>(buffers);
+		decodeExecutor = executor;
+	}
+
+	/**
+	 * Returns the next buffer of audio data for the stream.  A buffer which
+	 * was decoded ahead is used if one is ready, otherwise the codec is read
+	 * directly.  Then more buffers are decoded ahead, if decode-ahead is in use.
+	 * The caller must hold {@link #decodeLock}.
+	 *
+	 * @return The next buffer, or null if none was read.
+	 */
+	protected SoundBuffer readStreamBuffer() {
+		SoundBuffer buffer = null;
+		if (decodedBuffers != null) buffer = decodedBuffers.poll();
+		if (buffer == null) buffer = timedRead();
+		scheduleDecodeAhead();
+		return buffer;
+	}
+
+	/**
+	 * Reads the next buffer of audio data for the stream and queues it on the
+	 * channel.  If the codec can decode into a ByteBuffer and nothing is being
+	 * decoded ahead, the data goes through this source's reusable direct buffer
+	 * instead of a new byte[].  Otherwise the byte[] from the codec is copied
+	 * into the direct buffer and recycled in the
+	 * {@link SoundSystemConfig#getStreamBufferPool() stream buffer pool}.  The
+	 * caller must hold {@link #decodeLock}.
+	 *
+	 * @return False if no buffer was read.
+	 */
+	protected boolean queueStreamBuffer() {
+		if (decodedBuffers == null && codec instanceof IByteBufferCodec) {
+			ByteBuffer target = getStreamByteBuffer();
+			long start = System.nanoTime();
+			int bytes = ((IByteBufferCodec) codec).read(target);
+			streamStatistics.recordDecode(System.nanoTime() - start, bytes, codec.getAudioFormat());
+			if (bytes <= 0) return false;
+			((Buffer) target).flip();
+			channel.queueBuffer(target);
+			return true;
+		}
+
+		SoundBuffer buffer = readStreamBuffer();
+		if (buffer == null) return false;
+		byte[] data = buffer.audioData;
+		if (data != null) {
+			ByteBuffer target = getStreamByteBuffer();
+			if (data.length <= target.remaining()) {
+				((Buffer) target.put(data)).flip();
+				channel.queueBuffer(target);
+				// The channel has its own copy now:
+				SoundSystemConfig.getStreamBufferPool().recycle(data);
+			} else {
+				// Some codecs read a bit more than one stream buffer, and the
+				// channel may keep this array:
+				channel.queueBuffer(data);
+			}
+		}
+		buffer.cleanup();
+		return true;
+	}
+
+	/**
+	 * Returns this source's reusable direct buffer, cleared and ready to be
+	 * filled.  A new one is allocated if the streaming buffer size changed.
+	 *
+	 * @return Direct buffer in native byte order.
+	 */
+	private ByteBuffer getStreamByteBuffer() {
+		int size = SoundSystemConfig.getStreamingBufferSize();
+		if (streamByteBuffer == null || streamByteBuffer.capacity() != size)
+			streamByteBuffer = ByteBuffer.allocateDirect(size).order(ByteOrder.nativeOrder());
+		((Buffer) streamByteBuffer).clear();
+		return streamByteBuffer;
+	}
+
+	/**
+	 * Reads the next buffer from the codec, recording how long it took in the
+	 * stream statistics.  The caller must hold {@link #decodeLock}.
+	 *
+	 * @return The next buffer, or null if none was read.
+	 */
+	private SoundBuffer timedRead() {
+		long start = System.nanoTime();
+		SoundBuffer buffer = codec.read();
+		streamStatistics.recordDecode(System.nanoTime() - start, buffer);
+		return buffer;
+	}
+
+	/**
+	 * Returns the number of buffers this source streams with.  This is
+	 * SoundSystemConfig.getNumberStreamingBuffers() unless adaptive streaming
+	 * has chosen a different number for this source.
+	 *
+	 * @return How many buffers.
+	 */
+	public int getNumberStreamingBuffers() {
+		int count = streamBufferCount;
+		if (count > 0) return count;
+		return SoundSystemConfig.getNumberStreamingBuffers();
+	}
+
+	/**
+	 * Returns the underrun counts and decode timing for this source's stream.
+	 *
+	 * @return The stream statistics.
+	 */
+	public StreamStatistics getStreamStatistics() {
+		return streamStatistics;
+	}
+
+	/**
+	 * Sets the sample frame this source's stream starts at the next time it
+	 * starts playing (from the beginning, or after being stopped or rewound).
+	 * Has no effect unless the codec implements {@link ISeekableCodec}.
+	 *
+	 * @param frame Sample frame to start at.
+	 */
+	public void setStreamStartFrame(long frame) {
+		streamStartFrame = Math.max(0, frame);
+	}
+
+	/**
+	 * Returns the sample frame the codec will read next.  This is ahead of what
+	 * is being heard by the amount of data queued on the channel.
+	 *
+	 * @return Sample frame, or -1 if unknown.
+	 */
+	public long getStreamPosition() {
+		ICodec c = codec;
+		if (!(c instanceof ISeekableCodec)) return -1;
+		return ((ISeekableCodec) c).position();
+	}
+
+	/**
+	 * Returns the length of this source's stream.
+	 *
+	 * @return Number of sample frames, or -1 if unknown.
+	 */
+	public long getStreamLength() {
+		decodeLock.lock();
+		try {
+			if (!(codec instanceof ISeekableCodec)) return -1;
+			return ((ISeekableCodec) codec).length();
+		} finally {
+			decodeLock.unlock();
+		}
+	}
+
+	/**
+	 * Starts the codec again from the start frame set by setStreamStartFrame()
+	 * (which is then reset to 0).  This is used internally by preLoad(), and it
+	 * is unlikely that the user will ever need to use it.
+	 *
+	 * @return False if the codec could not be started.
+	 */
+	protected boolean restartStream() {
+		long frame = streamStartFrame;
+		streamStartFrame = 0;
+		return restartCodec(frame);
+	}
+
+	/**
+	 * Moves the codec to the specified sample frame.  A codec which implements
+	 * {@link ISeekableCodec} and is already initialized is simply moved,
+	 * otherwise the codec is initialized again from the URL.
+	 *
+	 * @param frame Sample frame to start at.
+	 * @return False if the codec could not be started.
+	 */
+	protected boolean restartCodec(long frame) {
+		if (codec instanceof ISeekableCodec && codec.initialized()) {
+			ISeekableCodec seekableCodec = (ISeekableCodec) codec;
+			// Nothing to do if the codec was just initialized:
+			if (seekableCodec.position() == frame && !codec.endOfStream()) return true;
+			if (seekableCodec.seek(frame)) return true;
+		}
+		if (!codec.initialize(filenameURL.getURL())) return false;
+		if (frame > 0 && codec instanceof ISeekableCodec) ((ISeekableCodec) codec).seek(frame);
+		return true;
+	}
+
+	/**
+	 * Chooses the number of buffers to use the next time the stream is
+	 * preloaded, if adaptive streaming is enabled.
+	 */
+	protected void adaptStreamingBuffers() {
+		if (!SoundSystemConfig.getAdaptiveStreaming()) {
+			streamBufferCount = 0;
+			return;
+		}
+		int minimum = Math.max(1, SoundSystemConfig.getNumberStreamingBuffers());
+		int maximum = Math.max(minimum, SoundSystemConfig.getMaxStreamingBuffers());
+		int count = streamStatistics.adaptBufferCount(getNumberStreamingBuffers(), minimum, maximum);
+		if (count != getNumberStreamingBuffers()) message("Source '" + sourcename + "' now streaming with " + count + " buffers");
+		streamBufferCount = count;
+	}
+
+	/**
+	 * Queues a task on the decode threads to fill up the buffers decoded ahead,
+	 * unless one is already queued.
+	 */
+	private void scheduleDecodeAhead() {
+		ExecutorService executor = decodeExecutor;
+		if (executor == null) return;
+		if (!decodeScheduled.compareAndSet(false, true)) return;
+		try {
+			executor.execute(this::decodeAhead);
+		} catch (RejectedExecutionException ree) {
+			// The decode threads are shutting down:
+			decodeScheduled.set(false);
+		}
+	}
+
+	/**
+	 * Runs on a decode thread, reading buffers until the decode-ahead queue is
+	 * full or the stream ends.  The lock is let go between buffers so the
+	 * streaming thread never has to wait for more than one buffer.
+	 */
+	private void decodeAhead() {
+		try {
+			boolean more = true;
+			SoundBuffer buffer;
+			while (more) {
+				decodeLock.lock();
+				try {
+					ArrayBlockingQueue<SoundBuffer> queue = decodedBuffers;
+					if (removed || preLoad || codec == null || queue == null || queue.remainingCapacity() == 0 || codec.endOfStream()) {
+						more = false;
+					} else {
+						buffer = timedRead();
+						if (buffer == null) more = false;
+						else queue.offer(buffer);
+					}
+				} finally {
+					decodeLock.unlock();
+				}
+			}
+		} finally {
+			decodeScheduled.set(false);
+		}
+	}
+
+	/**
+	 * Throws away any buffers which were decoded ahead, for example because the
+	 * stream is starting over.
+	 */
+	protected void clearDecodedBuffers() {
+		ArrayBlockingQueue<SoundBuffer> queue = decodedBuffers;
+		if (queue == null) return;
+		decodeLock.lock();
+		try {
+			SoundBuffer buffer;
+			while ((buffer = queue.poll()) != null) {
+				SoundSystemConfig.getStreamBufferPool().recycle(buffer.audioData);
+				buffer.cleanup();
+			}
+		} finally {
+			decodeLock.unlock();
+		}
+	}
+
 	/**
 	 * Queues up the initial stream-buffers for the stream.
 	 *
@@ -931,10 +1344,8 @@ public class Source {
 			}
 		} else {
 			nextCodec = null;
-			URL url = filenameURL.getURL();
-
-			codec.initialize(url);
-			for (int i = 0; i < SoundSystemConfig.getNumberStreamingBuffers(); i++) {
+			restartStream();
+			for (int i = 0; i < getNumberStreamingBuffers(); i++) {
 				buffer = codec.read();
 				if (buffer != null) {
 					if (buffer.audioData != null) channel.queueBuffer(buffer.audioData);
@@ -1003,6 +1414,7 @@ public class Source {
 		active(SET, false);
 		if (channel != null) channel.close();
 		channel = null;
+		SoundSystemConfig.notifySourceCulled(sourcename);
 	}
 
 	/**
@@ -0,0 +1,366 @@
+/*
+ * The SoundSystem License:
+ *
+ * You are free to use this library for any purpose, commercial or otherwise.
+ * You may modify this library or source code, and distribute it any way you
+ * like, provided the following conditions are met:
+ *
+ * 1) You may not falsely claim to be the author of this library or any
+ *    unmodified portion of it.
+ * 2) You may not copyright this library or a modified version of it and then
+ *    sue me for copyright infringement.
+ * 3) If you modify the source code, you must clearly document the changes
+ *    made before redistributing the modified source code, so other users know
+ *    it is not the original code.
+ * 4) You are not required to give me credit for this library in any derived
+ *    work, but if you do, you must also mention my website:
+ *    https://www.paulscode.com
+ * 5) I the author will not be responsible for any damages (physical,
+ *    financial, or otherwise) caused by the use if this library or any part
+ *    of it.
+ * 6) I the author do not guarantee, warrant, or make any representations,
+ *    either expressed or implied, regarding the use of this library or any
+ *    part of it.
+ *
+ * Author: Paul Lamb
+ * https://www.paulscode.com
+ */
+package paulscode.sound;
+
+import java.util.HashMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * The SourceHandleTable class hands out integer handles for sources, so the
+ * frequently-called methods such as setPosition do not have to look sources
+ * up by name in a HashMap every time they are executed.  Each handle is made
+ * up of a slot index into a set of arrays and a generation number.  The
+ * generation number is changed whenever a slot is released, so a handle to a
+ * source which has been removed is recognized as stale, even after its slot
+ * has been reused by another source.
+ * <p>
+ * Handles are allocated and released while holding the table's monitor, but
+ * they are resolved without locking: a reader checks the slot's generation
+ * before and after reading its name.  Sources are resolved only by the
+ * {@link CommandThread CommandThread}, which remembers the Source found for
+ * each slot.  If that Source is later cleaned up (for example when the sound
+ * library is switched), the handle is simply resolved again by name.
+ * <p>
+ * NOTE: The handle table is created automatically by the sound system, so it
+ * is unlikely that the user would ever need to use this class.
+ */
+@SuppressWarnings("unused")
+public class SourceHandleTable {
+	/**
+	 * Value which is never used as a valid handle.
+	 */
+	public static final int INVALID_HANDLE = 0;
+
+	/**
+	 * Number of low bits in a handle used for the slot index.
+	 */
+	private static final int INDEX_BITS = 16;
+
+	/**
+	 * Used to read the slot index from a handle.
+	 */
+	private static final int INDEX_MASK = (1 << INDEX_BITS) - 1;
+
+	/**
+	 * Largest generation number before wrapping back around to 1.
+	 */
+	private static final int MAX_GENERATION = 0x7FFF;
+
+	/**
+	 * Name and generation of each slot.  Replaced (never modified in size) when
+	 * the table grows, so readers always see a matching pair of arrays.
+	 */
+	private volatile Slots slots;
+
+	/**
+	 * Source each slot was last resolved to.  Only used by the Command Thread.
+	 */
+	private Source[] sources = new Source[0];
+
+	/**
+	 * Generation of each slot when its source was resolved.  Only used by the
+	 * Command Thread.
+	 */
+	private int[] sourceGenerations = new int[0];
+
+	/**
+	 * Handle currently allocated for each source name.
+	 */
+	private final HashMap<String, Integer> handlesByName = new HashMap<>();
+
+	/**
+	 * Number of consecutive sweeps in which each slot's source was missing.
+	 */
+	private int[] misses;
+
+	/**
+	 * Released slots which are ready to be reused.
+	 */
+	private int[] freeSlots;
+
+	/**
+	 * Number of entries in freeSlots.
+	 */
+	private int freeCount = 0;
+
+	/**
+	 * Number of slots which have ever been used.
+	 */
+	private int usedSlots = 0;
+
+	/**
+	 * Number of handles currently allocated.
+	 */
+	private int allocated = 0;
+
+	/**
+	 * Constructor: Creates an empty handle table.
+	 *
+	 * @param initialCapacity Number of slots to start with.
+	 */
+	public SourceHandleTable(int initialCapacity) {
+		if (initialCapacity < 1) initialCapacity = 1;
+		if (initialCapacity > INDEX_MASK + 1) initialCapacity = INDEX_MASK + 1;
+		slots = new Slots(initialCapacity);
+		misses = new int[initialCapacity];
+		freeSlots = new int[initialCapacity];
+	}
+
+	/**
+	 * Returns the handle currently allocated for the specified source name,
+	 * allocating one if there isn't one yet.
+	 *
+	 * @param sourceName Name of the source the handle refers to.
+	 * @return The handle, or INVALID_HANDLE if the table is full.
+	 */
+	public synchronized int lookup(String sourceName) {
+		Integer handle = handlesByName.get(sourceName);
+		return handle != null ? handle : allocate(sourceName);
+	}
+
+	/**
+	 * Allocates a new handle for the specified source name.  Any handle already
+	 * allocated for the name is left as it is, but {@link #lookup(String)
+	 * lookup()} returns the new one from now on.
+	 *
+	 * @param sourceName Name of the source the handle will refer to, or null to generate one.
+	 * @return The new handle, or INVALID_HANDLE if the table is full.
+	 */
+	public synchronized int allocate(String sourceName) {
+		int index;
+		if (freeCount > 0) {
+			index = freeSlots[--freeCount];
+		} else {
+			if (usedSlots == slots.capacity && !grow()) return INVALID_HANDLE;
+			index = usedSlots++;
+			slots.generations.set(index, 1);
+		}
+		int generation = slots.generations.get(index);
+		int handle = (generation << INDEX_BITS) | index;
+		if (sourceName == null) sourceName = "Source_" + index + "_" + generation;
+		slots.names.set(index, sourceName);
+		misses[index] = 0;
+		handlesByName.put(sourceName, handle);
+		allocated++;
+		return handle;
+	}
+
+	/**
+	 * Returns the name of the source the specified handle refers to.  This
+	 * method does not lock, so it may be called from any thread.
+	 *
+	 * @param handle Handle to look up.
+	 * @return The source name, or null if the handle is not valid.
+	 */
+	public String getName(int handle) {
+		if (handle == INVALID_HANDLE) return null;
+		Slots current = slots;
+		int index = handle & INDEX_MASK;
+		int generation = handle >>> INDEX_BITS;
+		if (index >= current.capacity || current.generations.get(index) != generation) return null;
+		String name = current.names.get(index);
+		// Make sure the slot wasn't released while its name was being read:
+		return current.generations.get(index) == generation ? name : null;
+	}
+
+	/**
+	 * Returns the source the specified handle refers to.  This method does not
+	 * lock, and may only be called from the Command Thread.
+	 *
+	 * @param handle  Handle to look up.
+	 * @param library Library to look the source up in, if it hasn't been found yet.
+	 * @return The Source, or null if the handle is not valid or the source doesn't exist (yet).
+	 */
+	public Source getSource(int handle, Library library) {
+		String name = getName(handle);
+		if (name == null) return null;
+		int index = handle & INDEX_MASK;
+		int generation = handle >>> INDEX_BITS;
+		if (index >= sources.length) {
+			int newSize = Math.max(index + 1, slots.capacity);
+			Source[] newSources = new Source[newSize];
+			int[] newGenerations = new int[newSize];
+			System.arraycopy(sources, 0, newSources, 0, sources.length);
+			System.arraycopy(sourceGenerations, 0, newGenerations, 0, sourceGenerations.length);
+			sources = newSources;
+			sourceGenerations = newGenerations;
+		}
+		Source source = sources[index];
+		// Look the source up again if the slot was reused, or the source was removed or replaced:
+		if (sourceGenerations[index] != generation || source == null || source.sourcename == null || source.removed) {
+			source = library == null ? null : library.getSource(name);
+			sources[index] = source;
+			sourceGenerations[index] = generation;
+		}
+		return source;
+	}
+
+	/**
+	 * Releases the specified handle, so its slot can be reused.  Any copies of
+	 * the handle will no longer be valid.
+	 *
+	 * @param handle Handle to release.
+	 * @return True if the handle was valid.
+	 */
+	public synchronized boolean release(int handle) {
+		int index = handle & INDEX_MASK;
+		if (!valid(handle, index)) return false;
+		releaseSlot(index);
+		return true;
+	}
+
+	/**
+	 * Releases all handles whose sources are no longer found in the specified
+	 * library.  Since a handle may be allocated before its source has been
+	 * created, a handle is only released after its source has been missing for
+	 * two sweeps in a row.  This method may only be called from the Command
+	 * Thread.
+	 *
+	 * @param library Library to look sources up in.
+	 */
+	public synchronized void releaseMissing(Library library) {
+		if (library == null) return;
+		String name;
+		for (int index = 0; index < usedSlots; index++) {
+			name = slots.names.get(index);
+			if (name == null) continue;
+			if (library.getSource(name) != null || library.midiSourceName(name)) {
+				misses[index] = 0;
+			} else if (++misses[index] > 1) {
+				releaseSlot(index);
+			}
+		}
+	}
+
+	/**
+	 * Releases all handles.
+	 */
+	public synchronized void clear() {
+		for (int index = 0; index < usedSlots; index++) {
+			if (slots.names.get(index) != null) releaseSlot(index);
+		}
+	}
+
+	/**
+	 * Returns the number of handles currently allocated.
+	 *
+	 * @return Number of handles.
+	 */
+	public synchronized int size() {
+		return allocated;
+	}
+
+	/**
+	 * Checks if the specified handle refers to a slot's current generation.
+	 *
+	 * @param handle Handle to check.
+	 * @param index  Slot index read from the handle.
+	 * @return True if the handle is valid.
+	 */
+	private boolean valid(int handle, int index) {
+		return handle != INVALID_HANDLE && index < slots.capacity && slots.generations.get(index) == (handle >>> INDEX_BITS);
+	}
+
+	/**
+	 * Frees up the specified slot and moves it to the next generation.  The
+	 * generation is changed before the name is cleared, so a reader never
+	 * pairs an old handle with the slot's next name.
+	 *
+	 * @param index Slot to release.
+	 */
+	private void releaseSlot(int index) {
+		int generation = slots.generations.get(index);
+		slots.generations.set(index, generation >= MAX_GENERATION ? 1 : generation + 1);
+		String name = slots.names.get(index);
+		Integer handle = handlesByName.get(name);
+		if (handle != null && (handle & INDEX_MASK) == index) handlesByName.remove(name);
+		slots.names.set(index, null);
+		misses[index] = 0;
+		freeSlots[freeCount++] = index;
+		allocated--;
+	}
+
+	/**
+	 * Doubles the number of slots, up to the most a handle can address.
+	 *
+	 * @return False if the table is already as large as it can be.
+	 */
+	private boolean grow() {
+		Slots oldSlots = slots;
+		int oldSize = oldSlots.capacity;
+		if (oldSize > INDEX_MASK) return false;
+		int newSize = Math.min(oldSize * 2, INDEX_MASK + 1);
+
+		Slots newSlots = new Slots(newSize);
+		int[] newMisses = new int[newSize];
+		int[] newFreeSlots = new int[newSize];
+		for (int index = 0; index < oldSize; index++) {
+			newSlots.generations.set(index, oldSlots.generations.get(index));
+			newSlots.names.set(index, oldSlots.names.get(index));
+		}
+		System.arraycopy(misses, 0, newMisses, 0, oldSize);
+		System.arraycopy(freeSlots, 0, newFreeSlots, 0, freeCount);
+
+		misses = newMisses;
+		freeSlots = newFreeSlots;
+		slots = newSlots;
+		return true;
+	}
+
+	/**
+	 * The Slots class holds the name and generation of every slot in the table.
+	 */
+	private static class Slots {
+		/**
+		 * Number of slots.
+		 */
+		final int capacity;
+
+		/**
+		 * Name of the source each slot refers to, or null for unused slots.
+		 */
+		final AtomicReferenceArray<String> names;
+
+		/**
+		 * Current generation of each slot.
+		 */
+		final AtomicIntegerArray generations;
+
+		/**
+		 * Constructor: Creates empty slots.
+		 *
+		 * @param capacity Number of slots.
+		 */
+		Slots(int capacity) {
+			this.capacity = capacity;
+			names = new AtomicReferenceArray<>(capacity);
+			generations = new AtomicIntegerArray(capacity);
+		}
+	}
+}
@@ -0,0 +1,207 @@
+/*
+ * The SoundSystem License:
+ *
+ * You are free to use this library for any purpose, commercial or otherwise.
+ * You may modify this library or source code, and distribute it any way you
+ * like, provided the following conditions are met:
+ *
+ * 1) You may not falsely claim to be the author of this library or any
+ *    unmodified portion of it.
+ * 2) You may not copyright this library or a modified version of it and then
+ *    sue me for copyright infringement.
+ * 3) If you modify the source code, you must clearly document the changes
+ *    made before redistributing the modified source code, so other users know
+ *    it is not the original code.
+ * 4) You are not required to give me credit for this library in any derived
+ *    work, but if you do, you must also mention my website:
+ *    https://www.paulscode.com
+ * 5) I the author will not be responsible for any damages (physical,
+ *    financial, or otherwise) caused by the use if this library or any part
+ *    of it.
+ * 6) I the author do not guarantee, warrant, or make any representations,
+ *    either expressed or implied, regarding the use of this library or any
+ *    part of it.
+ *
+ * Author: Paul Lamb
+ * https://www.paulscode.com
+ */
+
+package paulscode.sound;
+
+/**
+ * The SourceSnapshot class holds a copy of a source's state, published by the
+ * {@link CommandThread CommandThread} after each pass through the command
+ * queue (and periodically while sources are playing).  Methods such as
+ * {@link SoundSystem#playing(String) playing()} read from the snapshot instead
+ * of taking the {@link SoundSystemConfig#THREAD_SYNC} lock, so they never
+ * have to wait for the Command Thread to finish whatever it is doing.
+ * <p>
+ * Only one thread ever publishes to a snapshot.  The version number is odd
+ * while an update is in progress, so a reader wanting several values which
+ * belong together can use {@link #read(float[]) read()}, which retries until
+ * it gets a copy made between updates.  Single values may simply be read with
+ * the getter methods.
+ * <p>
+ * NOTE: Snapshots are created automatically by the sound library, so it is
+ * unlikely that the user would ever need to use this class.
+ */
+@SuppressWarnings("unused")
+public class SourceSnapshot {
+	/**
+	 * Index of the playing flag (1 or 0) in the array filled by read().
+	 */
+	public static final int STATE_PLAYING = 0;
+	/**
+	 * Index of the milliseconds played in the array filled by read().
+	 */
+	public static final int STATE_MILLIS = 1;
+	/**
+	 * Index of the volume in the array filled by read().
+	 */
+	public static final int STATE_VOLUME = 2;
+	/**
+	 * Index of the pitch in the array filled by read().
+	 */
+	public static final int STATE_PITCH = 3;
+	/**
+	 * Size of the array filled by read().
+	 */
+	public static final int STATE_SIZE = 4;
+
+	/**
+	 * Incremented before and after each update.
+	 */
+	private volatile int version = 0;
+
+	/**
+	 * Whether or not the source was playing.
+	 */
+	private volatile boolean playing = false;
+
+	/**
+	 * Milliseconds the source had played, or -1 if unknown.
+	 */
+	private volatile float millisecondsPlayed = -1;
+
+	/**
+	 * The source's volume (0.0f - 1.0f).
+	 */
+	private volatile float volume = 1.0f;
+
+	/**
+	 * The source's pitch (0.5f - 2.0f).
+	 */
+	private volatile float pitch = 1.0f;
+
+	/**
+	 * Channel the source was attached to, or null.
+	 */
+	private volatile Channel channel = null;
+
+	/**
+	 * System time in milliseconds when the snapshot was published.
+	 */
+	private volatile long timePublished = 0;
+
+	/**
+	 * Copies the current state of the specified source.  Must only be called by
+	 * one thread (the Command Thread).
+	 *
+	 * @param source Source to take a snapshot of.
+	 */
+	public void publish(Source source) {
+		int v = version;
+		version = v + 1;
+		playing = source.playing();
+		millisecondsPlayed = source.millisecondsPlayed();
+		volume = source.sourceVolume;
+		pitch = source.getPitch();
+		channel = source.channel;
+		timePublished = System.currentTimeMillis();
+		version = v + 2;
+	}
+
+	/**
+	 * Returns whether or not the source was playing when the snapshot was
+	 * published.
+	 *
+	 * @return True or False.
+	 */
+	public boolean playing() {
+		return playing;
+	}
+
+	/**
+	 * Returns the number of milliseconds the source has played.  If the source
+	 * was playing when the snapshot was published, the time which has passed
+	 * since then is taken into account.
+	 *
+	 * @return Milliseconds, or -1 if not playing or unable to calculate.
+	 */
+	public float millisecondsPlayed() {
+		int before;
+		boolean wasPlaying;
+		float millis;
+		float rate;
+		long published;
+		do {
+			before = version;
+			wasPlaying = playing;
+			millis = millisecondsPlayed;
+			rate = pitch;
+			published = timePublished;
+			// Try again if an update was in progress or happened meanwhile:
+		} while ((before & 1) != 0 || before != version);
+		if (millis < 0 || !wasPlaying) return millis;
+		return millis + (System.currentTimeMillis() - published) * rate;
+	}
+
+	/**
+	 * Returns the source's volume.
+	 *
+	 * @return Float value representing the source volume (0.0f - 1.0f).
+	 */
+	public float getVolume() {
+		return volume;
+	}
+
+	/**
+	 * Returns the source's pitch.
+	 *
+	 * @return Float value representing the source pitch (0.5f - 2.0f).
+	 */
+	public float getPitch() {
+		return pitch;
+	}
+
+	/**
+	 * Returns the channel the source was attached to.
+	 *
+	 * @return Channel, or null if the source did not have one.
+	 */
+	public Channel getChannel() {
+		return channel;
+	}
+
+	/**
+	 * Copies the playing flag, milliseconds played, volume, and pitch, all from
+	 * the same update, into the specified array (see the STATE_ indexes).
+	 *
+	 * @param state Array of at least STATE_SIZE elements to fill in.
+	 * @return System time in milliseconds when the copied values were published.
+	 */
+	public long read(float[] state) {
+		int before;
+		long published;
+		do {
+			before = version;
+			state[STATE_PLAYING] = playing ? 1 : 0;
+			state[STATE_MILLIS] = millisecondsPlayed;
+			state[STATE_VOLUME] = volume;
+			state[STATE_PITCH] = pitch;
+			published = timePublished;
+			// Try again if an update was in progress or happened meanwhile:
+		} while ((before & 1) != 0 || before != version);
+		return published;
+	}
+}
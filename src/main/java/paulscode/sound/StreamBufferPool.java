@@ -0,0 +1,247 @@
+/*
+ * The SoundSystem License:
+ *
+ * You are free to use this library for any purpose, commercial or otherwise.
+ * You may modify this library or source code, and distribute it any way you
+ * like, provided the following conditions are met:
+ *
+ * 1) You may not falsely claim to be the author of this library or any
+ *    unmodified portion of it.
+ * 2) You may not copyright this library or a modified version of it and then
+ *    sue me for copyright infringement.
+ * 3) If you modify the source code, you must clearly document the changes
+ *    made before redistributing the modified source code, so other users know
+ *    it is not the original code.
+ * 4) You are not required to give me credit for this library in any derived
+ *    work, but if you do, you must also mention my website:
+ *    https://www.paulscode.com
+ * 5) I the author will not be responsible for any damages (physical,
+ *    financial, or otherwise) caused by the use if this library or any part
+ *    of it.
+ * 6) I the author do not guarantee, warrant, or make any representations,
+ *    either expressed or implied, regarding the use of this library or any
+ *    part of it.
+ *
+ * Author: Paul Lamb
+ * https://www.paulscode.com
+ */
+
+package paulscode.sound;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The StreamBufferPool class keeps byte[] stream buffers which are no longer
+ * needed, so they can be handed out again instead of allocating new ones.
+ * Codecs borrow arrays to decode into, and once a channel or source is done
+ * with an array (because the audio library has copied it, or a SourceDataLine
+ * has played it), the array is recycled.  This way streaming allocates almost
+ * nothing once every source has gone around its buffers once.
+ * <p>
+ * Arrays are kept in classes by their exact length, since code throughout the
+ * library treats the length of a buffer as the amount of audio data in it.
+ * Nearly every stream buffer is {@link SoundSystemConfig#getStreamingBufferSize()}
+ * bytes long, so in practice there are only a few classes.  The total size of
+ * the arrays kept is limited by
+ * {@link SoundSystemConfig#getStreamBufferPoolSize()}; arrays recycled past
+ * that limit are left for the garbage collector.
+ * <p>
+ * All methods may be called from any thread.  Only recycle an array when
+ * nothing else still refers to it.
+ * <p>
+ * The pool is shared by every sound system and library, so it is not emptied
+ * when one of them shuts down.  Call {@link #clear()} once all of them have
+ * been cleaned up to let go of the arrays.
+ */
+@SuppressWarnings("unused")
+public class StreamBufferPool {
+	/**
+	 * Most classes of different array lengths to keep at once.
+	 */
+	private static final int MAX_CLASSES = 8;
+
+	/**
+	 * Arrays waiting to be reused, by length.  A class whose length is 0 is not
+	 * in use.  A class is let go as soon as it is empty, and when every class is
+	 * in use the one used least recently is emptied for the new length,
+	 * so odd lengths don't keep the common ones out.
+	 */
+	private final SizeClass[] classes = new SizeClass[MAX_CLASSES];
+
+	/**
+	 * Total bytes in the arrays waiting to be reused.
+	 */
+	private long pooledBytes = 0;
+
+	/**
+	 * Counts calls to borrow() and recycle(), to tell which class was used
+	 * least recently.
+	 */
+	private long useCount = 0;
+
+	/**
+	 * Number of new arrays allocated by borrow().
+	 */
+	private final AtomicLong allocations = new AtomicLong();
+
+	/**
+	 * Number of arrays borrow() was able to reuse.
+	 */
+	private final AtomicLong reuses = new AtomicLong();
+
+	/**
+	 * Constructor:  Creates the (empty) classes up front, so the pool itself
+	 * never allocates once it is running.
+	 */
+	public StreamBufferPool() {
+		for (int i = 0; i < MAX_CLASSES; i++) {
+			classes[i] = new SizeClass();
+		}
+	}
+
+	/**
+	 * Returns an array of exactly the specified length, reusing a recycled one
+	 * if possible.  The contents of a reused array are not cleared.
+	 *
+	 * @param length Length of the array.
+	 * @return Array to use.
+	 */
+	public byte[] borrow(int length) {
+		byte[] array = null;
+		synchronized (classes) {
+			SizeClass sizeClass = length > 0 ? find(length) : null;
+			if (sizeClass != null) {
+				array = sizeClass.arrays.pollLast();
+				pooledBytes -= length;
+				sizeClass.lastUsed = ++useCount;
+				if (sizeClass.arrays.isEmpty()) sizeClass.length = 0;
+			}
+		}
+		if (array != null) {
+			reuses.incrementAndGet();
+			return array;
+		}
+		allocations.incrementAndGet();
+		return new byte[length];
+	}
+
+	/**
+	 * Gives back an array which is no longer needed, so it can be reused.  The
+	 * array is dropped if the pool is full.
+	 *
+	 * @param array Array to recycle, or null.
+	 */
+	public void recycle(byte[] array) {
+		if (array == null || array.length == 0) return;
+		long limit = SoundSystemConfig.getStreamBufferPoolSize();
+		synchronized (classes) {
+			if (pooledBytes + array.length > limit) return;
+			SizeClass sizeClass = find(array.length);
+			if (sizeClass == null) {
+				sizeClass = find(0);
+				if (sizeClass == null) {
+					// Make room by letting go of the class used least recently:
+					sizeClass = leastRecentlyUsed();
+					pooledBytes -= (long) sizeClass.length * sizeClass.arrays.size();
+					sizeClass.arrays.clear();
+				}
+				sizeClass.length = array.length;
+			}
+			sizeClass.arrays.addLast(array);
+			sizeClass.lastUsed = ++useCount;
+			pooledBytes += array.length;
+		}
+	}
+
+	/**
+	 * Lets go of every array being kept.
+	 */
+	public void clear() {
+		synchronized (classes) {
+			for (SizeClass sizeClass : classes) {
+				sizeClass.arrays.clear();
+				sizeClass.length = 0;
+			}
+			pooledBytes = 0;
+		}
+	}
+
+	/**
+	 * Finds the class for arrays of the specified length.  The caller must
+	 * hold the lock on 'classes'.
+	 *
+	 * @param length Length of the arrays, or 0 to find an unused class.
+	 * @return The class, or null if there isn't one.
+	 */
+	private SizeClass find(int length) {
+		for (SizeClass sizeClass : classes) {
+			if (sizeClass.length == length) return sizeClass;
+		}
+		return null;
+	}
+
+	/**
+	 * Finds the class which was borrowed from or recycled into least recently.
+	 * The caller must hold the lock on 'classes'.
+	 *
+	 * @return The class.
+	 */
+	private SizeClass leastRecentlyUsed() {
+		SizeClass oldest = classes[0];
+		for (SizeClass sizeClass : classes) {
+			if (sizeClass.lastUsed < oldest.lastUsed) oldest = sizeClass;
+		}
+		return oldest;
+	}
+
+	/**
+	 * Returns the total size of the arrays waiting to be reused.
+	 *
+	 * @return Size in bytes.
+	 */
+	public long getPooledBytes() {
+		synchronized (classes) {
+			return pooledBytes;
+		}
+	}
+
+	/**
+	 * Returns the number of new arrays which have had to be allocated.  When
+	 * streaming has settled down, this should stop going up.
+	 *
+	 * @return Number of arrays.
+	 */
+	public long getAllocationCount() {
+		return allocations.get();
+	}
+
+	/**
+	 * Returns the number of times a recycled array was reused.
+	 *
+	 * @return Number of arrays.
+	 */
+	public long getReuseCount() {
+		return reuses.get();
+	}
+
+	/**
+	 * Arrays of one length waiting to be reused.
+	 */
+	private static class SizeClass {
+		/**
+		 * Length of the arrays in this class, or 0 if the class is not in use.
+		 */
+		int length = 0;
+
+		/**
+		 * Value of useCount when this class was last used.
+		 */
+		long lastUsed = 0;
+
+		/**
+		 * Arrays waiting to be reused.
+		 */
+		final ArrayDeque<byte[]> arrays = new ArrayDeque<>();
+	}
+}
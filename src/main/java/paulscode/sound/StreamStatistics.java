@@ -0,0 +1,350 @@
+/*
+ * The SoundSystem License:
+ *
+ * You are free to use this library for any purpose, commercial or otherwise.
+ * You may modify this library or source code, and distribute it any way you
+ * like, provided the following conditions are met:
+ *
+ * 1) You may not falsely claim to be the author of this library or any
+ *    unmodified portion of it.
+ * 2) You may not copyright this library or a modified version of it and then
+ *    sue me for copyright infringement.
+ * 3) If you modify the source code, you must clearly document the changes
+ *    made before redistributing the modified source code, so other users know
+ *    it is not the original code.
+ * 4) You are not required to give me credit for this library in any derived
+ *    work, but if you do, you must also mention my website:
+ *    https://www.paulscode.com
+ * 5) I the author will not be responsible for any damages (physical,
+ *    financial, or otherwise) caused by the use if this library or any part
+ *    of it.
+ * 6) I the author do not guarantee, warrant, or make any representations,
+ *    either expressed or implied, regarding the use of this library or any
+ *    part of it.
+ *
+ * Author: Paul Lamb
+ * https://www.paulscode.com
+ */
+
+package paulscode.sound;
+
+import javax.sound.sampled.AudioFormat;
+
+/**
+ * The StreamStatistics class keeps track of how well a streaming source is
+ * keeping up with playback.  It counts underruns (times when every queued
+ * buffer had finished playing before more data arrived) and near-underruns
+ * (times when only one buffer was left), and it measures how long the codec
+ * takes to decode each buffer compared to how long that buffer takes to play.
+ * When {@link SoundSystemConfig#setAdaptiveStreaming(boolean) adaptive
+ * streaming} is enabled, these numbers are used to choose how many buffers
+ * each source gets: sources which starve or use slow codecs are given more,
+ * and sources which keep up easily drift back down to
+ * {@link SoundSystemConfig#getNumberStreamingBuffers()} to stay low-latency.
+ * <p>
+ * Values are recorded by the streaming and decode threads while they hold the
+ * source's decode lock, and they may be read from any thread.
+ * <p>
+ * NOTE: Statistics are kept automatically by the sound library.  Use
+ * {@link SoundSystem#getStreamStatistics(String)} to get the statistics for a
+ * particular source.
+ */
+@SuppressWarnings("unused")
+public class StreamStatistics {
+	/**
+	 * Decode load (decode time divided by play time) above which a source is
+	 * given another buffer.
+	 */
+	private static final float HEAVY_DECODE_LOAD = 0.5f;
+
+	/**
+	 * Decode load below which a source which has not come close to starving may
+	 * give up a buffer.
+	 */
+	private static final float LIGHT_DECODE_LOAD = 0.1f;
+
+	/**
+	 * Number of refills per buffer which must go by without trouble before a
+	 * buffer is given up.
+	 */
+	private static final int CALM_REFILLS_PER_BUFFER = 8;
+
+	/**
+	 * Number of times every queued buffer had finished playing.
+	 */
+	private volatile long underruns = 0;
+
+	/**
+	 * Number of times only one queued buffer was left playing.
+	 */
+	private volatile long nearUnderruns = 0;
+
+	/**
+	 * Number of buffers refilled.
+	 */
+	private volatile long refills = 0;
+
+	/**
+	 * Number of buffers decoded.
+	 */
+	private volatile long decodes = 0;
+
+	/**
+	 * Total nanoseconds spent decoding.
+	 */
+	private volatile long decodeNanos = 0;
+
+	/**
+	 * Longest time in nanoseconds spent decoding one buffer.
+	 */
+	private volatile long maxDecodeNanos = 0;
+
+	/**
+	 * Total nanoseconds of audio decoded.
+	 */
+	private volatile long playNanos = 0;
+
+	/**
+	 * Estimated number of buffers still waiting to be played at the last check.
+	 */
+	private volatile int queueDepth = 0;
+
+	/**
+	 * Lowest queue depth seen so far, or -1 if not checked yet.
+	 */
+	private volatile int minQueueDepth = -1;
+
+	/**
+	 * True from the check which found the source starved until its next
+	 * refill, so a starved source is only counted once.
+	 */
+	private volatile boolean inUnderrun = false;
+
+	/**
+	 * Underruns when the buffer count was last adapted.
+	 */
+	private long lastUnderruns = 0;
+
+	/**
+	 * Near-underruns when the buffer count was last adapted.
+	 */
+	private long lastNearUnderruns = 0;
+
+	/**
+	 * Refills when the buffer count was last adapted.
+	 */
+	private long lastRefills = 0;
+
+	/**
+	 * Records the time taken to decode the specified buffer.
+	 *
+	 * @param nanos  Nanoseconds spent in the codec.
+	 * @param buffer Buffer which was decoded, or null if none.
+	 */
+	public void recordDecode(long nanos, SoundBuffer buffer) {
+		if (buffer == null || buffer.audioData == null) recordDecode(nanos, 0, null);
+		else recordDecode(nanos, buffer.audioData.length, buffer.audioFormat);
+	}
+
+	/**
+	 * Records the time taken to decode the specified number of bytes.
+	 *
+	 * @param nanos  Nanoseconds spent in the codec.
+	 * @param bytes  Number of bytes decoded.
+	 * @param format Format of the data decoded, or null if unknown.
+	 */
+	public void recordDecode(long nanos, int bytes, AudioFormat format) {
+		decodes++;
+		decodeNanos += nanos;
+		if (nanos > maxDecodeNanos) maxDecodeNanos = nanos;
+		if (bytes <= 0 || format == null) return;
+		float bytesPerSecond = format.getSampleRate() * format.getFrameSize();
+		if (bytesPerSecond > 0) playNanos += (long) (bytes * 1000000000.0 / bytesPerSecond);
+	}
+
+	/**
+	 * Records a check on a streaming source's queue.  An underrun is only
+	 * counted when the source goes from not starved to starved, and not again
+	 * until a buffer has been refilled.
+	 *
+	 * @param processed   Number of queued buffers which had finished playing.
+	 * @param bufferCount Number of buffers the source streams with.
+	 * @param starved     True if the channel reported running out of data.
+	 * @return True if this check found the start of a new underrun.
+	 */
+	public boolean recordCheck(int processed, int bufferCount, boolean starved) {
+		int depth = Math.max(0, bufferCount - processed);
+		if (starved) depth = 0;
+		queueDepth = depth;
+		if (minQueueDepth < 0 || depth < minQueueDepth) minQueueDepth = depth;
+		if (depth == 0) {
+			if (inUnderrun) return false;
+			inUnderrun = true;
+			underruns++;
+			return true;
+		}
+		if (depth == 1 && bufferCount > 1) nearUnderruns++;
+		return false;
+	}
+
+	/**
+	 * Records that a buffer was refilled, which ends any underrun in progress.
+	 */
+	public void recordRefill() {
+		refills++;
+		inUnderrun = false;
+	}
+
+	/**
+	 * Checks if the source was starved at the last check and has not been
+	 * refilled since.
+	 *
+	 * @return True during an underrun.
+	 */
+	public boolean isInUnderrun() {
+		return inUnderrun;
+	}
+
+	/**
+	 * Chooses how many buffers a streaming source should use, based on what has
+	 * happened since the last time this method was called.  A source which
+	 * starved, or whose codec takes more than half the playing time of a buffer
+	 * to decode it, gets another buffer.  A source which has had plenty of
+	 * refills without coming close to starving, and which decodes quickly,
+	 * gives one up.
+	 *
+	 * @param current Number of buffers the source is using now.
+	 * @param minimum Fewest buffers to use.
+	 * @param maximum Most buffers to use.
+	 * @return Number of buffers the source should use.
+	 */
+	public int adaptBufferCount(int current, int minimum, int maximum) {
+		long newUnderruns = underruns - lastUnderruns;
+		long newNearUnderruns = nearUnderruns - lastNearUnderruns;
+		long newRefills = refills - lastRefills;
+		float load = getDecodeLoad();
+
+		int count = current;
+		if (newUnderruns > 0 || load > HEAVY_DECODE_LOAD) {
+			count++;
+		} else if (newNearUnderruns == 0 && load < LIGHT_DECODE_LOAD && newRefills >= (long) CALM_REFILLS_PER_BUFFER * current) {
+			count--;
+		} else {
+			// Not enough to go on yet, so keep counting:
+			return Math.max(minimum, Math.min(maximum, count));
+		}
+
+		lastUnderruns = underruns;
+		lastNearUnderruns = nearUnderruns;
+		lastRefills = refills;
+		return Math.max(minimum, Math.min(maximum, count));
+	}
+
+	/**
+	 * Returns the number of times every queued buffer had finished playing
+	 * before more data arrived.
+	 *
+	 * @return Number of underruns.
+	 */
+	public long getUnderruns() {
+		return underruns;
+	}
+
+	/**
+	 * Returns the number of times only one queued buffer was left playing.
+	 *
+	 * @return Number of near-underruns.
+	 */
+	public long getNearUnderruns() {
+		return nearUnderruns;
+	}
+
+	/**
+	 * Returns the number of buffers which have been refilled.
+	 *
+	 * @return Number of refills.
+	 */
+	public long getRefills() {
+		return refills;
+	}
+
+	/**
+	 * Returns the average time taken to decode one buffer.
+	 *
+	 * @return Milliseconds, or 0 if nothing has been decoded.
+	 */
+	public float getAverageDecodeMillis() {
+		long count = decodes;
+		if (count == 0) return 0;
+		return decodeNanos / (count * 1000000.0f);
+	}
+
+	/**
+	 * Returns the longest time taken to decode one buffer.
+	 *
+	 * @return Milliseconds.
+	 */
+	public float getMaxDecodeMillis() {
+		return maxDecodeNanos / 1000000.0f;
+	}
+
+	/**
+	 * Returns the time spent decoding divided by the playing time of the audio
+	 * decoded.  Values near 1 mean the codec can barely keep up.
+	 *
+	 * @return Decode load, or 0 if unknown.
+	 */
+	public float getDecodeLoad() {
+		long played = playNanos;
+		if (played <= 0) return 0;
+		return (float) decodeNanos / played;
+	}
+
+	/**
+	 * Returns the estimated number of buffers waiting to be played at the last
+	 * check.
+	 *
+	 * @return Number of buffers.
+	 */
+	public int getQueueDepth() {
+		return queueDepth;
+	}
+
+	/**
+	 * Returns the lowest number of buffers seen waiting to be played.
+	 *
+	 * @return Number of buffers, or -1 if the source has not been checked.
+	 */
+	public int getMinQueueDepth() {
+		return minQueueDepth;
+	}
+
+	/**
+	 * Sets all counters back to zero.
+	 */
+	public void reset() {
+		underruns = 0;
+		nearUnderruns = 0;
+		refills = 0;
+		decodes = 0;
+		decodeNanos = 0;
+		maxDecodeNanos = 0;
+		playNanos = 0;
+		queueDepth = 0;
+		minQueueDepth = -1;
+		inUnderrun = false;
+		lastUnderruns = 0;
+		lastNearUnderruns = 0;
+		lastRefills = 0;
+	}
+
+	/**
+	 * Returns a summary of the statistics.
+	 *
+	 * @return Readable text.
+	 */
+	@Override
+	public String toString() {
+		return "underruns=" + underruns + ", nearUnderruns=" + nearUnderruns + ", refills=" + refills + ", avgDecodeMillis=" + getAverageDecodeMillis() + ", maxDecodeMillis=" + getMaxDecodeMillis() + ", decodeLoad=" + getDecodeLoad() + ", queueDepth=" + queueDepth + ", minQueueDepth=" + minQueueDepth;
+	}
+}
@@ -28,33 +28,75 @@
 
 package paulscode.sound;
 
-import java.util.LinkedList;
-import java.util.List;
-import java.util.ListIterator;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.PriorityQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.sound.sampled.AudioFormat;
 
 /**
  * The StreamThread class is used to process all streaming sources.  This
  * thread starts out asleep, and it sleeps when all streaming sources are
- * finished playing, so it is necessary to call interrupt() after adding new
- * streaming sources to the list.
+ * finished playing, so it is necessary to call wake() after adding new
+ * streaming sources to the list.  Rather than checking every source at a fixed
+ * rate, each source is given a deadline based on how long its queued buffers
+ * take to play, and the thread sleeps until the earliest deadline comes up.
+ * If {@link SoundSystemConfig#setDecodeThreads(int) decode threads} are
+ * enabled, the StreamThread owns them, and they decode buffers for each source
+ * ahead of time so this thread only has to queue finished buffers.
  */
 @SuppressWarnings({"unused", "FieldMayBeFinal"})
 public class StreamThread extends SimpleThread {
+	/**
+	 * Milliseconds between checks on sources whose timing can't be predicted,
+	 * such as raw data streams, fading sources, and sources which are about to
+	 * finish playing.
+	 */
+	private static final long POLL_INTERVAL = 20;
+
+	/**
+	 * Milliseconds to wait before trying again when a source's codec is busy on
+	 * a decode thread.
+	 */
+	private static final long BUSY_INTERVAL = 2;
+
+	/**
+	 * Fewest milliseconds before a source is processed again, so a source whose
+	 * next buffers keep failing to load can't keep this thread busy.
+	 */
+	private static final long MIN_INTERVAL = 1;
+
 	/**
 	 * Processes status messages, warnings, and error messages.
 	 */
 	private SoundSystemLogger logger;
 
 	/**
-	 * List of sources that are currently streaming.
+	 * Sources that are currently streaming, ordered by the time they should
+	 * next be processed.
 	 */
-	private List<Source> streamingSources;
+	private PriorityQueue<Source> streamingSources;
 
 	/**
 	 * Used to synchronize access to the streaming sources list.
 	 */
 	private final Object listLock = new Object();
 
+	/**
+	 * Sources processed during the current pass, waiting to be put back into
+	 * the streaming sources list.  Only used by the Stream Thread.
+	 */
+	private final ArrayList<Source> processed = new ArrayList<>();
+
+	/**
+	 * Threads which decode streaming sources ahead of time, or null if
+	 * SoundSystemConfig.getDecodeThreads() is 0.
+	 */
+	private ExecutorService decodePool = null;
+
 	/**
 	 * Constructor:  Grabs a handle to the message logger and instantiates the
 	 * streaming sources list.
@@ -63,7 +105,17 @@ public class StreamThread extends SimpleThread {
 		// grab a handle to the message logger:
 		logger = SoundSystemConfig.getLogger();
 
-		streamingSources = new LinkedList<>();
+		streamingSources = new PriorityQueue<>(16, (a, b) -> Long.compare(a.streamDeadline - b.streamDeadline, 0));
+
+		int threads = SoundSystemConfig.getDecodeThreads();
+		if (threads > 0) {
+			AtomicInteger count = new AtomicInteger();
+			decodePool = Executors.newFixedThreadPool(threads, runnable -> {
+				Thread thread = new Thread(runnable, "Decode Thread " + count.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
 	}
 
 	/**
@@ -74,110 +126,215 @@ public class StreamThread extends SimpleThread {
 	@Override
 	protected void cleanup() {
 		kill();
+		if (decodePool != null) decodePool.shutdown();
 		super.cleanup();  // Important!!
 	}
 
 	/**
 	 * The main loop for processing commands.  The thread sleeps when it finishes
-	 * processing commands, and it must be interrupted to process more.
+	 * processing commands, and it must be woken up to process more.
 	 */
 	@Override
 	public void run() {
-		ListIterator<Source> iterator;
 		Source src;
+		long now;
+		long delay;
+		long sleepTime;
 
 		// Start out asleep:
 		snooze(3600000);
 
 		while (!dying()) {
-			while (!dying() && !streamingSources.isEmpty()) {
-				// Make sure no one else is accessing the list of sources:
-				synchronized (listLock) {
-					iterator = streamingSources.listIterator();
-					while (!dying() && iterator.hasNext()) {
-						src = iterator.next();
-						// If this is a removed source, we clean up here and then let normal cleanup run
-						// https://github.com/MinecraftForge/MinecraftForge/pull/4765
-						if (src != null && src.removed) {
-							src.cleanup();
-							src = null;
-						}
-						if (src == null) {
-							iterator.remove();
-						} else if (src.stopped()) {
-							if (!src.rawDataStream) iterator.remove();
-						} else if (!src.active()) {
-							if (src.toLoop || src.rawDataStream) src.toPlay = true;
-							iterator.remove();
-						} else if (!src.paused()) {
-							src.checkFadeOut();
-							if ((!src.stream()) && (!src.rawDataStream)) {
-								if (src.channel == null || !src.channel.processBuffer()) {
-									if (src.nextCodec == null) {
-										src.readBuffersFromNextSoundInSequence();
-									}
+			sleepTime = 3600000;  // sleep until there is more to do.
+			// Make sure no one else is accessing the list of sources:
+			synchronized (listLock) {
+				now = System.nanoTime();
+				// Process every source whose deadline has come up, once each:
+				while (!dying() && (src = streamingSources.peek()) != null && src.streamDeadline - now <= 0) {
+					streamingSources.poll();
+					delay = process(src);
+					if (delay >= 0) {
+						src.streamDeadline = now + TimeUnit.MILLISECONDS.toNanos(Math.max(delay, MIN_INTERVAL));
+						processed.add(src);
+					} else {
+						// The source stopped or reached the end of its stream:
+						src.streamWatched = false;
+					}
+				}
+				streamingSources.addAll(processed);
+				processed.clear();
+				// Sleep until the earliest deadline:
+				src = streamingSources.peek();
+				if (src != null) sleepTime = Math.max(1, TimeUnit.NANOSECONDS.toMillis(src.streamDeadline - System.nanoTime()));
+			}
+			if (!dying()) snooze(sleepTime);
+		}
+
+		cleanup();  // Important!!
+	}
+
+	/**
+	 * Streams the next buffer of data to the specified source and handles the
+	 * end of its stream, if necessary.
+	 *
+	 * @param src Source to process.
+	 * @return Milliseconds until the source should be processed again, or -1 to stop watching it.
+	 */
+	private long process(Source src) {
+		// If a decode thread is using this source's codec right now, don't
+		// hold up the other sources waiting for it:
+		if (!src.decodeLock.tryLock()) return BUSY_INTERVAL;
+		try {
+			if (decodePool != null) src.enableDecodeAhead(decodePool, SoundSystemConfig.getDecodeAheadBuffers());
+			return processLocked(src);
+		} finally {
+			src.decodeLock.unlock();
+		}
+	}
+
+	/**
+	 * Does the work of process() while the source's decode lock is held.
+	 *
+	 * @param src Source to process.
+	 * @return Milliseconds until the source should be processed again, or -1 to stop watching it.
+	 */
+	private long processLocked(Source src) {
+		// If this is a removed source, we clean up here and then let normal cleanup run
+		// https://github.com/MinecraftForge/MinecraftForge/pull/4765
+		if (src.removed) {
+			src.cleanup();
+			return -1;
+		}
+		if (src.stopped()) {
+			if (!src.rawDataStream) return -1;
+			return POLL_INTERVAL;
+		} else if (!src.active()) {
+			if (src.toLoop || src.rawDataStream) src.toPlay = true;
+			return -1;
+		} else if (src.paused()) {
+			// Playing again wakes us up with watch(), so there is no hurry:
+			return bufferMillis(src);
+		}
+
+		src.checkFadeOut();
+		if (src.stream()) {
+			// A buffer was refilled.  More may be waiting, so come back well
+			// before the next buffer could possibly run out:
+			return fading(src) ? POLL_INTERVAL : refillMillis(src);
+		}
+		if (src.rawDataStream) return POLL_INTERVAL;
+
+		if (src.channel == null || !src.channel.processBuffer()) {
+			if (src.nextCodec == null) {
+				src.readBuffersFromNextSoundInSequence();
+			}
 /*
-                                    if( src.getSoundSequenceQueueSize() > 0 )
-                                    {
-                                        src.incrementSoundSequence();
-                                    }
-
-                                    // check if this is a looping source
-                                    else*/
-									if (src.toLoop) {
-										// wait for stream to finish playing
-										if (!src.playing()) {
-											// Generate an EOS event:
-											SoundSystemConfig.notifyEOS(src.sourcename, src.getSoundSequenceQueueSize());
-											// Check if the source is currently
-											// in the process of fading out.
-											if (src.checkFadeOut()) {
-												// Source is fading out.
-												// Keep looping until it
-												// finishes.
-											} else {
-												// Source is not fading out.
-												// If there is another sound in
-												// the sequence, switch to it
-												// before replaying.
-												src.incrementSoundSequence();
-											}
-
-											src.preLoad = true;
-										}
-									} else {
-										// wait for stream to finish playing
-										if (!src.playing()) {
-											// Generate an EOS event:
-											SoundSystemConfig.notifyEOS(src.sourcename, src.getSoundSequenceQueueSize());
-											// Check if the source is currently
-											// in the process of fading out
-											if (!src.checkFadeOut()) {
-												// Source is not fading out.
-												// Play anything else that is
-												// in the sound sequence queue.
-												if (src.incrementSoundSequence()) src.preLoad = true;
-												else iterator.remove();  // finished
-											}
-										}
-									}
-								}
-							}
+            if( src.getSoundSequenceQueueSize() > 0 )
+            {
+                src.incrementSoundSequence();
+            }
+
+            // check if this is a looping source
+            else*/
+			if (src.toLoop) {
+				// wait for stream to finish playing
+				if (!src.playing()) {
+					// Generate an EOS event:
+					SoundSystemConfig.notifyEOS(src.sourcename, src.getSoundSequenceQueueSize());
+					// Check if the source is currently
+					// in the process of fading out.
+					if (src.checkFadeOut()) {
+						// Source is fading out.
+						// Keep looping until it
+						// finishes.
+					} else {
+						// Source is not fading out.
+						// If there is another sound in
+						// the sequence, switch to it
+						// before replaying.
+						src.incrementSoundSequence();
+					}
+
+					src.preLoad = true;
+					// Load the next buffers as soon as possible:
+					return MIN_INTERVAL;
+				}
+			} else {
+				// wait for stream to finish playing
+				if (!src.playing()) {
+					// Generate an EOS event:
+					SoundSystemConfig.notifyEOS(src.sourcename, src.getSoundSequenceQueueSize());
+					// Check if the source is currently
+					// in the process of fading out
+					if (!src.checkFadeOut()) {
+						// Source is not fading out.
+						// Play anything else that is
+						// in the sound sequence queue.
+						if (src.incrementSoundSequence()) {
+							src.preLoad = true;
+							return MIN_INTERVAL;
 						}
+						return -1;  // finished
 					}
 				}
-				if (!dying() && !streamingSources.isEmpty()) snooze(20);  // sleep a bit so we don't peg the cpu
 			}
-			if (!dying() && streamingSources.isEmpty()) snooze(3600000);  // sleep until there is more to do.
 		}
 
-		cleanup();  // Important!!
+		// Nothing needed refilling.  If the stream has ended or the source is
+		// fading, keep a close eye on it, otherwise wait until a buffer could
+		// have been used up:
+		if (src.codec == null || src.codec.endOfStream() || fading(src)) return POLL_INTERVAL;
+		return refillMillis(src);
+	}
+
+	/**
+	 * Checks if the specified source is fading in or out, in which case its
+	 * volume needs to be updated often.
+	 *
+	 * @param src Source to check.
+	 * @return True if the source is fading.
+	 */
+	private boolean fading(Source src) {
+		return src.fadeOutGain != -1.0f || src.fadeInGain != 1.0f;
+	}
+
+	/**
+	 * Calculates how long it takes the specified source to play one streaming
+	 * buffer, from the sample rate and frame size of its audio format.
+	 *
+	 * @param src Source to check.
+	 * @return Milliseconds, or POLL_INTERVAL if they can't be calculated.
+	 */
+	private long bufferMillis(Source src) {
+		ICodec codec = src.codec;
+		if (codec == null) return POLL_INTERVAL;
+		AudioFormat format = codec.getAudioFormat();
+		if (format == null) return POLL_INTERVAL;
+		float bytesPerSecond = format.getSampleRate() * format.getFrameSize();
+		if (bytesPerSecond <= 0) return POLL_INTERVAL;
+		float pitch = src.getPitch();
+		if (pitch <= 0) pitch = 1.0f;
+		return (long) (SoundSystemConfig.getStreamingBufferSize() * 1000.0f / (bytesPerSecond * pitch));
+	}
+
+	/**
+	 * Calculates how long to wait before checking whether the specified source
+	 * has used up a buffer.  Since only one buffer is refilled each time a
+	 * source is processed, sources are checked twice per buffer for each
+	 * buffer in the queue, which keeps up with playback with plenty of margin.
+	 *
+	 * @param src Source to check.
+	 * @return Milliseconds.
+	 */
+	private long refillMillis(Source src) {
+		return Math.max(1, bufferMillis(src) / (2L * Math.max(1, src.getNumberStreamingBuffers())));
 	}
 
 	/**
 	 * Adds a new streaming source to the list.  If another source in the list is
 	 * already playing on the same channel, it is stopped and removed from the
-	 * list.
+	 * list.  If the source is already in the list, it will be processed right
+	 * away.
 	 *
 	 * @param source New source to stream.
 	 */
@@ -185,29 +342,34 @@ public class StreamThread extends SimpleThread {
 		// make sure the source exists:
 		if (source == null) return;
 
-		// make sure we aren't already watching this source:
-		if (streamingSources.contains(source)) return;
-
-		ListIterator<Source> iterator;
+		Iterator<Source> iterator;
 		Source src;
 
 		// Make sure no one else is accessing the list of sources:
 		synchronized (listLock) {
-			// Any currently watched source which is null or playing on the
-			// same channel as the new source should be stopped and removed
-			// from the list.
-			iterator = streamingSources.listIterator();
+			// If we are already watching this source, process it right away:
+			if (streamingSources.remove(source)) {
+				source.streamDeadline = System.nanoTime();
+				streamingSources.add(source);
+				return;
+			}
+
+			// Any currently watched source which is playing on the same
+			// channel as the new source should be stopped and removed from
+			// the list.
+			iterator = streamingSources.iterator();
 			while (iterator.hasNext()) {
 				src = iterator.next();
-				if (src == null) {
-					iterator.remove();
-				} else if (source.channel == src.channel) {
+				if (source.channel == src.channel) {
 					src.stop();
+					src.streamWatched = false;
 					iterator.remove();
 				}
 			}
 
 			// Add the new source to the list:
+			source.streamDeadline = System.nanoTime();
+			source.streamWatched = true;
 			streamingSources.add(source);
 		}
 	}
@@ -29,26 +29,33 @@
 package paulscode.sound.codecs;
 
 import java.io.BufferedInputStream;
+import java.io.DataInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URL;
 import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
-import java.nio.ShortBuffer;
 import javax.sound.sampled.AudioFormat;
 import javax.sound.sampled.AudioInputStream;
 import javax.sound.sampled.AudioSystem;
 import javax.sound.sampled.UnsupportedAudioFileException;
 
-import paulscode.sound.ICodec;
+import paulscode.sound.ByteArrayAccumulator;
+import paulscode.sound.IByteBufferCodec;
+import paulscode.sound.ISeekableCodec;
+import paulscode.sound.PCMConverter;
 import paulscode.sound.SoundBuffer;
 import paulscode.sound.SoundSystemConfig;
 import paulscode.sound.SoundSystemLogger;
+import paulscode.sound.StreamBufferPool;
 
 /**
  * The CodecWav class provides an ICodec interface for reading from .wav files.
+ * It can also decode straight into a caller-supplied ByteBuffer (see
+ * {@link IByteBufferCodec}), and seek (see {@link ISeekableCodec}) by going
+ * straight to the offset of the sample frame in the file's data chunk.
  */
 @SuppressWarnings({"FieldMayBeFinal", "unused"})
-public class CodecWav implements ICodec {
+public class CodecWav implements IByteBufferCodec, ISeekableCodec {
 	/**
 	 * True if there is no more data to read in.
 	 */
@@ -64,6 +71,31 @@ public class CodecWav implements ICodec {
 	 */
 	private AudioInputStream myAudioInputStream = null;
 
+	/**
+	 * Reused by read(ByteBuffer) to hold data from the audio input stream.
+	 */
+	private byte[] readBuffer = null;
+
+	/**
+	 * URL to the audio file being streamed from.
+	 */
+	private URL url = null;
+
+	/**
+	 * Sample frame the next read will start at.
+	 */
+	private long framePosition = 0;
+
+	/**
+	 * Length of the stream in sample frames, or -1 if unknown.
+	 */
+	private long frameLength = -1;
+
+	/**
+	 * Offset of the sample data within the file, or -1 if not found yet.
+	 */
+	private long dataOffset = -1;
+
 	/**
 	 * This method is ignored by CodecWav, because it produces "nice" data.
 	 *
@@ -101,8 +133,13 @@ public class CodecWav implements ICodec {
 			return false;
 		}
 
+		this.url = url;
+		framePosition = 0;
+		dataOffset = -1;
 		try {
 			myAudioInputStream = AudioSystem.getAudioInputStream(new BufferedInputStream(url.openStream()));
+			frameLength = myAudioInputStream.getFrameLength();
+			if (frameLength < 0) frameLength = -1;
 		} catch (UnsupportedAudioFileException e) {
 			errorMessage("Unsupported audio format in method 'initialize'");
 			printStackTrace(e);
@@ -149,8 +186,9 @@ public class CodecWav implements ICodec {
 		// Variables used when reading from the audio input stream:
 		int bytesRead = 0, cnt;
 
-		// Allocate memory for the audio data:
-		byte[] streamBuffer = new byte[SoundSystemConfig.getStreamingBufferSize()];
+		// Borrow memory for the audio data:
+		StreamBufferPool pool = SoundSystemConfig.getStreamBufferPool();
+		byte[] streamBuffer = pool.borrow(SoundSystemConfig.getStreamingBufferSize());
 
 		try {
 			// Read until buffer is full or end of stream is reached:
@@ -171,17 +209,127 @@ public class CodecWav implements ICodec {
 		// Return null if no data was read:
 		if (bytesRead <= 0) return null;
 
-		// If we didn't fill the stream buffer entirely, trim it down to size:
-		if (bytesRead < streamBuffer.length) streamBuffer = trimArray(streamBuffer, bytesRead);
-
-
-		// Insert the converted data into a ByteBuffer:
-		byte[] data = convertAudioBytes(streamBuffer, audioFormat.getSampleSizeInBits() == 16);
+		// Convert the data into an array of the right size, and give back the
+		// one it was read into:
+		byte[] data = pool.borrow(bytesRead);
+		putAudioBytes(streamBuffer, bytesRead, audioFormat.getSampleSizeInBits() == 16, ByteBuffer.wrap(data));
+		pool.recycle(streamBuffer);
+		framePosition += bytesRead / audioFormat.getFrameSize();
 
 		// Wrap the data into a SoundBuffer:
 		return new SoundBuffer(data, audioFormat);
 	}
 
+	/**
+	 * Reads in up to one stream buffer worth of audio data, straight into the
+	 * specified buffer.  See {@link SoundSystemConfig SoundSystemConfig} for
+	 * more information about accessing and changing default settings.
+	 *
+	 * @param target Buffer to fill, starting at its position.
+	 * @return Number of bytes read, or -1 if nothing could be read.
+	 */
+	public int read(ByteBuffer target) {
+		if (myAudioInputStream == null) return -1;
+
+		// Get the format for the audio data:
+		AudioFormat audioFormat = myAudioInputStream.getFormat();
+
+		// Check to make sure there is an audio format:
+		if (audioFormat == null) {
+			errorMessage("Audio Format null in method 'read'");
+			return -1;
+		}
+
+		// Variables used when reading from the audio input stream:
+		int bytesRead = 0, cnt;
+		int length = Math.min(target.remaining(), SoundSystemConfig.getStreamingBufferSize());
+		if (readBuffer == null || readBuffer.length < length) readBuffer = new byte[length];
+
+		try {
+			// Read until buffer is full or end of stream is reached:
+			while ((!endOfStream(GET, XXX)) && (bytesRead < length)) {
+				if ((cnt = myAudioInputStream.read(readBuffer, bytesRead, length - bytesRead)) <= 0) {
+					endOfStream(SET, true);
+					break;
+				}
+				// keep track of how many bytes were read:
+				bytesRead += cnt;
+			}
+		} catch (IOException ioe) {
+			endOfStream(SET, true);
+			return -1;
+		}
+
+		// Return -1 if no data was read:
+		if (bytesRead <= 0) return -1;
+
+		putAudioBytes(readBuffer, bytesRead, audioFormat.getSampleSizeInBits() == 16, target);
+		framePosition += bytesRead / audioFormat.getFrameSize();
+		return bytesRead;
+	}
+
+	/**
+	 * Moves the stream to the specified sample frame.  Moving forward skips
+	 * ahead in the current stream.  Moving back opens the file again at the
+	 * frame's offset in the data chunk, without parsing the header again.
+	 *
+	 * @param frame Sample frame to move to, counting from 0.
+	 * @return False if the stream is not initialized or could not be moved.
+	 */
+	public boolean seek(long frame) {
+		if (!initialized(GET, XXX) || myAudioInputStream == null) return false;
+		AudioFormat audioFormat = myAudioInputStream.getFormat();
+		int frameSize = audioFormat.getFrameSize();
+		if (frameSize <= 0) return false;
+		if (frame < 0) frame = 0;
+		if (frameLength >= 0 && frame > frameLength) frame = frameLength;
+
+		try {
+			if (frame >= framePosition) {
+				skipFully(myAudioInputStream, (frame - framePosition) * frameSize);
+			} else {
+				boolean pcm = audioFormat.getEncoding() == AudioFormat.Encoding.PCM_SIGNED || audioFormat.getEncoding() == AudioFormat.Encoding.PCM_UNSIGNED;
+				if (pcm && dataOffset < 0) dataOffset = findDataOffset(url);
+				if (pcm && dataOffset >= 0) {
+					InputStream inputStream = new BufferedInputStream(url.openStream());
+					skipFully(inputStream, dataOffset + frame * frameSize);
+					myAudioInputStream.close();
+					myAudioInputStream = new AudioInputStream(inputStream, audioFormat, frameLength < 0 ? AudioSystem.NOT_SPECIFIED : frameLength - frame);
+				} else {
+					// Compressed data, so read it again from the beginning:
+					if (!initialize(url)) return false;
+					skipFully(myAudioInputStream, frame * frameSize);
+				}
+			}
+		} catch (IOException e) {
+			errorMessage("Unable to seek in method 'seek'");
+			printStackTrace(e);
+			return false;
+		}
+
+		framePosition = frame;
+		endOfStream(SET, false);
+		return true;
+	}
+
+	/**
+	 * Returns the sample frame the next read will start at.
+	 *
+	 * @return Sample frame.
+	 */
+	public long position() {
+		return framePosition;
+	}
+
+	/**
+	 * Returns the length of the stream.
+	 *
+	 * @return Number of sample frames, or -1 if unknown.
+	 */
+	public long length() {
+		return frameLength;
+	}
+
 	/**
 	 * Reads in all the audio data from the stream (up to the default "maximum file size").
 	 * See {@link SoundSystemConfig} for more information about accessing and changing default settings.
@@ -231,6 +379,9 @@ public class CodecWav implements ICodec {
 			// Allocate memory for a chunk of data:
 			smallBuffer = new byte[SoundSystemConfig.getFileChunkSize()];
 
+			// Collects the chunks, to be copied into one array at the end:
+			ByteArrayAccumulator accumulator = new ByteArrayAccumulator();
+
 			// Read until end of file or maximum file size is reached:
 			while ((!endOfStream(GET, XXX)) && (totalBytes < SoundSystemConfig.getMaxFileSize())) {
 				bytesRead = 0;
@@ -254,13 +405,15 @@ public class CodecWav implements ICodec {
 				totalBytes += bytesRead;
 
 				// Append the small buffer to the full buffer:
-				fullBuffer = appendByteArrays(fullBuffer, smallBuffer, bytesRead);
+				accumulator.append(smallBuffer, 0, bytesRead);
 			}
+			fullBuffer = accumulator.toByteArray();
 		}
 
-		// Insert the converted data into a ByteBuffer
-		byte[] data = null;
-		if (fullBuffer != null) data = convertAudioBytes(fullBuffer, myAudioFormat.getSampleSizeInBits() == 16);
+		// Convert the data to native byte order:
+		if (fullBuffer != null && myAudioFormat.getSampleSizeInBits() == 16)
+			PCMConverter.littleEndianToNative16(fullBuffer, 0, fullBuffer.length);
+		byte[] data = fullBuffer;
 
 		// Wrap the data into an SoundBuffer:
 		SoundBuffer soundBuffer = new SoundBuffer(data, myAudioFormat);
@@ -288,6 +441,7 @@ public class CodecWav implements ICodec {
 	 * Closes the audio stream and remove references to all instantiated objects.
 	 */
 	public void cleanup() {
+		initialized(SET, false);
 		if (myAudioInputStream != null) try {
 			myAudioInputStream.close();
 		} catch (Exception ignored) {
@@ -331,91 +485,71 @@ public class CodecWav implements ICodec {
 	}
 
 	/**
-	 * Trims down the size of the array if it is larger than the specified
-	 * maximum length.
+	 * Skips the specified number of bytes, stopping early at the end of the
+	 * stream.
 	 *
-	 * @param array     Array containing audio data.
-	 * @param maxLength Maximum size this array may be.
-	 * @return New array.
+	 * @param inputStream Stream to skip bytes in.
+	 * @param bytes       Number of bytes to skip.
 	 */
-	private static byte[] trimArray(byte[] array, int maxLength) {
-		byte[] trimmedArray = null;
-		if (array != null && array.length > maxLength) {
-			trimmedArray = new byte[maxLength];
-			System.arraycopy(array, 0, trimmedArray, 0, maxLength);
+	private static void skipFully(InputStream inputStream, long bytes) throws IOException {
+		long skipped;
+		while (bytes > 0) {
+			skipped = inputStream.skip(bytes);
+			if (skipped <= 0) {
+				// Skip may return 0 before the end, so check by reading:
+				if (inputStream.read() < 0) return;
+				skipped = 1;
+			}
+			bytes -= skipped;
 		}
-		return trimmedArray;
 	}
 
 	/**
-	 * Converts sound bytes to little-endian format.
+	 * Finds where the sample data starts in a RIFF WAVE file, by walking
+	 * through the chunks until the "data" chunk is found.
 	 *
-	 * @param audio_bytes    The original wave data
-	 * @param two_bytes_data For stereo sounds.
-	 * @return byte array containing the converted data.
+	 * @param url URL to the file.
+	 * @return Offset of the sample data, or -1 if not found.
 	 */
-	private static byte[] convertAudioBytes(byte[] audio_bytes, boolean two_bytes_data) {
-		ByteBuffer dest = ByteBuffer.allocateDirect(audio_bytes.length);
-		dest.order(ByteOrder.nativeOrder());
-		ByteBuffer src = ByteBuffer.wrap(audio_bytes);
-		src.order(ByteOrder.LITTLE_ENDIAN);
-		if (two_bytes_data) {
-			ShortBuffer dest_short = dest.asShortBuffer();
-			ShortBuffer src_short = src.asShortBuffer();
-			while (src_short.hasRemaining()) {
-				dest_short.put(src_short.get());
+	private static long findDataOffset(URL url) {
+		byte[] id = new byte[4];
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(url.openStream()))) {
+			in.readFully(id);
+			if (!"RIFF".equals(new String(id, "US-ASCII"))) return -1;
+			skipFully(in, 4);
+			in.readFully(id);
+			if (!"WAVE".equals(new String(id, "US-ASCII"))) return -1;
+
+			long offset = 12;
+			long size;
+			while (true) {
+				in.readFully(id);
+				// Chunk sizes are little-endian:
+				size = Integer.reverseBytes(in.readInt()) & 0xFFFFFFFFL;
+				offset += 8;
+				if ("data".equals(new String(id, "US-ASCII"))) return offset;
+				// Chunks are padded to an even size:
+				size += size & 1;
+				skipFully(in, size);
+				offset += size;
 			}
-		} else {
-			while (src.hasRemaining()) {
-				dest.put(src.get());
-			}
-		}
-		dest.rewind();
-
-		if (!dest.hasArray()) {
-			byte[] arrayBackedBuffer = new byte[dest.capacity()];
-			dest.get(arrayBackedBuffer);
-			dest.clear();
-
-			return arrayBackedBuffer;
+		} catch (IOException e) {
+			return -1;
 		}
-
-		return dest.array();
 	}
 
 	/**
-	 * Creates a new array with the second array appended to the end of the first
-	 * array.
+	 * Copies little-endian audio data into the specified buffer in native byte
+	 * order.  16-bit data is converted in place before it is copied.
 	 *
-	 * @param arrayOne The first array.
-	 * @param arrayTwo The second array.
-	 * @param length   How many bytes to append from the second array.
-	 * @return Byte array containing information from both arrays.
+	 * @param audioBytes   Little-endian audio data.
+	 * @param length       Number of bytes to copy.
+	 * @param twoBytesData True if the data is 16-bit.
+	 * @param target       Buffer to copy into, starting at its position.
 	 */
-	private static byte[] appendByteArrays(byte[] arrayOne, byte[] arrayTwo, int length) {
-		byte[] newArray;
-		if (arrayOne == null && arrayTwo == null) {
-			// no data, just return
-			return null;
-		} else if (arrayOne == null) {
-			// create the new array, same length as arrayTwo:
-			newArray = new byte[length];
-			// fill the new array with the contents of arrayTwo:
-			System.arraycopy(arrayTwo, 0, newArray, 0, length);
-		} else if (arrayTwo == null) {
-			// create the new array, same length as arrayOne:
-			newArray = new byte[arrayOne.length];
-			// fill the new array with the contents of arrayOne:
-			System.arraycopy(arrayOne, 0, newArray, 0, arrayOne.length);
-		} else {
-			// create the new array large enough to hold both arrays:
-			newArray = new byte[arrayOne.length + length];
-			System.arraycopy(arrayOne, 0, newArray, 0, arrayOne.length);
-			// fill the new array with the contents of both arrays:
-			System.arraycopy(arrayTwo, 0, newArray, arrayOne.length, length);
-		}
-
-		return newArray;
+	private static void putAudioBytes(byte[] audioBytes, int length, boolean twoBytesData, ByteBuffer target) {
+		if (twoBytesData) PCMConverter.littleEndianToNative16(audioBytes, 0, length);
+		target.put(audioBytes, 0, length);
 	}
 
 	/**